@@ -0,0 +1,22 @@
+package oop_example.benchmarks;
+
+import oop_example.parser.ParseException;
+import oop_example.parser.Parser;
+import oop_example.typechecker.TypeError;
+import oop_example.typechecker.Typechecker;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+// Parses and checks one file, then exits: what checking costs without a
+// daemon.  Used by DaemonBenchmark.coldStart.
+public class ColdCheck {
+    public static void main(final String[] args) throws IOException, ParseException {
+        final List<TypeError> errors = Typechecker.collectErrors(Parser.parseFile(Paths.get(args[0])));
+        for (final TypeError error : errors) {
+            System.err.println(error);
+        }
+        System.exit(errors.isEmpty() ? 0 : 1);
+    }
+}
@@ -0,0 +1,75 @@
+package oop_example.benchmarks;
+
+import oop_example.daemon.CompileDaemon;
+import oop_example.daemon.DaemonClient;
+import oop_example.generator.ProgramGenerator;
+import oop_example.parser.SourcePrinter;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Latency of checking a program with a CompileDaemon, against starting a
+// fresh JVM for every check as a command-line checker would.
+//
+// - daemon: send the source to a daemon running in this JVM and wait for
+//   the errors, over a loopback connection
+// - coldStart: run ColdCheck on the source file in a new JVM
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaemonBenchmark {
+    @Param({"10", "100"})
+    public int classCount;
+
+    @Param({"0"})
+    public long seed;
+
+    private String source;
+    private File file;
+    private CompileDaemon daemon;
+    private DaemonClient client;
+
+    @Setup
+    public void setup() throws IOException {
+        final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+        settings.classCount = classCount;
+        settings.seed = seed;
+        source = SourcePrinter.print(ProgramGenerator.generate(settings));
+        file = File.createTempFile("daemon-benchmark", ".oop");
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        daemon = CompileDaemon.start(new CompileDaemon.Settings());
+        client = new DaemonClient(daemon.port());
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        daemon.shutdown();
+        daemon.awaitTermination(10, TimeUnit.SECONDS);
+        file.delete();
+    }
+
+    @Benchmark
+    public DaemonClient.Response daemon() throws IOException {
+        return client.check(source);
+    }
+
+    @Benchmark
+    public int coldStart() throws IOException, InterruptedException {
+        final Process process = new ProcessBuilder(System.getProperty("java.home") + File.separator + "bin" +
+                                                   File.separator + "java",
+                                                   "-cp", System.getProperty("java.class.path"),
+                                                   ColdCheck.class.getName(),
+                                                   file.getPath())
+            .inheritIO()
+            .start();
+        return process.waitFor();
+    }
+}
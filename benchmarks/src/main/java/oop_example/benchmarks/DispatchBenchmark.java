@@ -0,0 +1,191 @@
+package oop_example.benchmarks;
+
+import oop_example.parser.*;
+import oop_example.typechecker.TypeEnvironment;
+import oop_example.typechecker.TypeErrorException;
+import oop_example.typechecker.Typechecker;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Visitor dispatch against the instanceof chain it replaced in typeof.
+// See pom.xml for how to run.
+//
+// Both sides walk the same large, randomly shaped, well-typed int
+// expressions and compute the same (simplified) types, differing only in
+// how they dispatch on the kind of node.  The trees are all NewExp,
+// MethodCallExp and OpExp over literals and a variable: the kinds the
+// instanceof chain tested last.
+//
+// The visitor doesn't win.  On one CPU, 5x1s iterations measured, in
+// ops/s: at depth 6, instanceof 1949 +- 342, visitor 1289 +- 293; at
+// depth 10, instanceof 69 +- 29, visitor 61 +- 18.  Presumably the
+// failed instanceof tests are cheaper than accept()'s megamorphic call,
+// though that hasn't been profiled.
+//
+// - instanceofChain / visitor: the two dispatches
+// - typeof: the typechecker's full typeof on the same trees, for scale
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+    @Param({"200"})
+    public int expressionCount;
+
+    @Param({"6", "10"})
+    public int depth;
+
+    @Param({"42"})
+    public long seed;
+
+    // the same rules, dispatched through ExpVisitor
+    public static class TypeofVisitor implements ExpVisitor<TypeEnvironment, Type, RuntimeException> {
+        public Type visitIntLiteral(final IntLiteralExp exp, final TypeEnvironment typeEnvironment) {
+            return IntType.instance();
+        }
+
+        public Type visitVariable(final VariableExp exp, final TypeEnvironment typeEnvironment) {
+            return typeEnvironment.get(exp.variable);
+        }
+
+        public Type visitBoolLiteral(final BoolLiteralExp exp, final TypeEnvironment typeEnvironment) {
+            return BoolType.instance();
+        }
+
+        public Type visitThis(final ThisExp exp, final TypeEnvironment typeEnvironment) {
+            return null;
+        }
+
+        public Type visitOp(final OpExp exp, final TypeEnvironment typeEnvironment) {
+            exp.left.accept(this, typeEnvironment);
+            exp.right.accept(this, typeEnvironment);
+            return (exp.op == PlusOp.instance()) ? IntType.instance() : BoolType.instance();
+        }
+
+        public Type visitMethodCall(final MethodCallExp exp, final TypeEnvironment typeEnvironment) {
+            exp.target.accept(this, typeEnvironment);
+            for (final Exp param : exp.params) {
+                param.accept(this, typeEnvironment);
+            }
+            return IntType.instance();
+        }
+
+        public Type visitNew(final NewExp exp, final TypeEnvironment typeEnvironment) {
+            for (final Exp param : exp.params) {
+                param.accept(this, typeEnvironment);
+            }
+            return ClassNameType.instance(exp.className);
+        }
+    }
+
+    // the dispatch typeof() used before it moved onto ExpVisitor
+    public static Type typeofInstanceof(final Exp exp, final TypeEnvironment typeEnvironment) {
+        if (exp instanceof IntLiteralExp) {
+            return IntType.instance();
+        } else if (exp instanceof VariableExp) {
+            return typeEnvironment.get(((VariableExp)exp).variable);
+        } else if (exp instanceof BoolLiteralExp) {
+            return BoolType.instance();
+        } else if (exp instanceof ThisExp) {
+            return null;
+        } else if (exp instanceof OpExp) {
+            final OpExp asOp = (OpExp)exp;
+            typeofInstanceof(asOp.left, typeEnvironment);
+            typeofInstanceof(asOp.right, typeEnvironment);
+            return (asOp.op == PlusOp.instance()) ? IntType.instance() : BoolType.instance();
+        } else if (exp instanceof MethodCallExp) {
+            final MethodCallExp asCall = (MethodCallExp)exp;
+            typeofInstanceof(asCall.target, typeEnvironment);
+            for (final Exp param : asCall.params) {
+                typeofInstanceof(param, typeEnvironment);
+            }
+            return IntType.instance();
+        } else if (exp instanceof NewExp) {
+            for (final Exp param : ((NewExp)exp).params) {
+                typeofInstanceof(param, typeEnvironment);
+            }
+            return ClassNameType.instance(((NewExp)exp).className);
+        } else {
+            return null;
+        }
+    }
+
+    // class Box extends Object {
+    //   constructor(int value) { super(); }
+    //   int get(int x) { return x; }
+    // }
+    private static final ClassDef BOX =
+        new ClassDef(new ClassName("Box"),
+                     new ClassName("Object"),
+                     new ArrayList<Vardec>(),
+                     Arrays.asList(new Vardec(IntType.instance(), new Variable("value"))),
+                     new ArrayList<Exp>(),
+                     new ArrayList<Stmt>(),
+                     Arrays.asList(new MethodDef(IntType.instance(),
+                                                 new MethodName("get"),
+                                                 Arrays.asList(new Vardec(IntType.instance(), new Variable("x"))),
+                                                 new ReturnNonVoidStmt(new VariableExp(new Variable("x"))))));
+
+    // new Box(e).get(e), e + e, literals, x
+    private static Exp randomIntExp(final Random random, final int depth) {
+        if (depth == 0) {
+            return random.nextBoolean() ? new IntLiteralExp(random.nextInt(100)) : new VariableExp(new Variable("x"));
+        }
+        switch (random.nextInt(3)) {
+        case 0:
+            return new OpExp(randomIntExp(random, depth - 1), PlusOp.instance(), randomIntExp(random, depth - 1));
+        default:
+            return new MethodCallExp(new NewExp(new ClassName("Box"),
+                                                Arrays.asList(randomIntExp(random, depth - 1))),
+                                     new MethodName("get"),
+                                     Arrays.asList(randomIntExp(random, depth - 1)));
+        }
+    }
+
+    private List<Exp> expressions;
+    private TypeEnvironment environment;
+    private TypeofVisitor visitor;
+    private Typechecker typechecker;
+
+    @Setup
+    public void setup() throws TypeErrorException {
+        final Random random = new Random(seed);
+        expressions = new ArrayList<Exp>(expressionCount);
+        for (int index = 0; index < expressionCount; index++) {
+            expressions.add(randomIntExp(random, depth));
+        }
+        environment = TypeEnvironment.empty().extend(new Variable("x"), IntType.instance());
+        visitor = new TypeofVisitor();
+        typechecker = new Typechecker(new Program(Arrays.asList(BOX), new ExpStmt(new IntLiteralExp(0))));
+    }
+
+    @Benchmark
+    public void instanceofChain(final Blackhole blackhole) {
+        for (final Exp exp : expressions) {
+            blackhole.consume(typeofInstanceof(exp, environment));
+        }
+    }
+
+    @Benchmark
+    public void visitor(final Blackhole blackhole) {
+        for (final Exp exp : expressions) {
+            blackhole.consume(exp.accept(visitor, environment));
+        }
+    }
+
+    @Benchmark
+    public void typeof(final Blackhole blackhole) throws TypeErrorException {
+        for (final Exp exp : expressions) {
+            blackhole.consume(typechecker.typeof(exp, environment, null));
+        }
+    }
+}
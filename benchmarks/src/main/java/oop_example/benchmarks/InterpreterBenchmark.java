@@ -0,0 +1,107 @@
+package oop_example.benchmarks;
+
+import oop_example.codegen.BytecodeCompiler;
+import oop_example.codegen.CodegenException;
+import oop_example.codegen.CompiledProgram;
+import oop_example.interpreter.EvaluationException;
+import oop_example.interpreter.Interpreter;
+import oop_example.parser.ParseException;
+import oop_example.parser.Parser;
+import oop_example.parser.Program;
+import oop_example.typechecker.TypeErrorException;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+// The self-specializing Interpreter against NaiveEvaluator and the JVM
+// bytecode backend on call-heavy programs.  There's no assignment in the language, so repetition is
+// recursion:
+// - fib: doubly recursive, monomorphic call sites
+// - shapes: sums over a list of 6 shape classes, one megamorphic call site
+//
+// The Interpreter is created once per trial and run repeatedly, as a
+// long-lived embedder would, and so is the CompiledProgram, which keeps its
+// loaded (and by then JIT-compiled) classes between runs.  All of them
+// print one line per run.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xss512m"})
+@State(Scope.Benchmark)
+public class InterpreterBenchmark {
+    public static final String FIB =
+        "class Fib extends Object {" +
+        "  constructor() { super(); }" +
+        "  int fib(int n) { if (n < 2) { return n; } else { return this.fib(n + -1) + this.fib(n + -2); } }" +
+        "}" +
+        "{ println(new Fib().fib(22)); }";
+
+    public static String shapes() {
+        final StringBuilder source = new StringBuilder();
+        source.append("class Shape extends Object { constructor() { super(); } int area() { return 0; } }");
+        for (int index = 1; index <= 6; index++) {
+            source.append("class S" + index + " extends Shape { constructor() { super(); } " +
+                          "int area() { return " + index + "; } }");
+        }
+        // a linked list of shapes, summed n times over
+        source.append("class Node extends Object { Shape shape, Node next; constructor() { super(); } " +
+                      "  int sum(Node list, int n) { if (n < 1) { return 0; } else { " +
+                      "    return this.sumList(list, 0) + this.sum(list, n + -1); } } " +
+                      "  int sumList(Node list, int i) { if (i < 6) { return this.shapeAt(i).area() + this.sumList(list, i + 1); } " +
+                      "    else { return 0; } } " +
+                      "  Shape shapeAt(int i) { if (i == 0) { return new S1(); } else { if (i == 1) { return new S2(); } else { " +
+                      "    if (i == 2) { return new S3(); } else { if (i == 3) { return new S4(); } else { " +
+                      "    if (i == 4) { return new S5(); } else { return new S6(); } } } } } } " +
+                      "}");
+        source.append("{ Node node = new Node(); println(node.sum(node, 5000)); }");
+        return source.toString();
+    }
+
+    @Param({"fib", "shapes"})
+    public String workload;
+
+    private Program program;
+    private Interpreter interpreter;
+    private NaiveEvaluator naive;
+    private CompiledProgram compiled;
+    private PrintStream nowhere;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setup() throws ParseException, TypeErrorException, CodegenException {
+        program = Parser.parse(workload.equals("fib") ? FIB : shapes());
+        nowhere = new PrintStream(new OutputStream() {
+                public void write(final int b) {}
+            });
+        interpreter = new Interpreter(program, nowhere);
+        naive = new NaiveEvaluator(program);
+        compiled = BytecodeCompiler.compile(program);
+        // NaiveEvaluator prints to System.out
+        originalOut = System.out;
+        System.setOut(nowhere);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void specializing() throws EvaluationException {
+        interpreter.run();
+    }
+
+    @Benchmark
+    public void naive() {
+        naive.run();
+    }
+
+    @Benchmark
+    public void compiled() throws EvaluationException {
+        compiled.run(nowhere);
+    }
+}
@@ -0,0 +1,191 @@
+package oop_example.benchmarks;
+
+import oop_example.parser.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The baseline InterpreterBenchmark compares against: walks the AST as is,
+// with boxed values, a fresh HashMap per scope, and method and class
+// lookups by name on every call.  Assumes a well-typed program.
+public class NaiveEvaluator {
+    private final Program program;
+
+    public NaiveEvaluator(final Program program) {
+        this.program = program;
+    }
+
+    private static class NaiveObject {
+        final ClassDef classDef;
+
+        NaiveObject(final ClassDef classDef) {
+            this.classDef = classDef;
+        }
+    }
+
+    // thrown to unwind a return statement
+    private static class Return extends RuntimeException {
+        final Object value;
+
+        Return(final Object value) {
+            super(null, null, false, false);
+            this.value = value;
+        }
+    }
+
+    private static class Env {
+        final NaiveObject self;
+        final Map<Variable, Object> variables;
+
+        Env(final NaiveObject self, final Map<Variable, Object> variables) {
+            this.self = self;
+            this.variables = variables;
+        }
+
+        Env copy() {
+            return new Env(self, new HashMap<Variable, Object>(variables));
+        }
+    }
+
+    private ClassDef classNamed(final ClassName className) {
+        for (final ClassDef classDef : program.classes) {
+            if (classDef.className.equals(className)) {
+                return classDef;
+            }
+        }
+        return null; // Object
+    }
+
+    private Object defaultFor(final Type type) {
+        if (type == IntType.instance()) {
+            return 0;
+        } else if (type == BoolType.instance()) {
+            return false;
+        } else {
+            return null;
+        }
+    }
+
+    // instance variables are never assigned, so they always hold defaults
+    private Object field(final ClassDef classDef, final Variable variable) {
+        for (ClassDef current = classDef; current != null; current = classNamed(current.extendsClassName)) {
+            for (final Vardec vardec : current.instanceVariables) {
+                if (vardec.variable.equals(variable)) {
+                    return defaultFor(vardec.type);
+                }
+            }
+        }
+        throw new IllegalStateException("Unknown variable: " + variable);
+    }
+
+    public void run() {
+        execute(program.entryPoint, new Env(null, new HashMap<Variable, Object>()));
+    }
+
+    private Object evaluate(final Exp exp, final Env env) {
+        if (exp instanceof IntLiteralExp) {
+            return ((IntLiteralExp)exp).value;
+        } else if (exp instanceof BoolLiteralExp) {
+            return ((BoolLiteralExp)exp).value;
+        } else if (exp instanceof VariableExp) {
+            final Variable variable = ((VariableExp)exp).variable;
+            if (env.variables.containsKey(variable)) {
+                return env.variables.get(variable);
+            }
+            return field(env.self.classDef, variable);
+        } else if (exp instanceof ThisExp) {
+            return env.self;
+        } else if (exp instanceof OpExp) {
+            final OpExp asOp = (OpExp)exp;
+            final int left = (Integer)evaluate(asOp.left, env);
+            final int right = (Integer)evaluate(asOp.right, env);
+            if (asOp.op == PlusOp.instance()) {
+                return left + right;
+            } else if (asOp.op == LessThanOp.instance()) {
+                return left < right;
+            } else {
+                return left == right;
+            }
+        } else if (exp instanceof MethodCallExp) {
+            final MethodCallExp asCall = (MethodCallExp)exp;
+            final NaiveObject receiver = (NaiveObject)evaluate(asCall.target, env);
+            for (ClassDef current = receiver.classDef; current != null; current = classNamed(current.extendsClassName)) {
+                for (final MethodDef method : current.methods) {
+                    if (method.methodName.equals(asCall.methodName)) {
+                        final Env callee = bind(receiver, method.arguments, asCall.params, env);
+                        try {
+                            execute(method.body, callee);
+                        } catch (final Return e) {
+                            return e.value;
+                        }
+                        return null;
+                    }
+                }
+            }
+            throw new IllegalStateException("No method " + asCall.methodName);
+        } else {
+            final NewExp asNew = (NewExp)exp;
+            final NaiveObject created = new NaiveObject(classNamed(asNew.className));
+            construct(created, created.classDef, asNew.params, env);
+            return created;
+        }
+    }
+
+    private Env bind(final NaiveObject self,
+                     final List<Vardec> vardecs,
+                     final List<Exp> params,
+                     final Env caller) {
+        final Env callee = new Env(self, new HashMap<Variable, Object>());
+        for (int index = 0; index < vardecs.size(); index++) {
+            callee.variables.put(vardecs.get(index).variable, evaluate(params.get(index), caller));
+        }
+        return callee;
+    }
+
+    private void construct(final NaiveObject self,
+                           final ClassDef classDef,
+                           final List<Exp> params,
+                           final Env caller) {
+        if (classDef == null) {
+            return;
+        }
+        final Env env = bind(self, classDef.constructorArguments, params, caller);
+        construct(self, classNamed(classDef.extendsClassName), classDef.superParams, env);
+        try {
+            for (final Stmt stmt : classDef.constructorBody) {
+                execute(stmt, env);
+            }
+        } catch (final Return e) {
+            // return; in a constructor
+        }
+    }
+
+    private void execute(final Stmt stmt, final Env env) {
+        if (stmt instanceof ExpStmt) {
+            evaluate(((ExpStmt)stmt).exp, env);
+        } else if (stmt instanceof VariableInitializationStmt) {
+            final VariableInitializationStmt asVar = (VariableInitializationStmt)stmt;
+            env.variables.put(asVar.vardec.variable, evaluate(asVar.exp, env));
+        } else if (stmt instanceof IfStmt) {
+            final IfStmt asIf = (IfStmt)stmt;
+            execute((Boolean)evaluate(asIf.guard, env) ? asIf.ifTrue : asIf.ifFalse, env.copy());
+        } else if (stmt instanceof WhileStmt) {
+            final WhileStmt asWhile = (WhileStmt)stmt;
+            while ((Boolean)evaluate(asWhile.guard, env)) {
+                execute(asWhile.body, env.copy());
+            }
+        } else if (stmt instanceof ReturnNonVoidStmt) {
+            throw new Return(evaluate(((ReturnNonVoidStmt)stmt).exp, env));
+        } else if (stmt instanceof ReturnVoidStmt) {
+            throw new Return(null);
+        } else if (stmt instanceof PrintlnStmt) {
+            System.out.println(evaluate(((PrintlnStmt)stmt).exp, env));
+        } else {
+            final Env inner = env.copy();
+            for (final Stmt bodyStmt : ((BlockStmt)stmt).body) {
+                execute(bodyStmt, inner);
+            }
+        }
+    }
+}
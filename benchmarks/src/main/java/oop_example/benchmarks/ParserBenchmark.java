@@ -0,0 +1,94 @@
+package oop_example.benchmarks;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.optimizer.NodeCounter;
+import oop_example.parser.*;
+import oop_example.serialization.AstFormatException;
+import oop_example.serialization.AstLoader;
+import oop_example.serialization.AstWriter;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Lexing and parsing a generated program, from a String and from a mapped
+// file, against loading it from the binary AST format.  Source and binary
+// sizes in bytes are printed at setup; throughput in bytes/s is that times
+// ops/s.
+//
+// loadBinary only decodes the entry point; loadBinaryFully then touches
+// every class and method, as typechecking would.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+    // about 2.5KB of source per class with the other settings at defaults
+    @Param({"1000"})
+    public int classCount;
+
+    @Param({"0"})
+    public long seed;
+
+    private String source;
+    private File file;
+    private File binaryFile;
+
+    @Setup
+    public void setup() throws IOException {
+        final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+        settings.classCount = classCount;
+        settings.seed = seed;
+        final Program program = ProgramGenerator.generate(settings);
+        source = SourcePrinter.print(program);
+        file = File.createTempFile("parser-benchmark", ".oop");
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.US_ASCII));
+        binaryFile = File.createTempFile("parser-benchmark", ".oopa");
+        AstWriter.write(program, binaryFile.toPath());
+        System.err.println("source size: " + source.length() + " bytes, binary size: " +
+                           binaryFile.length() + " bytes");
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+        binaryFile.delete();
+    }
+
+    @Benchmark
+    public int lexString() throws ParseException {
+        final Lexer lexer = new Lexer(source);
+        int tokens = 0;
+        while (lexer.kind != Lexer.Kind.END) {
+            lexer.advance();
+            tokens++;
+        }
+        return tokens;
+    }
+
+    @Benchmark
+    public Program parseString() throws ParseException {
+        return Parser.parse(source);
+    }
+
+    @Benchmark
+    public Program parseFile() throws IOException, ParseException {
+        return Parser.parseFile(file.toPath());
+    }
+
+    @Benchmark
+    public Program loadBinary() throws IOException, AstFormatException {
+        return AstLoader.load(binaryFile.toPath());
+    }
+
+    @Benchmark
+    public int loadBinaryFully() throws IOException, AstFormatException {
+        return NodeCounter.count(AstLoader.load(binaryFile.toPath()));
+    }
+}
@@ -0,0 +1,128 @@
+package oop_example.benchmarks;
+
+import oop_example.arena.ArenaProgram;
+import oop_example.arena.ArenaTypechecker;
+import oop_example.generator.ProgramGenerator;
+import oop_example.parser.*;
+import oop_example.typechecker.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of the typechecker on generated programs.  See pom.xml for how
+// to run; add -prof gc for allocation rates.
+//
+// - program: build the class table and check everything, as a caller would
+// - bodies: check everything with the class table already built
+// - arena: what program does, with ArenaTypechecker on the program's
+//   ArenaProgram form
+// - typeof / expressionsOk: the entry point's int expressions, in the
+//   environment left at the end of the entry point
+// - addToMap: bind the entry point's variables one at a time
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypecheckerBenchmark {
+    @Param({"10", "100"})
+    public int classCount;
+
+    @Param({"3"})
+    public int inheritanceDepth;
+
+    @Param({"5"})
+    public int methodsPerClass;
+
+    @Param({"10"})
+    public int blockLength;
+
+    @Param({"3"})
+    public int expressionDepth;
+
+    @Param({"0.2"})
+    public double callDensity;
+
+    @Param({"0"})
+    public long seed;
+
+    private Program program;
+    private Typechecker typechecker;
+    private ArenaProgram arena;
+    private List<Exp> expressions;
+    private List<Type> expectedTypes;
+    private TypeEnvironment environment;
+    private List<Variable> variables;
+
+    @Setup
+    public void setup() throws TypeErrorException {
+        final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+        settings.classCount = classCount;
+        settings.inheritanceDepth = inheritanceDepth;
+        settings.methodsPerClass = methodsPerClass;
+        settings.blockLength = blockLength;
+        settings.expressionDepth = expressionDepth;
+        settings.callDensity = callDensity;
+        settings.seed = seed;
+        program = ProgramGenerator.generate(settings);
+        typechecker = new Typechecker(program);
+        arena = ArenaProgram.fromProgram(program);
+
+        expressions = new ArrayList<Exp>();
+        variables = new ArrayList<Variable>();
+        environment = TypeEnvironment.empty();
+        for (final Stmt stmt : ((BlockStmt)program.entryPoint).body) {
+            if (stmt instanceof VariableInitializationStmt) {
+                final VariableInitializationStmt asVar = (VariableInitializationStmt)stmt;
+                expressions.add(asVar.exp);
+                variables.add(asVar.vardec.variable);
+                environment = Typechecker.addToMap(environment, asVar.vardec.variable, asVar.vardec.type);
+            } else if (stmt instanceof PrintlnStmt) {
+                expressions.add(((PrintlnStmt)stmt).exp);
+            }
+        }
+        expectedTypes = Collections.nCopies(expressions.size(), (Type)IntType.instance());
+    }
+
+    @Benchmark
+    public void program() throws TypeErrorException {
+        new Typechecker(program).isWellTypedProgram();
+    }
+
+    @Benchmark
+    public void bodies() throws TypeErrorException {
+        typechecker.isWellTypedProgram();
+    }
+
+    @Benchmark
+    public void arena() throws TypeErrorException {
+        new ArenaTypechecker(arena).isWellTypedProgram();
+    }
+
+    @Benchmark
+    public void typeof(final Blackhole blackhole) throws TypeErrorException {
+        for (final Exp exp : expressions) {
+            blackhole.consume(typechecker.typeof(exp, environment, null));
+        }
+    }
+
+    @Benchmark
+    public void expressionsOk() throws TypeErrorException {
+        typechecker.expressionsOk(expectedTypes, expressions, environment, null);
+    }
+
+    @Benchmark
+    public TypeEnvironment addToMap() {
+        TypeEnvironment result = TypeEnvironment.empty();
+        for (final Variable variable : variables) {
+            result = Typechecker.addToMap(result, variable, IntType.instance());
+        }
+        return result;
+    }
+}
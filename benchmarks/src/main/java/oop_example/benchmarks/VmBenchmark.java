@@ -0,0 +1,87 @@
+package oop_example.benchmarks;
+
+import oop_example.interpreter.EvaluationException;
+import oop_example.interpreter.Interpreter;
+import oop_example.parser.ParseException;
+import oop_example.parser.Parser;
+import oop_example.parser.Program;
+import oop_example.typechecker.TypeErrorException;
+import oop_example.vm.VirtualMachine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+// The register VM against the AST walkers on arithmetic-heavy loops.
+//
+// A while loop can't change its own guard (there's no assignment), so a
+// loop that iterates is a while whose body makes the recursive call for the
+// next iteration and returns its result: the guard is tested, and the body
+// run, once per iteration.
+// - loop: 200k iterations of a few adds, compares and branches each
+// - fib: InterpreterBenchmark's doubly recursive fib(22)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xss512m"})
+@State(Scope.Benchmark)
+public class VmBenchmark {
+    public static final String LOOP =
+        "class Loop extends Object {" +
+        "  constructor() { super(); }" +
+        "  int run(int i, int n, int acc) {" +
+        "    while (i < n) {" +
+        "      int x = acc + i + 3;" +
+        "      int y = x + i + -7;" +
+        "      if (y < 1000000) { return this.run(i + 1, n, y); } else { return this.run(i + 1, n, y + -1000000); }" +
+        "    }" +
+        "    return acc;" +
+        "  }" +
+        "}" +
+        "{ println(new Loop().run(0, 200000, 0)); }";
+
+    @Param({"loop", "fib"})
+    public String workload;
+
+    private Interpreter interpreter;
+    private NaiveEvaluator naive;
+    private VirtualMachine vm;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setup() throws ParseException, TypeErrorException {
+        final Program program = Parser.parse(workload.equals("loop") ? LOOP : InterpreterBenchmark.FIB);
+        final PrintStream nowhere = new PrintStream(new OutputStream() {
+                public void write(final int b) {}
+            });
+        interpreter = new Interpreter(program, nowhere);
+        naive = new NaiveEvaluator(program);
+        vm = new VirtualMachine(program, nowhere);
+        // NaiveEvaluator prints to System.out
+        originalOut = System.out;
+        System.setOut(nowhere);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void registerVm() throws EvaluationException {
+        vm.run();
+    }
+
+    @Benchmark
+    public void specializing() throws EvaluationException {
+        interpreter.run();
+    }
+
+    @Benchmark
+    public void naive() {
+        naive.run();
+    }
+}
@@ -0,0 +1,129 @@
+package oop_example.analysis;
+
+import oop_example.parser.ClassName;
+import oop_example.parser.ClassNameType;
+import oop_example.parser.MethodCallExp;
+import oop_example.parser.MethodName;
+import oop_example.parser.Program;
+import oop_example.typechecker.ClassTable;
+import oop_example.typechecker.MethodInfo;
+import oop_example.typechecker.TypeAnnotations;
+import oop_example.typechecker.TypeErrorException;
+import oop_example.typechecker.Typechecker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Whole-program class hierarchy analysis: which methods each call site can
+// reach.
+//
+// A call's receiver is an instance of its static type or one of that
+// type's subclasses, and the program can't load any more classes, so the
+// possible targets are what those classes have in the called method's
+// slot.  Subclasses that inherit the method share its MethodInfo, so a
+// method nobody overrides has exactly one target, and calls to it can skip
+// dynamic dispatch.
+//
+// Receiver types come from the typechecker's TypeAnnotations, so nothing
+// here walks method bodies.
+//
+// The results are a side table keyed on the MethodCallExp nodes of the
+// program that was analyzed.  AST nodes compare structurally, so the table
+// goes by identity: two calls that look the same can have receivers of
+// different static types.
+public class ClassHierarchyAnalysis {
+    private final ClassTable classTable;
+    // by static receiver class, then method name
+    private final Map<ClassName, Map<MethodName, List<MethodInfo>>> targetsByClass =
+        new HashMap<ClassName, Map<MethodName, List<MethodInfo>>>();
+    private final Map<MethodCallExp, List<MethodInfo>> sites =
+        new IdentityHashMap<MethodCallExp, List<MethodInfo>>();
+    private int monomorphicSites;
+
+    private ClassHierarchyAnalysis(final ClassTable classTable) {
+        this.classTable = classTable;
+    }
+
+    // typechecks the program first; the analysis needs static types
+    public static ClassHierarchyAnalysis analyze(final Program program) throws TypeErrorException {
+        final Typechecker typechecker = new Typechecker(program, null, new TypeAnnotations());
+        return analyze(typechecker.classTable, typechecker.isWellTypedProgram());
+    }
+
+    // no call sites, just targetsOf, for a class table whose program may
+    // not have been checked yet
+    public static ClassHierarchyAnalysis forClassTable(final ClassTable classTable) {
+        return new ClassHierarchyAnalysis(classTable);
+    }
+
+    // for a program already checked into annotations, with no errors
+    public static ClassHierarchyAnalysis analyze(final ClassTable classTable,
+                                                 final TypeAnnotations annotations) throws TypeErrorException {
+        final ClassHierarchyAnalysis analysis = new ClassHierarchyAnalysis(classTable);
+        for (final MethodCallExp site : annotations.calls()) {
+            // the receiver's static type, which the method was looked up on
+            final ClassName receiverClass = ((ClassNameType)annotations.typeOf(site.target)).className;
+            final List<MethodInfo> targets = analysis.targetsOf(receiverClass, site.methodName);
+            analysis.sites.put(site, targets);
+            if (targets.size() == 1) {
+                analysis.monomorphicSites++;
+            }
+        }
+        return analysis;
+    }
+
+    // The methods a call on a receiver of static type className can run,
+    // in no particular order.
+    public List<MethodInfo> targetsOf(final ClassName className,
+                                      final MethodName methodName) throws TypeErrorException {
+        Map<MethodName, List<MethodInfo>> byName = targetsByClass.get(className);
+        if (byName == null) {
+            byName = new HashMap<MethodName, List<MethodInfo>>();
+            targetsByClass.put(className, byName);
+        }
+        List<MethodInfo> targets = byName.get(methodName);
+        if (targets == null) {
+            final int slot = classTable.lookupMethod(className, methodName).slot;
+            final Set<MethodInfo> found = Collections.newSetFromMap(new IdentityHashMap<MethodInfo, Boolean>());
+            for (final ClassName subclass : classTable.hierarchy.subclassesOf(className)) {
+                found.add(classTable.lookupClass(subclass).methodTable.get(slot));
+            }
+            targets = Collections.unmodifiableList(new ArrayList<MethodInfo>(found));
+            byName.put(methodName, targets);
+        }
+        return targets;
+    }
+
+    // null if site isn't a call in the analyzed program
+    public List<MethodInfo> targets(final MethodCallExp site) {
+        return sites.get(site);
+    }
+
+    public boolean isMonomorphic(final MethodCallExp site) {
+        final List<MethodInfo> targets = sites.get(site);
+        return targets != null && targets.size() == 1;
+    }
+
+    // the only method site can call, or null if there's more than one
+    public MethodInfo directTarget(final MethodCallExp site) {
+        final List<MethodInfo> targets = sites.get(site);
+        return (targets != null && targets.size() == 1) ? targets.get(0) : null;
+    }
+
+    public int callSites() {
+        return sites.size();
+    }
+
+    public int monomorphicSites() {
+        return monomorphicSites;
+    }
+
+    public String toString() {
+        return "ClassHierarchyAnalysis(" + monomorphicSites + " of " + sites.size() + " call sites monomorphic)";
+    }
+}
@@ -0,0 +1,257 @@
+package oop_example.analysis;
+
+import oop_example.parser.*;
+import oop_example.typechecker.ClassInfo;
+import oop_example.typechecker.ClassTable;
+import oop_example.typechecker.Diagnostics;
+import oop_example.typechecker.MethodInfo;
+import oop_example.typechecker.TypeEnvironment;
+import oop_example.typechecker.TypeErrorException;
+import oop_example.typechecker.Typechecker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Typechecks only what a program's entry point can reach, and cuts out
+// everything else.
+//
+// Starting from the entry point, checking a reached declaration reaches:
+// - for new C(...), C's constructor, and through super(...), its ancestors'
+// - for e.m(...) with e of static type C, every method that can answer it:
+//   the m C has, declared or inherited, and overrides of it in C's
+//   subclasses (see ClassHierarchyAnalysis.targetsOf)
+// Each reached constructor and method is checked once, in the order
+// reached, by a typechecker that watches its own constructor and method
+// lookups for what comes next (as IncrementalTypechecker does).
+//
+// A class is kept when one of its methods is reached, when it's the parent
+// of a kept class, or when a kept declaration names it as a type.  A kept
+// class's constructor counts as reached even if nothing calls it: every
+// class needs one, and its body can reach yet more.
+//
+// prune() then gives the program with the rest removed: classes that
+// weren't kept, and methods that weren't reached.  Everything left was
+// checked, so if checking found no errors, the pruned program is
+// well-typed.
+//
+// The class table is still built from every class, so problems with the
+// class hierarchy anywhere are still found, and thrown.
+public class ReachabilityAnalysis {
+    public final Program program;
+    private final Diagnostics diagnostics;
+    private final ReachingTypechecker typechecker;
+    private final ClassHierarchyAnalysis hierarchyAnalysis;
+    private final Set<ClassName> keptClasses = new LinkedHashSet<ClassName>();
+    private final Set<MethodDef> reachedMethods =
+        Collections.newSetFromMap(new IdentityHashMap<MethodDef, Boolean>());
+    private final ArrayDeque<Pending> worklist = new ArrayDeque<Pending>();
+    private int checked;
+
+    // a reached constructor or method, waiting to be checked
+    private static class Pending {
+        final ClassDef classDef;
+        final MethodDef method; // null for the constructor
+
+        Pending(final ClassDef classDef, final MethodDef method) {
+            this.classDef = classDef;
+            this.method = method;
+        }
+    }
+
+    // Reports what the entry point and reached declarations use.  Calls
+    // the lookups first, so nothing is reached through a class or method
+    // that doesn't exist.
+    private class ReachingTypechecker extends Typechecker {
+        ReachingTypechecker(final Program program,
+                            final Diagnostics diagnostics) throws TypeErrorException {
+            super(program, diagnostics);
+        }
+
+        public List<Type> expectedConstructorTypesForClass(final ClassName className)
+            throws TypeErrorException {
+            final List<Type> types = super.expectedConstructorTypesForClass(className);
+            keepClass(className);
+            return types;
+        }
+
+        public MethodInfo methodForCall(final ClassName className,
+                                        final MethodName methodName) throws TypeErrorException {
+            final MethodInfo method = super.methodForCall(className, methodName);
+            for (final MethodInfo target : hierarchyAnalysis.targetsOf(className, methodName)) {
+                reachMethod(target);
+            }
+            return method;
+        }
+    }
+
+    private ReachabilityAnalysis(final Program program,
+                                 final Diagnostics diagnostics) throws TypeErrorException {
+        this.program = program;
+        this.diagnostics = diagnostics;
+        this.typechecker = new ReachingTypechecker(program, diagnostics);
+        this.hierarchyAnalysis = ClassHierarchyAnalysis.forClassTable(typechecker.classTable);
+    }
+
+    // Throws the first error found, like Typechecker.isWellTypedProgram,
+    // though not necessarily the same one: declarations are checked in the
+    // order they're reached, not the order they're written.
+    public static ReachabilityAnalysis check(final Program program) throws TypeErrorException {
+        return check(program, null);
+    }
+
+    // with diagnostics, collects every error in what's reached instead
+    public static ReachabilityAnalysis check(final Program program,
+                                             final Diagnostics diagnostics) throws TypeErrorException {
+        final ReachabilityAnalysis analysis = new ReachabilityAnalysis(program, diagnostics);
+        analysis.run();
+        return analysis;
+    }
+
+    // checks first, so throws on the first error
+    public static Program prune(final Program program) throws TypeErrorException {
+        return check(program).prune();
+    }
+
+    private void run() throws TypeErrorException {
+        if (diagnostics != null) {
+            diagnostics.setLocation(null, null);
+        }
+        typechecker.isWellTypedStmt(program.entryPoint, TypeEnvironment.empty(), null, null);
+        keepTypesIn(program.entryPoint);
+        checked++;
+        while (!worklist.isEmpty()) {
+            final Pending pending = worklist.poll();
+            final ClassName className = pending.classDef.className;
+            if (pending.method == null) {
+                typechecker.isWellTypedConstructor(pending.classDef);
+                for (final Stmt stmt : pending.classDef.constructorBody) {
+                    keepTypesIn(stmt);
+                }
+            } else {
+                typechecker.isWellTypedMethodDef(pending.method,
+                                                 typechecker.classTable.lookupClass(className).fieldEnvironment,
+                                                 className);
+                keepTypesIn(pending.method.body);
+            }
+            checked++;
+        }
+    }
+
+    private void keepClass(final ClassName className) throws TypeErrorException {
+        if (className.equals(ClassTable.OBJECT_NAME) || !keptClasses.add(className)) {
+            return;
+        }
+        final ClassInfo info = typechecker.classTable.lookupClass(className);
+        keepClass(info.parent.className);
+        for (final Vardec field : info.classDef.instanceVariables) {
+            keepType(field.type);
+        }
+        for (final Vardec parameter : info.classDef.constructorArguments) {
+            keepType(parameter.type);
+        }
+        worklist.add(new Pending(info.classDef, null));
+    }
+
+    private void reachMethod(final MethodInfo method) throws TypeErrorException {
+        if (!reachedMethods.add(method.methodDef)) {
+            return;
+        }
+        keepClass(method.declaringClass);
+        keepType(method.returnType);
+        for (final Type parameterType : method.parameterTypes) {
+            keepType(parameterType);
+        }
+        worklist.add(new Pending(typechecker.classTable.lookupClass(method.declaringClass).classDef,
+                                 method.methodDef));
+    }
+
+    // classes that don't exist are the typechecker's problem
+    private void keepType(final Type type) throws TypeErrorException {
+        if (type instanceof ClassNameType) {
+            final ClassName className = ((ClassNameType)type).className;
+            if (typechecker.classTable.hasClass(className)) {
+                keepClass(className);
+            }
+        }
+    }
+
+    // the types of local variables; calls and news were seen while checking
+    private void keepTypesIn(final Stmt stmt) throws TypeErrorException {
+        if (stmt instanceof VariableInitializationStmt) {
+            keepType(((VariableInitializationStmt)stmt).vardec.type);
+        } else if (stmt instanceof IfStmt) {
+            keepTypesIn(((IfStmt)stmt).ifTrue);
+            keepTypesIn(((IfStmt)stmt).ifFalse);
+        } else if (stmt instanceof WhileStmt) {
+            keepTypesIn(((WhileStmt)stmt).body);
+        } else if (stmt instanceof BlockStmt) {
+            for (final Stmt inner : ((BlockStmt)stmt).body) {
+                keepTypesIn(inner);
+            }
+        }
+    }
+
+    public boolean isKept(final ClassName className) {
+        return keptClasses.contains(className);
+    }
+
+    // by identity, so only for methods of the analyzed program
+    public boolean isReached(final MethodDef method) {
+        return reachedMethods.contains(method);
+    }
+
+    // in the order they were kept
+    public Set<ClassName> keptClasses() {
+        return Collections.unmodifiableSet(keptClasses);
+    }
+
+    public int reachedMethods() {
+        return reachedMethods.size();
+    }
+
+    // constructors, methods, and the entry point
+    public int checkedDeclarations() {
+        return checked;
+    }
+
+    // The program without unkept classes or unreached methods, with
+    // everything else in its original order.  Untouched classes are
+    // shared with the original program.
+    public Program prune() {
+        final List<ClassDef> classes = new ArrayList<ClassDef>(keptClasses.size());
+        for (final ClassDef classDef : program.classes) {
+            if (!keptClasses.contains(classDef.className)) {
+                continue;
+            }
+            final List<MethodDef> methods = new ArrayList<MethodDef>(classDef.methods.size());
+            for (final MethodDef method : classDef.methods) {
+                if (reachedMethods.contains(method)) {
+                    methods.add(method);
+                }
+            }
+            if (methods.size() == classDef.methods.size()) {
+                classes.add(classDef);
+            } else {
+                classes.add(new ClassDef(classDef.className,
+                                         classDef.extendsClassName,
+                                         classDef.instanceVariables,
+                                         classDef.constructorArguments,
+                                         classDef.superParams,
+                                         classDef.constructorBody,
+                                         methods));
+            }
+        }
+        return new Program(classes, program.entryPoint);
+    }
+
+    public String toString() {
+        return ("ReachabilityAnalysis(" + keptClasses.size() + " of " + program.classes.size() +
+                " classes kept, " + reachedMethods.size() + " methods reached, " +
+                checked + " declarations checked)");
+    }
+}
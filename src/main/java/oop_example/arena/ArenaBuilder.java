@@ -0,0 +1,268 @@
+package oop_example.arena;
+
+import oop_example.parser.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static oop_example.arena.ArenaProgram.*;
+
+// Program -> ArenaProgram, in one preorder walk.  Each node is linked in
+// as the next child of whichever node is open on top of the stack, so
+// children end up in the order they're visited.
+final class ArenaBuilder implements ExpVisitor<Void, Void, RuntimeException>,
+                                    StmtVisitor<Void, Void, RuntimeException> {
+    private int size;
+    private byte[] kinds = new byte[1024];
+    private int[] firstChildren = new int[1024];
+    private int[] nextSiblings = new int[1024];
+    private int[] payloads = new int[1024];
+    private int[] symbols = new int[1024];
+
+    // open nodes, and the last child each has so far
+    private int depth;
+    private int[] open = new int[64];
+    private int[] lastChild = new int[64];
+
+    private final Map<String, Integer> symbolIds = new HashMap<String, Integer>();
+    private final List<String> symbolNames = new ArrayList<String>();
+
+    ArenaBuilder() {
+        symbol("Object"); // OBJECT_SYMBOL
+    }
+
+    ArenaProgram build(final Program program) {
+        open(PROGRAM, 0, NONE);
+        for (final ClassDef classDef : program.classes) {
+            classDef(classDef);
+        }
+        program.entryPoint.accept(this, null);
+        close();
+        return new ArenaProgram(size,
+                                Arrays.copyOf(kinds, size),
+                                Arrays.copyOf(firstChildren, size),
+                                Arrays.copyOf(nextSiblings, size),
+                                Arrays.copyOf(payloads, size),
+                                Arrays.copyOf(symbols, size),
+                                symbolNames.toArray(new String[symbolNames.size()]));
+    }
+
+    private int symbol(final String name) {
+        final Integer existing = symbolIds.get(name);
+        if (existing != null) {
+            return existing;
+        } else {
+            final int id = symbolNames.size();
+            symbolIds.put(name, id);
+            symbolNames.add(name);
+            return id;
+        }
+    }
+
+    private int type(final Type type) {
+        if (type == IntType.instance()) {
+            return INT_TYPE;
+        } else if (type == BoolType.instance()) {
+            return BOOL_TYPE;
+        } else if (type == VoidType.instance()) {
+            return VOID_TYPE;
+        } else if (type instanceof ClassNameType) {
+            return symbol(((ClassNameType)type).className.name);
+        } else {
+            throw new IllegalArgumentException("Not a source type: " + type);
+        }
+    }
+
+    private void open(final int kind, final int payload, final int symbol) {
+        if (size == kinds.length) {
+            final int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            payloads = Arrays.copyOf(payloads, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+        }
+        final int node = size++;
+        kinds[node] = (byte)kind;
+        firstChildren[node] = NONE;
+        nextSiblings[node] = NONE;
+        payloads[node] = payload;
+        symbols[node] = symbol;
+
+        if (depth > 0) {
+            final int previous = lastChild[depth - 1];
+            if (previous == NONE) {
+                firstChildren[open[depth - 1]] = node;
+            } else {
+                nextSiblings[previous] = node;
+            }
+            lastChild[depth - 1] = node;
+        }
+        if (depth == open.length) {
+            open = Arrays.copyOf(open, depth * 2);
+            lastChild = Arrays.copyOf(lastChild, depth * 2);
+        }
+        open[depth] = node;
+        lastChild[depth] = NONE;
+        depth++;
+    }
+
+    private void close() {
+        depth--;
+    }
+
+    private void leaf(final int kind, final int payload, final int symbol) {
+        open(kind, payload, symbol);
+        close();
+    }
+
+    private void classDef(final ClassDef classDef) {
+        open(CLASS, symbol(classDef.extendsClassName.name), symbol(classDef.className.name));
+        for (final Vardec vardec : classDef.instanceVariables) {
+            leaf(FIELD, type(vardec.type), symbol(vardec.variable.name));
+        }
+        open(CONSTRUCTOR, 0, NONE);
+        parameters(classDef.constructorArguments);
+        open(SUPER_CALL, 0, NONE);
+        exps(classDef.superParams);
+        close();
+        for (final Stmt stmt : classDef.constructorBody) {
+            stmt.accept(this, null);
+        }
+        close();
+        for (final MethodDef method : classDef.methods) {
+            open(METHOD, type(method.returnType), symbol(method.methodName.name));
+            parameters(method.arguments);
+            method.body.accept(this, null);
+            close();
+        }
+        close();
+    }
+
+    private void parameters(final List<Vardec> vardecs) {
+        for (final Vardec vardec : vardecs) {
+            leaf(PARAMETER, type(vardec.type), symbol(vardec.variable.name));
+        }
+    }
+
+    private void exps(final List<Exp> exps) {
+        for (final Exp exp : exps) {
+            exp.accept(this, null);
+        }
+    }
+
+    public Void visitIntLiteral(final IntLiteralExp exp, final Void context) {
+        leaf(INT_LITERAL, exp.value, NONE);
+        return null;
+    }
+
+    public Void visitVariable(final VariableExp exp, final Void context) {
+        leaf(VARIABLE, 0, symbol(exp.variable.name));
+        return null;
+    }
+
+    public Void visitBoolLiteral(final BoolLiteralExp exp, final Void context) {
+        leaf(BOOL_LITERAL, exp.value ? 1 : 0, NONE);
+        return null;
+    }
+
+    public Void visitThis(final ThisExp exp, final Void context) {
+        leaf(THIS, 0, NONE);
+        return null;
+    }
+
+    public Void visitOp(final OpExp exp, final Void context) {
+        final int kind;
+        if (exp.op == PlusOp.instance()) {
+            kind = PLUS;
+        } else if (exp.op == LessThanOp.instance()) {
+            kind = LESS_THAN;
+        } else if (exp.op == EqualsOp.instance()) {
+            kind = EQUALS;
+        } else {
+            throw new IllegalArgumentException("Unsupported operation: " + exp.op);
+        }
+        open(kind, 0, NONE);
+        exp.left.accept(this, null);
+        exp.right.accept(this, null);
+        close();
+        return null;
+    }
+
+    public Void visitMethodCall(final MethodCallExp exp, final Void context) {
+        open(METHOD_CALL, 0, symbol(exp.methodName.name));
+        exp.target.accept(this, null);
+        exps(exp.params);
+        close();
+        return null;
+    }
+
+    public Void visitNew(final NewExp exp, final Void context) {
+        open(NEW, 0, symbol(exp.className.name));
+        exps(exp.params);
+        close();
+        return null;
+    }
+
+    public Void visitExp(final ExpStmt stmt, final Void context) {
+        open(EXP_STMT, 0, NONE);
+        stmt.exp.accept(this, null);
+        close();
+        return null;
+    }
+
+    public Void visitVariableInitialization(final VariableInitializationStmt stmt, final Void context) {
+        open(VARIABLE_INIT, type(stmt.vardec.type), symbol(stmt.vardec.variable.name));
+        stmt.exp.accept(this, null);
+        close();
+        return null;
+    }
+
+    public Void visitIf(final IfStmt stmt, final Void context) {
+        open(IF, 0, NONE);
+        stmt.guard.accept(this, null);
+        stmt.ifTrue.accept(this, null);
+        stmt.ifFalse.accept(this, null);
+        close();
+        return null;
+    }
+
+    public Void visitWhile(final WhileStmt stmt, final Void context) {
+        open(WHILE, 0, NONE);
+        stmt.guard.accept(this, null);
+        stmt.body.accept(this, null);
+        close();
+        return null;
+    }
+
+    public Void visitReturnNonVoid(final ReturnNonVoidStmt stmt, final Void context) {
+        open(RETURN_VALUE, 0, NONE);
+        stmt.exp.accept(this, null);
+        close();
+        return null;
+    }
+
+    public Void visitReturnVoid(final ReturnVoidStmt stmt, final Void context) {
+        leaf(RETURN_VOID, 0, NONE);
+        return null;
+    }
+
+    public Void visitPrintln(final PrintlnStmt stmt, final Void context) {
+        open(PRINTLN, 0, NONE);
+        stmt.exp.accept(this, null);
+        close();
+        return null;
+    }
+
+    public Void visitBlock(final BlockStmt stmt, final Void context) {
+        open(BLOCK, 0, NONE);
+        for (final Stmt bodyStmt : stmt.body) {
+            bodyStmt.accept(this, null);
+        }
+        close();
+        return null;
+    }
+}
@@ -0,0 +1,99 @@
+package oop_example.arena;
+
+import java.util.Arrays;
+
+// A position in an ArenaProgram that can move to a first child, a next
+// sibling or back up to the parent, without allocating per node:
+//
+// final ArenaCursor cursor = arena.cursor();  // at the program
+// if (cursor.toFirstChild()) {
+//   do {
+//     ... cursor.kind(), cursor.name(), ...
+//   } while (cursor.toNextSibling());
+//   cursor.toParent();
+// }
+//
+// The moves return false, and stay put, when there's nowhere to go.
+public final class ArenaCursor {
+    private final ArenaProgram arena;
+    private int node;
+    // the nodes above this one, root first
+    private int[] ancestors;
+    private int depth;
+
+    ArenaCursor(final ArenaProgram arena) {
+        this(arena, 0, new int[16], 0);
+    }
+
+    private ArenaCursor(final ArenaProgram arena,
+                        final int node,
+                        final int[] ancestors,
+                        final int depth) {
+        this.arena = arena;
+        this.node = node;
+        this.ancestors = ancestors;
+        this.depth = depth;
+    }
+
+    public boolean toFirstChild() {
+        final int child = arena.firstChildren[node];
+        if (child == ArenaProgram.NONE) {
+            return false;
+        }
+        if (depth == ancestors.length) {
+            ancestors = Arrays.copyOf(ancestors, depth * 2);
+        }
+        ancestors[depth++] = node;
+        node = child;
+        return true;
+    }
+
+    public boolean toNextSibling() {
+        final int sibling = arena.nextSiblings[node];
+        if (sibling == ArenaProgram.NONE) {
+            return false;
+        }
+        node = sibling;
+        return true;
+    }
+
+    public boolean toParent() {
+        if (depth == 0) {
+            return false;
+        }
+        node = ancestors[--depth];
+        return true;
+    }
+
+    // independent of this one from here on
+    public ArenaCursor copy() {
+        return new ArenaCursor(arena, node, ancestors.clone(), depth);
+    }
+
+    public int node() {
+        return node;
+    }
+
+    // 0 at the program
+    public int depth() {
+        return depth;
+    }
+
+    public int kind() {
+        return arena.kinds[node];
+    }
+
+    public int payload() {
+        return arena.payloads[node];
+    }
+
+    public int symbol() {
+        return arena.symbols[node];
+    }
+
+    // null if this kind of node has no name
+    public String name() {
+        final int symbol = arena.symbols[node];
+        return (symbol == ArenaProgram.NONE) ? null : arena.symbolNames[symbol];
+    }
+}
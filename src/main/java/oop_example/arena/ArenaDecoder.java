@@ -0,0 +1,180 @@
+package oop_example.arena;
+
+import oop_example.parser.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static oop_example.arena.ArenaProgram.*;
+
+// ArenaProgram -> Program.  Names are made once per symbol and shared, as
+// the parser's interning would.  Can also decode a single subtree, which
+// the typechecker uses to describe a statement in an error message.
+final class ArenaDecoder {
+    private final ArenaProgram arena;
+    private final Variable[] variables;
+    private final ClassName[] classNames;
+    private final MethodName[] methodNames;
+
+    ArenaDecoder(final ArenaProgram arena) {
+        this.arena = arena;
+        this.variables = new Variable[arena.symbolNames.length];
+        this.classNames = new ClassName[arena.symbolNames.length];
+        this.methodNames = new MethodName[arena.symbolNames.length];
+    }
+
+    Program program() {
+        final List<ClassDef> classes = new ArrayList<ClassDef>();
+        int child = arena.firstChildren[0];
+        while (arena.kinds[child] == CLASS) {
+            classes.add(classDef(child));
+            child = arena.nextSiblings[child];
+        }
+        return new Program(classes, stmt(child));
+    }
+
+    Variable variable(final int symbol) {
+        if (variables[symbol] == null) {
+            variables[symbol] = new Variable(arena.symbolNames[symbol]);
+        }
+        return variables[symbol];
+    }
+
+    ClassName className(final int symbol) {
+        if (classNames[symbol] == null) {
+            classNames[symbol] = new ClassName(arena.symbolNames[symbol]);
+        }
+        return classNames[symbol];
+    }
+
+    MethodName methodName(final int symbol) {
+        if (methodNames[symbol] == null) {
+            methodNames[symbol] = new MethodName(arena.symbolNames[symbol]);
+        }
+        return methodNames[symbol];
+    }
+
+    Type type(final int type) {
+        switch (type) {
+        case INT_TYPE: return IntType.instance();
+        case BOOL_TYPE: return BoolType.instance();
+        case VOID_TYPE: return VoidType.instance();
+        default: return ClassNameType.instance(className(type));
+        }
+    }
+
+    private Vardec vardec(final int node) {
+        return new Vardec(type(arena.payloads[node]), variable(arena.symbols[node]));
+    }
+
+    private ClassDef classDef(final int classNode) {
+        final List<Vardec> fields = new ArrayList<Vardec>();
+        int child = arena.firstChildren[classNode];
+        while (arena.kinds[child] == FIELD) {
+            fields.add(vardec(child));
+            child = arena.nextSiblings[child];
+        }
+
+        // constructor: parameters, super call, body
+        final List<Vardec> constructorArguments = new ArrayList<Vardec>();
+        int part = arena.firstChildren[child];
+        while (arena.kinds[part] == PARAMETER) {
+            constructorArguments.add(vardec(part));
+            part = arena.nextSiblings[part];
+        }
+        final List<Exp> superParams = exps(arena.firstChildren[part]);
+        final List<Stmt> constructorBody = stmts(arena.nextSiblings[part]);
+
+        final List<MethodDef> methods = new ArrayList<MethodDef>();
+        for (int method = arena.nextSiblings[child]; method != NONE; method = arena.nextSiblings[method]) {
+            final List<Vardec> arguments = new ArrayList<Vardec>();
+            int methodPart = arena.firstChildren[method];
+            while (arena.kinds[methodPart] == PARAMETER) {
+                arguments.add(vardec(methodPart));
+                methodPart = arena.nextSiblings[methodPart];
+            }
+            methods.add(new MethodDef(type(arena.payloads[method]),
+                                      methodName(arena.symbols[method]),
+                                      arguments,
+                                      stmt(methodPart)));
+        }
+
+        return new ClassDef(className(arena.symbols[classNode]),
+                            className(arena.payloads[classNode]),
+                            fields,
+                            constructorArguments,
+                            superParams,
+                            constructorBody,
+                            methods);
+    }
+
+    // first and its following siblings
+    private List<Exp> exps(final int first) {
+        final List<Exp> result = new ArrayList<Exp>();
+        for (int node = first; node != NONE; node = arena.nextSiblings[node]) {
+            result.add(exp(node));
+        }
+        return result;
+    }
+
+    private List<Stmt> stmts(final int first) {
+        final List<Stmt> result = new ArrayList<Stmt>();
+        for (int node = first; node != NONE; node = arena.nextSiblings[node]) {
+            result.add(stmt(node));
+        }
+        return result;
+    }
+
+    Exp exp(final int node) {
+        final int first = arena.firstChildren[node];
+        switch (arena.kinds[node]) {
+        case INT_LITERAL:
+            return new IntLiteralExp(arena.payloads[node]);
+        case BOOL_LITERAL:
+            return new BoolLiteralExp(arena.payloads[node] != 0);
+        case VARIABLE:
+            return new VariableExp(variable(arena.symbols[node]));
+        case THIS:
+            return new ThisExp();
+        case PLUS:
+            return new OpExp(exp(first), PlusOp.instance(), exp(arena.nextSiblings[first]));
+        case LESS_THAN:
+            return new OpExp(exp(first), LessThanOp.instance(), exp(arena.nextSiblings[first]));
+        case EQUALS:
+            return new OpExp(exp(first), EqualsOp.instance(), exp(arena.nextSiblings[first]));
+        case METHOD_CALL:
+            return new MethodCallExp(exp(first),
+                                     methodName(arena.symbols[node]),
+                                     exps(arena.nextSiblings[first]));
+        case NEW:
+            return new NewExp(className(arena.symbols[node]), exps(first));
+        default:
+            throw new IllegalStateException("Not an expression: node " + node);
+        }
+    }
+
+    Stmt stmt(final int node) {
+        final int first = arena.firstChildren[node];
+        switch (arena.kinds[node]) {
+        case EXP_STMT:
+            return new ExpStmt(exp(first));
+        case VARIABLE_INIT:
+            return new VariableInitializationStmt(vardec(node), exp(first));
+        case IF:
+            final int ifTrue = arena.nextSiblings[first];
+            return new IfStmt(exp(first), stmt(ifTrue), stmt(arena.nextSiblings[ifTrue]));
+        case WHILE:
+            return new WhileStmt(exp(first), stmt(arena.nextSiblings[first]));
+        case RETURN_VALUE:
+            return new ReturnNonVoidStmt(exp(first));
+        case RETURN_VOID:
+            return new ReturnVoidStmt();
+        case PRINTLN:
+            return new PrintlnStmt(exp(first));
+        case BLOCK:
+            return new BlockStmt(stmts(first));
+        default:
+            throw new IllegalStateException("Not a statement: node " + node);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package oop_example.arena;
+
+import oop_example.parser.Program;
+
+// A whole program as a handful of parallel arrays, one element per node,
+// instead of an object per node.  Nodes are numbered in preorder, so a
+// node's subtree is the nodes right after it, and node 0 is the program.
+//
+// Each node has:
+// - kind: one of the constants below
+// - first child and next sibling, or NONE
+// - payload: a type, an int literal's value or a bool literal's 0 / 1
+// - symbol: an index into symbols, for whatever the node is named by
+//
+// Types are ints too: INT_TYPE, BOOL_TYPE or VOID_TYPE, or the symbol of a
+// class name (which might not be a class in the program).  Every name in
+// the program is one symbol, whichever namespace it's from, and Object is
+// always symbol OBJECT_SYMBOL.
+//
+// A node costs 17 bytes here, against an object with a header, references
+// and List wrappers in oop_example.parser.  Use a cursor() to walk the
+// tree, or read the arrays through the accessors below.
+public final class ArenaProgram {
+    public static final int NONE = -1;
+
+    public static final int INT_TYPE = -2;
+    public static final int BOOL_TYPE = -3;
+    public static final int VOID_TYPE = -4;
+
+    public static final int OBJECT_SYMBOL = 0;
+
+    // children are listed in order; * marks any number of them
+    public static final int PROGRAM = 0;        // CLASS*, entry point statement
+    public static final int CLASS = 1;          // symbol: name, payload: parent's symbol;
+                                                // FIELD*, CONSTRUCTOR, METHOD*
+    public static final int FIELD = 2;          // symbol: name, payload: type
+    public static final int CONSTRUCTOR = 3;    // PARAMETER*, SUPER_CALL, statement*
+    public static final int SUPER_CALL = 4;     // expression*
+    public static final int METHOD = 5;         // symbol: name, payload: return type;
+                                                // PARAMETER*, body statement
+    public static final int PARAMETER = 6;      // symbol: name, payload: type
+
+    public static final int EXP_STMT = 7;       // expression
+    public static final int VARIABLE_INIT = 8;  // symbol: name, payload: type; expression
+    public static final int IF = 9;             // guard, ifTrue, ifFalse
+    public static final int WHILE = 10;         // guard, body
+    public static final int RETURN_VALUE = 11;  // expression
+    public static final int RETURN_VOID = 12;
+    public static final int PRINTLN = 13;       // expression
+    public static final int BLOCK = 14;         // statement*
+
+    public static final int INT_LITERAL = 15;   // payload: value
+    public static final int BOOL_LITERAL = 16;  // payload: 1 for true, 0 for false
+    public static final int VARIABLE = 17;      // symbol: name
+    public static final int THIS = 18;
+    public static final int PLUS = 19;          // left, right
+    public static final int LESS_THAN = 20;     // left, right
+    public static final int EQUALS = 21;        // left, right
+    public static final int METHOD_CALL = 22;   // symbol: method name; target, argument*
+    public static final int NEW = 23;           // symbol: class name; argument*
+
+    // package-private so the typechecker can read them directly
+    final int size;
+    final byte[] kinds;
+    final int[] firstChildren;
+    final int[] nextSiblings;
+    final int[] payloads;
+    final int[] symbols;
+    final String[] symbolNames;
+
+    ArenaProgram(final int size,
+                 final byte[] kinds,
+                 final int[] firstChildren,
+                 final int[] nextSiblings,
+                 final int[] payloads,
+                 final int[] symbols,
+                 final String[] symbolNames) {
+        this.size = size;
+        this.kinds = kinds;
+        this.firstChildren = firstChildren;
+        this.nextSiblings = nextSiblings;
+        this.payloads = payloads;
+        this.symbols = symbols;
+        this.symbolNames = symbolNames;
+    }
+
+    public static ArenaProgram fromProgram(final Program program) {
+        return new ArenaBuilder().build(program);
+    }
+
+    // Builds fresh parser nodes; names with the same symbol share objects.
+    public Program toProgram() {
+        return new ArenaDecoder(this).program();
+    }
+
+    public ArenaCursor cursor() {
+        return new ArenaCursor(this);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int kind(final int node) {
+        return kinds[node];
+    }
+
+    public int firstChild(final int node) {
+        return firstChildren[node];
+    }
+
+    public int nextSibling(final int node) {
+        return nextSiblings[node];
+    }
+
+    public int payload(final int node) {
+        return payloads[node];
+    }
+
+    // NONE if the kind of node has no name
+    public int symbol(final int node) {
+        return symbols[node];
+    }
+
+    public int symbolCount() {
+        return symbolNames.length;
+    }
+
+    public String symbolName(final int symbol) {
+        return symbolNames[symbol];
+    }
+
+    public String toString() {
+        return "ArenaProgram(" + size + " nodes, " + symbolNames.length + " symbols)";
+    }
+}
@@ -0,0 +1,506 @@
+package oop_example.arena;
+
+import oop_example.typechecker.TypeErrorException;
+
+import java.util.Arrays;
+
+import static oop_example.arena.ArenaProgram.*;
+
+// The typechecker, working directly on an ArenaProgram.  It accepts and
+// rejects the same programs as oop_example.typechecker.Typechecker, and
+// reports the same first error, but everything is an int: types are the
+// arena's type codes, classes are numbered, and methods are nodes.
+//
+// - classes: id 0 is Object, then the program's classes in order.  Parent
+//   links and the subclass numbering are the same as ClassHierarchy's.
+// - methods: each class's own methods by (class id, name symbol); lookups
+//   walk up the parents
+// - variables: the type each symbol is bound to, with an undo log, so
+//   leaving a scope pops what it bound instead of keeping persistent maps
+//
+// Only the stop-at-the-first-error mode.  Checking uses the scope arrays,
+// so a typechecker checks one thing at a time.
+public class ArenaTypechecker {
+    public final ArenaProgram arena;
+    private final ArenaDecoder decoder; // for error messages
+
+    private final int classCount;
+    private final int[] classNodes; // NONE for Object
+    private final int[] classSymbols;
+    private final int[] classIds; // by symbol; NONE if not a class
+    private final int[] parents; // NONE for Object
+    private final int[] pre;
+    private final int[] post;
+    private final MethodIndex ownMethods;
+
+    // the type of each symbol as a variable, or NONE if not in scope
+    private final int[] scope;
+    // (symbol, type it had before) for each binding, most recent last
+    private int[] undo = new int[64];
+    private int undoSize;
+
+    public ArenaTypechecker(final ArenaProgram arena) throws TypeErrorException {
+        this.arena = arena;
+        this.decoder = new ArenaDecoder(arena);
+
+        int count = 1;
+        int methodCount = 0;
+        for (int child = arena.firstChildren[0]; arena.kinds[child] == CLASS; child = arena.nextSiblings[child]) {
+            count++;
+            for (int member = arena.firstChildren[child]; member != NONE; member = arena.nextSiblings[member]) {
+                if (arena.kinds[member] == METHOD) {
+                    methodCount++;
+                }
+            }
+        }
+        classCount = count;
+        classNodes = new int[count];
+        classSymbols = new int[count];
+        parents = new int[count];
+        classIds = new int[arena.symbolNames.length];
+        Arrays.fill(classIds, NONE);
+        ownMethods = new MethodIndex(methodCount);
+        scope = new int[arena.symbolNames.length];
+        Arrays.fill(scope, NONE);
+
+        classNodes[0] = NONE;
+        classSymbols[0] = OBJECT_SYMBOL;
+        parents[0] = NONE;
+        classIds[OBJECT_SYMBOL] = 0;
+        int id = 1;
+        for (int child = arena.firstChildren[0]; arena.kinds[child] == CLASS; child = arena.nextSiblings[child]) {
+            final int symbol = arena.symbols[child];
+            if (classIds[symbol] != NONE) {
+                throw new TypeErrorException("Duplicate class: " + decoder.className(symbol));
+            }
+            classNodes[id] = child;
+            classSymbols[id] = symbol;
+            classIds[symbol] = id;
+            id++;
+        }
+
+        // the rest mirrors ClassHierarchy, then ClassTable
+        final int[] firstChild = new int[count];
+        final int[] nextSibling = new int[count];
+        Arrays.fill(firstChild, NONE);
+        for (id = 1; id < count; id++) {
+            final int parentSymbol = arena.payloads[classNodes[id]];
+            final int parentId = classIds[parentSymbol];
+            if (parentId == NONE) {
+                throw new TypeErrorException("Class " + decoder.className(classSymbols[id]) +
+                                             " extends nonexistent class: " +
+                                             decoder.className(parentSymbol));
+            }
+            parents[id] = parentId;
+            nextSibling[id] = firstChild[parentId];
+            firstChild[parentId] = id;
+        }
+
+        pre = new int[count];
+        post = new int[count];
+        final int[] preorder = new int[count];
+        final int[] stack = new int[count];
+        int stackSize = 0;
+        int clock = 0;
+        int visited = 0;
+        stack[stackSize++] = 0;
+        pre[0] = clock++;
+        preorder[visited++] = 0;
+        while (stackSize > 0) {
+            final int current = stack[stackSize - 1];
+            final int child = firstChild[current];
+            if (child == NONE) {
+                post[current] = clock++;
+                stackSize--;
+            } else {
+                firstChild[current] = nextSibling[child];
+                pre[child] = clock++;
+                preorder[visited++] = child;
+                stack[stackSize++] = child;
+            }
+        }
+        if (visited != count) {
+            final boolean[] reached = new boolean[count];
+            for (int index = 0; index < visited; index++) {
+                reached[preorder[index]] = true;
+            }
+            for (id = 0; id < count; id++) {
+                if (!reached[id]) {
+                    throw new TypeErrorException("Cyclic inheritance involving " +
+                                                 decoder.className(classSymbols[id]));
+                }
+            }
+        }
+
+        // parents first, so overridden methods are already known
+        final int[] ownFieldMarks = new int[arena.symbolNames.length];
+        for (int index = 1; index < count; index++) {
+            checkMembers(preorder[index], ownFieldMarks);
+        }
+    }
+
+    private void checkMembers(final int id, final int[] ownFieldMarks) throws TypeErrorException {
+        final int classNode = classNodes[id];
+        for (int member = arena.firstChildren[classNode]; member != NONE; member = arena.nextSiblings[member]) {
+            if (arena.kinds[member] != METHOD) {
+                continue;
+            }
+            final int name = arena.symbols[member];
+            if (!ownMethods.add(id, name, member)) {
+                throw new TypeErrorException("Duplicate method " + decoder.methodName(name) +
+                                             " in class " + decoder.className(classSymbols[id]));
+            }
+            final int overridden = findMethod(parents[id], name);
+            if (overridden != NONE &&
+                (!sameParameterTypes(member, overridden) ||
+                 arena.payloads[member] != arena.payloads[overridden])) {
+                throw new TypeErrorException("Method " + decoder.methodName(name) +
+                                             " in class " + decoder.className(classSymbols[id]) +
+                                             " overrides with a different signature");
+            }
+        }
+        for (int member = arena.firstChildren[classNode]; arena.kinds[member] == FIELD; member = arena.nextSiblings[member]) {
+            final int name = arena.symbols[member];
+            if (ownFieldMarks[name] == id) {
+                throw new TypeErrorException("Duplicate instance variable " + decoder.variable(name) +
+                                             " in class " + decoder.className(classSymbols[id]));
+            }
+            ownFieldMarks[name] = id;
+        }
+    }
+
+    private boolean sameParameterTypes(final int first, final int second) {
+        int firstParam = arena.firstChildren[first];
+        int secondParam = arena.firstChildren[second];
+        while (arena.kinds[firstParam] == PARAMETER && arena.kinds[secondParam] == PARAMETER) {
+            if (arena.payloads[firstParam] != arena.payloads[secondParam]) {
+                return false;
+            }
+            firstParam = arena.nextSiblings[firstParam];
+            secondParam = arena.nextSiblings[secondParam];
+        }
+        return arena.kinds[firstParam] != PARAMETER && arena.kinds[secondParam] != PARAMETER;
+    }
+
+    // the METHOD node a call on class id runs, or NONE
+    private int findMethod(final int id, final int name) {
+        for (int current = id; current != NONE; current = parents[current]) {
+            final int method = ownMethods.get(current, name);
+            if (method != NONE) {
+                return method;
+            }
+        }
+        return NONE;
+    }
+
+    private int classIdOf(final int classSymbol) throws TypeErrorException {
+        final int id = classIds[classSymbol];
+        if (id == NONE) {
+            throw new TypeErrorException("No such class: " + decoder.className(classSymbol));
+        }
+        return id;
+    }
+
+    // first PARAMETER of the constructor of class id; NONE for Object
+    private int constructorParameters(final int id) {
+        if (classNodes[id] == NONE) {
+            return NONE;
+        }
+        int member = arena.firstChildren[classNodes[id]];
+        while (arena.kinds[member] == FIELD) {
+            member = arena.nextSiblings[member];
+        }
+        return arena.firstChildren[member];
+    }
+
+    // Binding and unbinding
+
+    private void bind(final int symbol, final int type) {
+        if (undoSize == undo.length) {
+            undo = Arrays.copyOf(undo, undoSize * 2);
+        }
+        undo[undoSize++] = symbol;
+        undo[undoSize++] = scope[symbol];
+        scope[symbol] = type;
+    }
+
+    private void unbindTo(final int mark) {
+        while (undoSize > mark) {
+            final int previous = undo[--undoSize];
+            scope[undo[--undoSize]] = previous;
+        }
+    }
+
+    // fields of class id, own ones shadowing inherited ones
+    private void bindFields(final int id) {
+        if (id == NONE || classNodes[id] == NONE) {
+            return;
+        }
+        bindFields(parents[id]);
+        for (int member = arena.firstChildren[classNodes[id]]; arena.kinds[member] == FIELD; member = arena.nextSiblings[member]) {
+            bind(arena.symbols[member], arena.payloads[member]);
+        }
+    }
+
+    // binds the PARAMETERs from first on; returns the node after them
+    private int bindParameters(final int first) {
+        int node = first;
+        while (arena.kinds[node] == PARAMETER) {
+            bind(arena.symbols[node], arena.payloads[node]);
+            node = arena.nextSiblings[node];
+        }
+        return node;
+    }
+
+    // Types
+
+    private boolean isSubtypeOf(final int first, final int second) throws TypeErrorException {
+        if (first >= 0 && second >= 0) {
+            final int firstId = classIdOf(first);
+            final int secondId = classIdOf(second);
+            return pre[secondId] <= pre[firstId] && post[firstId] <= post[secondId];
+        } else {
+            return false;
+        }
+    }
+
+    private void isEqualOrSubtypeOf(final int first, final int second) throws TypeErrorException {
+        if (!(first == second || isSubtypeOf(first, second))) {
+            throw new TypeErrorException("types incompatible: " + decoder.type(first) +
+                                         ", " + decoder.type(second));
+        }
+    }
+
+    // params: the expected PARAMETERs from here on; args: the arguments
+    private void expressionsOk(final int params,
+                               final int args,
+                               final int classWeAreIn) throws TypeErrorException {
+        int paramCount = 0;
+        for (int param = params; param != NONE && arena.kinds[param] == PARAMETER; param = arena.nextSiblings[param]) {
+            paramCount++;
+        }
+        int argCount = 0;
+        for (int arg = args; arg != NONE; arg = arena.nextSiblings[arg]) {
+            argCount++;
+        }
+        if (paramCount != argCount) {
+            throw new TypeErrorException("Wrong number of parameters");
+        }
+        for (int param = params, arg = args; arg != NONE; param = arena.nextSiblings[param], arg = arena.nextSiblings[arg]) {
+            isEqualOrSubtypeOf(typeof(arg, classWeAreIn), arena.payloads[param]);
+        }
+    }
+
+    // classWeAreIn is a class id, or NONE in the entry point
+    private int typeof(final int node, final int classWeAreIn) throws TypeErrorException {
+        switch (arena.kinds[node]) {
+        case INT_LITERAL:
+            return INT_TYPE;
+        case BOOL_LITERAL:
+            return BOOL_TYPE;
+        case VARIABLE: {
+            final int type = scope[arena.symbols[node]];
+            if (type == NONE) {
+                throw new TypeErrorException("Used variable not in scope: " +
+                                             arena.symbolNames[arena.symbols[node]]);
+            }
+            return type;
+        }
+        case THIS:
+            if (classWeAreIn == NONE) {
+                throw new TypeErrorException("this used in the entry point");
+            }
+            return classSymbols[classWeAreIn];
+        case PLUS:
+            return operands(node, classWeAreIn, INT_TYPE, "+");
+        case LESS_THAN:
+            return operands(node, classWeAreIn, BOOL_TYPE, "<");
+        case EQUALS:
+            return operands(node, classWeAreIn, BOOL_TYPE, "==");
+        case METHOD_CALL: {
+            final int target = arena.firstChildren[node];
+            final int targetType = typeof(target, classWeAreIn);
+            if (targetType < 0) {
+                throw new TypeErrorException("Called method on non-class type: " + decoder.type(targetType));
+            }
+            final int id = classIdOf(targetType);
+            final int method = findMethod(id, arena.symbols[node]);
+            if (method == NONE) {
+                throw new TypeErrorException("No method named " + decoder.methodName(arena.symbols[node]) +
+                                             " on class " + decoder.className(targetType));
+            }
+            expressionsOk(arena.firstChildren[method], arena.nextSiblings[target], classWeAreIn);
+            return arena.payloads[method];
+        }
+        case NEW: {
+            final int id = classIdOf(arena.symbols[node]);
+            expressionsOk(constructorParameters(id), arena.firstChildren[node], classWeAreIn);
+            return arena.symbols[node];
+        }
+        default:
+            throw new IllegalStateException("Not an expression: node " + node);
+        }
+    }
+
+    private int operands(final int node,
+                         final int classWeAreIn,
+                         final int resultType,
+                         final String op) throws TypeErrorException {
+        final int left = arena.firstChildren[node];
+        final int leftType = typeof(left, classWeAreIn);
+        final int rightType = typeof(arena.nextSiblings[left], classWeAreIn);
+        if (leftType == INT_TYPE && rightType == INT_TYPE) {
+            return resultType;
+        } else {
+            throw new TypeErrorException("Operand type mismatch for " + op);
+        }
+    }
+
+    // Statements.  A statement's bindings stay in scope for the ones after
+    // it, until whoever opened the scope unbinds them.  As in Typechecker,
+    // that's the branches of an if and the body of a while, but not a
+    // block on its own.
+    //
+    // functionReturnType is NONE in the entry point.
+    private void stmt(final int node,
+                      final int classWeAreIn,
+                      final int functionReturnType) throws TypeErrorException {
+        final int first = arena.firstChildren[node];
+        switch (arena.kinds[node]) {
+        case EXP_STMT:
+        case PRINTLN:
+            typeof(first, classWeAreIn);
+            break;
+        case VARIABLE_INIT:
+            isEqualOrSubtypeOf(typeof(first, classWeAreIn), arena.payloads[node]);
+            bind(arena.symbols[node], arena.payloads[node]);
+            break;
+        case IF: {
+            if (typeof(first, classWeAreIn) != BOOL_TYPE) {
+                throw new TypeErrorException("guard of if is not a boolean: " + decoder.stmt(node));
+            }
+            final int ifTrue = arena.nextSiblings[first];
+            final int mark = undoSize;
+            stmt(ifTrue, classWeAreIn, functionReturnType);
+            unbindTo(mark);
+            stmt(arena.nextSiblings[ifTrue], classWeAreIn, functionReturnType);
+            unbindTo(mark);
+            break;
+        }
+        case WHILE: {
+            if (typeof(first, classWeAreIn) != BOOL_TYPE) {
+                throw new TypeErrorException("guard on while is not a boolean: " + decoder.stmt(node));
+            }
+            final int mark = undoSize;
+            stmt(arena.nextSiblings[first], classWeAreIn, functionReturnType);
+            unbindTo(mark);
+            break;
+        }
+        case RETURN_VALUE:
+            if (functionReturnType == NONE) {
+                throw new TypeErrorException("return in program entry point");
+            }
+            isEqualOrSubtypeOf(typeof(first, classWeAreIn), functionReturnType);
+            break;
+        case RETURN_VOID:
+            if (functionReturnType == NONE) {
+                throw new TypeErrorException("return in program entry point");
+            } else if (functionReturnType != VOID_TYPE) {
+                throw new TypeErrorException("return of void in non-void context");
+            }
+            break;
+        case BLOCK:
+            stmts(first, classWeAreIn, functionReturnType);
+            break;
+        default:
+            throw new IllegalStateException("Not a statement: node " + node);
+        }
+    }
+
+    private void stmts(final int first,
+                       final int classWeAreIn,
+                       final int functionReturnType) throws TypeErrorException {
+        for (int node = first; node != NONE; node = arena.nextSiblings[node]) {
+            stmt(node, classWeAreIn, functionReturnType);
+        }
+    }
+
+    private void isWellTypedClass(final int id) throws TypeErrorException {
+        // constructor
+        int member = arena.firstChildren[classNodes[id]];
+        while (arena.kinds[member] == FIELD) {
+            member = arena.nextSiblings[member];
+        }
+        bindFields(id);
+        final int superCall = bindParameters(arena.firstChildren[member]);
+        expressionsOk(constructorParameters(parents[id]), arena.firstChildren[superCall], id);
+        stmts(arena.nextSiblings[superCall], id, VOID_TYPE);
+        unbindTo(0);
+
+        for (member = arena.nextSiblings[member]; member != NONE; member = arena.nextSiblings[member]) {
+            bindFields(id);
+            final int body = bindParameters(arena.firstChildren[member]);
+            stmt(body, id, arena.payloads[member]);
+            unbindTo(0);
+        }
+    }
+
+    // the class table was checked by the constructor
+    public void isWellTypedProgram() throws TypeErrorException {
+        try {
+            for (int id = 1; id < classCount; id++) {
+                isWellTypedClass(id);
+            }
+            int entryPoint = arena.firstChildren[0];
+            while (arena.kinds[entryPoint] == CLASS) {
+                entryPoint = arena.nextSiblings[entryPoint];
+            }
+            stmt(entryPoint, NONE, NONE);
+        } finally {
+            unbindTo(0);
+        }
+    }
+
+    // (class id, name symbol) -> METHOD node, open addressing on one long
+    // per key
+    private static final class MethodIndex {
+        private final long[] keys;
+        private final int[] methods;
+
+        MethodIndex(final int expectedSize) {
+            int capacity = 16;
+            while (capacity < expectedSize * 2) {
+                capacity <<= 1;
+            }
+            keys = new long[capacity];
+            Arrays.fill(keys, -1L);
+            methods = new int[capacity];
+        }
+
+        private int find(final long key) {
+            final int mask = keys.length - 1;
+            int index = (int)(key ^ (key >>> 29)) * 0x9E3779B9 >>> 7 & mask;
+            while (keys[index] != -1L && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        // false if it was already there
+        boolean add(final int id, final int name, final int method) {
+            final long key = ((long)id << 32) | name;
+            final int index = find(key);
+            if (keys[index] == key) {
+                return false;
+            }
+            keys[index] = key;
+            methods[index] = method;
+            return true;
+        }
+
+        int get(final int id, final int name) {
+            final int index = find(((long)id << 32) | name);
+            return (keys[index] == -1L) ? NONE : methods[index];
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package oop_example.codegen;
+
+import oop_example.parser.*;
+import oop_example.typechecker.ClassInfo;
+import oop_example.typechecker.ClassTable;
+import oop_example.typechecker.MethodInfo;
+import oop_example.typechecker.TypeErrorException;
+import oop_example.typechecker.Typechecker;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Compiles a program to JVM classes:
+// - each class becomes a JVM class extending its parent, with a field per
+//   instance variable, one constructor, and a virtual method per method
+// - the entry point becomes public static void main(String[]) in a class
+//   named $Main, along with the PrintStream println writes to
+//
+// Calls are plain invokevirtual on the receiver's static type, so dispatch,
+// inlining and everything else is up to the JVM.  ints and bools are JVM
+// ints, and every local gets a JVM local.
+//
+// Compiling relies on the program having been typechecked, and redoes just
+// enough of that to know each expression's type.
+public class BytecodeCompiler {
+    public static final String MAIN_CLASS = "$Main";
+    static final String OUT_FIELD = "out";
+    static final String PRINT_STREAM = "java/io/PrintStream";
+    static final String PRINT_STREAM_DESCRIPTOR = "L" + PRINT_STREAM + ";";
+
+    // Methods of java.lang.Object.  Ours could accidentally override them
+    // (or fail to load, for the final ones), so methods with these names
+    // get a $ on the end.
+    private static final Set<String> OBJECT_METHODS = new HashSet<String>(Arrays.asList(
+        "clone", "equals", "finalize", "getClass", "hashCode",
+        "notify", "notifyAll", "toString", "wait"));
+
+    private final ClassTable classTable;
+
+    private BytecodeCompiler(final ClassTable classTable) {
+        this.classTable = classTable;
+    }
+
+    public static CompiledProgram compile(final Program program)
+        throws TypeErrorException, CodegenException {
+        final Typechecker typechecker = new Typechecker(program);
+        typechecker.isWellTypedProgram();
+        final BytecodeCompiler compiler = new BytecodeCompiler(typechecker.classTable);
+
+        final Map<String, byte[]> classFiles = new LinkedHashMap<String, byte[]>();
+        for (final ClassDef classDef : program.classes) {
+            classFiles.put(Descriptors.internalName(classDef.className), compiler.classFile(classDef));
+        }
+        classFiles.put(MAIN_CLASS, compiler.mainClassFile(program.entryPoint));
+        return new CompiledProgram(classFiles);
+    }
+
+    static String methodName(final MethodName methodName) {
+        return OBJECT_METHODS.contains(methodName.name) ? methodName.name + "$" : methodName.name;
+    }
+
+    private ClassInfo lookupClass(final ClassName className) {
+        try {
+            return classTable.lookupClass(className);
+        } catch (final TypeErrorException e) {
+            throw new IllegalStateException("Compiling a program that doesn't typecheck", e);
+        }
+    }
+
+    private MethodInfo lookupMethod(final ClassName className, final MethodName methodName) {
+        try {
+            return classTable.lookupMethod(className, methodName);
+        } catch (final TypeErrorException e) {
+            throw new IllegalStateException("Compiling a program that doesn't typecheck", e);
+        }
+    }
+
+    private static List<Type> typesOf(final List<Vardec> vardecs) {
+        return MethodInfo.typesOf(vardecs);
+    }
+
+    private byte[] classFile(final ClassDef classDef) throws CodegenException {
+        final ClassInfo info = lookupClass(classDef.className);
+        final String name = Descriptors.internalName(classDef.className);
+        final String parentName = Descriptors.internalName(classDef.extendsClassName);
+        final ClassFileWriter writer = new ClassFileWriter(name, parentName);
+
+        for (final Vardec vardec : classDef.instanceVariables) {
+            writer.field(ClassFileWriter.ACC_PUBLIC, vardec.variable.name, Descriptors.of(vardec.type));
+        }
+
+        // constructor: the superclass's constructor, then the body
+        final CodeBuilder constructor =
+            writer.method(ClassFileWriter.ACC_PUBLIC,
+                          "<init>",
+                          Descriptors.method(typesOf(classDef.constructorArguments), VoidType.instance()),
+                          1 + classDef.constructorArguments.size());
+        final BodyCompiler constructorCompiler = new BodyCompiler(info, constructor, VoidType.instance(), 1);
+        constructorCompiler.parameters(classDef.constructorArguments);
+        constructor.loadRef(0);
+        constructorCompiler.inSuperCall = true;
+        constructorCompiler.exps(classDef.superParams);
+        constructorCompiler.inSuperCall = false;
+        constructor.invokeSpecial(parentName,
+                                  "<init>",
+                                  Descriptors.method(info.parent.constructorTypes, VoidType.instance()));
+        constructorCompiler.block(classDef.constructorBody);
+        constructorCompiler.finish("constructor of " + classDef.className.name);
+
+        for (final MethodDef method : classDef.methods) {
+            final CodeBuilder code =
+                writer.method(ClassFileWriter.ACC_PUBLIC,
+                              methodName(method.methodName),
+                              Descriptors.method(typesOf(method.arguments), method.returnType),
+                              1 + method.arguments.size());
+            final BodyCompiler compiler = new BodyCompiler(info, code, method.returnType, 1);
+            compiler.parameters(method.arguments);
+            method.body.accept(compiler, null);
+            compiler.finish(classDef.className.name + "." + method.methodName.name);
+        }
+        return writer.toByteArray();
+    }
+
+    private byte[] mainClassFile(final Stmt entryPoint) throws CodegenException {
+        final ClassFileWriter writer = new ClassFileWriter(MAIN_CLASS, Descriptors.OBJECT);
+        writer.field(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC,
+                     OUT_FIELD,
+                     PRINT_STREAM_DESCRIPTOR);
+        final CodeBuilder code = writer.method(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC,
+                                               "main",
+                                               "([Ljava/lang/String;)V",
+                                               1);
+        final BodyCompiler compiler = new BodyCompiler(null, code, VoidType.instance(), 1);
+        entryPoint.accept(compiler, null);
+        compiler.finish("entry point");
+        return writer.toByteArray();
+    }
+
+    // A variable in scope, newest binding first.
+    private static final class Scope {
+        final Variable variable;
+        final int slot;
+        final Type type;
+        final Scope next;
+
+        Scope(final Variable variable, final int slot, final Type type, final Scope next) {
+            this.variable = variable;
+            this.slot = slot;
+            this.type = type;
+            this.next = next;
+        }
+    }
+
+    private static boolean isIntLike(final Type type) {
+        return type == IntType.instance() || type == BoolType.instance();
+    }
+
+    // Compiles one body.  Expressions leave their value on the operand stack
+    // and return their static type.
+    private final class BodyCompiler implements ExpVisitor<Void, Type, CodegenException>,
+                                                StmtVisitor<Void, Void, CodegenException> {
+        private final ClassInfo classInfo; // null in the entry point
+        private final CodeBuilder code;
+        private final Type returnType;
+        private Scope scope;
+        private int nextSlot;
+        // In a constructor's super(...) arguments, this isn't initialized
+        // yet, and the JVM won't let us use it.
+        boolean inSuperCall;
+
+        BodyCompiler(final ClassInfo classInfo,
+                     final CodeBuilder code,
+                     final Type returnType,
+                     final int firstSlot) {
+            this.classInfo = classInfo;
+            this.code = code;
+            this.returnType = returnType;
+            this.nextSlot = firstSlot;
+        }
+
+        private int declare(final Vardec vardec) {
+            scope = new Scope(vardec.variable, nextSlot, vardec.type, scope);
+            return nextSlot++;
+        }
+
+        void parameters(final List<Vardec> vardecs) {
+            for (final Vardec vardec : vardecs) {
+                declare(vardec);
+            }
+        }
+
+        void exps(final List<Exp> exps) throws CodegenException {
+            for (final Exp exp : exps) {
+                exp.accept(this, null);
+            }
+        }
+
+        // Falling off the end of a void body returns; the typechecker
+        // doesn't make sure other bodies return on every path, so those
+        // throw, like the interpreter does.
+        void finish(final String description) {
+            if (!code.isReachable()) {
+                return;
+            }
+            if (returnType == VoidType.instance()) {
+                code.exit(CodeBuilder.RETURN);
+            } else {
+                code.newObject("java/lang/IllegalStateException");
+                code.dup();
+                code.pushString(description + " ended without returning a value");
+                code.invokeSpecial("java/lang/IllegalStateException", "<init>", "(Ljava/lang/String;)V");
+                code.exit(CodeBuilder.ATHROW);
+            }
+        }
+
+        private void load(final int slot, final Type type) {
+            if (isIntLike(type)) {
+                code.loadInt(slot);
+            } else {
+                code.loadRef(slot);
+            }
+        }
+
+        void block(final List<Stmt> stmts) throws CodegenException {
+            final Scope outer = scope;
+            final int outerSlot = nextSlot;
+            for (final Stmt stmt : stmts) {
+                stmt.accept(this, null);
+            }
+            // the slots can be reused; the verifier tracks their types
+            scope = outer;
+            nextSlot = outerSlot;
+        }
+
+        private void nested(final Stmt stmt) throws CodegenException {
+            final Scope outer = scope;
+            final int outerSlot = nextSlot;
+            stmt.accept(this, null);
+            scope = outer;
+            nextSlot = outerSlot;
+        }
+
+        // Jumps to target if the guard is false, and falls through if it's
+        // true.  Comparisons jump on the comparison itself rather than
+        // making a bool and testing it.
+        private void jumpIfFalse(final Exp guard, final Label target) throws CodegenException {
+            if (guard instanceof BoolLiteralExp) {
+                if (!((BoolLiteralExp)guard).value) {
+                    code.jump(CodeBuilder.GOTO, target);
+                }
+            } else if (guard instanceof OpExp && ((OpExp)guard).op != PlusOp.instance()) {
+                final OpExp op = (OpExp)guard;
+                op.left.accept(this, null);
+                op.right.accept(this, null);
+                code.jump((op.op == LessThanOp.instance()) ? CodeBuilder.IF_ICMPGE : CodeBuilder.IF_ICMPNE,
+                          target);
+            } else {
+                guard.accept(this, null);
+                code.jump(CodeBuilder.IFEQ, target);
+            }
+        }
+
+        public Type visitIntLiteral(final IntLiteralExp exp, final Void context) {
+            code.pushInt(exp.value);
+            return IntType.instance();
+        }
+
+        // locals and parameters shadow instance variables
+        public Type visitVariable(final VariableExp exp, final Void context) {
+            for (Scope current = scope; current != null; current = current.next) {
+                if (current.variable.equals(exp.variable)) {
+                    load(current.slot, current.type);
+                    return current.type;
+                }
+            }
+            final Type type = (classInfo == null) ? null : classInfo.fields.get(exp.variable);
+            if (type == null) {
+                throw new IllegalStateException("Variable not in scope: " + exp.variable);
+            }
+            if (inSuperCall) {
+                // Can't read fields of an uninitialized this.  Nothing can
+                // have set them yet, so they still have their defaults.
+                if (isIntLike(type)) {
+                    code.pushInt(0);
+                } else {
+                    code.pushNull();
+                }
+            } else {
+                // resolved from this class upward, so the nearest
+                // declaration wins, as in the typechecker
+                code.loadRef(0);
+                code.getField(Descriptors.internalName(classInfo.className),
+                              exp.variable.name,
+                              Descriptors.of(type));
+            }
+            return type;
+        }
+
+        public Type visitBoolLiteral(final BoolLiteralExp exp, final Void context) {
+            code.pushInt(exp.value ? 1 : 0);
+            return BoolType.instance();
+        }
+
+        public Type visitThis(final ThisExp exp, final Void context) throws CodegenException {
+            if (inSuperCall) {
+                throw new CodegenException("this can't be used in the super(...) arguments of " +
+                                           classInfo.className.name + "'s constructor on the JVM");
+            }
+            code.loadRef(0);
+            return ClassNameType.instance(classInfo.className);
+        }
+
+        public Type visitOp(final OpExp exp, final Void context) throws CodegenException {
+            if (exp.op == PlusOp.instance()) {
+                exp.left.accept(this, null);
+                exp.right.accept(this, null);
+                code.add();
+                return IntType.instance();
+            } else {
+                final Label isFalse = new Label();
+                final Label done = new Label();
+                jumpIfFalse(exp, isFalse);
+                code.pushInt(1);
+                code.jump(CodeBuilder.GOTO, done);
+                code.mark(isFalse);
+                code.pushInt(0);
+                code.mark(done);
+                return BoolType.instance();
+            }
+        }
+
+        public Type visitMethodCall(final MethodCallExp exp, final Void context) throws CodegenException {
+            final ClassName receiverClass = ((ClassNameType)exp.target.accept(this, null)).className;
+            final MethodInfo method = lookupMethod(receiverClass, exp.methodName);
+            exps(exp.params);
+            code.invokeVirtual(Descriptors.internalName(receiverClass),
+                               methodName(exp.methodName),
+                               Descriptors.method(method.parameterTypes, method.returnType));
+            return method.returnType;
+        }
+
+        public Type visitNew(final NewExp exp, final Void context) throws CodegenException {
+            final ClassInfo created = lookupClass(exp.className);
+            final String name = Descriptors.internalName(exp.className);
+            code.newObject(name);
+            code.dup();
+            exps(exp.params);
+            code.invokeSpecial(name, "<init>", Descriptors.method(created.constructorTypes, VoidType.instance()));
+            return ClassNameType.instance(exp.className);
+        }
+
+        public Void visitExp(final ExpStmt stmt, final Void context) throws CodegenException {
+            if (stmt.exp.accept(this, null) != VoidType.instance()) {
+                code.pop();
+            }
+            return null;
+        }
+
+        // the initializer is compiled before the variable comes into scope
+        public Void visitVariableInitialization(final VariableInitializationStmt stmt,
+                                                final Void context) throws CodegenException {
+            stmt.exp.accept(this, null);
+            final int slot = declare(stmt.vardec);
+            if (isIntLike(stmt.vardec.type)) {
+                code.storeInt(slot);
+            } else {
+                code.storeRef(slot);
+            }
+            return null;
+        }
+
+        public Void visitIf(final IfStmt stmt, final Void context) throws CodegenException {
+            final Label ifFalse = new Label();
+            final Label done = new Label();
+            jumpIfFalse(stmt.guard, ifFalse);
+            nested(stmt.ifTrue);
+            if (code.isReachable()) {
+                code.jump(CodeBuilder.GOTO, done);
+            }
+            code.mark(ifFalse);
+            nested(stmt.ifFalse);
+            code.mark(done);
+            return null;
+        }
+
+        public Void visitWhile(final WhileStmt stmt, final Void context) throws CodegenException {
+            final Label top = new Label();
+            final Label done = new Label();
+            code.mark(top);
+            jumpIfFalse(stmt.guard, done);
+            nested(stmt.body);
+            if (code.isReachable()) {
+                code.jump(CodeBuilder.GOTO, top);
+            }
+            code.mark(done);
+            return null;
+        }
+
+        public Void visitReturnNonVoid(final ReturnNonVoidStmt stmt, final Void context) throws CodegenException {
+            stmt.exp.accept(this, null);
+            code.exit(isIntLike(returnType) ? CodeBuilder.IRETURN : CodeBuilder.ARETURN);
+            return null;
+        }
+
+        public Void visitReturnVoid(final ReturnVoidStmt stmt, final Void context) {
+            code.exit(CodeBuilder.RETURN);
+            return null;
+        }
+
+        public Void visitPrintln(final PrintlnStmt stmt, final Void context) throws CodegenException {
+            code.getStatic(MAIN_CLASS, OUT_FIELD, PRINT_STREAM_DESCRIPTOR);
+            final Type type = stmt.exp.accept(this, null);
+            final String descriptor;
+            if (type == IntType.instance()) {
+                descriptor = "(I)V";
+            } else if (type == BoolType.instance()) {
+                descriptor = "(Z)V";
+            } else {
+                if (type == VoidType.instance()) {
+                    code.pushNull(); // prints null, like the interpreter
+                }
+                descriptor = "(Ljava/lang/Object;)V";
+            }
+            code.invokeVirtual(PRINT_STREAM, "println", descriptor);
+            return null;
+        }
+
+        public Void visitBlock(final BlockStmt stmt, final Void context) throws CodegenException {
+            block(stmt.body);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package oop_example.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Writes one class file.
+//
+// We target class file version 49 (Java 5).  From version 50 on, the
+// verifier wants StackMapTable frames at every branch target; version 49
+// classes are verified by inference instead, so we don't have to compute
+// them.  HotSpot still loads, verifies and JIT-compiles these classes like
+// any other.
+final class ClassFileWriter {
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_SUPER = 0x0020;
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MAJOR_VERSION = 49;
+
+    private final ConstantPool pool = new ConstantPool();
+    private final int thisClass;
+    private final int superClass;
+    private final List<Member> fields = new ArrayList<Member>();
+    private final List<Member> methods = new ArrayList<Member>();
+
+    private static final class Member {
+        final int access;
+        final int name;
+        final int descriptor;
+        final CodeBuilder code; // null for fields
+
+        Member(final int access, final int name, final int descriptor, final CodeBuilder code) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.code = code;
+        }
+    }
+
+    ClassFileWriter(final String internalName, final String superName) {
+        this.thisClass = pool.classRef(internalName);
+        this.superClass = pool.classRef(superName);
+    }
+
+    void field(final int access, final String name, final String descriptor) {
+        fields.add(new Member(access, pool.utf8(name), pool.utf8(descriptor), null));
+    }
+
+    // parameterSlots counts the receiver, if there is one
+    CodeBuilder method(final int access,
+                       final String name,
+                       final String descriptor,
+                       final int parameterSlots) {
+        final CodeBuilder code = new CodeBuilder(pool, parameterSlots);
+        methods.add(new Member(access, pool.utf8(name), pool.utf8(descriptor), code));
+        return code;
+    }
+
+    private static void writeMembers(final List<Member> members,
+                                     final DataOutputStream out) throws IOException {
+        out.writeShort(members.size());
+        for (final Member member : members) {
+            out.writeShort(member.access);
+            out.writeShort(member.name);
+            out.writeShort(member.descriptor);
+            if (member.code == null) {
+                out.writeShort(0);
+            } else {
+                out.writeShort(1);
+                member.code.writeTo(out);
+            }
+        }
+    }
+
+    byte[] toByteArray() {
+        try {
+            // the members go first, since writing Code attributes can still
+            // add to the constant pool
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            final DataOutputStream bodyOut = new DataOutputStream(body);
+            writeMembers(fields, bodyOut);
+            writeMembers(methods, bodyOut);
+            bodyOut.writeShort(0); // attributes
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            pool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            body.writeTo(out);
+            return bytes.toByteArray();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e); // can't happen writing to memory
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package oop_example.codegen;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Assembles one method's Code attribute.  Keeps track of the operand stack
+// depth and the locals used as instructions are added, so max_stack and
+// max_locals come out right without a separate pass.
+//
+// The code we generate is structured: every label is either reached by
+// falling through with the same stack depth the jumps to it have, or only
+// reached by jumps, so the depth at a label is the depth at any jump to it.
+final class CodeBuilder {
+    static final int ICONST_0 = 0x03;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int ACONST_NULL = 0x01;
+    static final int ILOAD = 0x15;
+    static final int ALOAD = 0x19;
+    static final int ISTORE = 0x36;
+    static final int ASTORE = 0x3A;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int IADD = 0x60;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9A;
+    static final int IF_ICMPEQ = 0x9F;
+    static final int IF_ICMPNE = 0xA0;
+    static final int IF_ICMPLT = 0xA1;
+    static final int IF_ICMPGE = 0xA2;
+    static final int GOTO = 0xA7;
+    static final int IRETURN = 0xAC;
+    static final int ARETURN = 0xB0;
+    static final int RETURN = 0xB1;
+    static final int GETSTATIC = 0xB2;
+    static final int PUTSTATIC = 0xB3;
+    static final int GETFIELD = 0xB4;
+    static final int INVOKEVIRTUAL = 0xB6;
+    static final int INVOKESPECIAL = 0xB7;
+    static final int NEW = 0xBB;
+    static final int ATHROW = 0xBF;
+
+    private final ConstantPool pool;
+    private byte[] code = new byte[64];
+    private int length;
+    private int stack;
+    private int maxStack;
+    private int maxLocals;
+    // false after an unconditional jump, return or throw, until a label
+    private boolean reachable = true;
+
+    CodeBuilder(final ConstantPool pool, final int parameterSlots) {
+        this.pool = pool;
+        this.maxLocals = parameterSlots;
+    }
+
+    boolean isReachable() {
+        return reachable;
+    }
+
+    private void adjustStack(final int delta) {
+        stack += delta;
+        if (stack > maxStack) {
+            maxStack = stack;
+        }
+    }
+
+    private void put(final int value) {
+        if (length == code.length) {
+            code = Arrays.copyOf(code, length * 2);
+        }
+        code[length++] = (byte)value;
+    }
+
+    private void putShort(final int value) {
+        put(value >> 8);
+        put(value);
+    }
+
+    private void op(final int opcode, final int stackDelta) {
+        put(opcode);
+        adjustStack(stackDelta);
+    }
+
+    private void local(final int opcode, final int slot, final int stackDelta) {
+        if (slot > 0xFF) {
+            put(0xC4); // wide
+            op(opcode, stackDelta);
+            putShort(slot);
+        } else {
+            op(opcode, stackDelta);
+            put(slot);
+        }
+        maxLocals = Math.max(maxLocals, slot + 1);
+    }
+
+    void pushInt(final int value) {
+        if (value >= -1 && value <= 5) {
+            op(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            op(BIPUSH, 1);
+            put(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            op(SIPUSH, 1);
+            putShort(value);
+        } else {
+            op(LDC_W, 1);
+            putShort(pool.integer(value));
+        }
+    }
+
+    void pushString(final String value) {
+        op(LDC_W, 1);
+        putShort(pool.string(value));
+    }
+
+    void pushNull() {
+        op(ACONST_NULL, 1);
+    }
+
+    void loadInt(final int slot) {
+        local(ILOAD, slot, 1);
+    }
+
+    void loadRef(final int slot) {
+        local(ALOAD, slot, 1);
+    }
+
+    void storeInt(final int slot) {
+        local(ISTORE, slot, -1);
+    }
+
+    void storeRef(final int slot) {
+        local(ASTORE, slot, -1);
+    }
+
+    void pop() {
+        op(POP, -1);
+    }
+
+    void dup() {
+        op(DUP, 1);
+    }
+
+    void add() {
+        op(IADD, -1);
+    }
+
+    void newObject(final String internalName) {
+        op(NEW, 1);
+        putShort(pool.classRef(internalName));
+    }
+
+    void getStatic(final String owner, final String name, final String descriptor) {
+        op(GETSTATIC, 1);
+        putShort(pool.fieldRef(owner, name, descriptor));
+    }
+
+    void putStatic(final String owner, final String name, final String descriptor) {
+        op(PUTSTATIC, -1);
+        putShort(pool.fieldRef(owner, name, descriptor));
+    }
+
+    void getField(final String owner, final String name, final String descriptor) {
+        op(GETFIELD, 0);
+        putShort(pool.fieldRef(owner, name, descriptor));
+    }
+
+    // the receiver and arguments are on the stack
+    private void invoke(final int opcode, final String owner, final String name, final String descriptor) {
+        final int arguments = Descriptors.argumentCount(descriptor);
+        final int result = descriptor.endsWith(")V") ? 0 : 1;
+        op(opcode, result - arguments - 1);
+        putShort(pool.methodRef(owner, name, descriptor));
+    }
+
+    void invokeVirtual(final String owner, final String name, final String descriptor) {
+        invoke(INVOKEVIRTUAL, owner, name, descriptor);
+    }
+
+    void invokeSpecial(final String owner, final String name, final String descriptor) {
+        invoke(INVOKESPECIAL, owner, name, descriptor);
+    }
+
+    // IRETURN, ARETURN, RETURN or ATHROW
+    void exit(final int opcode) {
+        op(opcode, (opcode == RETURN) ? 0 : -1);
+        stack = 0;
+        reachable = false;
+    }
+
+    // Any of the IF* or GOTO opcodes.  Offsets are patched in when the
+    // target is marked.
+    void jump(final int opcode, final Label target) {
+        final int popped;
+        if (opcode == GOTO) {
+            popped = 0;
+        } else if (opcode == IFEQ || opcode == IFNE) {
+            popped = 1;
+        } else {
+            popped = 2;
+        }
+        adjustStack(-popped);
+        if (target.position >= 0) {
+            final int offset = target.position - length;
+            if (offset < Short.MIN_VALUE) {
+                throw new IllegalStateException("Method too large");
+            }
+            put(opcode);
+            putShort(offset);
+        } else {
+            target.jumps.add(length);
+            put(opcode);
+            putShort(0);
+        }
+        target.stack = stack;
+        if (opcode == GOTO) {
+            reachable = false;
+        }
+    }
+
+    void mark(final Label label) {
+        label.position = length;
+        if (!reachable && label.stack >= 0) {
+            stack = label.stack;
+        }
+        reachable = reachable || label.stack >= 0;
+        for (final int jump : label.jumps) {
+            final int offset = length - jump;
+            if (offset > Short.MAX_VALUE) {
+                throw new IllegalStateException("Method too large");
+            }
+            code[jump + 1] = (byte)(offset >> 8);
+            code[jump + 2] = (byte)offset;
+        }
+        label.jumps.clear();
+    }
+
+    void writeTo(final DataOutputStream out) throws IOException {
+        out.writeShort(pool.utf8("Code"));
+        out.writeInt(2 + 2 + 4 + length + 2 + 2);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(length);
+        out.write(code, 0, length);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // attributes
+    }
+}
@@ -0,0 +1,8 @@
+package oop_example.codegen;
+
+// A well-typed program the JVM backend can't translate.
+public class CodegenException extends Exception {
+    public CodegenException(final String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,115 @@
+package oop_example.codegen;
+
+import oop_example.interpreter.EvaluationException;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+// A program compiled by BytecodeCompiler: its class files, and running
+// them.
+//
+// The classes are loaded into their own ClassLoader the first time the
+// program runs, and stay loaded (and JIT-compiled, once they're hot) for
+// later runs.  Like the interpreter, programs run on their own thread with
+// a large stack, since recursion is the only way to repeat anything.
+//
+// Not thread-safe: println goes to a static field of the main class, which
+// each run sets.
+public class CompiledProgram {
+    public static final long DEFAULT_STACK_SIZE = 512L * 1024 * 1024;
+
+    // by JVM internal name, which for our classes is their own name
+    public final Map<String, byte[]> classFiles;
+    private Class<?> mainClass;
+    private Method main;
+
+    CompiledProgram(final Map<String, byte[]> classFiles) {
+        this.classFiles = Collections.unmodifiableMap(classFiles);
+    }
+
+    // Defines the classes, if that hasn't happened yet, and returns the one
+    // with main in it.  Verification happens here.
+    public Class<?> load() {
+        if (mainClass == null) {
+            final ClassLoader loader = new ProgramClassLoader(classFiles, CompiledProgram.class.getClassLoader());
+            try {
+                mainClass = loader.loadClass(BytecodeCompiler.MAIN_CLASS);
+                // verify everything now rather than on first use
+                for (final String name : classFiles.keySet()) {
+                    Class.forName(name, true, loader);
+                }
+                main = mainClass.getMethod("main", String[].class);
+            } catch (final ClassNotFoundException | NoSuchMethodException e) {
+                throw new IllegalStateException("Compiled classes didn't load", e);
+            }
+        }
+        return mainClass;
+    }
+
+    // for looking at the result with javap
+    public void writeTo(final Path directory) throws IOException {
+        for (final Map.Entry<String, byte[]> entry : classFiles.entrySet()) {
+            Files.write(directory.resolve(entry.getKey() + ".class"), entry.getValue());
+        }
+    }
+
+    public void run(final PrintStream out) throws EvaluationException {
+        run(out, DEFAULT_STACK_SIZE);
+    }
+
+    public void run(final PrintStream out, final long stackSize) throws EvaluationException {
+        load();
+        try {
+            mainClass.getField(BytecodeCompiler.OUT_FIELD).set(null, out);
+        } catch (final NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalStateException("Compiled main class has no usable output field", e);
+        }
+        final EvaluationException[] error = new EvaluationException[1];
+        // anything else goes back to the caller as it was thrown
+        final Throwable[] crash = new Throwable[1];
+        final Thread thread = new Thread(null, new Runnable() {
+                public void run() {
+                    try {
+                        main.invoke(null, (Object)new String[0]);
+                    } catch (final InvocationTargetException e) {
+                        final Throwable cause = e.getCause();
+                        // the only exceptions the generated code itself throws
+                        if (cause instanceof NullPointerException) {
+                            error[0] = new EvaluationException("Null pointer: " + cause.getMessage());
+                        } else if (cause instanceof IllegalStateException) {
+                            error[0] = new EvaluationException(cause.getMessage());
+                        } else if (cause instanceof StackOverflowError) {
+                            error[0] = new EvaluationException("Stack overflow");
+                        } else {
+                            crash[0] = cause;
+                        }
+                    } catch (final IllegalAccessException | RuntimeException | Error e) {
+                        crash[0] = e;
+                    }
+                }
+            }, "compiled program", stackSize);
+        thread.start();
+        try {
+            thread.join();
+        } catch (final InterruptedException e) {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+            throw new EvaluationException("Interrupted");
+        }
+        if (crash[0] instanceof RuntimeException) {
+            throw (RuntimeException)crash[0];
+        } else if (crash[0] instanceof Error) {
+            throw (Error)crash[0];
+        } else if (crash[0] != null) {
+            throw new IllegalStateException(crash[0]);
+        } else if (error[0] != null) {
+            throw error[0];
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package oop_example.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// A class file's constant pool.  Each constant is added once; asking for
+// it again returns the same index.
+final class ConstantPool {
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final Map<String, Integer> indices = new HashMap<String, Integer>();
+    private int count = 1; // index 0 isn't used
+
+    // entries are keyed by tag plus contents
+    private Integer existing(final int tag, final String contents) {
+        return indices.get(tag + ":" + contents);
+    }
+
+    private int added(final int tag, final String contents) {
+        if (count == 0xFFFF) {
+            throw new IllegalStateException("Constant pool is full");
+        }
+        indices.put(tag + ":" + contents, count);
+        return count++;
+    }
+
+    int utf8(final String value) {
+        final Integer index = existing(UTF8, value);
+        if (index != null) {
+            return index;
+        }
+        try {
+            out.writeByte(UTF8);
+            out.writeUTF(value);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e); // can't happen writing to memory
+        }
+        return added(UTF8, value);
+    }
+
+    int integer(final int value) {
+        final String key = Integer.toString(value);
+        final Integer index = existing(INTEGER, key);
+        if (index != null) {
+            return index;
+        }
+        write(INTEGER);
+        writeInt(value);
+        return added(INTEGER, key);
+    }
+
+    int classRef(final String internalName) {
+        final Integer index = existing(CLASS, internalName);
+        if (index != null) {
+            return index;
+        }
+        final int name = utf8(internalName);
+        write(CLASS);
+        writeShort(name);
+        return added(CLASS, internalName);
+    }
+
+    int string(final String value) {
+        final Integer index = existing(STRING, value);
+        if (index != null) {
+            return index;
+        }
+        final int utf8 = utf8(value);
+        write(STRING);
+        writeShort(utf8);
+        return added(STRING, value);
+    }
+
+    private int nameAndType(final String name, final String descriptor) {
+        final String key = name + " " + descriptor;
+        final Integer index = existing(NAME_AND_TYPE, key);
+        if (index != null) {
+            return index;
+        }
+        final int nameIndex = utf8(name);
+        final int descriptorIndex = utf8(descriptor);
+        write(NAME_AND_TYPE);
+        writeShort(nameIndex);
+        writeShort(descriptorIndex);
+        return added(NAME_AND_TYPE, key);
+    }
+
+    private int memberRef(final int tag, final String owner, final String name, final String descriptor) {
+        final String key = owner + "." + name + " " + descriptor;
+        final Integer index = existing(tag, key);
+        if (index != null) {
+            return index;
+        }
+        final int ownerIndex = classRef(owner);
+        final int nameAndTypeIndex = nameAndType(name, descriptor);
+        write(tag);
+        writeShort(ownerIndex);
+        writeShort(nameAndTypeIndex);
+        return added(tag, key);
+    }
+
+    int fieldRef(final String owner, final String name, final String descriptor) {
+        return memberRef(FIELD_REF, owner, name, descriptor);
+    }
+
+    int methodRef(final String owner, final String name, final String descriptor) {
+        return memberRef(METHOD_REF, owner, name, descriptor);
+    }
+
+    private void write(final int value) {
+        try {
+            out.writeByte(value);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeShort(final int value) {
+        try {
+            out.writeShort(value);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeInt(final int value) {
+        try {
+            out.writeInt(value);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void writeTo(final DataOutputStream target) throws IOException {
+        target.writeShort(count);
+        bytes.writeTo(target);
+    }
+}
@@ -0,0 +1,66 @@
+package oop_example.codegen;
+
+import oop_example.parser.BoolType;
+import oop_example.parser.ClassName;
+import oop_example.parser.ClassNameType;
+import oop_example.parser.IntType;
+import oop_example.parser.Type;
+import oop_example.parser.VoidType;
+import oop_example.typechecker.ClassTable;
+
+import java.util.List;
+
+// JVM names and descriptors for our classes, methods and types.
+//
+// Our classes go in the unnamed package under their own names, except
+// Object, which is java.lang.Object.  Names that can't be our identifiers
+// (like $Main) are free for the backend's own use.
+final class Descriptors {
+    private Descriptors() {}
+
+    static final String OBJECT = "java/lang/Object";
+
+    static String internalName(final ClassName className) {
+        return className.equals(ClassTable.OBJECT_NAME) ? OBJECT : className.name;
+    }
+
+    static String of(final Type type) {
+        if (type == IntType.instance()) {
+            return "I";
+        } else if (type == BoolType.instance()) {
+            return "Z";
+        } else if (type == VoidType.instance()) {
+            return "V";
+        } else if (type instanceof ClassNameType) {
+            return "L" + internalName(((ClassNameType)type).className) + ";";
+        } else {
+            throw new IllegalArgumentException("No descriptor for type: " + type);
+        }
+    }
+
+    static String method(final List<Type> parameterTypes, final Type returnType) {
+        final StringBuilder builder = new StringBuilder("(");
+        for (final Type type : parameterTypes) {
+            builder.append(of(type));
+        }
+        return builder.append(')').append(of(returnType)).toString();
+    }
+
+    // Every argument type we use takes one slot, so this only has to skip
+    // over class names.
+    static int argumentCount(final String descriptor) {
+        int count = 0;
+        int index = 1;
+        while (descriptor.charAt(index) != ')') {
+            if (descriptor.charAt(index) == 'L') {
+                index = descriptor.indexOf(';', index);
+            } else if (descriptor.charAt(index) == '[') {
+                index++;
+                continue;
+            }
+            index++;
+            count++;
+        }
+        return count;
+    }
+}
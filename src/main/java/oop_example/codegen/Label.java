@@ -0,0 +1,13 @@
+package oop_example.codegen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A position in a method's code that jumps can target before it's known.
+final class Label {
+    int position = -1;
+    // operand stack depth on arrival, from whichever jump reached it first
+    int stack = -1;
+    // offsets of the branch instructions waiting for this label
+    final List<Integer> jumps = new ArrayList<Integer>();
+}
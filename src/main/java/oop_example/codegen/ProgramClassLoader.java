@@ -0,0 +1,39 @@
+package oop_example.codegen;
+
+import java.util.Map;
+
+// Defines one compiled program's classes.  Our classes are looked up here
+// before asking the parent, since they're in the unnamed package and might
+// share a name with something on the class path.
+final class ProgramClassLoader extends ClassLoader {
+    private final Map<String, byte[]> classFiles;
+
+    ProgramClassLoader(final Map<String, byte[]> classFiles, final ClassLoader parent) {
+        super(parent);
+        this.classFiles = classFiles;
+    }
+
+    protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+        if (!classFiles.containsKey(name)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) {
+                loaded = findClass(name);
+            }
+            if (resolve) {
+                resolveClass(loaded);
+            }
+            return loaded;
+        }
+    }
+
+    protected Class<?> findClass(final String name) throws ClassNotFoundException {
+        final byte[] bytes = classFiles.get(name);
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+}
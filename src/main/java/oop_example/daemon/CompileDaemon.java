@@ -0,0 +1,309 @@
+package oop_example.daemon;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.parser.ParseException;
+import oop_example.parser.Parser;
+import oop_example.parser.Program;
+import oop_example.typechecker.ClassInfoCache;
+import oop_example.typechecker.TypeError;
+import oop_example.typechecker.Typechecker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A long-lived typechecker, so that checking a program doesn't pay for
+// starting a JVM and warming up its JIT every time.  Listens on a loopback
+// port; see DaemonProtocol for what's sent and DaemonClient for the other
+// end.
+//
+// - a fixed pool of worker threads checks programs concurrently
+// - connections wait in a bounded queue; when it's full, new ones are told
+//   BUSY straight away instead of piling up
+// - ClassInfos are shared between requests through a ClassInfoCache, so
+//   classes that didn't change since an earlier request aren't rebuilt
+// - shutdown() stops taking connections, but answers every one already
+//   taken, queued or not
+// - any local process can connect, so a client may only ask us to shut
+//   down when allowShutdown is set
+//
+// java -cp target/classes oop_example.daemon.CompileDaemon [port] [--allow-shutdown]
+public class CompileDaemon {
+    public static class Settings {
+        // 0 picks a free port; see port()
+        public int port = 0;
+        public int workerThreads = Runtime.getRuntime().availableProcessors();
+        // connections waiting for a worker
+        public int queueCapacity = 64;
+        public int maxSourceBytes = 64 * 1024 * 1024;
+        public int cachedClasses = 100000;
+        // checks of a generated program before taking connections, so the
+        // first requests don't run in the interpreter
+        public int warmupIterations = 0;
+        // for reading a request; 0 waits forever
+        public int readTimeoutMillis = 30000;
+        // whether a SHUTDOWN request is obeyed, rather than refused
+        public boolean allowShutdown = false;
+
+        public String toString() {
+            return ("Settings(port=" + port +
+                    ", workerThreads=" + workerThreads +
+                    ", queueCapacity=" + queueCapacity +
+                    ", maxSourceBytes=" + maxSourceBytes +
+                    ", cachedClasses=" + cachedClasses +
+                    ", warmupIterations=" + warmupIterations +
+                    ", readTimeoutMillis=" + readTimeoutMillis +
+                    ", allowShutdown=" + allowShutdown + ")");
+        }
+    }
+
+    private final Settings settings;
+    private final ServerSocket serverSocket;
+    private final ThreadPoolExecutor workers;
+    private final ClassInfoCache cache;
+    private final Thread acceptor;
+    private final AtomicLong handled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private CompileDaemon(final Settings settings) throws IOException {
+        this.settings = settings;
+        this.cache = new ClassInfoCache(settings.cachedClasses);
+        this.workers = new ThreadPoolExecutor(settings.workerThreads,
+                                              settings.workerThreads,
+                                              0L,
+                                              TimeUnit.MILLISECONDS,
+                                              new ArrayBlockingQueue<Runnable>(settings.queueCapacity),
+                                              daemonThreads("compile-daemon-worker-"));
+        this.serverSocket = new ServerSocket(settings.port, settings.queueCapacity,
+                                             InetAddress.getLoopbackAddress());
+        this.acceptor = daemonThreads("compile-daemon-acceptor-").newThread(new Runnable() {
+                public void run() {
+                    acceptConnections();
+                }
+            });
+    }
+
+    public static CompileDaemon start(final Settings settings) throws IOException {
+        warmUp(settings.warmupIterations);
+        final CompileDaemon daemon = new CompileDaemon(settings);
+        daemon.acceptor.start();
+        return daemon;
+    }
+
+    private static void warmUp(final int iterations) {
+        if (iterations > 0) {
+            final ProgramGenerator.Settings generatorSettings = new ProgramGenerator.Settings();
+            generatorSettings.classCount = 50;
+            final Program program = ProgramGenerator.generate(generatorSettings);
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                Typechecker.collectErrors(program);
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads(final String prefix) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+                // shutdown() is what stops us, not the end of main
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public ClassInfoCache cache() {
+        return cache;
+    }
+
+    // requests answered, of any kind
+    public long requestsHandled() {
+        return handled.get();
+    }
+
+    // connections told BUSY because the queue was full or we were stopping
+    public long requestsRejected() {
+        return rejected.get();
+    }
+
+    // Stops taking connections.  Those already taken are still answered;
+    // use awaitTermination to wait for that.
+    public void shutdown() {
+        try {
+            serverSocket.close();
+        } catch (final IOException e) {
+            // nothing more to do: it's closed as far as we're concerned
+        }
+        workers.shutdown();
+    }
+
+    public boolean isShutdown() {
+        return serverSocket.isClosed();
+    }
+
+    // true if everything was answered in time; timeout must be under 292
+    // years
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        acceptor.join(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        return (!acceptor.isAlive() &&
+                workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+    }
+
+    private void acceptConnections() {
+        while (true) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (final SocketException e) {
+                // closed by shutdown()
+                return;
+            } catch (final IOException e) {
+                continue;
+            }
+            try {
+                workers.execute(new Runnable() {
+                        public void run() {
+                            handle(socket);
+                        }
+                    });
+            } catch (final RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                reject(socket, workers.isShutdown() ? "Shutting down" : "Too many requests queued");
+            }
+        }
+    }
+
+    // Runs on the acceptor thread, so doesn't wait for the request: the
+    // response fits in the socket's buffer.
+    private void reject(final Socket socket, final String reason) {
+        try {
+            final DataOutputStream output =
+                new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DaemonProtocol.writeResponse(output, DaemonClient.Status.BUSY, reason,
+                                         Collections.<TypeError>emptyList());
+        } catch (final IOException e) {
+            // the client went away; nothing to tell it
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private void handle(final Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(settings.readTimeoutMillis);
+            final DataInputStream input =
+                new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream output =
+                new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            final int op = input.readByte();
+            if (op == DaemonProtocol.CHECK) {
+                final int length = input.readInt();
+                if (length < 0 || length > settings.maxSourceBytes) {
+                    DaemonProtocol.writeResponse(output, DaemonClient.Status.FAILED,
+                                                 "Source of " + length + " bytes is over the limit of " +
+                                                 settings.maxSourceBytes,
+                                                 Collections.<TypeError>emptyList());
+                } else {
+                    check(DaemonProtocol.readString(input, length), output);
+                }
+            } else if (op == DaemonProtocol.PING) {
+                DaemonProtocol.writeResponse(output, DaemonClient.Status.OK, null,
+                                             Collections.<TypeError>emptyList());
+            } else if (op == DaemonProtocol.SHUTDOWN && !settings.allowShutdown) {
+                DaemonProtocol.writeResponse(output, DaemonClient.Status.FAILED,
+                                             "Shutdown over a connection isn't allowed",
+                                             Collections.<TypeError>emptyList());
+            } else if (op == DaemonProtocol.SHUTDOWN) {
+                DaemonProtocol.writeResponse(output, DaemonClient.Status.OK, null,
+                                             Collections.<TypeError>emptyList());
+                shutdown();
+            } else {
+                DaemonProtocol.writeResponse(output, DaemonClient.Status.FAILED, "Unknown request: " + op,
+                                             Collections.<TypeError>emptyList());
+            }
+            handled.incrementAndGet();
+        } catch (final IOException e) {
+            // the client went away, or sent something we can't read; either
+            // way there's no one to answer
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private void check(final String source, final DataOutputStream output) throws IOException {
+        final List<TypeError> errors;
+        try {
+            errors = Typechecker.collectErrors(Parser.parse(source), cache);
+        } catch (final ParseException e) {
+            DaemonProtocol.writeResponse(output, DaemonClient.Status.PARSE_ERROR, e.getMessage(),
+                                         Collections.<TypeError>emptyList());
+            return;
+        } catch (final RuntimeException | StackOverflowError e) {
+            // a bug, or a program nested too deeply for a worker's stack;
+            // either way, other requests carry on
+            DaemonProtocol.writeResponse(output, DaemonClient.Status.FAILED, String.valueOf(e),
+                                         Collections.<TypeError>emptyList());
+            return;
+        }
+        DaemonProtocol.writeResponse(output, DaemonClient.Status.OK, null, errors);
+    }
+
+    private static void closeQuietly(final Socket socket) {
+        try {
+            socket.close();
+        } catch (final IOException e) {
+            // already as closed as it's going to get
+        }
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final Settings settings = new Settings();
+        for (final String arg : args) {
+            if (arg.equals("--allow-shutdown")) {
+                settings.allowShutdown = true;
+            } else {
+                settings.port = Integer.parseInt(arg);
+            }
+        }
+        settings.warmupIterations = 200;
+        final CompileDaemon daemon = start(settings);
+        // SIGTERM and Ctrl-C stop gracefully too
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    daemon.shutdown();
+                    try {
+                        daemon.awaitTermination(10, TimeUnit.SECONDS);
+                    } catch (final InterruptedException e) {
+                        // exiting anyway
+                    }
+                }
+            });
+        System.out.println("listening on " + InetAddress.getLoopbackAddress().getHostAddress() +
+                           ":" + daemon.port());
+        while (!daemon.awaitTermination(1, TimeUnit.DAYS)) {
+            // until a client asks us to stop, if allowed, or we're killed
+        }
+    }
+}
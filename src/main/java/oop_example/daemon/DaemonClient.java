@@ -0,0 +1,128 @@
+package oop_example.daemon;
+
+import oop_example.typechecker.TypeError;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+// Talks to a CompileDaemon on this machine.  Each call is its own
+// connection, so one client can be shared between threads.
+//
+// From the command line:
+//
+// java -cp target/classes oop_example.daemon.DaemonClient <port> <file>
+// java -cp target/classes oop_example.daemon.DaemonClient <port> --shutdown
+//
+// which prints any errors, and exits with 0 if the program is well-typed,
+// 1 if it isn't, and 2 if it couldn't be checked.  --shutdown only works
+// on a daemon started with --allow-shutdown.
+public class DaemonClient {
+    public enum Status {
+        // checked; errors may or may not be empty
+        OK,
+        // the source didn't parse; the message says why
+        PARSE_ERROR,
+        // the queue was full, or the daemon is shutting down
+        BUSY,
+        // checking failed unexpectedly; the message says how
+        FAILED
+    }
+
+    public static class Response {
+        public final Status status;
+        public final String message; // null unless there's something to say
+        public final List<TypeError> errors; // in the order found
+
+        public Response(final Status status,
+                        final String message,
+                        final List<TypeError> errors) {
+            this.status = status;
+            this.message = message;
+            this.errors = errors;
+        }
+
+        public boolean isWellTyped() {
+            return status == Status.OK && errors.isEmpty();
+        }
+
+        public String toString() {
+            return ("Response(" + status + ", " +
+                    ((message == null) ? "" : message + ", ") + errors + ")");
+        }
+    }
+
+    private final InetSocketAddress address;
+    private final int timeoutMillis;
+
+    public DaemonClient(final int port) {
+        this(port, 0);
+    }
+
+    // timeoutMillis bounds connecting and each read; 0 waits forever
+    public DaemonClient(final int port, final int timeoutMillis) {
+        this.address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public Response check(final String source) throws IOException {
+        return send(DaemonProtocol.CHECK, source);
+    }
+
+    public Response ping() throws IOException {
+        return send(DaemonProtocol.PING, null);
+    }
+
+    // The daemon answers, then stops taking connections and exits once
+    // the requests it already has are done.  Unless its allowShutdown
+    // setting is on: then the answer is FAILED, and it carries on.
+    public Response shutdown() throws IOException {
+        return send(DaemonProtocol.SHUTDOWN, null);
+    }
+
+    private Response send(final byte op, final String source) throws IOException {
+        try (final Socket socket = new Socket()) {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(timeoutMillis);
+            socket.connect(address, timeoutMillis);
+            final DataOutputStream output =
+                new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            output.writeByte(op);
+            if (source != null) {
+                DaemonProtocol.writeString(output, source);
+            }
+            output.flush();
+            return DaemonProtocol.readResponse(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: DaemonClient <port> (<file> | --shutdown)");
+            System.exit(2);
+        }
+        final DaemonClient client = new DaemonClient(Integer.parseInt(args[0]));
+        final Response response;
+        if (args[1].equals("--shutdown")) {
+            response = client.shutdown();
+        } else {
+            response = client.check(new String(Files.readAllBytes(Paths.get(args[1])), StandardCharsets.UTF_8));
+        }
+        if (response.message != null) {
+            System.err.println(response.status + ": " + response.message);
+        }
+        for (final TypeError error : response.errors) {
+            System.err.println(error);
+        }
+        System.exit((response.status != Status.OK) ? 2 : (response.errors.isEmpty() ? 0 : 1));
+    }
+}
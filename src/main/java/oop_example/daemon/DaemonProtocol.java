@@ -0,0 +1,100 @@
+package oop_example.daemon;
+
+import oop_example.parser.ClassName;
+import oop_example.parser.MethodName;
+import oop_example.typechecker.TypeError;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// What goes over a connection to the daemon: one request, then one
+// response, then the daemon closes it.  Everything is big-endian, as
+// DataOutputStream writes it, and strings are an int byte count followed
+// by UTF-8.
+//
+// request:  op (byte), then for CHECK the program's source (string)
+// response: status (byte), message (string, empty unless the status says
+//           why the program wasn't checked), error count (int), then each
+//           error's message, class and method (strings, empty for none)
+//           and whether it's in the class hierarchy (byte, 0 or 1)
+final class DaemonProtocol {
+    private DaemonProtocol() {}
+
+    static final byte CHECK = 1;
+    static final byte PING = 2;
+    static final byte SHUTDOWN = 3;
+
+    static void writeString(final DataOutputStream output, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(final DataInputStream input) throws IOException {
+        return readString(input, input.readInt());
+    }
+
+    // the rest of a string whose length has already been read
+    static String readString(final DataInputStream input, final int length) throws IOException {
+        if (length < 0) {
+            throw new IOException("Negative string length: " + length);
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeResponse(final DataOutputStream output,
+                              final DaemonClient.Status status,
+                              final String message,
+                              final List<TypeError> errors) throws IOException {
+        output.writeByte(status.ordinal());
+        writeString(output, (message == null) ? "" : message);
+        output.writeInt(errors.size());
+        for (final TypeError error : errors) {
+            writeString(output, error.message);
+            writeString(output, (error.className == null) ? "" : error.className.name);
+            writeString(output, (error.methodName == null) ? "" : error.methodName.name);
+            output.writeBoolean(error.inClassHierarchy);
+        }
+        output.flush();
+    }
+
+    static DaemonClient.Response readResponse(final DataInputStream input) throws IOException {
+        final int status = input.read();
+        if (status < 0) {
+            throw new EOFException("Daemon closed the connection without responding");
+        }
+        final DaemonClient.Status[] statuses = DaemonClient.Status.values();
+        if (status >= statuses.length) {
+            throw new IOException("Unknown status: " + status);
+        }
+        final String message = readString(input);
+        final int count = input.readInt();
+        if (count < 0) {
+            throw new IOException("Negative error count: " + count);
+        }
+        final List<TypeError> errors = new ArrayList<TypeError>(Math.min(count, 1024));
+        for (int index = 0; index < count; index++) {
+            final String errorMessage = readString(input);
+            final String className = readString(input);
+            final String methodName = readString(input);
+            if (input.readBoolean()) {
+                errors.add(TypeError.inClassHierarchy(errorMessage));
+            } else {
+                errors.add(new TypeError(errorMessage,
+                                         className.isEmpty() ? null : new ClassName(className),
+                                         methodName.isEmpty() ? null : new MethodName(methodName)));
+            }
+        }
+        return new DaemonClient.Response(statuses[status],
+                                         message.isEmpty() ? null : message,
+                                         Collections.unmodifiableList(errors));
+    }
+}
@@ -0,0 +1,256 @@
+package oop_example.generator;
+
+import oop_example.parser.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Builds random well-typed programs of a chosen size, for benchmarks and
+// tests.  The same seed and settings always produce the same program.
+//
+// Shape of what comes out:
+//
+// class C0 extends Object {
+//   int f0;
+//   constructor(int a) { super(); }
+//   int m0_0(int p0, int p1) { int v0 = p0 + f0; ... return v0; }
+//   ...
+// }
+// class C1 extends C0 {  // chains up to inheritanceDepth long
+//   int f1;
+//   constructor(int a) { super(a + 1); }
+//   ...
+// }
+// { int r0 = new C1(3).m0_0(1, 2); println(r0); ... }
+//
+// Generated programs also terminate when run:
+// - a method only calls methods that come earlier in the program (an
+//   earlier class, or an earlier method of its own class), so there's no
+//   recursion
+// - no method overrides another, so that ordering holds under dynamic
+//   dispatch too
+// - the only loops are while (e < e), which never runs its body, since the
+//   language has no assignment and so e always equals itself
+public class ProgramGenerator {
+    public static class Settings {
+        public int classCount = 10;
+        // longest chain of user classes below Object; 0 means every class
+        // extends Object directly
+        public int inheritanceDepth = 3;
+        public int methodsPerClass = 5;
+        // statements per method body, and in the entry point
+        public int blockLength = 10;
+        public int expressionDepth = 3;
+        // chance, from 0 to 1, that a non-leaf int expression is a method call
+        public double callDensity = 0.2;
+        public long seed = 0;
+
+        public String toString() {
+            return ("Settings(classCount=" + classCount +
+                    ", inheritanceDepth=" + inheritanceDepth +
+                    ", methodsPerClass=" + methodsPerClass +
+                    ", blockLength=" + blockLength +
+                    ", expressionDepth=" + expressionDepth +
+                    ", callDensity=" + callDensity +
+                    ", seed=" + seed + ")");
+        }
+    }
+
+    private final Settings settings;
+    private final Random random;
+
+    private ProgramGenerator(final Settings settings) {
+        this.settings = settings;
+        this.random = new Random(settings.seed);
+    }
+
+    public static Program generate(final Settings settings) {
+        return new ProgramGenerator(settings).program();
+    }
+
+    public static ClassName className(final int classIndex) {
+        return new ClassName("C" + classIndex);
+    }
+
+    public static MethodName methodName(final int classIndex, final int methodIndex) {
+        return new MethodName("m" + classIndex + "_" + methodIndex);
+    }
+
+    // index of the parent class, or -1 for Object
+    private int parentOf(final int classIndex) {
+        return (classIndex % (settings.inheritanceDepth + 1) == 0) ? -1 : classIndex - 1;
+    }
+
+    // What's visible while generating one body
+    private class Scope {
+        final int classIndex; // -1 in the entry point
+        final int methodIndex; // methods of this class before this one may be called
+        final List<Variable> intVariables = new ArrayList<Variable>();
+
+        Scope(final int classIndex, final int methodIndex) {
+            this.classIndex = classIndex;
+            this.methodIndex = methodIndex;
+        }
+
+        // (class, method) pairs we're allowed to call from here
+        int callableClassCount() {
+            return (classIndex == -1) ? settings.classCount : classIndex;
+        }
+    }
+
+    private Program program() {
+        final List<ClassDef> classes = new ArrayList<ClassDef>();
+        for (int classIndex = 0; classIndex < settings.classCount; classIndex++) {
+            classes.add(classDef(classIndex));
+        }
+        final Scope entryScope = new Scope(-1, 0);
+        return new Program(classes, new BlockStmt(block(entryScope, null)));
+    }
+
+    private ClassDef classDef(final int classIndex) {
+        final int parent = parentOf(classIndex);
+        final List<Vardec> fields = new ArrayList<Vardec>();
+        fields.add(new Vardec(IntType.instance(), new Variable("f" + classIndex)));
+
+        final List<Vardec> constructorArguments = new ArrayList<Vardec>();
+        constructorArguments.add(new Vardec(IntType.instance(), new Variable("a")));
+        final List<Exp> superParams = new ArrayList<Exp>();
+        if (parent != -1) {
+            superParams.add(new OpExp(new VariableExp(new Variable("a")),
+                                      PlusOp.instance(),
+                                      new IntLiteralExp(1)));
+        }
+
+        final List<MethodDef> methods = new ArrayList<MethodDef>();
+        for (int methodIndex = 0; methodIndex < settings.methodsPerClass; methodIndex++) {
+            methods.add(methodDef(classIndex, methodIndex));
+        }
+
+        return new ClassDef(className(classIndex),
+                            (parent == -1) ? new ClassName("Object") : className(parent),
+                            fields,
+                            constructorArguments,
+                            superParams,
+                            new ArrayList<Stmt>(),
+                            methods);
+    }
+
+    private MethodDef methodDef(final int classIndex, final int methodIndex) {
+        final Scope scope = new Scope(classIndex, methodIndex);
+        for (int ancestor = classIndex; ancestor != -1; ancestor = parentOf(ancestor)) {
+            scope.intVariables.add(new Variable("f" + ancestor));
+        }
+        final List<Vardec> arguments = new ArrayList<Vardec>();
+        for (int index = 0; index < 2; index++) {
+            final Variable param = new Variable("p" + index);
+            arguments.add(new Vardec(IntType.instance(), param));
+            scope.intVariables.add(param);
+        }
+        final Exp returned = intExp(scope, settings.expressionDepth);
+        return new MethodDef(IntType.instance(),
+                             methodName(classIndex, methodIndex),
+                             arguments,
+                             new BlockStmt(block(scope, returned)));
+    }
+
+    // returned is null in the entry point
+    private List<Stmt> block(final Scope scope, final Exp returned) {
+        final List<Stmt> stmts = new ArrayList<Stmt>();
+        final int statementCount = Math.max(0, settings.blockLength - ((returned == null) ? 0 : 1));
+        for (int index = 0; index < statementCount; index++) {
+            stmts.add(stmt(scope, stmts.size()));
+        }
+        if (returned != null) {
+            stmts.add(new ReturnNonVoidStmt(returned));
+        }
+        return stmts;
+    }
+
+    private Stmt stmt(final Scope scope, final int position) {
+        final int choice = random.nextInt(10);
+        if (choice < 6) {
+            final Variable variable = new Variable("v" + position);
+            final Stmt result = new VariableInitializationStmt(new Vardec(IntType.instance(), variable),
+                                                               intExp(scope, settings.expressionDepth));
+            scope.intVariables.add(variable);
+            return result;
+        } else if (choice < 8) {
+            return new PrintlnStmt(intExp(scope, settings.expressionDepth));
+        } else if (choice < 9) {
+            return new IfStmt(boolExp(scope, settings.expressionDepth),
+                              new PrintlnStmt(intExp(scope, settings.expressionDepth - 1)),
+                              new PrintlnStmt(intExp(scope, settings.expressionDepth - 1)));
+        } else {
+            final Exp same = intExp(scope, settings.expressionDepth - 1);
+            return new WhileStmt(new OpExp(same, LessThanOp.instance(), same),
+                                 new PrintlnStmt(intExp(scope, settings.expressionDepth - 1)));
+        }
+    }
+
+    private Exp leafIntExp(final Scope scope) {
+        if (!scope.intVariables.isEmpty() && random.nextBoolean()) {
+            return new VariableExp(scope.intVariables.get(random.nextInt(scope.intVariables.size())));
+        } else {
+            return new IntLiteralExp(random.nextInt(100));
+        }
+    }
+
+    private Exp intExp(final Scope scope, final int depth) {
+        if (depth <= 0 || random.nextInt(4) == 0) {
+            return leafIntExp(scope);
+        }
+        if (random.nextDouble() < settings.callDensity) {
+            final Exp call = callExp(scope, depth);
+            if (call != null) {
+                return call;
+            }
+        }
+        return new OpExp(intExp(scope, depth - 1), PlusOp.instance(), intExp(scope, depth - 1));
+    }
+
+    private Exp boolExp(final Scope scope, final int depth) {
+        switch (random.nextInt(3)) {
+        case 0:
+            return new BoolLiteralExp(random.nextBoolean());
+        case 1:
+            return new OpExp(intExp(scope, depth - 1), LessThanOp.instance(), intExp(scope, depth - 1));
+        default:
+            return new OpExp(intExp(scope, depth - 1), EqualsOp.instance(), intExp(scope, depth - 1));
+        }
+    }
+
+    // null if there's nothing we may call from here
+    private Exp callExp(final Scope scope, final int depth) {
+        final int earlierClasses = scope.callableClassCount();
+        final boolean ownMethods = scope.classIndex != -1 && scope.methodIndex > 0;
+        if (settings.methodsPerClass == 0 || (earlierClasses == 0 && !ownMethods)) {
+            return null;
+        }
+
+        final Exp target;
+        final MethodName method;
+        if (ownMethods && (earlierClasses == 0 || random.nextBoolean())) {
+            target = new ThisExp();
+            method = methodName(scope.classIndex, random.nextInt(scope.methodIndex));
+        } else {
+            // any method of the class or its ancestors, called on a new
+            // instance of the class
+            final int receiver = random.nextInt(earlierClasses);
+            final List<Integer> declaringClasses = new ArrayList<Integer>();
+            for (int ancestor = receiver; ancestor != -1; ancestor = parentOf(ancestor)) {
+                declaringClasses.add(ancestor);
+            }
+            final int declaring = declaringClasses.get(random.nextInt(declaringClasses.size()));
+            final List<Exp> constructorParams = new ArrayList<Exp>();
+            constructorParams.add(intExp(scope, depth - 1));
+            target = new NewExp(className(receiver), constructorParams);
+            method = methodName(declaring, random.nextInt(settings.methodsPerClass));
+        }
+
+        final List<Exp> params = new ArrayList<Exp>();
+        params.add(intExp(scope, depth - 1));
+        params.add(intExp(scope, depth - 1));
+        return new MethodCallExp(target, method, params);
+    }
+}
@@ -0,0 +1,65 @@
+package oop_example.interpreter;
+
+// A translated constructor, method, or entry point: its statements plus
+// how big a frame it needs and where its parameters go.
+final class Body extends Node {
+    final ValueKind[] paramKinds;
+    final int[] paramSlots;
+    final int intCount;
+    final int refCount;
+    StmtNode statements;
+    // constructors only: arguments to the parent's constructor, evaluated in
+    // this constructor's frame
+    final ExpNode[] superArgs;
+
+    Body(final ValueKind[] paramKinds,
+         final int[] paramSlots,
+         final int intCount,
+         final int refCount,
+         final StmtNode statements,
+         final ExpNode[] superArgs) {
+        this.paramKinds = paramKinds;
+        this.paramSlots = paramSlots;
+        this.intCount = intCount;
+        this.refCount = refCount;
+        this.statements = adopt(statements);
+        this.superArgs = superArgs;
+        if (superArgs != null) {
+            for (final ExpNode arg : superArgs) {
+                adopt(arg);
+            }
+        }
+    }
+
+    Frame newFrame(final Instance self) {
+        return new Frame(self, intCount, refCount);
+    }
+
+    // evaluates args in the caller's frame, straight into the callee's slots
+    void passArguments(final ExpNode[] args,
+                       final Frame caller,
+                       final Frame callee) throws EvaluationException {
+        for (int index = 0; index < args.length; index++) {
+            final int slot = paramSlots[index];
+            switch (paramKinds[index]) {
+            case INT:
+                callee.ints[slot] = args[index].executeInt(caller);
+                break;
+            case BOOL:
+                callee.ints[slot] = args[index].executeBool(caller) ? 1 : 0;
+                break;
+            default:
+                callee.refs[slot] = args[index].execute(caller);
+                break;
+            }
+        }
+    }
+
+    void replaceChild(final Node oldChild, final Node newChild) {
+        if (statements == oldChild) {
+            statements = (StmtNode)newChild;
+        } else {
+            ExpNodes.replaceIn(superArgs, oldChild, newChild);
+        }
+    }
+}
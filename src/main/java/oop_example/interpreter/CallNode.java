@@ -0,0 +1,145 @@
+package oop_example.interpreter;
+
+import oop_example.parser.MethodName;
+
+// exp.methodname(exp*), with an inline cache on the receiver's class.
+//
+// The call site starts out uninitialized.  Each time it sees a receiver
+// class it hasn't seen before, it looks the method up and puts a
+// (class, method) entry at the front of its chain, so later calls with that
+// class are one identity comparison away from the method:
+//
+//   Cached(B) -> Cached(A) -> Uninitialized
+//
+// Once MAX_CACHED classes have been seen the site is megamorphic, and the
+// chain is replaced with a method table lookup by slot.  Every class that
+// can show up here is a subclass of the target's static type, and
+// overrides keep the overridden method's slot, so one slot works for all of
+// them.
+final class CallNode extends ExpNode {
+    static final int MAX_CACHED = 4;
+
+    private ExpNode target;
+    private final MethodName methodName;
+    private final ExpNode[] args;
+    private Dispatch dispatch;
+    private int cached;
+    // all methods a site can reach share a signature, so this is known once
+    // the first receiver has been seen
+    private ValueKind returnKind;
+
+    CallNode(final ExpNode target,
+             final MethodName methodName,
+             final ExpNode[] args) {
+        this.target = adopt(target);
+        this.methodName = methodName;
+        this.args = args;
+        for (final ExpNode arg : args) {
+            adopt(arg);
+        }
+        this.dispatch = new Uninitialized();
+    }
+
+    private abstract class Dispatch {
+        abstract Frame call(Instance receiver, Frame caller) throws EvaluationException;
+    }
+
+    private final class Uninitialized extends Dispatch {
+        Frame call(final Instance receiver, final Frame caller) throws EvaluationException {
+            final RuntimeMethod method = receiver.runtimeClass.methods.get(methodName);
+            if (method == null) {
+                throw new EvaluationException("No method named " + methodName.name +
+                                              " on class " + receiver.runtimeClass.className.name);
+            }
+            returnKind = method.returnKind;
+            if (cached < MAX_CACHED) {
+                dispatch = new Cached(receiver.runtimeClass, method, dispatch);
+                cached++;
+            } else {
+                dispatch = new Megamorphic(method.slot);
+            }
+            return method.call(receiver, args, caller);
+        }
+    }
+
+    private final class Cached extends Dispatch {
+        private final RuntimeClass receiverClass;
+        private final RuntimeMethod method;
+        private final Dispatch next;
+
+        Cached(final RuntimeClass receiverClass,
+               final RuntimeMethod method,
+               final Dispatch next) {
+            this.receiverClass = receiverClass;
+            this.method = method;
+            this.next = next;
+        }
+
+        Frame call(final Instance receiver, final Frame caller) throws EvaluationException {
+            if (receiver.runtimeClass == receiverClass) {
+                return method.call(receiver, args, caller);
+            } else {
+                return next.call(receiver, caller);
+            }
+        }
+    }
+
+    private final class Megamorphic extends Dispatch {
+        private final int slot;
+
+        Megamorphic(final int slot) {
+            this.slot = slot;
+        }
+
+        Frame call(final Instance receiver, final Frame caller) throws EvaluationException {
+            return receiver.runtimeClass.methodTable[slot].call(receiver, args, caller);
+        }
+    }
+
+    // for tests: how many receiver classes are cached, or -1 if megamorphic
+    int cachedClasses() {
+        return (dispatch instanceof Megamorphic) ? -1 : cached;
+    }
+
+    private Frame call(final Frame frame) throws EvaluationException {
+        final Object receiver = target.execute(frame);
+        if (receiver == null) {
+            throw new EvaluationException("Called " + methodName.name + " on null");
+        }
+        return dispatch.call((Instance)receiver, frame);
+    }
+
+    Object execute(final Frame frame) throws EvaluationException {
+        final Frame callee = call(frame);
+        switch (returnKind) {
+        case INT:
+            return callee.returnInt;
+        case BOOL:
+            return callee.returnInt != 0;
+        case REF:
+            return callee.returnRef;
+        default:
+            return null;
+        }
+    }
+
+    int executeInt(final Frame frame) throws EvaluationException {
+        return call(frame).returnInt;
+    }
+
+    boolean executeBool(final Frame frame) throws EvaluationException {
+        return call(frame).returnInt != 0;
+    }
+
+    void executeVoid(final Frame frame) throws EvaluationException {
+        call(frame);
+    }
+
+    void replaceChild(final Node oldChild, final Node newChild) {
+        if (target == oldChild) {
+            target = (ExpNode)newChild;
+        } else {
+            ExpNodes.replaceIn(args, oldChild, newChild);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package oop_example.interpreter;
+
+// Something went wrong while running a well-typed program, like calling a
+// method on null.
+public class EvaluationException extends Exception {
+    // The interesting location is in the program being run, not in the
+    // interpreter, so no stack trace.
+    public EvaluationException(final String message) {
+        super(message, null, false, false);
+    }
+}
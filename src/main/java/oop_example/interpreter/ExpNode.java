@@ -0,0 +1,20 @@
+package oop_example.interpreter;
+
+// Evaluates an expression.  Nodes that know they produce an int or bool
+// override executeInt / executeBool so their parents never see a box.
+abstract class ExpNode extends Node {
+    abstract Object execute(Frame frame) throws EvaluationException;
+
+    int executeInt(final Frame frame) throws EvaluationException {
+        return (Integer)execute(frame);
+    }
+
+    boolean executeBool(final Frame frame) throws EvaluationException {
+        return (Boolean)execute(frame);
+    }
+
+    // for expression statements, where the value is thrown away
+    void executeVoid(final Frame frame) throws EvaluationException {
+        execute(frame);
+    }
+}
@@ -0,0 +1,278 @@
+package oop_example.interpreter;
+
+import oop_example.parser.EqualsOp;
+import oop_example.parser.LessThanOp;
+import oop_example.parser.Op;
+import oop_example.parser.PlusOp;
+
+// Expression nodes other than method calls.
+final class ExpNodes {
+    private ExpNodes() {}
+
+    static final class IntLiteral extends ExpNode {
+        private final int value;
+        private final Integer boxed;
+
+        IntLiteral(final int value) {
+            this.value = value;
+            this.boxed = value;
+        }
+
+        Object execute(final Frame frame) {
+            return boxed;
+        }
+
+        int executeInt(final Frame frame) {
+            return value;
+        }
+    }
+
+    static final class BoolLiteral extends ExpNode {
+        private final boolean value;
+
+        BoolLiteral(final boolean value) {
+            this.value = value;
+        }
+
+        Object execute(final Frame frame) {
+            return value;
+        }
+
+        boolean executeBool(final Frame frame) {
+            return value;
+        }
+    }
+
+    static final class This extends ExpNode {
+        Object execute(final Frame frame) {
+            return frame.self;
+        }
+    }
+
+    static final class IntLocal extends ExpNode {
+        private final int index;
+
+        IntLocal(final int index) {
+            this.index = index;
+        }
+
+        Object execute(final Frame frame) {
+            return frame.ints[index];
+        }
+
+        int executeInt(final Frame frame) {
+            return frame.ints[index];
+        }
+    }
+
+    static final class BoolLocal extends ExpNode {
+        private final int index;
+
+        BoolLocal(final int index) {
+            this.index = index;
+        }
+
+        Object execute(final Frame frame) {
+            return frame.ints[index] != 0;
+        }
+
+        boolean executeBool(final Frame frame) {
+            return frame.ints[index] != 0;
+        }
+    }
+
+    static final class RefLocal extends ExpNode {
+        private final int index;
+
+        RefLocal(final int index) {
+            this.index = index;
+        }
+
+        Object execute(final Frame frame) {
+            return frame.refs[index];
+        }
+    }
+
+    static final class IntField extends ExpNode {
+        private final int index;
+
+        IntField(final int index) {
+            this.index = index;
+        }
+
+        Object execute(final Frame frame) {
+            return frame.self.ints[index];
+        }
+
+        int executeInt(final Frame frame) {
+            return frame.self.ints[index];
+        }
+    }
+
+    static final class BoolField extends ExpNode {
+        private final int index;
+
+        BoolField(final int index) {
+            this.index = index;
+        }
+
+        Object execute(final Frame frame) {
+            return frame.self.ints[index] != 0;
+        }
+
+        boolean executeBool(final Frame frame) {
+            return frame.self.ints[index] != 0;
+        }
+    }
+
+    static final class RefField extends ExpNode {
+        private final int index;
+
+        RefField(final int index) {
+            this.index = index;
+        }
+
+        Object execute(final Frame frame) {
+            return frame.self.refs[index];
+        }
+    }
+
+    // Common to the binary operators: two replaceable operands.
+    abstract static class Binary extends ExpNode {
+        ExpNode left;
+        ExpNode right;
+
+        Binary(final ExpNode left, final ExpNode right) {
+            this.left = adopt(left);
+            this.right = adopt(right);
+        }
+
+        void replaceChild(final Node oldChild, final Node newChild) {
+            if (left == oldChild) {
+                left = (ExpNode)newChild;
+            } else if (right == oldChild) {
+                right = (ExpNode)newChild;
+            } else {
+                super.replaceChild(oldChild, newChild);
+            }
+        }
+    }
+
+    // An operator that hasn't run yet.  The first time it runs it looks at
+    // its operands' values and replaces itself with a version that works on
+    // them unboxed.  The typechecker only allows ints here, so in practice
+    // this always happens, once.
+    static final class UninitializedOp extends Binary {
+        private final Op op;
+
+        UninitializedOp(final Op op, final ExpNode left, final ExpNode right) {
+            super(left, right);
+            this.op = op;
+        }
+
+        Object execute(final Frame frame) throws EvaluationException {
+            final Object leftValue = left.execute(frame);
+            final Object rightValue = right.execute(frame);
+            if (!(leftValue instanceof Integer) || !(rightValue instanceof Integer)) {
+                throw new EvaluationException("Operands of " + op + " must be ints: " +
+                                              leftValue + ", " + rightValue);
+            }
+            final int leftInt = (Integer)leftValue;
+            final int rightInt = (Integer)rightValue;
+            if (op == PlusOp.instance()) {
+                if (!replaced) {
+                    replace(new IntAdd(left, right));
+                }
+                return leftInt + rightInt;
+            } else if (op == LessThanOp.instance()) {
+                if (!replaced) {
+                    replace(new IntLessThan(left, right));
+                }
+                return leftInt < rightInt;
+            } else if (op == EqualsOp.instance()) {
+                if (!replaced) {
+                    replace(new IntEquals(left, right));
+                }
+                return leftInt == rightInt;
+            } else {
+                throw new EvaluationException("Unsupported operation: " + op);
+            }
+        }
+    }
+
+    static final class IntAdd extends Binary {
+        IntAdd(final ExpNode left, final ExpNode right) {
+            super(left, right);
+        }
+
+        Object execute(final Frame frame) throws EvaluationException {
+            return executeInt(frame);
+        }
+
+        int executeInt(final Frame frame) throws EvaluationException {
+            return left.executeInt(frame) + right.executeInt(frame);
+        }
+    }
+
+    static final class IntLessThan extends Binary {
+        IntLessThan(final ExpNode left, final ExpNode right) {
+            super(left, right);
+        }
+
+        Object execute(final Frame frame) throws EvaluationException {
+            return executeBool(frame);
+        }
+
+        boolean executeBool(final Frame frame) throws EvaluationException {
+            return left.executeInt(frame) < right.executeInt(frame);
+        }
+    }
+
+    static final class IntEquals extends Binary {
+        IntEquals(final ExpNode left, final ExpNode right) {
+            super(left, right);
+        }
+
+        Object execute(final Frame frame) throws EvaluationException {
+            return executeBool(frame);
+        }
+
+        boolean executeBool(final Frame frame) throws EvaluationException {
+            return left.executeInt(frame) == right.executeInt(frame);
+        }
+    }
+
+    // new classname(exp*): allocates, then runs the constructor chain
+    static final class New extends ExpNode {
+        private final RuntimeClass runtimeClass;
+        private final ExpNode[] args;
+
+        New(final RuntimeClass runtimeClass, final ExpNode[] args) {
+            this.runtimeClass = runtimeClass;
+            this.args = args;
+            for (final ExpNode arg : args) {
+                adopt(arg);
+            }
+        }
+
+        Object execute(final Frame frame) throws EvaluationException {
+            final Instance instance = new Instance(runtimeClass);
+            runtimeClass.construct(instance, args, frame);
+            return instance;
+        }
+
+        void replaceChild(final Node oldChild, final Node newChild) {
+            replaceIn(args, oldChild, newChild);
+        }
+    }
+
+    static void replaceIn(final Node[] children, final Node oldChild, final Node newChild) {
+        for (int index = 0; index < children.length; index++) {
+            if (children[index] == oldChild) {
+                children[index] = newChild;
+                return;
+            }
+        }
+        throw new IllegalStateException("not a child: " + oldChild);
+    }
+}
@@ -0,0 +1,21 @@
+package oop_example.interpreter;
+
+// Locals of one running constructor, method, or the entry point.  Slots are
+// assigned when the body is translated, so variables are array accesses.
+final class Frame {
+    private static final int[] NO_INTS = new int[0];
+    private static final Object[] NO_REFS = new Object[0];
+
+    final Instance self; // null in the entry point
+    final int[] ints;
+    final Object[] refs;
+    // set by return statements
+    int returnInt;
+    Object returnRef;
+
+    Frame(final Instance self, final int intCount, final int refCount) {
+        this.self = self;
+        this.ints = (intCount == 0) ? NO_INTS : new int[intCount];
+        this.refs = (refCount == 0) ? NO_REFS : new Object[refCount];
+    }
+}
@@ -0,0 +1,20 @@
+package oop_example.interpreter;
+
+// An object.  Instance variables are laid out like frame slots, parent's
+// first, so methods inherited from a parent find them at the same index.
+// They are never assigned, so they keep their defaults: 0, false, null.
+final class Instance {
+    final RuntimeClass runtimeClass;
+    final int[] ints;
+    final Object[] refs;
+
+    Instance(final RuntimeClass runtimeClass) {
+        this.runtimeClass = runtimeClass;
+        this.ints = new int[runtimeClass.intFieldCount];
+        this.refs = new Object[runtimeClass.refFieldCount];
+    }
+
+    public String toString() {
+        return runtimeClass.className.name + "@" + Integer.toHexString(System.identityHashCode(this));
+    }
+}
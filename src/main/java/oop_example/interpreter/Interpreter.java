@@ -0,0 +1,127 @@
+package oop_example.interpreter;
+
+import oop_example.parser.*;
+import oop_example.typechecker.ClassInfo;
+import oop_example.typechecker.ClassTable;
+import oop_example.typechecker.MethodInfo;
+import oop_example.typechecker.TypeErrorException;
+import oop_example.typechecker.Typechecker;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// Runs a program's entry point.
+//
+// The program is typechecked first, and the interpreter relies on that:
+// ints and bools are kept unboxed wherever their type is known from a
+// declaration, and every variable is resolved to a slot before running.
+//
+// Bodies are translated into a tree of executable nodes the first time
+// they run.  The tree specializes itself as it goes:
+// - operators replace themselves with unboxed int versions
+// - println replaces itself according to what it prints
+// - method calls keep an inline cache of receiver classes they've seen (see
+//   CallNode)
+// so running the same Interpreter again starts from the specialized tree.
+//
+// Recursion is the only way to repeat work in this language (there's no
+// assignment, so a loop can't change its own guard), and each level of it
+// takes several Java frames, so programs run on their own thread with a
+// large stack.
+//
+// Not thread-safe: the tree changes while running.
+public class Interpreter {
+    public static final long DEFAULT_STACK_SIZE = 512L * 1024 * 1024;
+
+    private final Program program;
+    private final NodeBuilder builder;
+    private Body entryPoint;
+
+    public Interpreter(final Program program,
+                       final PrintStream out) throws TypeErrorException {
+        final Typechecker typechecker = new Typechecker(program);
+        typechecker.isWellTypedProgram();
+        this.program = program;
+
+        final Map<ClassName, RuntimeClass> classes = new HashMap<ClassName, RuntimeClass>();
+        this.builder = new NodeBuilder(classes, out);
+
+        // parents first, so fields can be laid out after the parent's
+        final ClassTable classTable = typechecker.classTable;
+        for (final ClassName className : classTable.hierarchy.classesParentFirst()) {
+            final ClassInfo info = classTable.lookupClass(className);
+            final RuntimeClass parent = (info.parent == null) ? null : classes.get(info.parent.className);
+            classes.put(className, new RuntimeClass(className, info.classDef, parent, builder));
+        }
+
+        // MethodInfos are shared with subclasses that inherit them, and so
+        // are the RuntimeMethods, along with anything translated for them
+        final Map<MethodInfo, RuntimeMethod> methods = new IdentityHashMap<MethodInfo, RuntimeMethod>();
+        for (final RuntimeClass runtimeClass : classes.values()) {
+            final ClassInfo info = classTable.lookupClass(runtimeClass.className);
+            final RuntimeMethod[] methodTable = new RuntimeMethod[info.methodTable.size()];
+            final Map<MethodName, RuntimeMethod> byName = new HashMap<MethodName, RuntimeMethod>();
+            for (final MethodInfo methodInfo : info.methodTable) {
+                RuntimeMethod method = methods.get(methodInfo);
+                if (method == null) {
+                    method = new RuntimeMethod(classes.get(methodInfo.declaringClass),
+                                               methodInfo.methodDef,
+                                               methodInfo.slot,
+                                               builder);
+                    methods.put(methodInfo, method);
+                }
+                methodTable[methodInfo.slot] = method;
+                byName.put(methodInfo.methodDef.methodName, method);
+            }
+            runtimeClass.link(byName, methodTable);
+        }
+    }
+
+    public static void run(final Program program,
+                           final PrintStream out) throws TypeErrorException, EvaluationException {
+        new Interpreter(program, out).run();
+    }
+
+    public void run() throws EvaluationException {
+        run(DEFAULT_STACK_SIZE);
+    }
+
+    public void run(final long stackSize) throws EvaluationException {
+        if (entryPoint == null) {
+            entryPoint = builder.entryPointBody(program.entryPoint);
+        }
+        final EvaluationException[] error = new EvaluationException[1];
+        // anything else goes back to the caller as it was thrown
+        final Throwable[] crash = new Throwable[1];
+        final Thread thread = new Thread(null, new Runnable() {
+                public void run() {
+                    try {
+                        entryPoint.statements.execute(entryPoint.newFrame(null));
+                    } catch (final EvaluationException e) {
+                        error[0] = e;
+                    } catch (final StackOverflowError e) {
+                        error[0] = new EvaluationException("Stack overflow");
+                    } catch (final RuntimeException | Error e) {
+                        crash[0] = e;
+                    }
+                }
+            }, "interpreter", stackSize);
+        thread.start();
+        try {
+            thread.join();
+        } catch (final InterruptedException e) {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+            throw new EvaluationException("Interrupted");
+        }
+        if (crash[0] instanceof RuntimeException) {
+            throw (RuntimeException)crash[0];
+        } else if (crash[0] instanceof Error) {
+            throw (Error)crash[0];
+        } else if (error[0] != null) {
+            throw error[0];
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package oop_example.interpreter;
+
+// Where a variable lives: a slot in one half of a frame, or of an object
+// for instance variables.
+final class Local {
+    final ValueKind kind;
+    final int index;
+
+    Local(final ValueKind kind, final int index) {
+        this.kind = kind;
+        this.index = index;
+    }
+}
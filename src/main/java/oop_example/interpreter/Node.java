@@ -0,0 +1,29 @@
+package oop_example.interpreter;
+
+// Base of the executable tree the interpreter builds from the AST.  Unlike
+// the AST, it changes as it runs: a node that has seen what it operates on
+// can replace itself in its parent with a faster, specialized version.
+abstract class Node {
+    Node parent;
+    // Set once this node has been replaced.  A node can be replaced while
+    // an outer execution of it is still running (the method it's in called
+    // itself), and that outer execution must not replace it again.
+    boolean replaced;
+
+    <T extends Node> T adopt(final T child) {
+        child.parent = this;
+        return child;
+    }
+
+    <T extends Node> T replace(final T replacement) {
+        replaced = true;
+        replacement.parent = parent;
+        parent.replaceChild(this, replacement);
+        return replacement;
+    }
+
+    // only nodes with children that can specialize need this
+    void replaceChild(final Node oldChild, final Node newChild) {
+        throw new IllegalStateException(getClass().getSimpleName() + " has no replaceable children");
+    }
+}
@@ -0,0 +1,236 @@
+package oop_example.interpreter;
+
+import oop_example.parser.*;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Translates AST bodies into executable nodes.  Every variable is resolved
+// to a frame slot or instance variable slot here, once, so running the body
+// never looks a name up.
+final class NodeBuilder {
+    private final Map<ClassName, RuntimeClass> classes;
+    private final PrintStream out;
+
+    NodeBuilder(final Map<ClassName, RuntimeClass> classes,
+                final PrintStream out) {
+        this.classes = classes;
+        this.out = out;
+    }
+
+    Body methodBody(final RuntimeClass runtimeClass, final MethodDef method) {
+        final BodyBuilder builder = new BodyBuilder(runtimeClass, ValueKind.of(method.returnType));
+        builder.parameters(method.arguments);
+        final StmtNode statements = method.body.accept(builder, null);
+        return builder.finish(statements, null);
+    }
+
+    Body constructorBody(final RuntimeClass runtimeClass) {
+        final BodyBuilder builder = new BodyBuilder(runtimeClass, ValueKind.VOID);
+        builder.parameters(runtimeClass.classDef.constructorArguments);
+        final ExpNode[] superArgs = builder.exps(runtimeClass.classDef.superParams);
+        final StmtNode statements = builder.block(runtimeClass.classDef.constructorBody);
+        return builder.finish(statements, superArgs);
+    }
+
+    Body entryPointBody(final Stmt entryPoint) {
+        final BodyBuilder builder = new BodyBuilder(null, ValueKind.VOID);
+        final StmtNode statements = entryPoint.accept(builder, null);
+        return builder.finish(statements, null);
+    }
+
+    // A variable in scope; scopes are linked lists, newest binding first,
+    // so leaving a block is restoring the old head.
+    private static final class Scope {
+        final Variable variable;
+        final Local local;
+        final Scope next;
+
+        Scope(final Variable variable, final Local local, final Scope next) {
+            this.variable = variable;
+            this.local = local;
+            this.next = next;
+        }
+    }
+
+    // Translates one body.  Every declaration gets its own slot, so
+    // shadowing needs no special handling at run time.
+    private final class BodyBuilder implements ExpVisitor<Void, ExpNode, RuntimeException>,
+                                               StmtVisitor<Void, StmtNode, RuntimeException> {
+        private final RuntimeClass runtimeClass; // null in the entry point
+        private final ValueKind returnKind;
+        private Scope scope;
+        private int intCount;
+        private int refCount;
+        private ValueKind[] paramKinds = new ValueKind[0];
+        private int[] paramSlots = new int[0];
+
+        BodyBuilder(final RuntimeClass runtimeClass, final ValueKind returnKind) {
+            this.runtimeClass = runtimeClass;
+            this.returnKind = returnKind;
+        }
+
+        private Local declare(final Vardec vardec) {
+            final ValueKind kind = ValueKind.of(vardec.type);
+            final Local local = new Local(kind, kind.isUnboxed() ? intCount++ : refCount++);
+            scope = new Scope(vardec.variable, local, scope);
+            return local;
+        }
+
+        void parameters(final List<Vardec> vardecs) {
+            paramKinds = new ValueKind[vardecs.size()];
+            paramSlots = new int[vardecs.size()];
+            for (int index = 0; index < vardecs.size(); index++) {
+                final Local local = declare(vardecs.get(index));
+                paramKinds[index] = local.kind;
+                paramSlots[index] = local.index;
+            }
+        }
+
+        Body finish(final StmtNode statements, final ExpNode[] superArgs) {
+            return new Body(paramKinds, paramSlots, intCount, refCount, statements, superArgs);
+        }
+
+        ExpNode[] exps(final List<Exp> exps) {
+            final ExpNode[] nodes = new ExpNode[exps.size()];
+            for (int index = 0; index < nodes.length; index++) {
+                nodes[index] = exps.get(index).accept(this, null);
+            }
+            return nodes;
+        }
+
+        StmtNode block(final List<Stmt> stmts) {
+            final Scope outer = scope;
+            final StmtNode[] nodes = new StmtNode[stmts.size()];
+            for (int index = 0; index < nodes.length; index++) {
+                nodes[index] = stmts.get(index).accept(this, null);
+            }
+            scope = outer;
+            return new StmtNodes.Block(nodes);
+        }
+
+        // a statement on its own, e.g. an if branch, is its own scope
+        private StmtNode nested(final Stmt stmt) {
+            final Scope outer = scope;
+            final StmtNode node = stmt.accept(this, null);
+            scope = outer;
+            return node;
+        }
+
+        public ExpNode visitIntLiteral(final IntLiteralExp exp, final Void context) {
+            return new ExpNodes.IntLiteral(exp.value);
+        }
+
+        // locals and parameters shadow instance variables
+        public ExpNode visitVariable(final VariableExp exp, final Void context) {
+            for (Scope current = scope; current != null; current = current.next) {
+                if (current.variable.equals(exp.variable)) {
+                    switch (current.local.kind) {
+                    case INT:
+                        return new ExpNodes.IntLocal(current.local.index);
+                    case BOOL:
+                        return new ExpNodes.BoolLocal(current.local.index);
+                    default:
+                        return new ExpNodes.RefLocal(current.local.index);
+                    }
+                }
+            }
+            final Local field = (runtimeClass == null) ? null : runtimeClass.fields.get(exp.variable);
+            if (field == null) {
+                throw new IllegalStateException("Variable not in scope: " + exp.variable);
+            }
+            switch (field.kind) {
+            case INT:
+                return new ExpNodes.IntField(field.index);
+            case BOOL:
+                return new ExpNodes.BoolField(field.index);
+            default:
+                return new ExpNodes.RefField(field.index);
+            }
+        }
+
+        public ExpNode visitBoolLiteral(final BoolLiteralExp exp, final Void context) {
+            return new ExpNodes.BoolLiteral(exp.value);
+        }
+
+        public ExpNode visitThis(final ThisExp exp, final Void context) {
+            return new ExpNodes.This();
+        }
+
+        public ExpNode visitOp(final OpExp exp, final Void context) {
+            return new ExpNodes.UninitializedOp(exp.op,
+                                                exp.left.accept(this, null),
+                                                exp.right.accept(this, null));
+        }
+
+        public ExpNode visitMethodCall(final MethodCallExp exp, final Void context) {
+            return new CallNode(exp.target.accept(this, null), exp.methodName, exps(exp.params));
+        }
+
+        public ExpNode visitNew(final NewExp exp, final Void context) {
+            final RuntimeClass created = classes.get(exp.className);
+            if (created == null) {
+                throw new IllegalStateException("No such class: " + exp.className);
+            }
+            return new ExpNodes.New(created, exps(exp.params));
+        }
+
+        public StmtNode visitExp(final ExpStmt stmt, final Void context) {
+            return new StmtNodes.ExpStmt(stmt.exp.accept(this, null));
+        }
+
+        // the initializer is translated before the variable comes into scope
+        public StmtNode visitVariableInitialization(final VariableInitializationStmt stmt,
+                                                    final Void context) {
+            final ExpNode exp = stmt.exp.accept(this, null);
+            final Local local = declare(stmt.vardec);
+            switch (local.kind) {
+            case INT:
+                return new StmtNodes.IntLocalInit(local.index, exp);
+            case BOOL:
+                return new StmtNodes.BoolLocalInit(local.index, exp);
+            default:
+                return new StmtNodes.RefLocalInit(local.index, exp);
+            }
+        }
+
+        public StmtNode visitIf(final IfStmt stmt, final Void context) {
+            return new StmtNodes.If(stmt.guard.accept(this, null),
+                                    nested(stmt.ifTrue),
+                                    nested(stmt.ifFalse));
+        }
+
+        public StmtNode visitWhile(final WhileStmt stmt, final Void context) {
+            return new StmtNodes.While(stmt.guard.accept(this, null), nested(stmt.body));
+        }
+
+        public StmtNode visitReturnNonVoid(final ReturnNonVoidStmt stmt, final Void context) {
+            // stored according to the method's declared type, which the
+            // typechecker made sure the value fits
+            final ExpNode exp = stmt.exp.accept(this, null);
+            switch (returnKind) {
+            case INT:
+                return new StmtNodes.ReturnInt(exp);
+            case BOOL:
+                return new StmtNodes.ReturnBool(exp);
+            default:
+                return new StmtNodes.ReturnRef(exp);
+            }
+        }
+
+        public StmtNode visitReturnVoid(final ReturnVoidStmt stmt, final Void context) {
+            return new StmtNodes.ReturnVoid();
+        }
+
+        public StmtNode visitPrintln(final PrintlnStmt stmt, final Void context) {
+            return new StmtNodes.UninitializedPrintln(stmt.exp.accept(this, null), out);
+        }
+
+        public StmtNode visitBlock(final BlockStmt stmt, final Void context) {
+            return block(stmt.body);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package oop_example.interpreter;
+
+import oop_example.parser.ClassDef;
+import oop_example.parser.ClassName;
+import oop_example.parser.MethodName;
+import oop_example.parser.Vardec;
+import oop_example.parser.Variable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// A class as the interpreter runs it: instance variable layout, methods,
+// and a lazily translated constructor.
+final class RuntimeClass {
+    final ClassName className;
+    final ClassDef classDef; // null for Object
+    final RuntimeClass parent; // null for Object
+    final int intFieldCount;
+    final int refFieldCount;
+    // instance variables visible to this class's own methods; an own
+    // variable hides an inherited one of the same name, but both get slots
+    final Map<Variable, Local> fields;
+    // own plus inherited, filled in by link()
+    Map<MethodName, RuntimeMethod> methods;
+    RuntimeMethod[] methodTable;
+    private final NodeBuilder builder;
+    private Body constructor;
+
+    RuntimeClass(final ClassName className,
+                 final ClassDef classDef,
+                 final RuntimeClass parent,
+                 final NodeBuilder builder) {
+        this.className = className;
+        this.classDef = classDef;
+        this.parent = parent;
+        this.builder = builder;
+        this.fields = new HashMap<Variable, Local>();
+        int intFields = 0;
+        int refFields = 0;
+        if (parent != null) {
+            fields.putAll(parent.fields);
+            intFields = parent.intFieldCount;
+            refFields = parent.refFieldCount;
+        }
+        if (classDef != null) {
+            for (final Vardec vardec : classDef.instanceVariables) {
+                final ValueKind kind = ValueKind.of(vardec.type);
+                fields.put(vardec.variable,
+                           new Local(kind, kind.isUnboxed() ? intFields++ : refFields++));
+            }
+        }
+        this.intFieldCount = intFields;
+        this.refFieldCount = refFields;
+    }
+
+    void link(final Map<MethodName, RuntimeMethod> methods,
+              final RuntimeMethod[] methodTable) {
+        this.methods = methods;
+        this.methodTable = methodTable;
+    }
+
+    // Runs this class's constructor on an already allocated instance:
+    // arguments, then the parent's constructor with superParams, then the
+    // constructor body.
+    void construct(final Instance instance,
+                   final ExpNode[] args,
+                   final Frame caller) throws EvaluationException {
+        if (classDef == null) {
+            return;
+        }
+        if (constructor == null) {
+            constructor = builder.constructorBody(this);
+        }
+        final Frame frame = constructor.newFrame(instance);
+        constructor.passArguments(args, caller, frame);
+        parent.construct(instance, constructor.superArgs, frame);
+        constructor.statements.execute(frame);
+    }
+}
@@ -0,0 +1,47 @@
+package oop_example.interpreter;
+
+import oop_example.parser.MethodDef;
+
+// A method as the interpreter runs it.  Shared by the declaring class and
+// every subclass that inherits it.  The body is translated the first time
+// the method is called.
+final class RuntimeMethod {
+    final RuntimeClass declaringClass;
+    final MethodDef methodDef;
+    final int slot;
+    final ValueKind returnKind;
+    private final NodeBuilder builder;
+    private Body body;
+
+    RuntimeMethod(final RuntimeClass declaringClass,
+                  final MethodDef methodDef,
+                  final int slot,
+                  final NodeBuilder builder) {
+        this.declaringClass = declaringClass;
+        this.methodDef = methodDef;
+        this.slot = slot;
+        this.returnKind = ValueKind.of(methodDef.returnType);
+        this.builder = builder;
+    }
+
+    Body body() {
+        if (body == null) {
+            body = builder.methodBody(declaringClass, methodDef);
+        }
+        return body;
+    }
+
+    // returns the callee's frame, holding the return value
+    Frame call(final Instance receiver,
+               final ExpNode[] args,
+               final Frame caller) throws EvaluationException {
+        final Body body = body();
+        final Frame callee = body.newFrame(receiver);
+        body.passArguments(args, caller, callee);
+        if (!body.statements.execute(callee) && returnKind != ValueKind.VOID) {
+            throw new EvaluationException("Method " + declaringClass.className.name + "." +
+                                          methodDef.methodName.name + " ended without returning a value");
+        }
+        return callee;
+    }
+}
@@ -0,0 +1,6 @@
+package oop_example.interpreter;
+
+abstract class StmtNode extends Node {
+    // true if a return statement ran; the value is left in the frame
+    abstract boolean execute(Frame frame) throws EvaluationException;
+}
@@ -0,0 +1,269 @@
+package oop_example.interpreter;
+
+import java.io.PrintStream;
+
+final class StmtNodes {
+    private StmtNodes() {}
+
+    static final class ExpStmt extends StmtNode {
+        private ExpNode exp;
+
+        ExpStmt(final ExpNode exp) {
+            this.exp = adopt(exp);
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            exp.executeVoid(frame);
+            return false;
+        }
+
+        void replaceChild(final Node oldChild, final Node newChild) {
+            exp = (ExpNode)newChild;
+        }
+    }
+
+    // Common to statements with a single replaceable expression.
+    abstract static class WithExp extends StmtNode {
+        ExpNode exp;
+
+        WithExp(final ExpNode exp) {
+            this.exp = adopt(exp);
+        }
+
+        void replaceChild(final Node oldChild, final Node newChild) {
+            if (exp == oldChild) {
+                exp = (ExpNode)newChild;
+            } else {
+                super.replaceChild(oldChild, newChild);
+            }
+        }
+    }
+
+    static final class IntLocalInit extends WithExp {
+        private final int index;
+
+        IntLocalInit(final int index, final ExpNode exp) {
+            super(exp);
+            this.index = index;
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            frame.ints[index] = exp.executeInt(frame);
+            return false;
+        }
+    }
+
+    static final class BoolLocalInit extends WithExp {
+        private final int index;
+
+        BoolLocalInit(final int index, final ExpNode exp) {
+            super(exp);
+            this.index = index;
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            frame.ints[index] = exp.executeBool(frame) ? 1 : 0;
+            return false;
+        }
+    }
+
+    static final class RefLocalInit extends WithExp {
+        private final int index;
+
+        RefLocalInit(final int index, final ExpNode exp) {
+            super(exp);
+            this.index = index;
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            frame.refs[index] = exp.execute(frame);
+            return false;
+        }
+    }
+
+    static final class If extends WithExp {
+        private StmtNode ifTrue;
+        private StmtNode ifFalse;
+
+        If(final ExpNode guard, final StmtNode ifTrue, final StmtNode ifFalse) {
+            super(guard);
+            this.ifTrue = adopt(ifTrue);
+            this.ifFalse = adopt(ifFalse);
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            if (exp.executeBool(frame)) {
+                return ifTrue.execute(frame);
+            } else {
+                return ifFalse.execute(frame);
+            }
+        }
+
+        void replaceChild(final Node oldChild, final Node newChild) {
+            if (ifTrue == oldChild) {
+                ifTrue = (StmtNode)newChild;
+            } else if (ifFalse == oldChild) {
+                ifFalse = (StmtNode)newChild;
+            } else {
+                super.replaceChild(oldChild, newChild);
+            }
+        }
+    }
+
+    static final class While extends WithExp {
+        private StmtNode body;
+
+        While(final ExpNode guard, final StmtNode body) {
+            super(guard);
+            this.body = adopt(body);
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            while (exp.executeBool(frame)) {
+                if (body.execute(frame)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void replaceChild(final Node oldChild, final Node newChild) {
+            if (body == oldChild) {
+                body = (StmtNode)newChild;
+            } else {
+                super.replaceChild(oldChild, newChild);
+            }
+        }
+    }
+
+    static final class Block extends StmtNode {
+        private final StmtNode[] body;
+
+        Block(final StmtNode[] body) {
+            this.body = body;
+            for (final StmtNode stmt : body) {
+                adopt(stmt);
+            }
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            for (final StmtNode stmt : body) {
+                if (stmt.execute(frame)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void replaceChild(final Node oldChild, final Node newChild) {
+            ExpNodes.replaceIn(body, oldChild, newChild);
+        }
+    }
+
+    static final class ReturnInt extends WithExp {
+        ReturnInt(final ExpNode exp) {
+            super(exp);
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            frame.returnInt = exp.executeInt(frame);
+            return true;
+        }
+    }
+
+    static final class ReturnBool extends WithExp {
+        ReturnBool(final ExpNode exp) {
+            super(exp);
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            frame.returnInt = exp.executeBool(frame) ? 1 : 0;
+            return true;
+        }
+    }
+
+    static final class ReturnRef extends WithExp {
+        ReturnRef(final ExpNode exp) {
+            super(exp);
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            frame.returnRef = exp.execute(frame);
+            return true;
+        }
+    }
+
+    static final class ReturnVoid extends StmtNode {
+        boolean execute(final Frame frame) {
+            return true;
+        }
+    }
+
+    // println(exp) that hasn't run yet.  Replaces itself according to the
+    // first value printed, so ints and bools are printed without boxing.
+    static final class UninitializedPrintln extends WithExp {
+        private final PrintStream out;
+
+        UninitializedPrintln(final ExpNode exp, final PrintStream out) {
+            super(exp);
+            this.out = out;
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            final Object value = exp.execute(frame);
+            if (replaced) {
+                // already specialized by a recursive call
+            } else if (value instanceof Integer) {
+                replace(new PrintlnInt(exp, out));
+            } else if (value instanceof Boolean) {
+                replace(new PrintlnBool(exp, out));
+            } else {
+                replace(new PrintlnRef(exp, out));
+            }
+            out.println(value);
+            return false;
+        }
+    }
+
+    static final class PrintlnInt extends WithExp {
+        private final PrintStream out;
+
+        PrintlnInt(final ExpNode exp, final PrintStream out) {
+            super(exp);
+            this.out = out;
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            out.println(exp.executeInt(frame));
+            return false;
+        }
+    }
+
+    static final class PrintlnBool extends WithExp {
+        private final PrintStream out;
+
+        PrintlnBool(final ExpNode exp, final PrintStream out) {
+            super(exp);
+            this.out = out;
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            out.println(exp.executeBool(frame));
+            return false;
+        }
+    }
+
+    static final class PrintlnRef extends WithExp {
+        private final PrintStream out;
+
+        PrintlnRef(final ExpNode exp, final PrintStream out) {
+            super(exp);
+            this.out = out;
+        }
+
+        boolean execute(final Frame frame) throws EvaluationException {
+            out.println(exp.execute(frame));
+            return false;
+        }
+    }
+}
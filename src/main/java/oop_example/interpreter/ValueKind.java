@@ -0,0 +1,29 @@
+package oop_example.interpreter;
+
+import oop_example.parser.BoolType;
+import oop_example.parser.IntType;
+import oop_example.parser.Type;
+import oop_example.parser.VoidType;
+
+// How a value of some type is stored.  ints and bools live unboxed in the
+// int half of a frame or object (bools as 0 or 1); objects in the reference
+// half.
+enum ValueKind {
+    INT, BOOL, REF, VOID;
+
+    static ValueKind of(final Type type) {
+        if (type == IntType.instance()) {
+            return INT;
+        } else if (type == BoolType.instance()) {
+            return BOOL;
+        } else if (type == VoidType.instance()) {
+            return VOID;
+        } else {
+            return REF;
+        }
+    }
+
+    boolean isUnboxed() {
+        return this == INT || this == BOOL;
+    }
+}
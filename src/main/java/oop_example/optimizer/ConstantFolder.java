@@ -0,0 +1,260 @@
+package oop_example.optimizer;
+
+import oop_example.parser.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Simplifies a well-typed program without changing what it does:
+// - +, < and == over int literals become literals
+// - if (true) / if (false) become the branch that runs
+// - while (false) goes away
+// - blocks inside blocks are merged into them, where that can't change
+//   which declaration a name refers to
+//
+// Folding works bottom-up, so folding operands can make a guard constant,
+// and removing a branch can leave a block to merge.  Nothing that can have
+// an effect (a call or a new) is ever dropped: constant guards are
+// literals, and only literals are folded.
+//
+// Subtrees that don't change are shared with the original program rather
+// than copied.
+public class ConstantFolder implements ExpVisitor<Void, Exp, RuntimeException>,
+                                       StmtVisitor<Void, Stmt, RuntimeException> {
+    public static class Result {
+        public final Program program;
+        public final int nodesBefore;
+        public final int nodesAfter;
+
+        private Result(final Program program, final int nodesBefore, final int nodesAfter) {
+            this.program = program;
+            this.nodesBefore = nodesBefore;
+            this.nodesAfter = nodesAfter;
+        }
+
+        public int nodesRemoved() {
+            return nodesBefore - nodesAfter;
+        }
+
+        public String toString() {
+            return "ConstantFolder.Result(" + nodesBefore + " -> " + nodesAfter + " nodes)";
+        }
+    }
+
+    private static final ConstantFolder INSTANCE = new ConstantFolder();
+
+    private ConstantFolder() {}
+
+    public static Result fold(final Program program) {
+        final List<ClassDef> classes = new ArrayList<ClassDef>(program.classes.size());
+        for (final ClassDef classDef : program.classes) {
+            classes.add(INSTANCE.classDef(classDef));
+        }
+        final Program folded = new Program(classes, fold(program.entryPoint));
+        return new Result(folded, NodeCounter.count(program), NodeCounter.count(folded));
+    }
+
+    public static Stmt fold(final Stmt stmt) {
+        return stmt.accept(INSTANCE, null);
+    }
+
+    public static Exp fold(final Exp exp) {
+        return exp.accept(INSTANCE, null);
+    }
+
+    private ClassDef classDef(final ClassDef classDef) {
+        final List<MethodDef> methods = new ArrayList<MethodDef>(classDef.methods.size());
+        boolean methodsChanged = false;
+        for (final MethodDef method : classDef.methods) {
+            final Stmt body = method.body.accept(this, null);
+            if (body == method.body) {
+                methods.add(method);
+            } else {
+                methods.add(new MethodDef(method.returnType, method.methodName, method.arguments, body));
+                methodsChanged = true;
+            }
+        }
+        final List<Exp> superParams = exps(classDef.superParams);
+        final List<Stmt> constructorBody = stmts(classDef.constructorBody);
+        if (superParams == classDef.superParams &&
+            constructorBody == classDef.constructorBody &&
+            !methodsChanged) {
+            return classDef;
+        }
+        return new ClassDef(classDef.className,
+                            classDef.extendsClassName,
+                            classDef.instanceVariables,
+                            classDef.constructorArguments,
+                            superParams,
+                            constructorBody,
+                            methods);
+    }
+
+    // the same list if nothing in it changed
+    private List<Exp> exps(final List<Exp> exps) {
+        List<Exp> result = null;
+        for (int index = 0; index < exps.size(); index++) {
+            final Exp exp = exps.get(index);
+            final Exp folded = exp.accept(this, null);
+            if (folded != exp && result == null) {
+                result = new ArrayList<Exp>(exps.subList(0, index));
+            }
+            if (result != null) {
+                result.add(folded);
+            }
+        }
+        return (result == null) ? exps : result;
+    }
+
+    // A statement sequence, with removed statements left out and merged
+    // blocks spliced in.  The same list if nothing in it changed.
+    private List<Stmt> stmts(final List<Stmt> stmts) {
+        List<Stmt> result = null;
+        for (int index = 0; index < stmts.size(); index++) {
+            final Stmt stmt = stmts.get(index);
+            final Stmt folded = stmt.accept(this, null);
+            final boolean last = index == stmts.size() - 1;
+            final boolean splice = folded instanceof BlockStmt && canMerge((BlockStmt)folded, last);
+            if ((folded != stmt || splice) && result == null) {
+                result = new ArrayList<Stmt>(stmts.subList(0, index));
+            }
+            if (result != null) {
+                if (splice) {
+                    result.addAll(((BlockStmt)folded).body);
+                } else {
+                    result.add(folded);
+                }
+            }
+        }
+        return (result == null) ? stmts : result;
+    }
+
+    // An inner block's declarations go out of scope at its end.  Merged
+    // into the outer block, they'd be visible to what comes after it, so
+    // only blocks without declarations, or with nothing after them, can be
+    // merged.
+    private static boolean canMerge(final BlockStmt block, final boolean last) {
+        if (last) {
+            return true;
+        }
+        for (final Stmt stmt : block.body) {
+            if (stmt instanceof VariableInitializationStmt) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final BlockStmt EMPTY = new BlockStmt(Collections.<Stmt>emptyList());
+
+    // A statement that's a branch or loop body on its own is its own
+    // scope; a lone declaration there must stay in a block when it's
+    // moved somewhere else.
+    private static Stmt scoped(final Stmt stmt) {
+        if (stmt instanceof VariableInitializationStmt) {
+            final List<Stmt> body = new ArrayList<Stmt>(1);
+            body.add(stmt);
+            return new BlockStmt(body);
+        }
+        return stmt;
+    }
+
+    public Exp visitIntLiteral(final IntLiteralExp exp, final Void context) {
+        return exp;
+    }
+
+    public Exp visitVariable(final VariableExp exp, final Void context) {
+        return exp;
+    }
+
+    public Exp visitBoolLiteral(final BoolLiteralExp exp, final Void context) {
+        return exp;
+    }
+
+    public Exp visitThis(final ThisExp exp, final Void context) {
+        return exp;
+    }
+
+    // The typechecker only allows ints here.  + wraps around, as it does
+    // when the program runs.
+    public Exp visitOp(final OpExp exp, final Void context) {
+        final Exp left = exp.left.accept(this, null);
+        final Exp right = exp.right.accept(this, null);
+        if (left instanceof IntLiteralExp && right instanceof IntLiteralExp) {
+            final int leftValue = ((IntLiteralExp)left).value;
+            final int rightValue = ((IntLiteralExp)right).value;
+            if (exp.op == PlusOp.instance()) {
+                return new IntLiteralExp(leftValue + rightValue);
+            } else if (exp.op == LessThanOp.instance()) {
+                return new BoolLiteralExp(leftValue < rightValue);
+            } else if (exp.op == EqualsOp.instance()) {
+                return new BoolLiteralExp(leftValue == rightValue);
+            }
+        }
+        return (left == exp.left && right == exp.right) ? exp : new OpExp(left, exp.op, right);
+    }
+
+    public Exp visitMethodCall(final MethodCallExp exp, final Void context) {
+        final Exp target = exp.target.accept(this, null);
+        final List<Exp> params = exps(exp.params);
+        return (target == exp.target && params == exp.params)
+            ? exp
+            : new MethodCallExp(target, exp.methodName, params);
+    }
+
+    public Exp visitNew(final NewExp exp, final Void context) {
+        final List<Exp> params = exps(exp.params);
+        return (params == exp.params) ? exp : new NewExp(exp.className, params);
+    }
+
+    public Stmt visitExp(final ExpStmt stmt, final Void context) {
+        final Exp exp = stmt.exp.accept(this, null);
+        return (exp == stmt.exp) ? stmt : new ExpStmt(exp);
+    }
+
+    public Stmt visitVariableInitialization(final VariableInitializationStmt stmt, final Void context) {
+        final Exp exp = stmt.exp.accept(this, null);
+        return (exp == stmt.exp) ? stmt : new VariableInitializationStmt(stmt.vardec, exp);
+    }
+
+    public Stmt visitIf(final IfStmt stmt, final Void context) {
+        final Exp guard = stmt.guard.accept(this, null);
+        if (guard instanceof BoolLiteralExp) {
+            return scoped((((BoolLiteralExp)guard).value ? stmt.ifTrue : stmt.ifFalse).accept(this, null));
+        }
+        final Stmt ifTrue = stmt.ifTrue.accept(this, null);
+        final Stmt ifFalse = stmt.ifFalse.accept(this, null);
+        return (guard == stmt.guard && ifTrue == stmt.ifTrue && ifFalse == stmt.ifFalse)
+            ? stmt
+            : new IfStmt(guard, ifTrue, ifFalse);
+    }
+
+    public Stmt visitWhile(final WhileStmt stmt, final Void context) {
+        final Exp guard = stmt.guard.accept(this, null);
+        if (guard instanceof BoolLiteralExp && !((BoolLiteralExp)guard).value) {
+            return EMPTY;
+        }
+        final Stmt body = stmt.body.accept(this, null);
+        return (guard == stmt.guard && body == stmt.body) ? stmt : new WhileStmt(guard, body);
+    }
+
+    public Stmt visitReturnNonVoid(final ReturnNonVoidStmt stmt, final Void context) {
+        final Exp exp = stmt.exp.accept(this, null);
+        return (exp == stmt.exp) ? stmt : new ReturnNonVoidStmt(exp);
+    }
+
+    public Stmt visitReturnVoid(final ReturnVoidStmt stmt, final Void context) {
+        return stmt;
+    }
+
+    public Stmt visitPrintln(final PrintlnStmt stmt, final Void context) {
+        final Exp exp = stmt.exp.accept(this, null);
+        return (exp == stmt.exp) ? stmt : new PrintlnStmt(exp);
+    }
+
+    public Stmt visitBlock(final BlockStmt stmt, final Void context) {
+        final List<Stmt> body = stmts(stmt.body);
+        return (body == stmt.body) ? stmt : new BlockStmt(body);
+    }
+}
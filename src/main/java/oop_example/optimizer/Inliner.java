@@ -0,0 +1,846 @@
+package oop_example.optimizer;
+
+import oop_example.analysis.ClassHierarchyAnalysis;
+import oop_example.parser.*;
+import oop_example.typechecker.ClassInfo;
+import oop_example.typechecker.ClassTable;
+import oop_example.typechecker.MethodInfo;
+import oop_example.typechecker.TypeAnnotations;
+import oop_example.typechecker.TypeErrorException;
+import oop_example.typechecker.Typechecker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Replaces calls to small methods with the methods' bodies.
+//
+// A call is inlined when:
+// - class hierarchy analysis says only one method can answer it
+// - that method's body is no bigger than the size budget, and it isn't
+//   recursive, directly or through other calls
+// - its body is straight-line code ending in its one return, so that
+//   control never leaves it early
+// - the receiver can't be null, since an inlined body that doesn't use
+//   this wouldn't fail the way the call would: the receiver has to be
+//   this, a new object, or a local initialized with either (there's no
+//   assignment, so locals never change)
+//
+// There are two ways to inline, depending on where the call is.  A call
+// anywhere in an expression, whose arguments are variables, literals or
+// this, and whose method is just return e, becomes e with the arguments
+// substituted for the parameters.  Evaluating those arguments has no
+// effects, so it doesn't matter that they're now evaluated in a different
+// place, or more than once, or not at all.
+//
+// A call that is a whole statement, the initializer of a declaration, or
+// the value of a return or println is inlined in the enclosing block: its
+// other arguments are evaluated in order into new locals, then the body
+// runs, then the statement uses its result.  That's the same order the
+// call would evaluate them in.
+//
+// Inlined bodies get fresh names for their parameters and locals, so they
+// can't capture or shadow the caller's variables.  The bodies refer to
+// instance variables by bare name, which means something else at the call
+// site, but instance variables are never assigned, so int and bool ones
+// are replaced with their default values; methods that read an instance
+// variable of class type aren't inlined.
+//
+// Inlined bodies are inlined into in turn, up to the depth limit.
+public class Inliner {
+    public static class Settings {
+        // methods with more expression and statement nodes than this stay
+        public int sizeBudget = 20;
+        // how many levels of inlined bodies are inlined into
+        public int depthLimit = 3;
+
+        public String toString() {
+            return "Inliner.Settings(sizeBudget=" + sizeBudget + ", depthLimit=" + depthLimit + ")";
+        }
+    }
+
+    public static class Result {
+        public final Program program;
+        public final int sitesInlined;
+
+        private Result(final Program program, final int sitesInlined) {
+            this.program = program;
+            this.sitesInlined = sitesInlined;
+        }
+
+        public String toString() {
+            return "Inliner.Result(" + sitesInlined + " call sites inlined)";
+        }
+    }
+
+    // How a method can be inlined: the statements of its body before the
+    // return, and what it returns (null for void methods).
+    private static final class Shape {
+        final List<Stmt> prefix;
+        final Exp result;
+
+        Shape(final List<Stmt> prefix, final Exp result) {
+            this.prefix = prefix;
+            this.result = result;
+        }
+
+        boolean isExpression() {
+            return prefix.isEmpty() && result != null;
+        }
+    }
+
+    // A method body we can't inline after all: it reads an instance
+    // variable of class type.
+    private static final class NotInlinable extends Exception {
+        NotInlinable() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final Settings settings;
+    private final ClassTable classTable;
+    private final ClassHierarchyAnalysis analysis;
+    private final Set<MethodInfo> recursive;
+    private final Map<MethodInfo, Shape> shapes = new IdentityHashMap<MethodInfo, Shape>();
+    private final VariableNames names;
+    private int sitesInlined;
+
+    private Inliner(final Settings settings,
+                    final ClassTable classTable,
+                    final ClassHierarchyAnalysis analysis,
+                    final Program program) throws TypeErrorException {
+        this.settings = settings;
+        this.classTable = classTable;
+        this.analysis = analysis;
+        final CallGraph graph = new CallGraph(program);
+        this.recursive = graph.recursiveMethods();
+        this.names = new VariableNames(program);
+    }
+
+    // typechecks the program first; inlining needs static types
+    public static Result inline(final Program program, final Settings settings) throws TypeErrorException {
+        final Typechecker typechecker = new Typechecker(program, null, new TypeAnnotations());
+        final TypeAnnotations annotations = typechecker.isWellTypedProgram();
+        final ClassTable classTable = typechecker.classTable;
+        final Inliner inliner = new Inliner(settings,
+                                            classTable,
+                                            ClassHierarchyAnalysis.analyze(classTable, annotations),
+                                            program);
+
+        final List<ClassDef> classes = new ArrayList<ClassDef>(program.classes.size());
+        for (final ClassDef classDef : program.classes) {
+            final ClassInfo info = classTable.lookupClass(classDef.className);
+            final Rewriter constructor = inliner.new Rewriter(info);
+            constructor.parameters(classDef.constructorArguments);
+            final List<Stmt> constructorBody = constructor.stmts(classDef.constructorBody);
+            final List<MethodDef> methods = new ArrayList<MethodDef>(classDef.methods.size());
+            for (final MethodDef method : classDef.methods) {
+                final Rewriter rewriter = inliner.new Rewriter(info);
+                rewriter.parameters(method.arguments);
+                methods.add(new MethodDef(method.returnType,
+                                          method.methodName,
+                                          method.arguments,
+                                          rewriter.stmt(method.body)));
+            }
+            classes.add(new ClassDef(classDef.className,
+                                     classDef.extendsClassName,
+                                     classDef.instanceVariables,
+                                     classDef.constructorArguments,
+                                     classDef.superParams,
+                                     constructorBody,
+                                     methods));
+        }
+        final Stmt entryPoint = inliner.new Rewriter(null).stmt(program.entryPoint);
+        return new Result(new Program(classes, entryPoint), inliner.sitesInlined);
+    }
+
+    private Variable fresh(final Variable variable) {
+        return names.fresh(variable.name);
+    }
+
+    private static boolean isTrivial(final Exp exp) {
+        return exp instanceof VariableExp || exp instanceof IntLiteralExp ||
+            exp instanceof BoolLiteralExp || exp instanceof ThisExp;
+    }
+
+    // the only method a call on className can reach, if it can be inlined
+    private MethodInfo inlinableTarget(final ClassName className,
+                                       final MethodName methodName) throws TypeErrorException {
+        final List<MethodInfo> targets = analysis.targetsOf(className, methodName);
+        if (targets.size() != 1 || recursive.contains(targets.get(0))) {
+            return null;
+        }
+        final MethodInfo target = targets.get(0);
+        return (shapeOf(target) == null) ? null : target;
+    }
+
+    private Shape shapeOf(final MethodInfo method) {
+        if (shapes.containsKey(method)) {
+            return shapes.get(method);
+        }
+        Shape shape = null;
+        final Stmt body = method.methodDef.body;
+        if (NodeCounter.count(body) <= settings.sizeBudget) {
+            final List<Stmt> stmts = (body instanceof BlockStmt)
+                ? ((BlockStmt)body).body
+                : Collections.singletonList(body);
+            final Stmt last = stmts.isEmpty() ? null : stmts.get(stmts.size() - 1);
+            final List<Stmt> allButLast = stmts.isEmpty() ? stmts : stmts.subList(0, stmts.size() - 1);
+            if (method.returnType == VoidType.instance()) {
+                if (last instanceof ReturnVoidStmt) {
+                    shape = new Shape(allButLast, null);
+                } else {
+                    shape = new Shape(stmts, null);
+                }
+            } else if (last instanceof ReturnNonVoidStmt) {
+                shape = new Shape(allButLast, ((ReturnNonVoidStmt)last).exp);
+            }
+            if (shape != null) {
+                for (final Stmt stmt : shape.prefix) {
+                    if (containsReturn(stmt)) {
+                        shape = null;
+                        break;
+                    }
+                }
+            }
+        }
+        shapes.put(method, shape);
+        return shape;
+    }
+
+    // A variable in scope at a call site, newest binding first.
+    private static final class Scope {
+        final Variable variable;
+        final Type type;
+        final boolean nonNull;
+        final Scope next;
+
+        Scope(final Variable variable, final Type type, final boolean nonNull, final Scope next) {
+            this.variable = variable;
+            this.type = type;
+            this.nonNull = nonNull;
+            this.next = next;
+        }
+    }
+
+    // Inlines calls in one body.  Expressions come back rewritten, with
+    // their static type left in type.
+    private final class Rewriter implements ExpVisitor<Void, Exp, TypeErrorException> {
+        private final ClassInfo classInfo; // null in the entry point
+        private Scope scope;
+        private int depth;
+        // methods being inlined right now, outermost first
+        private final Set<MethodInfo> inlining = Collections.newSetFromMap(new IdentityHashMap<MethodInfo, Boolean>());
+        Type type;
+
+        Rewriter(final ClassInfo classInfo) {
+            this.classInfo = classInfo;
+        }
+
+        void parameters(final List<Vardec> vardecs) {
+            for (final Vardec vardec : vardecs) {
+                scope = new Scope(vardec.variable, vardec.type, false, scope);
+            }
+        }
+
+        private Scope lookup(final Variable variable) {
+            for (Scope current = scope; current != null; current = current.next) {
+                if (current.variable.equals(variable)) {
+                    return current;
+                }
+            }
+            return null;
+        }
+
+        private boolean isNonNull(final Exp exp) {
+            if (exp instanceof ThisExp || exp instanceof NewExp) {
+                return true;
+            } else if (exp instanceof VariableExp) {
+                final Scope local = lookup(((VariableExp)exp).variable);
+                return local != null && local.nonNull;
+            } else {
+                return false;
+            }
+        }
+
+        Exp exp(final Exp exp) throws TypeErrorException {
+            return exp.accept(this, null);
+        }
+
+        private List<Exp> exps(final List<Exp> exps) throws TypeErrorException {
+            final List<Exp> result = new ArrayList<Exp>(exps.size());
+            for (final Exp exp : exps) {
+                result.add(exp(exp));
+            }
+            return result;
+        }
+
+        // a statement on its own is its own scope
+        Stmt stmt(final Stmt stmt) throws TypeErrorException {
+            final Scope outer = scope;
+            final List<Stmt> out = new ArrayList<Stmt>();
+            stmtInto(stmt, out);
+            scope = outer;
+            return (out.size() == 1 && !(out.get(0) instanceof VariableInitializationStmt))
+                ? out.get(0)
+                : new BlockStmt(out);
+        }
+
+        List<Stmt> stmts(final List<Stmt> stmts) throws TypeErrorException {
+            final Scope outer = scope;
+            final List<Stmt> out = new ArrayList<Stmt>(stmts.size());
+            for (final Stmt stmt : stmts) {
+                stmtInto(stmt, out);
+            }
+            scope = outer;
+            return out;
+        }
+
+        private void declare(final Vardec vardec, final Exp initializer) {
+            scope = new Scope(vardec.variable, vardec.type, isNonNull(initializer), scope);
+        }
+
+        // Rewrites stmt, adding the result to out: one statement, or the
+        // statements of an inlined call followed by what's left of stmt.
+        private void stmtInto(final Stmt stmt, final List<Stmt> out) throws TypeErrorException {
+            if (stmt instanceof ExpStmt) {
+                final Exp exp = callOrExp(((ExpStmt)stmt).exp, stmt, out);
+                if (exp != null) {
+                    out.add(new ExpStmt(exp));
+                }
+            } else if (stmt instanceof VariableInitializationStmt) {
+                final VariableInitializationStmt init = (VariableInitializationStmt)stmt;
+                final Exp exp = callOrExp(init.exp, stmt, out);
+                if (exp != null) {
+                    out.add(new VariableInitializationStmt(init.vardec, exp));
+                    declare(init.vardec, exp);
+                }
+            } else if (stmt instanceof ReturnNonVoidStmt) {
+                final Exp exp = callOrExp(((ReturnNonVoidStmt)stmt).exp, stmt, out);
+                if (exp != null) {
+                    out.add(new ReturnNonVoidStmt(exp));
+                }
+            } else if (stmt instanceof PrintlnStmt) {
+                final Exp exp = callOrExp(((PrintlnStmt)stmt).exp, stmt, out);
+                if (exp != null) {
+                    out.add(new PrintlnStmt(exp));
+                }
+            } else if (stmt instanceof IfStmt) {
+                final IfStmt ifStmt = (IfStmt)stmt;
+                out.add(new IfStmt(exp(ifStmt.guard), stmt(ifStmt.ifTrue), stmt(ifStmt.ifFalse)));
+            } else if (stmt instanceof WhileStmt) {
+                final WhileStmt whileStmt = (WhileStmt)stmt;
+                out.add(new WhileStmt(exp(whileStmt.guard), stmt(whileStmt.body)));
+            } else if (stmt instanceof BlockStmt) {
+                out.add(new BlockStmt(stmts(((BlockStmt)stmt).body)));
+            } else {
+                out.add(stmt); // return;
+            }
+        }
+
+        // The rewritten expression that stmt is made of, or null if it was
+        // a call that got inlined into out along with the rest of stmt.
+        private Exp callOrExp(final Exp exp, final Stmt stmt, final List<Stmt> out) throws TypeErrorException {
+            if (!(exp instanceof MethodCallExp)) {
+                return exp(exp);
+            }
+            final MethodCallExp call = (MethodCallExp)exp;
+            final Exp target = exp(call.target);
+            final ClassName receiverClass = ((ClassNameType)type).className;
+            final List<Exp> params = exps(call.params);
+            final MethodInfo method = (depth < settings.depthLimit)
+                ? inlinableTarget(receiverClass, call.methodName)
+                : null;
+            if (method != null && !inlining.contains(method) && isNonNull(target) &&
+                inlineStatement(method, target, params, stmt, out)) {
+                return null;
+            }
+            return finishCall(target, receiverClass, call.methodName, params);
+        }
+
+        // Inlines method, called with the given already rewritten target
+        // and arguments, as stmt.  Returns false, having added nothing, if
+        // the body can't be inlined.
+        private boolean inlineStatement(final MethodInfo method,
+                                        final Exp target,
+                                        final List<Exp> params,
+                                        final Stmt stmt,
+                                        final List<Stmt> out) throws TypeErrorException {
+            final Shape shape = shapeOf(method);
+
+            // receiver first, then the arguments, in order
+            final List<VariableInitializationStmt> prelude = new ArrayList<VariableInitializationStmt>();
+            final Exp receiver;
+            if (target instanceof NewExp) {
+                final Vardec vardec = new Vardec(ClassNameType.instance(((NewExp)target).className),
+                                                 fresh(new Variable("this")));
+                prelude.add(new VariableInitializationStmt(vardec, target));
+                receiver = new VariableExp(vardec.variable);
+            } else {
+                receiver = target;
+            }
+            final Map<Variable, Exp> arguments = new HashMap<Variable, Exp>();
+            final List<Vardec> parameters = method.methodDef.arguments;
+            for (int index = 0; index < parameters.size(); index++) {
+                final Exp argument = params.get(index);
+                final Vardec parameter = parameters.get(index);
+                if (isTrivial(argument)) {
+                    arguments.put(parameter.variable, argument);
+                } else {
+                    final Vardec vardec = new Vardec(parameter.type, fresh(parameter.variable));
+                    prelude.add(new VariableInitializationStmt(vardec, argument));
+                    arguments.put(parameter.variable, new VariableExp(vardec.variable));
+                }
+            }
+
+            final Renamer renamer = new Renamer(method, receiver, arguments);
+            final List<Stmt> body = new ArrayList<Stmt>();
+            try {
+                for (final Stmt inner : shape.prefix) {
+                    body.add(inner.accept(renamer, null));
+                }
+                if (shape.result != null) {
+                    final Exp result = shape.result.accept(renamer, null);
+                    if (stmt instanceof VariableInitializationStmt) {
+                        body.add(new VariableInitializationStmt(((VariableInitializationStmt)stmt).vardec, result));
+                    } else if (stmt instanceof ReturnNonVoidStmt) {
+                        body.add(new ReturnNonVoidStmt(result));
+                    } else if (stmt instanceof PrintlnStmt) {
+                        body.add(new PrintlnStmt(result));
+                    } else if (!isTrivial(result)) {
+                        body.add(new ExpStmt(result));
+                    }
+                }
+            } catch (final NotInlinable e) {
+                return false;
+            }
+
+            sitesInlined++;
+            for (final VariableInitializationStmt init : prelude) {
+                out.add(init);
+                declare(init.vardec, init.exp);
+            }
+            // what came out of the body is inlined into in turn
+            depth++;
+            inlining.add(method);
+            for (final Stmt inner : body) {
+                stmtInto(inner, out);
+            }
+            inlining.remove(method);
+            depth--;
+            return true;
+        }
+
+        public Exp visitIntLiteral(final IntLiteralExp exp, final Void context) {
+            type = IntType.instance();
+            return exp;
+        }
+
+        public Exp visitVariable(final VariableExp exp, final Void context) {
+            final Scope local = lookup(exp.variable);
+            type = (local != null) ? local.type : classInfo.fields.get(exp.variable);
+            return exp;
+        }
+
+        public Exp visitBoolLiteral(final BoolLiteralExp exp, final Void context) {
+            type = BoolType.instance();
+            return exp;
+        }
+
+        public Exp visitThis(final ThisExp exp, final Void context) {
+            type = ClassNameType.instance(classInfo.className);
+            return exp;
+        }
+
+        public Exp visitOp(final OpExp exp, final Void context) throws TypeErrorException {
+            final Exp left = exp(exp.left);
+            final Exp right = exp(exp.right);
+            type = (exp.op == PlusOp.instance()) ? IntType.instance() : BoolType.instance();
+            return new OpExp(left, exp.op, right);
+        }
+
+        public Exp visitMethodCall(final MethodCallExp exp, final Void context) throws TypeErrorException {
+            final Exp target = exp(exp.target);
+            final ClassName receiverClass = ((ClassNameType)type).className;
+            return finishCall(target, receiverClass, exp.methodName, exps(exp.params));
+        }
+
+        // A call with its target and arguments already rewritten, inlined
+        // if its value can be substituted directly.
+        private Exp finishCall(final Exp target,
+                               final ClassName receiverClass,
+                               final MethodName methodName,
+                               final List<Exp> params) throws TypeErrorException {
+            final MethodInfo method = (depth < settings.depthLimit)
+                ? inlinableTarget(receiverClass, methodName)
+                : null;
+            if (method != null && !inlining.contains(method) && shapeOf(method).isExpression() &&
+                isTrivial(target) && isNonNull(target) && allTrivial(params)) {
+                final Map<Variable, Exp> arguments = new HashMap<Variable, Exp>();
+                for (int index = 0; index < params.size(); index++) {
+                    arguments.put(method.methodDef.arguments.get(index).variable, params.get(index));
+                }
+                try {
+                    final Exp result = shapeOf(method).result.accept(new Renamer(method, target, arguments), null);
+                    sitesInlined++;
+                    depth++;
+                    inlining.add(method);
+                    final Exp inlined = exp(result);
+                    inlining.remove(method);
+                    depth--;
+                    return inlined;
+                } catch (final NotInlinable e) {
+                    // called as usual
+                }
+            }
+            type = classTable.lookupMethod(receiverClass, methodName).returnType;
+            return new MethodCallExp(target, methodName, params);
+        }
+
+        private boolean allTrivial(final List<Exp> exps) {
+            for (final Exp exp : exps) {
+                if (!isTrivial(exp)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public Exp visitNew(final NewExp exp, final Void context) throws TypeErrorException {
+            final List<Exp> params = exps(exp.params);
+            type = ClassNameType.instance(exp.className);
+            return new NewExp(exp.className, params);
+        }
+    }
+
+    // Copies a method body for inlining: this becomes the receiver,
+    // parameters become their arguments, locals get fresh names, and
+    // instance variables become their default values.
+    private final class Renamer implements ExpVisitor<Void, Exp, NotInlinable>,
+                                           StmtVisitor<Void, Stmt, NotInlinable> {
+        private final ClassInfo declaringClass;
+        private final Exp receiver;
+        private Map<Variable, Exp> bindings;
+
+        Renamer(final MethodInfo method, final Exp receiver, final Map<Variable, Exp> arguments) throws TypeErrorException {
+            this.declaringClass = classTable.lookupClass(method.declaringClass);
+            this.receiver = receiver;
+            this.bindings = arguments;
+        }
+
+        private List<Exp> exps(final List<Exp> exps) throws NotInlinable {
+            final List<Exp> result = new ArrayList<Exp>(exps.size());
+            for (final Exp exp : exps) {
+                result.add(exp.accept(this, null));
+            }
+            return result;
+        }
+
+        private Stmt nested(final Stmt stmt) throws NotInlinable {
+            final Map<Variable, Exp> outer = bindings;
+            final Stmt result = stmt.accept(this, null);
+            bindings = outer;
+            return result;
+        }
+
+        public Exp visitIntLiteral(final IntLiteralExp exp, final Void context) {
+            return exp;
+        }
+
+        public Exp visitVariable(final VariableExp exp, final Void context) throws NotInlinable {
+            final Exp bound = bindings.get(exp.variable);
+            if (bound != null) {
+                return bound;
+            }
+            final Type type = declaringClass.fields.get(exp.variable);
+            if (type == IntType.instance()) {
+                return new IntLiteralExp(0);
+            } else if (type == BoolType.instance()) {
+                return new BoolLiteralExp(false);
+            } else {
+                throw new NotInlinable(); // no way to write null
+            }
+        }
+
+        public Exp visitBoolLiteral(final BoolLiteralExp exp, final Void context) {
+            return exp;
+        }
+
+        public Exp visitThis(final ThisExp exp, final Void context) {
+            return receiver;
+        }
+
+        public Exp visitOp(final OpExp exp, final Void context) throws NotInlinable {
+            return new OpExp(exp.left.accept(this, null), exp.op, exp.right.accept(this, null));
+        }
+
+        public Exp visitMethodCall(final MethodCallExp exp, final Void context) throws NotInlinable {
+            return new MethodCallExp(exp.target.accept(this, null), exp.methodName, exps(exp.params));
+        }
+
+        public Exp visitNew(final NewExp exp, final Void context) throws NotInlinable {
+            return new NewExp(exp.className, exps(exp.params));
+        }
+
+        public Stmt visitExp(final ExpStmt stmt, final Void context) throws NotInlinable {
+            return new ExpStmt(stmt.exp.accept(this, null));
+        }
+
+        public Stmt visitVariableInitialization(final VariableInitializationStmt stmt,
+                                                final Void context) throws NotInlinable {
+            final Exp exp = stmt.exp.accept(this, null);
+            final Variable renamed = fresh(stmt.vardec.variable);
+            bindings = new HashMap<Variable, Exp>(bindings);
+            bindings.put(stmt.vardec.variable, new VariableExp(renamed));
+            return new VariableInitializationStmt(new Vardec(stmt.vardec.type, renamed), exp);
+        }
+
+        public Stmt visitIf(final IfStmt stmt, final Void context) throws NotInlinable {
+            return new IfStmt(stmt.guard.accept(this, null), nested(stmt.ifTrue), nested(stmt.ifFalse));
+        }
+
+        public Stmt visitWhile(final WhileStmt stmt, final Void context) throws NotInlinable {
+            return new WhileStmt(stmt.guard.accept(this, null), nested(stmt.body));
+        }
+
+        public Stmt visitReturnNonVoid(final ReturnNonVoidStmt stmt, final Void context) {
+            throw new IllegalStateException("Inlining a body with a return in it");
+        }
+
+        public Stmt visitReturnVoid(final ReturnVoidStmt stmt, final Void context) {
+            throw new IllegalStateException("Inlining a body with a return in it");
+        }
+
+        public Stmt visitPrintln(final PrintlnStmt stmt, final Void context) throws NotInlinable {
+            return new PrintlnStmt(stmt.exp.accept(this, null));
+        }
+
+        public Stmt visitBlock(final BlockStmt stmt, final Void context) throws NotInlinable {
+            final Map<Variable, Exp> outer = bindings;
+            final List<Stmt> body = new ArrayList<Stmt>(stmt.body.size());
+            for (final Stmt inner : stmt.body) {
+                body.add(inner.accept(this, null));
+            }
+            bindings = outer;
+            return new BlockStmt(body);
+        }
+    }
+
+    private static boolean containsReturn(final Stmt stmt) {
+        if (stmt instanceof ReturnNonVoidStmt || stmt instanceof ReturnVoidStmt) {
+            return true;
+        } else if (stmt instanceof IfStmt) {
+            return containsReturn(((IfStmt)stmt).ifTrue) || containsReturn(((IfStmt)stmt).ifFalse);
+        } else if (stmt instanceof WhileStmt) {
+            return containsReturn(((WhileStmt)stmt).body);
+        } else if (stmt instanceof BlockStmt) {
+            for (final Stmt inner : ((BlockStmt)stmt).body) {
+                if (containsReturn(inner)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Which method bodies and constructors can call which, going by class
+    // hierarchy analysis.  Constructors are in the graph because a method
+    // can reach itself through a new expression.
+    private final class CallGraph implements ExpVisitor<Void, Void, RuntimeException>,
+                                             StmtVisitor<Void, Void, RuntimeException> {
+        // nodes are MethodInfos for methods and ClassNames for constructors
+        private final Map<Object, Integer> ids = new HashMap<Object, Integer>();
+        private final List<Object> nodes = new ArrayList<Object>();
+        private final List<List<Integer>> edges = new ArrayList<List<Integer>>();
+        private int from = -1; // -1 in the entry point
+
+        CallGraph(final Program program) throws TypeErrorException {
+            for (final ClassDef classDef : program.classes) {
+                final ClassInfo info = classTable.lookupClass(classDef.className);
+                from = idFor(classDef.className);
+                if (info.parent.classDef != null) {
+                    edges.get(from).add(idFor(info.parent.className));
+                }
+                for (final Exp exp : classDef.superParams) {
+                    exp.accept(this, null);
+                }
+                for (final Stmt stmt : classDef.constructorBody) {
+                    stmt.accept(this, null);
+                }
+                for (final MethodDef method : classDef.methods) {
+                    from = idFor(info.methods.get(method.methodName));
+                    method.body.accept(this, null);
+                }
+            }
+            from = -1;
+            program.entryPoint.accept(this, null);
+        }
+
+        // MethodInfos are only equal to themselves
+        private int idFor(final Object node) {
+            Integer id = ids.get(node);
+            if (id == null) {
+                id = nodes.size();
+                ids.put(node, id);
+                nodes.add(node);
+                edges.add(new ArrayList<Integer>());
+            }
+            return id;
+        }
+
+        private void edge(final Object to) {
+            if (from != -1) {
+                edges.get(from).add(idFor(to));
+            }
+        }
+
+        // Methods on a cycle: those in a strongly connected component of
+        // more than one node, or calling themselves.  Tarjan's algorithm,
+        // done with explicit stacks so long call chains don't overflow.
+        Set<MethodInfo> recursiveMethods() {
+            final int size = nodes.size();
+            final int[] index = new int[size];
+            final int[] lowLink = new int[size];
+            final boolean[] onStack = new boolean[size];
+            final int[] edgeCursor = new int[size];
+            final int[] sccStack = new int[size];
+            final int[] callStack = new int[size];
+            Arrays.fill(index, -1);
+            int nextIndex = 0;
+            int sccSize = 0;
+            final Set<MethodInfo> result = Collections.newSetFromMap(new IdentityHashMap<MethodInfo, Boolean>());
+
+            for (int root = 0; root < size; root++) {
+                if (index[root] != -1) {
+                    continue;
+                }
+                int callSize = 0;
+                callStack[callSize++] = root;
+                index[root] = lowLink[root] = nextIndex++;
+                sccStack[sccSize++] = root;
+                onStack[root] = true;
+                while (callSize > 0) {
+                    final int node = callStack[callSize - 1];
+                    final List<Integer> out = edges.get(node);
+                    if (edgeCursor[node] < out.size()) {
+                        final int next = out.get(edgeCursor[node]++);
+                        if (next == node) {
+                            if (nodes.get(node) instanceof MethodInfo) {
+                                result.add((MethodInfo)nodes.get(node));
+                            }
+                        } else if (index[next] == -1) {
+                            index[next] = lowLink[next] = nextIndex++;
+                            sccStack[sccSize++] = next;
+                            onStack[next] = true;
+                            callStack[callSize++] = next;
+                        } else if (onStack[next]) {
+                            lowLink[node] = Math.min(lowLink[node], index[next]);
+                        }
+                    } else {
+                        callSize--;
+                        if (callSize > 0) {
+                            final int parent = callStack[callSize - 1];
+                            lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                        }
+                        if (lowLink[node] == index[node]) {
+                            final boolean cycle = sccStack[sccSize - 1] != node;
+                            int member;
+                            do {
+                                member = sccStack[--sccSize];
+                                onStack[member] = false;
+                                if (cycle && nodes.get(member) instanceof MethodInfo) {
+                                    result.add((MethodInfo)nodes.get(member));
+                                }
+                            } while (member != node);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        public Void visitIntLiteral(final IntLiteralExp exp, final Void context) {
+            return null;
+        }
+
+        public Void visitVariable(final VariableExp exp, final Void context) {
+            return null;
+        }
+
+        public Void visitBoolLiteral(final BoolLiteralExp exp, final Void context) {
+            return null;
+        }
+
+        public Void visitThis(final ThisExp exp, final Void context) {
+            return null;
+        }
+
+        public Void visitOp(final OpExp exp, final Void context) {
+            exp.left.accept(this, null);
+            exp.right.accept(this, null);
+            return null;
+        }
+
+        public Void visitMethodCall(final MethodCallExp exp, final Void context) {
+            for (final MethodInfo target : analysis.targets(exp)) {
+                edge(target);
+            }
+            exp.target.accept(this, null);
+            for (final Exp param : exp.params) {
+                param.accept(this, null);
+            }
+            return null;
+        }
+
+        public Void visitNew(final NewExp exp, final Void context) {
+            edge(exp.className);
+            for (final Exp param : exp.params) {
+                param.accept(this, null);
+            }
+            return null;
+        }
+
+        public Void visitExp(final ExpStmt stmt, final Void context) {
+            return stmt.exp.accept(this, null);
+        }
+
+        public Void visitVariableInitialization(final VariableInitializationStmt stmt, final Void context) {
+            return stmt.exp.accept(this, null);
+        }
+
+        public Void visitIf(final IfStmt stmt, final Void context) {
+            stmt.guard.accept(this, null);
+            stmt.ifTrue.accept(this, null);
+            return stmt.ifFalse.accept(this, null);
+        }
+
+        public Void visitWhile(final WhileStmt stmt, final Void context) {
+            stmt.guard.accept(this, null);
+            return stmt.body.accept(this, null);
+        }
+
+        public Void visitReturnNonVoid(final ReturnNonVoidStmt stmt, final Void context) {
+            return stmt.exp.accept(this, null);
+        }
+
+        public Void visitReturnVoid(final ReturnVoidStmt stmt, final Void context) {
+            return null;
+        }
+
+        public Void visitPrintln(final PrintlnStmt stmt, final Void context) {
+            return stmt.exp.accept(this, null);
+        }
+
+        public Void visitBlock(final BlockStmt stmt, final Void context) {
+            for (final Stmt inner : stmt.body) {
+                inner.accept(this, null);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package oop_example.optimizer;
+
+import oop_example.parser.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Moves computations that give the same value on every iteration of a
+// while loop out in front of it, into new variables:
+//
+// while (x < n) { println(x + 1); ... }
+//
+// becomes:
+//
+// bool _loop0 = x < n;
+// int _loop1 = x + 1;
+// while (_loop0) { println(_loop1); ... }
+//
+// Nothing is ever assigned, so any variable the loop doesn't declare
+// itself, and any instance variable, has the same value on every
+// iteration.  An operator expression over only those, this, and literals
+// is invariant, and evaluating it can't fail or have an effect, so it's
+// safe to evaluate once up front even if the loop never runs.  Calls and
+// news are never moved: they can print or fail to terminate.  The largest
+// invariant expressions are moved, and identical ones share a variable.
+// Expressions over literals alone are left to ConstantFolder.
+//
+// Loops are handled outermost first, so what's invariant in an outer loop
+// goes all the way out, and inner loops then take what's left.
+public class LoopInvariantCodeMotion implements StmtVisitor<Void, Stmt, RuntimeException> {
+    public static class Result {
+        public final Program program;
+        public final int expressionsHoisted;
+
+        private Result(final Program program, final int expressionsHoisted) {
+            this.program = program;
+            this.expressionsHoisted = expressionsHoisted;
+        }
+
+        public String toString() {
+            return "LoopInvariantCodeMotion.Result(" + expressionsHoisted + " expressions hoisted)";
+        }
+    }
+
+    private final VariableNames names;
+    // loops with the declarations hoisted out of them, to be spliced into
+    // the enclosing block
+    private final Set<BlockStmt> hoisted = Collections.newSetFromMap(new IdentityHashMap<BlockStmt, Boolean>());
+    private int expressionsHoisted;
+
+    private LoopInvariantCodeMotion(final Program program) {
+        names = new VariableNames(program);
+    }
+
+    public static Result hoist(final Program program) {
+        final LoopInvariantCodeMotion motion = new LoopInvariantCodeMotion(program);
+        final List<ClassDef> classes = new ArrayList<ClassDef>(program.classes.size());
+        for (final ClassDef classDef : program.classes) {
+            classes.add(motion.classDef(classDef));
+        }
+        final Stmt entryPoint = program.entryPoint.accept(motion, null);
+        return new Result(new Program(classes, entryPoint), motion.expressionsHoisted);
+    }
+
+    private ClassDef classDef(final ClassDef classDef) {
+        final List<MethodDef> methods = new ArrayList<MethodDef>(classDef.methods.size());
+        boolean methodsChanged = false;
+        for (final MethodDef method : classDef.methods) {
+            final Stmt body = method.body.accept(this, null);
+            if (body == method.body) {
+                methods.add(method);
+            } else {
+                methods.add(new MethodDef(method.returnType, method.methodName, method.arguments, body));
+                methodsChanged = true;
+            }
+        }
+        final List<Stmt> constructorBody = stmts(classDef.constructorBody);
+        if (constructorBody == classDef.constructorBody && !methodsChanged) {
+            return classDef;
+        }
+        return new ClassDef(classDef.className,
+                            classDef.extendsClassName,
+                            classDef.instanceVariables,
+                            classDef.constructorArguments,
+                            classDef.superParams,
+                            constructorBody,
+                            methods);
+    }
+
+    // The same list if nothing in it changed.  Hoisted declarations have
+    // fresh names, so they can go straight into the enclosing block.
+    private List<Stmt> stmts(final List<Stmt> stmts) {
+        List<Stmt> result = null;
+        for (int index = 0; index < stmts.size(); index++) {
+            final Stmt stmt = stmts.get(index);
+            final Stmt rewritten = stmt.accept(this, null);
+            if (rewritten != stmt && result == null) {
+                result = new ArrayList<Stmt>(stmts.subList(0, index));
+            }
+            if (result != null) {
+                if (hoisted.contains(rewritten)) {
+                    result.addAll(((BlockStmt)rewritten).body);
+                } else {
+                    result.add(rewritten);
+                }
+            }
+        }
+        return (result == null) ? stmts : result;
+    }
+
+    public Stmt visitExp(final ExpStmt stmt, final Void context) {
+        return stmt;
+    }
+
+    public Stmt visitVariableInitialization(final VariableInitializationStmt stmt, final Void context) {
+        return stmt;
+    }
+
+    public Stmt visitIf(final IfStmt stmt, final Void context) {
+        final Stmt ifTrue = stmt.ifTrue.accept(this, null);
+        final Stmt ifFalse = stmt.ifFalse.accept(this, null);
+        return (ifTrue == stmt.ifTrue && ifFalse == stmt.ifFalse)
+            ? stmt
+            : new IfStmt(stmt.guard, ifTrue, ifFalse);
+    }
+
+    public Stmt visitWhile(final WhileStmt stmt, final Void context) {
+        final Hoister hoister = new Hoister();
+        final Exp guard = hoister.exp(stmt.guard);
+        final Stmt body = hoister.stmt(stmt.body);
+        // then whatever loops are inside
+        final Stmt inner = body.accept(this, null);
+        if (hoister.declarations.isEmpty()) {
+            return (inner == stmt.body) ? stmt : new WhileStmt(guard, inner);
+        }
+        final List<Stmt> result = new ArrayList<Stmt>(hoister.declarations);
+        result.add(new WhileStmt(guard, inner));
+        final BlockStmt block = new BlockStmt(result);
+        hoisted.add(block);
+        return block;
+    }
+
+    public Stmt visitReturnNonVoid(final ReturnNonVoidStmt stmt, final Void context) {
+        return stmt;
+    }
+
+    public Stmt visitReturnVoid(final ReturnVoidStmt stmt, final Void context) {
+        return stmt;
+    }
+
+    public Stmt visitPrintln(final PrintlnStmt stmt, final Void context) {
+        return stmt;
+    }
+
+    public Stmt visitBlock(final BlockStmt stmt, final Void context) {
+        final List<Stmt> body = stmts(stmt.body);
+        return (body == stmt.body) ? stmt : new BlockStmt(body);
+    }
+
+    // Replaces the invariant expressions in one loop with variables,
+    // collecting their declarations.
+    //
+    // Visiting an expression returns it with the invariant parts inside it
+    // replaced, but an expression that's invariant as a whole comes back
+    // as it is, with invariant and literal saying so: it's up to whatever
+    // it's part of to replace it, since that might be invariant too.
+    private final class Hoister implements ExpVisitor<Void, Exp, RuntimeException>,
+                                           StmtVisitor<Void, Stmt, RuntimeException> {
+        final List<Stmt> declarations = new ArrayList<Stmt>();
+        private final Map<Exp, Variable> variables = new HashMap<Exp, Variable>();
+        // variables declared inside the loop, so far in the current scope
+        private Set<Variable> loopLocals = new HashSet<Variable>();
+        private boolean invariant;
+        private boolean literal;
+
+        Exp exp(final Exp exp) {
+            final Exp result = exp.accept(this, null);
+            return settle(result, invariant, literal);
+        }
+
+        // exp, visited as invariant or not, replaced if it should be
+        private Exp settle(final Exp exp, final boolean invariant, final boolean literal) {
+            if (!invariant || literal || !(exp instanceof OpExp)) {
+                return exp;
+            }
+            Variable variable = variables.get(exp);
+            if (variable == null) {
+                variable = names.fresh("loop");
+                variables.put(exp, variable);
+                final Type type = (((OpExp)exp).op instanceof PlusOp) ? IntType.instance() : BoolType.instance();
+                declarations.add(new VariableInitializationStmt(new Vardec(type, variable), exp));
+                expressionsHoisted++;
+            }
+            return new VariableExp(variable);
+        }
+
+        private List<Exp> exps(final List<Exp> exps) {
+            final List<Exp> result = new ArrayList<Exp>(exps.size());
+            for (final Exp exp : exps) {
+                result.add(exp(exp));
+            }
+            return result;
+        }
+
+        // a statement on its own is its own scope
+        Stmt stmt(final Stmt stmt) {
+            final Set<Variable> outer = loopLocals;
+            loopLocals = new HashSet<Variable>(outer);
+            final Stmt result = stmt.accept(this, null);
+            loopLocals = outer;
+            return result;
+        }
+
+        public Exp visitIntLiteral(final IntLiteralExp exp, final Void context) {
+            invariant = true;
+            literal = true;
+            return exp;
+        }
+
+        public Exp visitVariable(final VariableExp exp, final Void context) {
+            invariant = !loopLocals.contains(exp.variable);
+            literal = false;
+            return exp;
+        }
+
+        public Exp visitBoolLiteral(final BoolLiteralExp exp, final Void context) {
+            invariant = true;
+            literal = true;
+            return exp;
+        }
+
+        public Exp visitThis(final ThisExp exp, final Void context) {
+            invariant = true;
+            literal = false;
+            return exp;
+        }
+
+        public Exp visitOp(final OpExp exp, final Void context) {
+            final Exp left = exp.left.accept(this, null);
+            final boolean leftInvariant = invariant;
+            final boolean leftLiteral = literal;
+            final Exp right = exp.right.accept(this, null);
+            if (leftInvariant && invariant) {
+                literal = leftLiteral && literal;
+                return exp;
+            }
+            final boolean rightInvariant = invariant;
+            final boolean rightLiteral = literal;
+            invariant = false;
+            literal = false;
+            return new OpExp(settle(left, leftInvariant, leftLiteral),
+                             exp.op,
+                             settle(right, rightInvariant, rightLiteral));
+        }
+
+        public Exp visitMethodCall(final MethodCallExp exp, final Void context) {
+            final Exp target = exp(exp.target);
+            final List<Exp> params = exps(exp.params);
+            invariant = false;
+            literal = false;
+            return new MethodCallExp(target, exp.methodName, params);
+        }
+
+        public Exp visitNew(final NewExp exp, final Void context) {
+            final List<Exp> params = exps(exp.params);
+            invariant = false;
+            literal = false;
+            return new NewExp(exp.className, params);
+        }
+
+        public Stmt visitExp(final ExpStmt stmt, final Void context) {
+            return new ExpStmt(exp(stmt.exp));
+        }
+
+        public Stmt visitVariableInitialization(final VariableInitializationStmt stmt, final Void context) {
+            final Exp exp = exp(stmt.exp);
+            loopLocals.add(stmt.vardec.variable);
+            return new VariableInitializationStmt(stmt.vardec, exp);
+        }
+
+        public Stmt visitIf(final IfStmt stmt, final Void context) {
+            return new IfStmt(exp(stmt.guard), stmt(stmt.ifTrue), stmt(stmt.ifFalse));
+        }
+
+        public Stmt visitWhile(final WhileStmt stmt, final Void context) {
+            return new WhileStmt(exp(stmt.guard), stmt(stmt.body));
+        }
+
+        public Stmt visitReturnNonVoid(final ReturnNonVoidStmt stmt, final Void context) {
+            return new ReturnNonVoidStmt(exp(stmt.exp));
+        }
+
+        public Stmt visitReturnVoid(final ReturnVoidStmt stmt, final Void context) {
+            return stmt;
+        }
+
+        public Stmt visitPrintln(final PrintlnStmt stmt, final Void context) {
+            return new PrintlnStmt(exp(stmt.exp));
+        }
+
+        public Stmt visitBlock(final BlockStmt stmt, final Void context) {
+            final Set<Variable> outer = loopLocals;
+            loopLocals = new HashSet<Variable>(outer);
+            final List<Stmt> body = new ArrayList<Stmt>(stmt.body.size());
+            for (final Stmt inner : stmt.body) {
+                body.add(inner.accept(this, null));
+            }
+            loopLocals = outer;
+            return new BlockStmt(body);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package oop_example.optimizer;
+
+import oop_example.parser.*;
+
+import java.util.List;
+
+// Counts the expression and statement nodes in a program, which is what
+// every later stage walks.
+public class NodeCounter implements ExpVisitor<Void, Integer, RuntimeException>,
+                                    StmtVisitor<Void, Integer, RuntimeException> {
+    private static final NodeCounter INSTANCE = new NodeCounter();
+
+    private NodeCounter() {}
+
+    public static int count(final Program program) {
+        int count = count(program.entryPoint);
+        for (final ClassDef classDef : program.classes) {
+            count += INSTANCE.exps(classDef.superParams) + INSTANCE.stmts(classDef.constructorBody);
+            for (final MethodDef method : classDef.methods) {
+                count += count(method.body);
+            }
+        }
+        return count;
+    }
+
+    public static int count(final Stmt stmt) {
+        return stmt.accept(INSTANCE, null);
+    }
+
+    public static int count(final Exp exp) {
+        return exp.accept(INSTANCE, null);
+    }
+
+    private int exps(final List<Exp> exps) {
+        int count = 0;
+        for (final Exp exp : exps) {
+            count += exp.accept(this, null);
+        }
+        return count;
+    }
+
+    private int stmts(final List<Stmt> stmts) {
+        int count = 0;
+        for (final Stmt stmt : stmts) {
+            count += stmt.accept(this, null);
+        }
+        return count;
+    }
+
+    public Integer visitIntLiteral(final IntLiteralExp exp, final Void context) {
+        return 1;
+    }
+
+    public Integer visitVariable(final VariableExp exp, final Void context) {
+        return 1;
+    }
+
+    public Integer visitBoolLiteral(final BoolLiteralExp exp, final Void context) {
+        return 1;
+    }
+
+    public Integer visitThis(final ThisExp exp, final Void context) {
+        return 1;
+    }
+
+    public Integer visitOp(final OpExp exp, final Void context) {
+        return 1 + exp.left.accept(this, null) + exp.right.accept(this, null);
+    }
+
+    public Integer visitMethodCall(final MethodCallExp exp, final Void context) {
+        return 1 + exp.target.accept(this, null) + exps(exp.params);
+    }
+
+    public Integer visitNew(final NewExp exp, final Void context) {
+        return 1 + exps(exp.params);
+    }
+
+    public Integer visitExp(final ExpStmt stmt, final Void context) {
+        return 1 + stmt.exp.accept(this, null);
+    }
+
+    public Integer visitVariableInitialization(final VariableInitializationStmt stmt, final Void context) {
+        return 1 + stmt.exp.accept(this, null);
+    }
+
+    public Integer visitIf(final IfStmt stmt, final Void context) {
+        return 1 + stmt.guard.accept(this, null) + stmt.ifTrue.accept(this, null) + stmt.ifFalse.accept(this, null);
+    }
+
+    public Integer visitWhile(final WhileStmt stmt, final Void context) {
+        return 1 + stmt.guard.accept(this, null) + stmt.body.accept(this, null);
+    }
+
+    public Integer visitReturnNonVoid(final ReturnNonVoidStmt stmt, final Void context) {
+        return 1 + stmt.exp.accept(this, null);
+    }
+
+    public Integer visitReturnVoid(final ReturnVoidStmt stmt, final Void context) {
+        return 1;
+    }
+
+    public Integer visitPrintln(final PrintlnStmt stmt, final Void context) {
+        return 1 + stmt.exp.accept(this, null);
+    }
+
+    public Integer visitBlock(final BlockStmt stmt, final Void context) {
+        return 1 + stmts(stmt.body);
+    }
+}
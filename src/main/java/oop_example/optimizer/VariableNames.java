@@ -0,0 +1,124 @@
+package oop_example.optimizer;
+
+import oop_example.parser.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Every variable name a program uses, so passes that introduce variables
+// can pick names that don't clash with any of them.
+final class VariableNames implements ExpVisitor<Void, Void, RuntimeException>,
+                                     StmtVisitor<Void, Void, RuntimeException> {
+    private final Set<String> names = new HashSet<String>();
+    private int next;
+
+    VariableNames(final Program program) {
+        for (final ClassDef classDef : program.classes) {
+            vardecs(classDef.instanceVariables);
+            vardecs(classDef.constructorArguments);
+            exps(classDef.superParams);
+            for (final Stmt stmt : classDef.constructorBody) {
+                stmt.accept(this, null);
+            }
+            for (final MethodDef method : classDef.methods) {
+                vardecs(method.arguments);
+                method.body.accept(this, null);
+            }
+        }
+        program.entryPoint.accept(this, null);
+    }
+
+    // a name starting with _ and prefix, used nowhere else
+    Variable fresh(final String prefix) {
+        String name;
+        do {
+            name = "_" + prefix + next++;
+        } while (!names.add(name));
+        return new Variable(name);
+    }
+
+    private void vardecs(final List<Vardec> vardecs) {
+        for (final Vardec vardec : vardecs) {
+            names.add(vardec.variable.name);
+        }
+    }
+
+    private void exps(final List<Exp> exps) {
+        for (final Exp exp : exps) {
+            exp.accept(this, null);
+        }
+    }
+
+    public Void visitIntLiteral(final IntLiteralExp exp, final Void context) {
+        return null;
+    }
+
+    public Void visitVariable(final VariableExp exp, final Void context) {
+        names.add(exp.variable.name);
+        return null;
+    }
+
+    public Void visitBoolLiteral(final BoolLiteralExp exp, final Void context) {
+        return null;
+    }
+
+    public Void visitThis(final ThisExp exp, final Void context) {
+        return null;
+    }
+
+    public Void visitOp(final OpExp exp, final Void context) {
+        exp.left.accept(this, null);
+        return exp.right.accept(this, null);
+    }
+
+    public Void visitMethodCall(final MethodCallExp exp, final Void context) {
+        exp.target.accept(this, null);
+        exps(exp.params);
+        return null;
+    }
+
+    public Void visitNew(final NewExp exp, final Void context) {
+        exps(exp.params);
+        return null;
+    }
+
+    public Void visitExp(final ExpStmt stmt, final Void context) {
+        return stmt.exp.accept(this, null);
+    }
+
+    public Void visitVariableInitialization(final VariableInitializationStmt stmt, final Void context) {
+        names.add(stmt.vardec.variable.name);
+        return stmt.exp.accept(this, null);
+    }
+
+    public Void visitIf(final IfStmt stmt, final Void context) {
+        stmt.guard.accept(this, null);
+        stmt.ifTrue.accept(this, null);
+        return stmt.ifFalse.accept(this, null);
+    }
+
+    public Void visitWhile(final WhileStmt stmt, final Void context) {
+        stmt.guard.accept(this, null);
+        return stmt.body.accept(this, null);
+    }
+
+    public Void visitReturnNonVoid(final ReturnNonVoidStmt stmt, final Void context) {
+        return stmt.exp.accept(this, null);
+    }
+
+    public Void visitReturnVoid(final ReturnVoidStmt stmt, final Void context) {
+        return null;
+    }
+
+    public Void visitPrintln(final PrintlnStmt stmt, final Void context) {
+        return stmt.exp.accept(this, null);
+    }
+
+    public Void visitBlock(final BlockStmt stmt, final Void context) {
+        for (final Stmt inner : stmt.body) {
+            inner.accept(this, null);
+        }
+        return null;
+    }
+}
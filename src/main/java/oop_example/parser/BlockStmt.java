@@ -4,16 +4,30 @@ import java.util.List;
 
 public class BlockStmt implements Stmt {
     public final List<Stmt> body;
+    private final int hash;
 
     public BlockStmt(final List<Stmt> body) {
         this.body = body;
+        this.hash = NodeHash.of(NodeHash.BLOCK_STMT, NodeHash.of(body));
     }
 
-    public int hashCode() { return body.hashCode(); }
+    public <C, R, E extends Exception> R accept(final StmtVisitor<C, R, E> visitor,
+                                                final C context) throws E {
+        return visitor.visitBlock(this, context);
+    }
+
+    public int hashCode() { return hash; }
 
     public boolean equals(final Object other) {
-        return (other instanceof BlockStmt &&
-                body.equals(((BlockStmt)other).body));
+        if (other == this) {
+            return true;
+        } else if (other instanceof BlockStmt) {
+            final BlockStmt otherBlock = (BlockStmt)other;
+            return (otherBlock.hash == hash &&
+                    body.equals(otherBlock.body));
+        } else {
+            return false;
+        }
     }
 
     public String toString() {
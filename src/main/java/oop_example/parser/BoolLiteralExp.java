@@ -2,18 +2,29 @@ package oop_example.parser;
 
 public class BoolLiteralExp implements Exp {
     public final boolean value;
+    private final int hash;
 
     public BoolLiteralExp(final boolean value) {
         this.value = value;
+        this.hash = NodeHash.of(NodeHash.BOOL_LITERAL_EXP, value ? 1 : 0);
     }
 
-    public int hashCode() {
-        return (value) ? 1 : 0;
+    public <C, R, E extends Exception> R accept(final ExpVisitor<C, R, E> visitor,
+                                                final C context) throws E {
+        return visitor.visitBoolLiteral(this, context);
     }
 
+    public int hashCode() { return hash; }
+
     public boolean equals(final Object other) {
-        return (other instanceof BoolLiteralExp &&
-                value == ((BoolLiteralExp)other).value);
+        if (other == this) {
+            return true;
+        } else if (other instanceof BoolLiteralExp) {
+            final BoolLiteralExp otherExp = (BoolLiteralExp)other;
+            return value == otherExp.value;
+        } else {
+            return false;
+        }
     }
 
     public String toString() {
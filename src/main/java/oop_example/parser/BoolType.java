@@ -1,9 +1,18 @@
 package oop_example.parser;
 
-public class BoolType implements Type {
-    public int hashCode() { return 1; }
+// There is exactly one BoolType; use BoolType.instance()
+public final class BoolType implements Type {
+    private static final BoolType INSTANCE = new BoolType();
+
+    private static final int HASH = NodeHash.of(NodeHash.BOOL_TYPE);
+
+    private BoolType() {}
+
+    public static BoolType instance() { return INSTANCE; }
+
+    public int hashCode() { return HASH; }
     public boolean equals(final Object other) {
-        return other instanceof BoolType;
+        return other == this;
     }
     public String toString() { return "BoolType"; }
 }
@@ -0,0 +1,45 @@
+package oop_example.parser;
+
+import java.nio.ByteBuffer;
+
+// A ByteBuffer (usually a memory-mapped file) read as ASCII text, without
+// decoding it into a String first.  Bytes outside ASCII come through as
+// Latin-1 characters, which the lexer rejects anyway.
+public class ByteSource implements CharSequence {
+    private final ByteBuffer buffer;
+    private final int start;
+    private final int end;
+
+    public ByteSource(final ByteBuffer buffer) {
+        this(buffer, buffer.position(), buffer.limit());
+    }
+
+    private ByteSource(final ByteBuffer buffer, final int start, final int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+    }
+
+    public int length() {
+        return end - start;
+    }
+
+    public char charAt(final int index) {
+        return (char)(buffer.get(start + index) & 0xFF);
+    }
+
+    public CharSequence subSequence(final int from, final int to) {
+        if (from < 0 || to > length() || from > to) {
+            throw new IndexOutOfBoundsException("subSequence(" + from + ", " + to + ") of length " + length());
+        }
+        return new ByteSource(buffer, start + from, start + to);
+    }
+
+    public String toString() {
+        final char[] chars = new char[length()];
+        for (int index = 0; index < chars.length; index++) {
+            chars[index] = charAt(index);
+        }
+        return new String(chars);
+    }
+}
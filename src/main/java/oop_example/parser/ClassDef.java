@@ -10,6 +10,7 @@ public class ClassDef {
     public final List<Exp> superParams;
     public final List<Stmt> constructorBody;
     public final List<MethodDef> methods;
+    private int hash; // 0 until hashCode() works it out
 
     public ClassDef(final ClassName className,
                     final ClassName extendsClassName,
@@ -27,20 +28,32 @@ public class ClassDef {
         this.methods = methods;
     }
 
+    // Worked out on first use rather than when the node's made, so making
+    // one doesn't force a lazily loaded list of children.  Races just
+    // work it out twice.
     public int hashCode() {
-        return (className.hashCode() +
-                extendsClassName.hashCode() +
-                instanceVariables.hashCode() +
-                constructorArguments.hashCode() +
-                superParams.hashCode() +
-                constructorBody.hashCode() +
-                methods.hashCode());
+        int result = hash;
+        if (result == 0) {
+            result = NodeHash.of(NodeHash.CLASS_DEF,
+                                 className.hashCode(),
+                                 extendsClassName.hashCode(),
+                                 NodeHash.of(instanceVariables),
+                                 NodeHash.of(constructorArguments),
+                                 NodeHash.of(superParams),
+                                 NodeHash.of(constructorBody),
+                                 NodeHash.of(methods));
+            hash = result;
+        }
+        return result;
     }
 
     public boolean equals(final Object other) {
-        if (other instanceof ClassDef) {
+        if (other == this) {
+            return true;
+        } else if (other instanceof ClassDef) {
             final ClassDef otherClass = (ClassDef)other;
-            return (className.equals(otherClass.className) &&
+            return (otherClass.hashCode() == hashCode() &&
+                    className.equals(otherClass.className) &&
                     extendsClassName.equals(otherClass.extendsClassName) &&
                     instanceVariables.equals(otherClass.instanceVariables) &&
                     constructorArguments.equals(otherClass.constructorArguments) &&
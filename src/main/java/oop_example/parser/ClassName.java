@@ -2,18 +2,25 @@ package oop_example.parser;
 
 public class ClassName {
     public final String name;
+    private final int hash;
 
     public ClassName(final String name) {
         this.name = name;
+        this.hash = NodeHash.of(NodeHash.CLASS_NAME, name.hashCode());
     }
 
-    public int hashCode() {
-        return name.hashCode();
-    }
+    public int hashCode() { return hash; }
 
     public boolean equals(final Object other) {
-        return (other instanceof ClassName &&
-                name.equals(((ClassName)other).name));
+        if (other == this) {
+            return true;
+        } else if (other instanceof ClassName) {
+            final ClassName otherName = (ClassName)other;
+            return (otherName.hash == hash &&
+                    name.equals(otherName.name));
+        } else {
+            return false;
+        }
     }
     
     public String toString() {
@@ -1,17 +1,81 @@
 package oop_example.parser;
 
-public class ClassNameType implements Type {
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interned: there is at most one ClassNameType per ClassName, so two class
+// types are equal exactly when they are the same object.  Use
+// ClassNameType.instance(className).
+//
+// The interned types are only weakly held, so a long-lived process that
+// sees many class names (e.g., the compile daemon) doesn't keep them all.
+// One is only dropped once nothing refers to it any more, so there's no
+// one left to compare it with a new instance for the same name.
+public final class ClassNameType implements Type {
+    private static final ConcurrentHashMap<ClassName, Interned> INTERNED =
+        new ConcurrentHashMap<ClassName, Interned>();
+    private static final ReferenceQueue<ClassNameType> COLLECTED = new ReferenceQueue<ClassNameType>();
+
+    // remembers its name, to remove its entry once it's been collected
+    private static final class Interned extends WeakReference<ClassNameType> {
+        final ClassName className;
+
+        Interned(final ClassNameType type) {
+            super(type, COLLECTED);
+            this.className = type.className;
+        }
+    }
+
     public final ClassName className;
+    private final int hash;
 
-    public ClassNameType(final ClassName className) {
+    private ClassNameType(final ClassName className) {
         this.className = className;
+        this.hash = NodeHash.of(NodeHash.CLASS_NAME_TYPE, className.hashCode());
+    }
+
+    public static ClassNameType instance(final ClassName className) {
+        final Interned existing = INTERNED.get(className);
+        final ClassNameType type = (existing == null) ? null : existing.get();
+        if (type != null) {
+            return type;
+        }
+        removeCollected();
+        final ClassNameType created = new ClassNameType(className);
+        final Interned interned = new Interned(created);
+        while (true) {
+            final Interned raced = INTERNED.putIfAbsent(className, interned);
+            if (raced == null) {
+                return created;
+            }
+            final ClassNameType racedType = raced.get();
+            if (racedType != null) {
+                return racedType;
+            } else if (INTERNED.replace(className, raced, interned)) {
+                // raced had been collected
+                return created;
+            }
+        }
+    }
+
+    private static void removeCollected() {
+        Reference<? extends ClassNameType> collected;
+        while ((collected = COLLECTED.poll()) != null) {
+            INTERNED.remove(((Interned)collected).className, collected);
+        }
+    }
+
+    // how many are interned, including any collected but not yet removed
+    static int internedCount() {
+        return INTERNED.size();
     }
 
-    public int hashCode() { return className.hashCode(); }
+    public int hashCode() { return hash; }
 
     public boolean equals(final Object other) {
-        return (other instanceof ClassNameType &&
-                className.equals(((ClassNameType)other).className));
+        return other == this;
     }
 
     public String toString() {
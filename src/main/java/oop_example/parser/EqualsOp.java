@@ -1,9 +1,18 @@
 package oop_example.parser;
 
-public class EqualsOp implements Op {
-    public int hashCode() { return 0; }
+// There is exactly one EqualsOp; use EqualsOp.instance()
+public final class EqualsOp implements Op {
+    private static final EqualsOp INSTANCE = new EqualsOp();
+
+    private static final int HASH = NodeHash.of(NodeHash.EQUALS_OP);
+
+    private EqualsOp() {}
+
+    public static EqualsOp instance() { return INSTANCE; }
+
+    public int hashCode() { return HASH; }
     public boolean equals(final Object other) {
-        return other instanceof EqualsOp;
+        return other == this;
     }
     public String toString() {
         return "EqualsOp";
@@ -1,3 +1,5 @@
 package oop_example.parser;
 
-public interface Exp {}
+public interface Exp {
+    public <C, R, E extends Exception> R accept(ExpVisitor<C, R, E> visitor, C context) throws E;
+}
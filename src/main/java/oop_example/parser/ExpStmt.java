@@ -2,16 +2,30 @@ package oop_example.parser;
 
 public class ExpStmt implements Stmt {
     public final Exp exp;
+    private final int hash;
 
     public ExpStmt(final Exp exp) {
         this.exp = exp;
+        this.hash = NodeHash.of(NodeHash.EXP_STMT, exp.hashCode());
     }
 
-    public int hashCode() { return exp.hashCode(); }
+    public <C, R, E extends Exception> R accept(final StmtVisitor<C, R, E> visitor,
+                                                final C context) throws E {
+        return visitor.visitExp(this, context);
+    }
+
+    public int hashCode() { return hash; }
 
     public boolean equals(final Object other) {
-        return (other instanceof ExpStmt &&
-                exp.equals(((ExpStmt)other).exp));
+        if (other == this) {
+            return true;
+        } else if (other instanceof ExpStmt) {
+            final ExpStmt otherStmt = (ExpStmt)other;
+            return (otherStmt.hash == hash &&
+                    exp.equals(otherStmt.exp));
+        } else {
+            return false;
+        }
     }
 
     public String toString() {
@@ -0,0 +1,23 @@
+package oop_example.parser;
+
+// One method per kind of expression; exp.accept(visitor, context) calls
+// the right one.  This replaces chains of instanceof checks:
+//
+// if (exp instanceof IntLiteralExp) { ... }
+// else if (exp instanceof VariableExp) { ... }
+// ...
+//
+// with a single virtual call, no matter which kind of expression it is.
+//
+// C: extra information passed down alongside the expression
+// R: result of visiting an expression
+// E: exception visiting may throw
+public interface ExpVisitor<C, R, E extends Exception> {
+    public R visitIntLiteral(IntLiteralExp exp, C context) throws E;
+    public R visitVariable(VariableExp exp, C context) throws E;
+    public R visitBoolLiteral(BoolLiteralExp exp, C context) throws E;
+    public R visitThis(ThisExp exp, C context) throws E;
+    public R visitOp(OpExp exp, C context) throws E;
+    public R visitMethodCall(MethodCallExp exp, C context) throws E;
+    public R visitNew(NewExp exp, C context) throws E;
+}
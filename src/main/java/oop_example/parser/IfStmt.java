@@ -4,6 +4,7 @@ public class IfStmt implements Stmt {
     public final Exp guard;
     public final Stmt ifTrue;
     public final Stmt ifFalse;
+    private final int hash;
 
     public IfStmt(final Exp guard,
                   final Stmt ifTrue,
@@ -11,18 +12,23 @@ public class IfStmt implements Stmt {
         this.guard = guard;
         this.ifTrue = ifTrue;
         this.ifFalse = ifFalse;
+        this.hash = NodeHash.of(NodeHash.IF_STMT, guard.hashCode(), ifTrue.hashCode(), ifFalse.hashCode());
     }
 
-    public int hashCode() {
-        return (guard.hashCode() +
-                ifTrue.hashCode() +
-                ifFalse.hashCode());
+    public <C, R, E extends Exception> R accept(final StmtVisitor<C, R, E> visitor,
+                                                final C context) throws E {
+        return visitor.visitIf(this, context);
     }
 
+    public int hashCode() { return hash; }
+
     public boolean equals(final Object other) {
-        if (other instanceof IfStmt) {
+        if (other == this) {
+            return true;
+        } else if (other instanceof IfStmt) {
             final IfStmt asIf = (IfStmt)other;
-            return (guard.equals(asIf.guard) &&
+            return (asIf.hash == hash &&
+                    guard.equals(asIf.guard) &&
                     ifTrue.equals(asIf.ifTrue) &&
                     ifFalse.equals(asIf.ifFalse));
         } else {
@@ -2,16 +2,29 @@ package oop_example.parser;
 
 public class IntLiteralExp implements Exp {
     public final int value;
+    private final int hash;
 
     public IntLiteralExp(final int value) {
         this.value = value;
+        this.hash = NodeHash.of(NodeHash.INT_LITERAL_EXP, value);
     }
 
-    public int hashCode() { return value; }
+    public <C, R, E extends Exception> R accept(final ExpVisitor<C, R, E> visitor,
+                                                final C context) throws E {
+        return visitor.visitIntLiteral(this, context);
+    }
+
+    public int hashCode() { return hash; }
 
     public boolean equals(final Object other) {
-        return (other instanceof IntLiteralExp &&
-                value == ((IntLiteralExp)other).value);
+        if (other == this) {
+            return true;
+        } else if (other instanceof IntLiteralExp) {
+            final IntLiteralExp otherExp = (IntLiteralExp)other;
+            return value == otherExp.value;
+        } else {
+            return false;
+        }
     }
 
     public String toString() {
@@ -1,12 +1,18 @@
 package oop_example.parser;
 
-public class IntType implements Type {
-    public int hashCode() { return 0; }
+// There is exactly one IntType; use IntType.instance()
+public final class IntType implements Type {
+    private static final IntType INSTANCE = new IntType();
+
+    private static final int HASH = NodeHash.of(NodeHash.INT_TYPE);
+
+    private IntType() {}
+
+    public static IntType instance() { return INSTANCE; }
+
+    public int hashCode() { return HASH; }
     public boolean equals(final Object other) {
-        return other instanceof IntType;
+        return other == this;
     }
     public String toString() { return "IntType"; }
 }
-
-        
-        
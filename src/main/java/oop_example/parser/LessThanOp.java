@@ -1,9 +1,18 @@
 package oop_example.parser;
 
-public class LessThanOp implements Op {
-    public int hashCode() { return 0; }
+// There is exactly one LessThanOp; use LessThanOp.instance()
+public final class LessThanOp implements Op {
+    private static final LessThanOp INSTANCE = new LessThanOp();
+
+    private static final int HASH = NodeHash.of(NodeHash.LESS_THAN_OP);
+
+    private LessThanOp() {}
+
+    public static LessThanOp instance() { return INSTANCE; }
+
+    public int hashCode() { return HASH; }
     public boolean equals(final Object other) {
-        return other instanceof LessThanOp;
+        return other == this;
     }
     public String toString() {
         return "LessThanOp";
@@ -0,0 +1,330 @@
+package oop_example.parser;
+
+// Splits source text into tokens, one at a time, without allocating per
+// token.  The current token is described by the public fields (kind, start,
+// end, and symbol or intValue); advance() moves to the next one.
+//
+// Identifiers and keywords go through a symbol table keyed on their
+// characters, so each distinct name becomes one String no matter how often
+// it appears, and the Variable / ClassName / MethodName for it are shared
+// too.  Keywords are just symbols with a keyword kind, which makes telling
+// them apart from identifiers a side effect of the lookup.
+//
+// Whitespace, // line comments and /* block comments */ are skipped.
+public class Lexer {
+    public enum Kind {
+        IDENTIFIER("identifier"),
+        INTEGER("integer"),
+        CLASS("class"),
+        EXTENDS("extends"),
+        CONSTRUCTOR("constructor"),
+        SUPER("super"),
+        INT("int"),
+        BOOL("bool"),
+        VOID("void"),
+        TRUE("true"),
+        FALSE("false"),
+        THIS("this"),
+        NEW("new"),
+        IF("if"),
+        ELSE("else"),
+        WHILE("while"),
+        RETURN("return"),
+        PRINTLN("println"),
+        LEFT_PAREN("("),
+        RIGHT_PAREN(")"),
+        LEFT_BRACE("{"),
+        RIGHT_BRACE("}"),
+        SEMICOLON(";"),
+        COMMA(","),
+        DOT("."),
+        ASSIGN("="),
+        EQUALS("=="),
+        LESS_THAN("<"),
+        PLUS("+"),
+        END("end of input");
+
+        public final String text;
+
+        Kind(final String text) {
+            this.text = text;
+        }
+    }
+
+    private static final Kind[] KEYWORDS = {
+        Kind.CLASS, Kind.EXTENDS, Kind.CONSTRUCTOR, Kind.SUPER,
+        Kind.INT, Kind.BOOL, Kind.VOID, Kind.TRUE, Kind.FALSE,
+        Kind.THIS, Kind.NEW, Kind.IF, Kind.ELSE, Kind.WHILE,
+        Kind.RETURN, Kind.PRINTLN
+    };
+
+    // A distinct identifier or keyword.  The AST names are created on first
+    // use and shared after that.
+    public static class Symbol {
+        public final String name;
+        public final Kind kind;
+        private final int hash;
+        private Variable variable;
+        private ClassName className;
+        private MethodName methodName;
+
+        private Symbol(final String name, final Kind kind, final int hash) {
+            this.name = name;
+            this.kind = kind;
+            this.hash = hash;
+        }
+
+        public Variable variable() {
+            if (variable == null) {
+                variable = new Variable(name);
+            }
+            return variable;
+        }
+
+        public ClassName className() {
+            if (className == null) {
+                className = new ClassName(name);
+            }
+            return className;
+        }
+
+        public MethodName methodName() {
+            if (methodName == null) {
+                methodName = new MethodName(name);
+            }
+            return methodName;
+        }
+
+        private boolean matches(final CharSequence source, final int start, final int end) {
+            if (name.length() != end - start) {
+                return false;
+            }
+            for (int index = 0; index < name.length(); index++) {
+                if (name.charAt(index) != source.charAt(start + index)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public String toString() {
+            return "Symbol(" + name + ")";
+        }
+    }
+
+    private final CharSequence source;
+    private final int length;
+    private int position;
+    // open addressing, linear probing; always at most half full
+    private Symbol[] symbols;
+    private int symbolCount;
+
+    // the current token
+    public Kind kind;
+    public int start;
+    public int end;
+    public Symbol symbol; // identifiers and keywords
+    public int intValue; // integers
+
+    public Lexer(final CharSequence source) throws ParseException {
+        this.source = source;
+        this.length = source.length();
+        this.position = 0;
+        this.symbols = new Symbol[256];
+        for (final Kind keyword : KEYWORDS) {
+            insert(new Symbol(keyword.text, keyword, hashOf(keyword.text)));
+        }
+        advance();
+    }
+
+    private static int hashOf(final String name) {
+        int hash = 0;
+        for (int index = 0; index < name.length(); index++) {
+            hash = hash * 31 + name.charAt(index);
+        }
+        return hash;
+    }
+
+    // spreads the low bits, since we mask them off for the index
+    private static int slotFor(final int hash, final int mask) {
+        final int mixed = hash * 0x9E3779B9;
+        return (mixed ^ (mixed >>> 16)) & mask;
+    }
+
+    private void insert(final Symbol symbol) {
+        if ((symbolCount + 1) * 2 > symbols.length) {
+            final Symbol[] old = symbols;
+            symbols = new Symbol[old.length * 2];
+            symbolCount = 0;
+            for (final Symbol existing : old) {
+                if (existing != null) {
+                    insert(existing);
+                }
+            }
+        }
+        final int mask = symbols.length - 1;
+        int slot = slotFor(symbol.hash, mask);
+        while (symbols[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        symbols[slot] = symbol;
+        symbolCount++;
+    }
+
+    private Symbol lookup(final int start, final int end, final int hash) {
+        final int mask = symbols.length - 1;
+        int slot = slotFor(hash, mask);
+        Symbol candidate;
+        while ((candidate = symbols[slot]) != null) {
+            if (candidate.hash == hash && candidate.matches(source, start, end)) {
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+        final Symbol created = new Symbol(new StringBuilder(end - start).append(source, start, end).toString(),
+                                          Kind.IDENTIFIER,
+                                          hash);
+        insert(created);
+        return created;
+    }
+
+    private static boolean isIdentifierStart(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(final char c) {
+        return isIdentifierStart(c) || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // "line:column" of an offset, both starting at 1.  Only used for error
+    // messages, so we don't track lines while lexing.
+    public String locationOf(final int offset) {
+        int line = 1;
+        int lineStart = 0;
+        for (int index = 0; index < offset && index < length; index++) {
+            if (source.charAt(index) == '\n') {
+                line++;
+                lineStart = index + 1;
+            }
+        }
+        return line + ":" + (offset - lineStart + 1);
+    }
+
+    public ParseException error(final String message, final int offset) {
+        return new ParseException(message + " at " + locationOf(offset));
+    }
+
+    private void skipWhitespaceAndComments() throws ParseException {
+        while (position < length) {
+            final char c = source.charAt(position);
+            if (c == ' ' || c == '\n' || c == '\t' || c == '\r') {
+                position++;
+            } else if (c == '/' && position + 1 < length && source.charAt(position + 1) == '/') {
+                position += 2;
+                while (position < length && source.charAt(position) != '\n') {
+                    position++;
+                }
+            } else if (c == '/' && position + 1 < length && source.charAt(position + 1) == '*') {
+                final int commentStart = position;
+                position += 2;
+                while (true) {
+                    if (position + 1 >= length) {
+                        throw error("Unterminated comment", commentStart);
+                    } else if (source.charAt(position) == '*' && source.charAt(position + 1) == '/') {
+                        position += 2;
+                        break;
+                    } else {
+                        position++;
+                    }
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    public void advance() throws ParseException {
+        skipWhitespaceAndComments();
+        start = position;
+        symbol = null;
+        if (position >= length) {
+            kind = Kind.END;
+            end = position;
+            return;
+        }
+
+        final char c = source.charAt(position);
+        if (isIdentifierStart(c)) {
+            int hash = c;
+            position++;
+            char next;
+            while (position < length && isIdentifierPart(next = source.charAt(position))) {
+                hash = hash * 31 + next;
+                position++;
+            }
+            symbol = lookup(start, position, hash);
+            kind = symbol.kind;
+        } else if (isDigit(c) || (c == '-' && position + 1 < length && isDigit(source.charAt(position + 1)))) {
+            // There's no subtraction, so a leading - can only be part of a
+            // literal.  Accumulate negatively so Integer.MIN_VALUE fits.
+            final boolean negative = c == '-';
+            if (negative) {
+                position++;
+            }
+            long value = 0;
+            while (position < length && isDigit(source.charAt(position))) {
+                value = value * 10 - (source.charAt(position) - '0');
+                position++;
+                if (value < Integer.MIN_VALUE) {
+                    throw error("Integer literal out of range", start);
+                }
+            }
+            if (!negative && value == Integer.MIN_VALUE) {
+                throw error("Integer literal out of range", start);
+            }
+            kind = Kind.INTEGER;
+            intValue = (int)(negative ? value : -value);
+        } else {
+            position++;
+            switch (c) {
+            case '(': kind = Kind.LEFT_PAREN; break;
+            case ')': kind = Kind.RIGHT_PAREN; break;
+            case '{': kind = Kind.LEFT_BRACE; break;
+            case '}': kind = Kind.RIGHT_BRACE; break;
+            case ';': kind = Kind.SEMICOLON; break;
+            case ',': kind = Kind.COMMA; break;
+            case '.': kind = Kind.DOT; break;
+            case '<': kind = Kind.LESS_THAN; break;
+            case '+': kind = Kind.PLUS; break;
+            case '=':
+                if (position < length && source.charAt(position) == '=') {
+                    position++;
+                    kind = Kind.EQUALS;
+                } else {
+                    kind = Kind.ASSIGN;
+                }
+                break;
+            default:
+                throw error("Unexpected character '" + c + "'", start);
+            }
+        }
+        end = position;
+    }
+
+    // the text of the current token, for error messages
+    public String describe() {
+        if (kind == Kind.END) {
+            return kind.text;
+        } else if (kind == Kind.IDENTIFIER) {
+            return "identifier " + symbol.name;
+        } else if (kind == Kind.INTEGER) {
+            return "integer " + intValue;
+        } else {
+            return "'" + kind.text + "'";
+        }
+    }
+}
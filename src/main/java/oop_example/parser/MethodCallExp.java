@@ -6,6 +6,7 @@ public class MethodCallExp implements Exp {
     public final Exp target;
     public final MethodName methodName;
     public final List<Exp> params;
+    private final int hash;
 
     public MethodCallExp(final Exp target,
                          final MethodName methodName,
@@ -13,18 +14,23 @@ public class MethodCallExp implements Exp {
         this.target = target;
         this.methodName = methodName;
         this.params = params;
+        this.hash = NodeHash.of(NodeHash.METHOD_CALL_EXP, target.hashCode(), methodName.hashCode(), NodeHash.of(params));
     }
 
-    public int hashCode() {
-        return (target.hashCode() +
-                methodName.hashCode() +
-                params.hashCode());
+    public <C, R, E extends Exception> R accept(final ExpVisitor<C, R, E> visitor,
+                                                final C context) throws E {
+        return visitor.visitMethodCall(this, context);
     }
 
+    public int hashCode() { return hash; }
+
     public boolean equals(final Object other) {
-        if (other instanceof MethodCallExp) {
+        if (other == this) {
+            return true;
+        } else if (other instanceof MethodCallExp) {
             final MethodCallExp call = (MethodCallExp)other;
-            return (target.equals(call.target) &&
+            return (call.hash == hash &&
+                    target.equals(call.target) &&
                     methodName.equals(call.methodName) &&
                     params.equals(call.params));
         } else {
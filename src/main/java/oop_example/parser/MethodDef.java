@@ -7,6 +7,7 @@ public class MethodDef {
     public final MethodName methodName;
     public final List<Vardec> arguments;
     public final Stmt body;
+    private final int hash;
 
     public MethodDef(final Type returnType,
                      final MethodName methodName,
@@ -16,19 +17,18 @@ public class MethodDef {
         this.methodName = methodName;
         this.arguments = arguments;
         this.body = body;
+        this.hash = NodeHash.of(NodeHash.METHOD_DEF, returnType.hashCode(), methodName.hashCode(), NodeHash.of(arguments), body.hashCode());
     }
 
-    public int hashCode() {
-        return (returnType.hashCode() +
-                methodName.hashCode() +
-                arguments.hashCode() +
-                body.hashCode());
-    }
+    public int hashCode() { return hash; }
 
     public boolean equals(final Object other) {
-        if (other instanceof MethodDef) {
+        if (other == this) {
+            return true;
+        } else if (other instanceof MethodDef) {
             final MethodDef otherMethod = (MethodDef)other;
-            return (returnType.equals(otherMethod.returnType) &&
+            return (otherMethod.hash == hash &&
+                    returnType.equals(otherMethod.returnType) &&
                     methodName.equals(otherMethod.methodName) &&
                     arguments.equals(otherMethod.arguments) &&
                     body.equals(otherMethod.body));
@@ -2,18 +2,25 @@ package oop_example.parser;
 
 public class MethodName {
     public final String name;
+    private final int hash;
 
     public MethodName(final String name) {
         this.name = name;
+        this.hash = NodeHash.of(NodeHash.METHOD_NAME, name.hashCode());
     }
 
-    public int hashCode() {
-        return name.hashCode();
-    }
+    public int hashCode() { return hash; }
 
     public boolean equals(final Object other) {
-        return (other instanceof MethodName &&
-                name.equals(((MethodName)other).name));
+        if (other == this) {
+            return true;
+        } else if (other instanceof MethodName) {
+            final MethodName otherName = (MethodName)other;
+            return (otherName.hash == hash &&
+                    name.equals(otherName.name));
+        } else {
+            return false;
+        }
     }
     
     public String toString() {
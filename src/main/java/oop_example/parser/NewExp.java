@@ -5,21 +5,29 @@ import java.util.List;
 public class NewExp implements Exp {
     public final ClassName className;
     public final List<Exp> params;
+    private final int hash;
 
     public NewExp(final ClassName className,
                   final List<Exp> params) {
         this.className = className;
         this.params = params;
+        this.hash = NodeHash.of(NodeHash.NEW_EXP, className.hashCode(), NodeHash.of(params));
     }
 
-    public int hashCode() {
-        return className.hashCode() + params.hashCode();
+    public <C, R, E extends Exception> R accept(final ExpVisitor<C, R, E> visitor,
+                                                final C context) throws E {
+        return visitor.visitNew(this, context);
     }
 
+    public int hashCode() { return hash; }
+
     public boolean equals(final Object other) {
-        if (other instanceof NewExp) {
+        if (other == this) {
+            return true;
+        } else if (other instanceof NewExp) {
             final NewExp otherNew = (NewExp)other;
-            return (className.equals(otherNew.className) &&
+            return (otherNew.hash == hash &&
+                    className.equals(otherNew.className) &&
                     params.equals(otherNew.params));
         } else {
             return false;
@@ -0,0 +1,97 @@
+package oop_example.parser;
+
+import java.util.List;
+
+// Hash codes for AST nodes.  A node's hash is worked out once, when it's
+// made, from its kind and its children's hashes, so hashing a node never
+// walks the tree under it.  Parts go in one at a time through a MurmurHash3
+// round, which makes the hash depend on their order (a + b and b + a
+// differ), and the result is finished with MurmurHash3's avalanche, so
+// nodes that differ slightly still differ in every bit.
+//
+// Each kind of node starts from its own tag, so different kinds of node
+// with the same children hash differently too.
+final class NodeHash {
+    private NodeHash() {}
+
+    static final int INT_TYPE = 1;
+    static final int BOOL_TYPE = 2;
+    static final int VOID_TYPE = 3;
+    static final int CLASS_NAME_TYPE = 4;
+    static final int PLUS_OP = 5;
+    static final int LESS_THAN_OP = 6;
+    static final int EQUALS_OP = 7;
+    static final int CLASS_NAME = 8;
+    static final int METHOD_NAME = 9;
+    static final int VARIABLE = 10;
+    static final int VARDEC = 11;
+    static final int INT_LITERAL_EXP = 12;
+    static final int VARIABLE_EXP = 13;
+    static final int BOOL_LITERAL_EXP = 14;
+    static final int THIS_EXP = 15;
+    static final int OP_EXP = 16;
+    static final int METHOD_CALL_EXP = 17;
+    static final int NEW_EXP = 18;
+    static final int EXP_STMT = 19;
+    static final int VARIABLE_INITIALIZATION_STMT = 20;
+    static final int IF_STMT = 21;
+    static final int WHILE_STMT = 22;
+    static final int RETURN_NON_VOID_STMT = 23;
+    static final int RETURN_VOID_STMT = 24;
+    static final int PRINTLN_STMT = 25;
+    static final int BLOCK_STMT = 26;
+    static final int METHOD_DEF = 27;
+    static final int CLASS_DEF = 28;
+    static final int PROGRAM = 29;
+
+    private static int add(final int hash, final int part) {
+        int mixed = part * 0xcc9e2d51;
+        mixed = Integer.rotateLeft(mixed, 15);
+        mixed *= 0x1b873593;
+        return Integer.rotateLeft(hash ^ mixed, 13) * 5 + 0xe6546b64;
+    }
+
+    private static int finish(final int hash) {
+        int result = hash;
+        result ^= result >>> 16;
+        result *= 0x85ebca6b;
+        result ^= result >>> 13;
+        result *= 0xc2b2ae35;
+        result ^= result >>> 16;
+        return result;
+    }
+
+    static int of(final int kind) {
+        return finish(add(0, kind));
+    }
+
+    static int of(final int kind, final int first) {
+        return finish(add(add(0, kind), first));
+    }
+
+    static int of(final int kind, final int first, final int second) {
+        return finish(add(add(add(0, kind), first), second));
+    }
+
+    static int of(final int kind, final int first, final int second, final int third) {
+        return finish(add(add(add(add(0, kind), first), second), third));
+    }
+
+    static int of(final int kind, final int... parts) {
+        int hash = add(0, kind);
+        for (final int part : parts) {
+            hash = add(hash, part);
+        }
+        return finish(hash);
+    }
+
+    // the length, then each element's hash; not finished, since it's only
+    // ever a part of a node's hash
+    static int of(final List<?> list) {
+        int hash = add(0, list.size());
+        for (final Object element : list) {
+            hash = add(hash, element.hashCode());
+        }
+        return hash;
+    }
+}
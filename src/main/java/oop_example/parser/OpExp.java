@@ -4,6 +4,7 @@ public class OpExp implements Exp {
     public final Exp left;
     public final Op op;
     public final Exp right;
+    private final int hash;
 
     public OpExp(final Exp left,
                  final Op op,
@@ -11,18 +12,23 @@ public class OpExp implements Exp {
         this.left = left;
         this.op = op;
         this.right = right;
+        this.hash = NodeHash.of(NodeHash.OP_EXP, left.hashCode(), op.hashCode(), right.hashCode());
     }
 
-    public int hashCode() {
-        return (left.hashCode() +
-                op.hashCode() +
-                right.hashCode());
+    public <C, R, E extends Exception> R accept(final ExpVisitor<C, R, E> visitor,
+                                                final C context) throws E {
+        return visitor.visitOp(this, context);
     }
 
+    public int hashCode() { return hash; }
+
     public boolean equals(final Object other) {
-        if (other instanceof OpExp) {
+        if (other == this) {
+            return true;
+        } else if (other instanceof OpExp) {
             final OpExp otherExp = (OpExp)other;
-            return (left.equals(otherExp.left) &&
+            return (otherExp.hash == hash &&
+                    left.equals(otherExp.left) &&
                     op.equals(otherExp.op) &&
                     right.equals(otherExp.right));
         } else {
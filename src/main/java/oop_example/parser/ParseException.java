@@ -0,0 +1,9 @@
+package oop_example.parser;
+
+public class ParseException extends Exception {
+    // As with type errors, the interesting location is in the source being
+    // parsed, which the message already gives, so no stack trace.
+    public ParseException(final String message) {
+        super(message, null, false, false);
+    }
+}
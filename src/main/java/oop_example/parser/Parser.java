@@ -0,0 +1,341 @@
+package oop_example.parser;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Recursive-descent parser for the grammar in the README, in one pass over
+// the Lexer's tokens.
+//
+// The README leaves a few things open, settled here as:
+// - operator precedence, loosest first: ==, <, +; all left-associative.
+//   Method calls bind tightest: a + b.m() is a + (b.m())
+// - parentheses group expressions
+// - comma-separated lists (parameters, arguments) may be empty
+// - instance variables are comma- or semicolon-separated and end with a
+//   semicolon, and may be left out entirely:
+//   class Foo extends Object { int x, bool y; constructor() { super(); } }
+// - integer literals may have a leading -, since there's no subtraction
+//
+// Statements starting with an identifier are either a declaration
+// (Foo x = ...;) or an expression (x.m();).  We read the identifier and
+// decide on the token after it, so no backtracking is needed.
+public class Parser {
+    private final Lexer lexer;
+
+    public Parser(final CharSequence source) throws ParseException {
+        this.lexer = new Lexer(source);
+    }
+
+    public static Program parse(final CharSequence source) throws ParseException {
+        return new Parser(source).parseProgram();
+    }
+
+    // Maps the file rather than reading it, so the only copies of the text
+    // that get made are the distinct identifiers.  Source must be ASCII.
+    public static Program parseFile(final Path path) throws IOException, ParseException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return parse(new ByteSource(buffer));
+        }
+    }
+
+    private ParseException expected(final String what) {
+        return lexer.error("Expected " + what + " but found " + lexer.describe(), lexer.start);
+    }
+
+    private void expect(final Lexer.Kind kind) throws ParseException {
+        if (lexer.kind != kind) {
+            throw expected("'" + kind.text + "'");
+        }
+        lexer.advance();
+    }
+
+    private Lexer.Symbol identifier() throws ParseException {
+        if (lexer.kind != Lexer.Kind.IDENTIFIER) {
+            throw expected("identifier");
+        }
+        final Lexer.Symbol symbol = lexer.symbol;
+        lexer.advance();
+        return symbol;
+    }
+
+    public Program parseProgram() throws ParseException {
+        final List<ClassDef> classes = new ArrayList<ClassDef>();
+        while (lexer.kind == Lexer.Kind.CLASS) {
+            classes.add(parseClassDef());
+        }
+        final Stmt entryPoint = parseStmt();
+        if (lexer.kind != Lexer.Kind.END) {
+            throw expected("end of input");
+        }
+        return new Program(classes, entryPoint);
+    }
+
+    // class classname extends classname {
+    //   vardec*;
+    //   constructor(vardec*) { super(exp*); stmt* }
+    //   methoddef*
+    // }
+    public ClassDef parseClassDef() throws ParseException {
+        expect(Lexer.Kind.CLASS);
+        final ClassName className = identifier().className();
+        expect(Lexer.Kind.EXTENDS);
+        final ClassName extendsClassName = identifier().className();
+        expect(Lexer.Kind.LEFT_BRACE);
+
+        final List<Vardec> instanceVariables = new ArrayList<Vardec>();
+        while (lexer.kind != Lexer.Kind.CONSTRUCTOR) {
+            instanceVariables.add(parseVardec());
+            if (lexer.kind == Lexer.Kind.COMMA) {
+                lexer.advance();
+            } else {
+                expect(Lexer.Kind.SEMICOLON);
+            }
+        }
+
+        expect(Lexer.Kind.CONSTRUCTOR);
+        final List<Vardec> constructorArguments = parseVardecs();
+        expect(Lexer.Kind.LEFT_BRACE);
+        expect(Lexer.Kind.SUPER);
+        final List<Exp> superParams = parseExps();
+        expect(Lexer.Kind.SEMICOLON);
+        final List<Stmt> constructorBody = new ArrayList<Stmt>();
+        while (lexer.kind != Lexer.Kind.RIGHT_BRACE) {
+            constructorBody.add(parseStmt());
+        }
+        lexer.advance();
+
+        final List<MethodDef> methods = new ArrayList<MethodDef>();
+        while (lexer.kind != Lexer.Kind.RIGHT_BRACE) {
+            methods.add(parseMethodDef());
+        }
+        lexer.advance();
+
+        return new ClassDef(className,
+                            extendsClassName,
+                            instanceVariables,
+                            constructorArguments,
+                            superParams,
+                            constructorBody,
+                            methods);
+    }
+
+    // type methodname(vardec*) stmt
+    public MethodDef parseMethodDef() throws ParseException {
+        final Type returnType = parseType();
+        final MethodName methodName = identifier().methodName();
+        final List<Vardec> arguments = parseVardecs();
+        return new MethodDef(returnType, methodName, arguments, parseStmt());
+    }
+
+    public Type parseType() throws ParseException {
+        switch (lexer.kind) {
+        case INT:
+            lexer.advance();
+            return IntType.instance();
+        case BOOL:
+            lexer.advance();
+            return BoolType.instance();
+        case VOID:
+            lexer.advance();
+            return VoidType.instance();
+        case IDENTIFIER:
+            return ClassNameType.instance(identifier().className());
+        default:
+            throw expected("type");
+        }
+    }
+
+    public Vardec parseVardec() throws ParseException {
+        final Type type = parseType();
+        return new Vardec(type, identifier().variable());
+    }
+
+    // (vardec, vardec, ...)
+    private List<Vardec> parseVardecs() throws ParseException {
+        expect(Lexer.Kind.LEFT_PAREN);
+        final List<Vardec> vardecs = new ArrayList<Vardec>();
+        if (lexer.kind != Lexer.Kind.RIGHT_PAREN) {
+            vardecs.add(parseVardec());
+            while (lexer.kind == Lexer.Kind.COMMA) {
+                lexer.advance();
+                vardecs.add(parseVardec());
+            }
+        }
+        expect(Lexer.Kind.RIGHT_PAREN);
+        return vardecs;
+    }
+
+    // (exp, exp, ...)
+    private List<Exp> parseExps() throws ParseException {
+        expect(Lexer.Kind.LEFT_PAREN);
+        final List<Exp> exps = new ArrayList<Exp>();
+        if (lexer.kind != Lexer.Kind.RIGHT_PAREN) {
+            exps.add(parseExp());
+            while (lexer.kind == Lexer.Kind.COMMA) {
+                lexer.advance();
+                exps.add(parseExp());
+            }
+        }
+        expect(Lexer.Kind.RIGHT_PAREN);
+        return exps;
+    }
+
+    public Stmt parseStmt() throws ParseException {
+        switch (lexer.kind) {
+        case LEFT_BRACE: {
+            lexer.advance();
+            final List<Stmt> body = new ArrayList<Stmt>();
+            while (lexer.kind != Lexer.Kind.RIGHT_BRACE) {
+                body.add(parseStmt());
+            }
+            lexer.advance();
+            return new BlockStmt(body);
+        }
+        case IF: {
+            lexer.advance();
+            expect(Lexer.Kind.LEFT_PAREN);
+            final Exp guard = parseExp();
+            expect(Lexer.Kind.RIGHT_PAREN);
+            final Stmt ifTrue = parseStmt();
+            expect(Lexer.Kind.ELSE);
+            return new IfStmt(guard, ifTrue, parseStmt());
+        }
+        case WHILE: {
+            lexer.advance();
+            expect(Lexer.Kind.LEFT_PAREN);
+            final Exp guard = parseExp();
+            expect(Lexer.Kind.RIGHT_PAREN);
+            return new WhileStmt(guard, parseStmt());
+        }
+        case RETURN: {
+            lexer.advance();
+            if (lexer.kind == Lexer.Kind.SEMICOLON) {
+                lexer.advance();
+                return new ReturnVoidStmt();
+            }
+            final Exp exp = parseExp();
+            expect(Lexer.Kind.SEMICOLON);
+            return new ReturnNonVoidStmt(exp);
+        }
+        case PRINTLN: {
+            lexer.advance();
+            expect(Lexer.Kind.LEFT_PAREN);
+            final Exp exp = parseExp();
+            expect(Lexer.Kind.RIGHT_PAREN);
+            expect(Lexer.Kind.SEMICOLON);
+            return new PrintlnStmt(exp);
+        }
+        case INT:
+        case BOOL:
+        case VOID:
+            return finishVariableInitialization(parseType());
+        case IDENTIFIER: {
+            final Lexer.Symbol first = identifier();
+            if (lexer.kind == Lexer.Kind.IDENTIFIER) {
+                return finishVariableInitialization(ClassNameType.instance(first.className()));
+            }
+            final Exp exp = parseExp(new VariableExp(first.variable()));
+            expect(Lexer.Kind.SEMICOLON);
+            return new ExpStmt(exp);
+        }
+        default: {
+            final Exp exp = parseExp();
+            expect(Lexer.Kind.SEMICOLON);
+            return new ExpStmt(exp);
+        }
+        }
+    }
+
+    // the rest of: type x = exp;
+    private Stmt finishVariableInitialization(final Type type) throws ParseException {
+        final Variable variable = identifier().variable();
+        expect(Lexer.Kind.ASSIGN);
+        final Exp exp = parseExp();
+        expect(Lexer.Kind.SEMICOLON);
+        return new VariableInitializationStmt(new Vardec(type, variable), exp);
+    }
+
+    public Exp parseExp() throws ParseException {
+        return parseExp(null);
+    }
+
+    // Each level takes the leftmost primary if the caller already read it,
+    // or null to read it here.
+    private Exp parseExp(final Exp first) throws ParseException {
+        Exp left = parseLessThan(first);
+        while (lexer.kind == Lexer.Kind.EQUALS) {
+            lexer.advance();
+            left = new OpExp(left, EqualsOp.instance(), parseLessThan(null));
+        }
+        return left;
+    }
+
+    private Exp parseLessThan(final Exp first) throws ParseException {
+        Exp left = parsePlus(first);
+        while (lexer.kind == Lexer.Kind.LESS_THAN) {
+            lexer.advance();
+            left = new OpExp(left, LessThanOp.instance(), parsePlus(null));
+        }
+        return left;
+    }
+
+    private Exp parsePlus(final Exp first) throws ParseException {
+        Exp left = parseCalls(first);
+        while (lexer.kind == Lexer.Kind.PLUS) {
+            lexer.advance();
+            left = new OpExp(left, PlusOp.instance(), parseCalls(null));
+        }
+        return left;
+    }
+
+    // primary.methodname(exp*).methodname(exp*)...
+    private Exp parseCalls(final Exp first) throws ParseException {
+        Exp target = (first == null) ? parsePrimary() : first;
+        while (lexer.kind == Lexer.Kind.DOT) {
+            lexer.advance();
+            final MethodName methodName = identifier().methodName();
+            target = new MethodCallExp(target, methodName, parseExps());
+        }
+        return target;
+    }
+
+    private Exp parsePrimary() throws ParseException {
+        switch (lexer.kind) {
+        case INTEGER: {
+            final Exp exp = new IntLiteralExp(lexer.intValue);
+            lexer.advance();
+            return exp;
+        }
+        case IDENTIFIER:
+            return new VariableExp(identifier().variable());
+        case TRUE:
+            lexer.advance();
+            return new BoolLiteralExp(true);
+        case FALSE:
+            lexer.advance();
+            return new BoolLiteralExp(false);
+        case THIS:
+            lexer.advance();
+            return new ThisExp();
+        case NEW: {
+            lexer.advance();
+            final ClassName className = identifier().className();
+            return new NewExp(className, parseExps());
+        }
+        case LEFT_PAREN: {
+            lexer.advance();
+            final Exp exp = parseExp();
+            expect(Lexer.Kind.RIGHT_PAREN);
+            return exp;
+        }
+        default:
+            throw expected("expression");
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package oop_example.parser;
 
-public class PlusOp implements Op {
-    public int hashCode() { return 0; }
+// There is exactly one PlusOp; use PlusOp.instance()
+public final class PlusOp implements Op {
+    private static final PlusOp INSTANCE = new PlusOp();
+
+    private static final int HASH = NodeHash.of(NodeHash.PLUS_OP);
+
+    private PlusOp() {}
+
+    public static PlusOp instance() { return INSTANCE; }
+
+    public int hashCode() { return HASH; }
     public boolean equals(final Object other) {
-        return other instanceof PlusOp;
+        return other == this;
     }
     public String toString() {
         return "PlusOp";
     }
 }
-
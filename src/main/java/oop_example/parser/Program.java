@@ -5,6 +5,7 @@ import java.util.List;
 public class Program {
     public final List<ClassDef> classes;
     public final Stmt entryPoint;
+    private int hash; // 0 until hashCode() works it out
 
     public Program(final List<ClassDef> classes,
                    final Stmt entryPoint) {
@@ -12,14 +13,25 @@ public class Program {
         this.entryPoint = entryPoint;
     }
 
+    // Worked out on first use rather than when the node's made, so making
+    // one doesn't force a lazily loaded list of children.  Races just
+    // work it out twice.
     public int hashCode() {
-        return classes.hashCode() + entryPoint.hashCode();
+        int result = hash;
+        if (result == 0) {
+            result = NodeHash.of(NodeHash.PROGRAM, NodeHash.of(classes), entryPoint.hashCode());
+            hash = result;
+        }
+        return result;
     }
 
     public boolean equals(final Object other) {
-        if (other instanceof Program) {
+        if (other == this) {
+            return true;
+        } else if (other instanceof Program) {
             final Program otherProgram = (Program)other;
-            return (classes.equals(otherProgram.classes) &&
+            return (otherProgram.hashCode() == hashCode() &&
+                    classes.equals(otherProgram.classes) &&
                     entryPoint.equals(otherProgram.entryPoint));
         } else {
             return false;
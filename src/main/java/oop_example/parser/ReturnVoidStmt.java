@@ -1,7 +1,14 @@
 package oop_example.parser;
 
 public class ReturnVoidStmt implements Stmt {
-    public int hashCode() { return 0; }
+    private static final int HASH = NodeHash.of(NodeHash.RETURN_VOID_STMT);
+
+    public <C, R, E extends Exception> R accept(final StmtVisitor<C, R, E> visitor,
+                                                final C context) throws E {
+        return visitor.visitReturnVoid(this, context);
+    }
+
+    public int hashCode() { return HASH; }
     public boolean equals(final Object other) {
         return other instanceof ReturnVoidStmt;
     }
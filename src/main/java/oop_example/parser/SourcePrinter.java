@@ -0,0 +1,250 @@
+package oop_example.parser;
+
+import java.util.List;
+
+// Turns an AST back into source text that Parser reads back as the same
+// AST.  Nested operators are always parenthesized rather than relying on
+// precedence.
+public class SourcePrinter implements ExpVisitor<StringBuilder, Void, RuntimeException>,
+                                      StmtVisitor<StringBuilder, Void, RuntimeException> {
+    private int indent = 0;
+
+    public static String print(final Program program) {
+        final StringBuilder builder = new StringBuilder();
+        new SourcePrinter().program(program, builder);
+        return builder.toString();
+    }
+
+    public static String print(final Stmt stmt) {
+        final StringBuilder builder = new StringBuilder();
+        stmt.accept(new SourcePrinter(), builder);
+        return builder.toString();
+    }
+
+    public static String print(final Exp exp) {
+        final StringBuilder builder = new StringBuilder();
+        exp.accept(new SourcePrinter(), builder);
+        return builder.toString();
+    }
+
+    public static String typeText(final Type type) {
+        if (type == IntType.instance()) {
+            return "int";
+        } else if (type == BoolType.instance()) {
+            return "bool";
+        } else if (type == VoidType.instance()) {
+            return "void";
+        } else if (type instanceof ClassNameType) {
+            return ((ClassNameType)type).className.name;
+        } else {
+            throw new IllegalArgumentException("No source syntax for type: " + type);
+        }
+    }
+
+    public static String opText(final Op op) {
+        if (op == PlusOp.instance()) {
+            return "+";
+        } else if (op == LessThanOp.instance()) {
+            return "<";
+        } else if (op == EqualsOp.instance()) {
+            return "==";
+        } else {
+            throw new IllegalArgumentException("No source syntax for operator: " + op);
+        }
+    }
+
+    private void newline(final StringBuilder builder) {
+        builder.append('\n');
+        for (int index = 0; index < indent; index++) {
+            builder.append("  ");
+        }
+    }
+
+    private void program(final Program program, final StringBuilder builder) {
+        for (final ClassDef classDef : program.classes) {
+            classDef(classDef, builder);
+            builder.append('\n');
+        }
+        program.entryPoint.accept(this, builder);
+        builder.append('\n');
+    }
+
+    private void classDef(final ClassDef classDef, final StringBuilder builder) {
+        builder.append("class ").append(classDef.className.name)
+            .append(" extends ").append(classDef.extendsClassName.name).append(" {");
+        indent++;
+        for (final Vardec vardec : classDef.instanceVariables) {
+            newline(builder);
+            vardec(vardec, builder);
+            builder.append(';');
+        }
+        newline(builder);
+        builder.append("constructor");
+        vardecs(classDef.constructorArguments, builder);
+        builder.append(" {");
+        indent++;
+        newline(builder);
+        builder.append("super");
+        exps(classDef.superParams, builder);
+        builder.append(';');
+        for (final Stmt stmt : classDef.constructorBody) {
+            newline(builder);
+            stmt.accept(this, builder);
+        }
+        indent--;
+        newline(builder);
+        builder.append('}');
+        for (final MethodDef method : classDef.methods) {
+            newline(builder);
+            builder.append(typeText(method.returnType)).append(' ').append(method.methodName.name);
+            vardecs(method.arguments, builder);
+            builder.append(' ');
+            method.body.accept(this, builder);
+        }
+        indent--;
+        newline(builder);
+        builder.append("}\n");
+    }
+
+    private void vardec(final Vardec vardec, final StringBuilder builder) {
+        builder.append(typeText(vardec.type)).append(' ').append(vardec.variable.name);
+    }
+
+    private void vardecs(final List<Vardec> vardecs, final StringBuilder builder) {
+        builder.append('(');
+        for (int index = 0; index < vardecs.size(); index++) {
+            if (index > 0) {
+                builder.append(", ");
+            }
+            vardec(vardecs.get(index), builder);
+        }
+        builder.append(')');
+    }
+
+    private void exps(final List<Exp> exps, final StringBuilder builder) {
+        builder.append('(');
+        for (int index = 0; index < exps.size(); index++) {
+            if (index > 0) {
+                builder.append(", ");
+            }
+            exps.get(index).accept(this, builder);
+        }
+        builder.append(')');
+    }
+
+    // operators inside other expressions get parentheses
+    private void nested(final Exp exp, final StringBuilder builder) {
+        if (exp instanceof OpExp) {
+            builder.append('(');
+            exp.accept(this, builder);
+            builder.append(')');
+        } else {
+            exp.accept(this, builder);
+        }
+    }
+
+    public Void visitIntLiteral(final IntLiteralExp exp, final StringBuilder builder) {
+        builder.append(exp.value);
+        return null;
+    }
+
+    public Void visitVariable(final VariableExp exp, final StringBuilder builder) {
+        builder.append(exp.variable.name);
+        return null;
+    }
+
+    public Void visitBoolLiteral(final BoolLiteralExp exp, final StringBuilder builder) {
+        builder.append(exp.value);
+        return null;
+    }
+
+    public Void visitThis(final ThisExp exp, final StringBuilder builder) {
+        builder.append("this");
+        return null;
+    }
+
+    public Void visitOp(final OpExp exp, final StringBuilder builder) {
+        nested(exp.left, builder);
+        builder.append(' ').append(opText(exp.op)).append(' ');
+        nested(exp.right, builder);
+        return null;
+    }
+
+    public Void visitMethodCall(final MethodCallExp exp, final StringBuilder builder) {
+        nested(exp.target, builder);
+        builder.append('.').append(exp.methodName.name);
+        exps(exp.params, builder);
+        return null;
+    }
+
+    public Void visitNew(final NewExp exp, final StringBuilder builder) {
+        builder.append("new ").append(exp.className.name);
+        exps(exp.params, builder);
+        return null;
+    }
+
+    public Void visitExp(final ExpStmt stmt, final StringBuilder builder) {
+        stmt.exp.accept(this, builder);
+        builder.append(';');
+        return null;
+    }
+
+    public Void visitVariableInitialization(final VariableInitializationStmt stmt,
+                                            final StringBuilder builder) {
+        vardec(stmt.vardec, builder);
+        builder.append(" = ");
+        stmt.exp.accept(this, builder);
+        builder.append(';');
+        return null;
+    }
+
+    public Void visitIf(final IfStmt stmt, final StringBuilder builder) {
+        builder.append("if (");
+        stmt.guard.accept(this, builder);
+        builder.append(") ");
+        stmt.ifTrue.accept(this, builder);
+        builder.append(" else ");
+        stmt.ifFalse.accept(this, builder);
+        return null;
+    }
+
+    public Void visitWhile(final WhileStmt stmt, final StringBuilder builder) {
+        builder.append("while (");
+        stmt.guard.accept(this, builder);
+        builder.append(") ");
+        stmt.body.accept(this, builder);
+        return null;
+    }
+
+    public Void visitReturnNonVoid(final ReturnNonVoidStmt stmt, final StringBuilder builder) {
+        builder.append("return ");
+        stmt.exp.accept(this, builder);
+        builder.append(';');
+        return null;
+    }
+
+    public Void visitReturnVoid(final ReturnVoidStmt stmt, final StringBuilder builder) {
+        builder.append("return;");
+        return null;
+    }
+
+    public Void visitPrintln(final PrintlnStmt stmt, final StringBuilder builder) {
+        builder.append("println(");
+        stmt.exp.accept(this, builder);
+        builder.append(");");
+        return null;
+    }
+
+    public Void visitBlock(final BlockStmt stmt, final StringBuilder builder) {
+        builder.append('{');
+        indent++;
+        for (final Stmt inner : stmt.body) {
+            newline(builder);
+            inner.accept(this, builder);
+        }
+        indent--;
+        newline(builder);
+        builder.append('}');
+        return null;
+    }
+}
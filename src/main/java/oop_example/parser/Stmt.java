@@ -1,3 +1,5 @@
 package oop_example.parser;
 
-public interface Stmt {}
+public interface Stmt {
+    public <C, R, E extends Exception> R accept(StmtVisitor<C, R, E> visitor, C context) throws E;
+}
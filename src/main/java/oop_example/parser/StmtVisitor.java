@@ -0,0 +1,14 @@
+package oop_example.parser;
+
+// One method per kind of statement; stmt.accept(visitor, context) calls
+// the right one.  See ExpVisitor.
+public interface StmtVisitor<C, R, E extends Exception> {
+    public R visitExp(ExpStmt stmt, C context) throws E;
+    public R visitVariableInitialization(VariableInitializationStmt stmt, C context) throws E;
+    public R visitIf(IfStmt stmt, C context) throws E;
+    public R visitWhile(WhileStmt stmt, C context) throws E;
+    public R visitReturnNonVoid(ReturnNonVoidStmt stmt, C context) throws E;
+    public R visitReturnVoid(ReturnVoidStmt stmt, C context) throws E;
+    public R visitPrintln(PrintlnStmt stmt, C context) throws E;
+    public R visitBlock(BlockStmt stmt, C context) throws E;
+}
@@ -1,7 +1,14 @@
 package oop_example.parser;
 
 public class ThisExp implements Exp {
-    public int hashCode() { return 0; }
+    private static final int HASH = NodeHash.of(NodeHash.THIS_EXP);
+
+    public <C, R, E extends Exception> R accept(final ExpVisitor<C, R, E> visitor,
+                                                final C context) throws E {
+        return visitor.visitThis(this, context);
+    }
+
+    public int hashCode() { return HASH; }
     public boolean equals(final Object other) {
         return other instanceof ThisExp;
     }
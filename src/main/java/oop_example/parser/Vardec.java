@@ -3,21 +3,24 @@ package oop_example.parser;
 public class Vardec {
     public final Type type;
     public final Variable variable;
+    private final int hash;
 
     public Vardec(final Type type,
                   final Variable variable) {
         this.type = type;
         this.variable = variable;
+        this.hash = NodeHash.of(NodeHash.VARDEC, type.hashCode(), variable.hashCode());
     }
 
-    public int hashCode() {
-        return type.hashCode() + variable.hashCode();
-    }
+    public int hashCode() { return hash; }
 
     public boolean equals(final Object other) {
-        if (other instanceof Vardec) {
+        if (other == this) {
+            return true;
+        } else if (other instanceof Vardec) {
             final Vardec otherVar = (Vardec)other;
-            return (type.equals(otherVar.type) &&
+            return (otherVar.hash == hash &&
+                    type.equals(otherVar.type) &&
                     variable.equals(otherVar.variable));
         } else {
             return false;
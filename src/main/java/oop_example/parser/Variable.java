@@ -2,16 +2,25 @@ package oop_example.parser;
 
 public class Variable {
     public final String name;
+    private final int hash;
 
     public Variable(final String name) {
         this.name = name;
+        this.hash = NodeHash.of(NodeHash.VARIABLE, name.hashCode());
     }
 
-    public int hashCode() { return name.hashCode(); }
+    public int hashCode() { return hash; }
 
     public boolean equals(final Object other) {
-        return (other instanceof Variable &&
-                name.equals(((Variable)other).name));
+        if (other == this) {
+            return true;
+        } else if (other instanceof Variable) {
+            final Variable otherVariable = (Variable)other;
+            return (otherVariable.hash == hash &&
+                    name.equals(otherVariable.name));
+        } else {
+            return false;
+        }
     }
     
     public String toString() {
@@ -2,18 +2,30 @@ package oop_example.parser;
 
 public class VariableExp implements Exp {
     public final Variable variable;
+    private final int hash;
 
     public VariableExp(final Variable variable) {
         this.variable = variable;
+        this.hash = NodeHash.of(NodeHash.VARIABLE_EXP, variable.hashCode());
     }
 
-    public int hashCode() {
-        return variable.hashCode();
+    public <C, R, E extends Exception> R accept(final ExpVisitor<C, R, E> visitor,
+                                                final C context) throws E {
+        return visitor.visitVariable(this, context);
     }
 
+    public int hashCode() { return hash; }
+
     public boolean equals(final Object other) {
-        return (other instanceof VariableExp &&
-                variable.equals(((VariableExp)other).variable));
+        if (other == this) {
+            return true;
+        } else if (other instanceof VariableExp) {
+            final VariableExp otherExp = (VariableExp)other;
+            return (otherExp.hash == hash &&
+                    variable.equals(otherExp.variable));
+        } else {
+            return false;
+        }
     }
 
     public String toString() {
@@ -3,22 +3,29 @@ package oop_example.parser;
 public class VariableInitializationStmt implements Stmt {
     public final Vardec vardec;
     public final Exp exp;
+    private final int hash;
 
     public VariableInitializationStmt(final Vardec vardec,
                                       final Exp exp) {
         this.vardec = vardec;
         this.exp = exp;
+        this.hash = NodeHash.of(NodeHash.VARIABLE_INITIALIZATION_STMT, vardec.hashCode(), exp.hashCode());
     }
 
-    public int hashCode() {
-        return vardec.hashCode() + exp.hashCode();
+    public <C, R, E extends Exception> R accept(final StmtVisitor<C, R, E> visitor,
+                                                final C context) throws E {
+        return visitor.visitVariableInitialization(this, context);
     }
 
+    public int hashCode() { return hash; }
+
     public boolean equals(final Object other) {
-        if (other instanceof VariableInitializationStmt) {
-            final VariableInitializationStmt otherVar =
-                (VariableInitializationStmt)other;
-            return (vardec.equals(otherVar.vardec) &&
+        if (other == this) {
+            return true;
+        } else if (other instanceof VariableInitializationStmt) {
+            final VariableInitializationStmt otherVar = (VariableInitializationStmt)other;
+            return (otherVar.hash == hash &&
+                    vardec.equals(otherVar.vardec) &&
                     exp.equals(otherVar.exp));
         } else {
             return false;
@@ -1,9 +1,18 @@
 package oop_example.parser;
 
-public class VoidType implements Type {
-    public int hashCode() { return 2; }
+// There is exactly one VoidType; use VoidType.instance()
+public final class VoidType implements Type {
+    private static final VoidType INSTANCE = new VoidType();
+
+    private static final int HASH = NodeHash.of(NodeHash.VOID_TYPE);
+
+    private VoidType() {}
+
+    public static VoidType instance() { return INSTANCE; }
+
+    public int hashCode() { return HASH; }
     public boolean equals(final Object other) {
-        return other instanceof VoidType;
+        return other == this;
     }
     public String toString() { return "VoidType"; }
 }
@@ -3,21 +3,29 @@ package oop_example.parser;
 public class WhileStmt implements Stmt {
     public final Exp guard;
     public final Stmt body;
+    private final int hash;
 
     public WhileStmt(final Exp guard,
                      final Stmt body) {
         this.guard = guard;
         this.body = body;
+        this.hash = NodeHash.of(NodeHash.WHILE_STMT, guard.hashCode(), body.hashCode());
     }
 
-    public int hashCode() {
-        return guard.hashCode() + body.hashCode();
+    public <C, R, E extends Exception> R accept(final StmtVisitor<C, R, E> visitor,
+                                                final C context) throws E {
+        return visitor.visitWhile(this, context);
     }
 
+    public int hashCode() { return hash; }
+
     public boolean equals(final Object other) {
-        if (other instanceof WhileStmt) {
+        if (other == this) {
+            return true;
+        } else if (other instanceof WhileStmt) {
             final WhileStmt otherStmt = (WhileStmt)other;
-            return (guard.equals(otherStmt.guard) &&
+            return (otherStmt.hash == hash &&
+                    guard.equals(otherStmt.guard) &&
                     body.equals(otherStmt.body));
         } else {
             return false;
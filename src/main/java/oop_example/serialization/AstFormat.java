@@ -0,0 +1,60 @@
+package oop_example.serialization;
+
+// The binary AST format.  All offsets are from the start of the file, so
+// anything can be found without reading what comes before it.
+//
+// header, fixed-size big-endian ints:
+//   magic, version, CRC32 of everything after the header, file length
+// string table:
+//   count, then count + 1 offsets of the UTF-8 bytes of each string (the
+//   last one is where the bytes end), then the bytes
+// class table:
+//   count, then the offset of each class, then the offset of the entry point
+// nodes:
+//   everything else, as varints: a tag for each node, then its children
+//   in the order the constructor takes them.  Identifiers are indexes into
+//   the string table, lists are a count then the elements, and int
+//   literals are zigzag-encoded so small negative numbers stay short.
+//
+// A class is its name, parent, instance variables, constructor arguments,
+// super call arguments and constructor body, then its method count and a
+// table of fixed-size offsets of its methods from the end of the table,
+// so each method can be decoded on its own.  A method is its return type,
+// name, arguments and body.
+final class AstFormat {
+    private AstFormat() {}
+
+    static final int MAGIC = 0x4F4F5041; // "OOPA"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int CHECKSUM_OFFSET = 8;
+    static final int LENGTH_OFFSET = 12;
+
+    // types
+    static final int INT_TYPE = 0;
+    static final int BOOL_TYPE = 1;
+    static final int VOID_TYPE = 2;
+    static final int CLASS_TYPE = 3;     // name
+
+    // expressions
+    static final int INT_LITERAL = 0;    // value
+    static final int VARIABLE = 1;       // name
+    static final int TRUE = 2;
+    static final int FALSE = 3;
+    static final int THIS = 4;
+    static final int PLUS = 5;           // left, right
+    static final int LESS_THAN = 6;      // left, right
+    static final int EQUALS = 7;         // left, right
+    static final int METHOD_CALL = 8;    // target, name, params
+    static final int NEW = 9;            // class, params
+
+    // statements
+    static final int EXP_STMT = 0;       // exp
+    static final int VARIABLE_INIT = 1;  // type, name, exp
+    static final int IF = 2;             // guard, ifTrue, ifFalse
+    static final int WHILE = 3;          // guard, body
+    static final int RETURN_VALUE = 4;   // exp
+    static final int RETURN_VOID = 5;
+    static final int PRINTLN = 6;        // exp
+    static final int BLOCK = 7;          // stmts
+}
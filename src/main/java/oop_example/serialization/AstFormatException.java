@@ -0,0 +1,14 @@
+package oop_example.serialization;
+
+// A file that isn't a binary AST we can read: wrong magic number or
+// version, wrong length, a checksum mismatch, or contents that don't hold
+// together, like counts, offsets or string ids past the end of the file,
+// or unknown tags.
+//
+// Unchecked, because classes and methods are only decoded, and so only
+// found to be malformed, when a List.get asks for them; see AstLoader.
+public class AstFormatException extends RuntimeException {
+    public AstFormatException(final String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,458 @@
+package oop_example.serialization;
+
+import oop_example.parser.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Reads a program written by AstWriter.
+//
+// Loading checks the header and checksum, and that the string and class
+// tables fit in the file, and decodes the entry point, but nothing else:
+// the program's list of classes, and each class's list of methods, decode
+// an element the first time it's asked for and keep it.  Identifiers are
+// decoded from the string table the same way.  Anything that only looks at
+// some of the classes only pays for those, and nothing is copied out of
+// the file until it's used.
+//
+// Decoding checks each varint, count, offset, tag and string id against
+// the file as it reads it.  So a malformed class or method is found the
+// first time it's asked for, and get() on the list throws an (unchecked)
+// AstFormatException then.
+//
+// Each class and method is decoded at most once, even from several
+// threads, so side tables keyed by node identity see the same nodes every
+// time.
+public class AstLoader {
+    // the string table's offsets start after its count
+    private static final int STRING_OFFSETS = AstFormat.HEADER_SIZE + 4;
+
+    private final ByteBuffer buffer;
+    private final int stringCount;
+    // where the string table ends and the class table starts
+    private final int stringsEnd;
+    private final String[] strings;
+    // names are immutable, so every use of an identifier can share one
+    private final Variable[] variables;
+    private final ClassName[] classNames;
+    private final MethodName[] methodNames;
+
+    private AstLoader(final ByteBuffer buffer) throws AstFormatException {
+        this.buffer = buffer;
+        final int limit = buffer.limit();
+        if (limit < STRING_OFFSETS) {
+            throw new AstFormatException("Binary AST has no string table");
+        }
+        this.stringCount = buffer.getInt(AstFormat.HEADER_SIZE);
+        // count + 1 offsets, each from the one before to the end of the file
+        if (stringCount < 0 || STRING_OFFSETS + 4L * (stringCount + 1L) > limit) {
+            throw new AstFormatException("Binary AST string count " + stringCount +
+                                         " doesn't fit in the file");
+        }
+        int previous = STRING_OFFSETS + 4 * (stringCount + 1);
+        for (int id = 0; id <= stringCount; id++) {
+            final int offset = buffer.getInt(STRING_OFFSETS + 4 * id);
+            if (offset < previous || offset > limit) {
+                throw new AstFormatException("Binary AST string offset " + offset +
+                                             " out of order or past the end");
+            }
+            previous = offset;
+        }
+        this.stringsEnd = previous;
+        this.strings = new String[stringCount];
+        this.variables = new Variable[stringCount];
+        this.classNames = new ClassName[stringCount];
+        this.methodNames = new MethodName[stringCount];
+    }
+
+    // Maps the file, so loading is one pass over it for the checksum.
+    // The mapping outlives the channel, and stays until the program is
+    // garbage collected.
+    public static Program load(final Path path) throws IOException, AstFormatException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer);
+        }
+    }
+
+    // the buffer's contents from its position to its limit
+    public static Program decode(final ByteBuffer buffer) throws AstFormatException {
+        final ByteBuffer file = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        if (file.limit() < AstFormat.HEADER_SIZE || file.getInt(0) != AstFormat.MAGIC) {
+            throw new AstFormatException("Not a binary AST");
+        }
+        if (file.getInt(4) != AstFormat.VERSION) {
+            throw new AstFormatException("Unsupported binary AST version: " + file.getInt(4));
+        }
+        if (file.getInt(AstFormat.LENGTH_OFFSET) != file.limit()) {
+            throw new AstFormatException("Binary AST is " + file.limit() + " bytes but should be " +
+                                         file.getInt(AstFormat.LENGTH_OFFSET));
+        }
+        final ByteBuffer payload = file.duplicate();
+        payload.position(AstFormat.HEADER_SIZE);
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int)crc.getValue() != file.getInt(AstFormat.CHECKSUM_OFFSET)) {
+            throw new AstFormatException("Binary AST checksum mismatch");
+        }
+        try {
+            return new AstLoader(file).program();
+        } catch (final StackOverflowError e) {
+            throw new AstFormatException("Binary AST nested too deeply to read");
+        }
+    }
+
+    private Program program() throws AstFormatException {
+        final int classTable = stringsEnd;
+        final int limit = buffer.limit();
+        if (classTable + 4L > limit) {
+            throw new AstFormatException("Binary AST has no class table");
+        }
+        final int classCount = buffer.getInt(classTable);
+        // count + 1 offsets: the classes, then the entry point
+        if (classCount < 0 || classTable + 4L + 4L * (classCount + 1L) > limit) {
+            throw new AstFormatException("Binary AST class count " + classCount + " doesn't fit in the file");
+        }
+        final int nodesStart = classTable + 4 + 4 * (classCount + 1);
+        for (int index = 0; index <= classCount; index++) {
+            final int offset = buffer.getInt(classTable + 4 + 4 * index);
+            if (offset < nodesStart || offset >= limit) {
+                throw new AstFormatException("Binary AST node offset " + offset + " outside the nodes");
+            }
+        }
+
+        final List<ClassDef> classes = new LazyList<ClassDef>(classCount) {
+            ClassDef load(final int index) throws AstFormatException {
+                return new Cursor(buffer.getInt(classTable + 4 + 4 * index)).classDef();
+            }
+        };
+        final Stmt entryPoint = new Cursor(buffer.getInt(classTable + 4 + 4 * classCount)).stmt();
+        return new Program(classes, entryPoint);
+    }
+
+    // Two threads can both decode a string or make a name; either copy
+    // will do.
+    private String string(final int id) {
+        String string = strings[id];
+        if (string == null) {
+            final int start = buffer.getInt(STRING_OFFSETS + 4 * id);
+            final int end = buffer.getInt(STRING_OFFSETS + 4 * (id + 1));
+            final byte[] bytes = new byte[end - start];
+            for (int index = 0; index < bytes.length; index++) {
+                bytes[index] = buffer.get(start + index);
+            }
+            string = new String(bytes, StandardCharsets.UTF_8);
+            strings[id] = string;
+        }
+        return string;
+    }
+
+    private Variable variable(final int id) {
+        Variable variable = variables[id];
+        if (variable == null) {
+            variable = new Variable(string(id));
+            variables[id] = variable;
+        }
+        return variable;
+    }
+
+    private ClassName className(final int id) {
+        ClassName className = classNames[id];
+        if (className == null) {
+            className = new ClassName(string(id));
+            classNames[id] = className;
+        }
+        return className;
+    }
+
+    private MethodName methodName(final int id) {
+        MethodName methodName = methodNames[id];
+        if (methodName == null) {
+            methodName = new MethodName(string(id));
+            methodNames[id] = methodName;
+        }
+        return methodName;
+    }
+
+    // A fixed-size list whose elements are decoded on first access.
+    private static abstract class LazyList<T> extends AbstractList<T> {
+        private final Object[] elements;
+
+        LazyList(final int size) {
+            this.elements = new Object[size];
+        }
+
+        abstract T load(int index);
+
+        public int size() {
+            return elements.length;
+        }
+
+        // The nodes' fields are final, so a node read here without the
+        // lock is fully constructed.
+        @SuppressWarnings("unchecked")
+        public T get(final int index) {
+            Object element = elements[index];
+            if (element == null) {
+                synchronized (this) {
+                    element = elements[index];
+                    if (element == null) {
+                        try {
+                            element = load(index);
+                        } catch (final StackOverflowError e) {
+                            throw new AstFormatException("Binary AST nested too deeply to read");
+                        }
+                        elements[index] = element;
+                    }
+                }
+            }
+            return (T)element;
+        }
+    }
+
+    // Decodes nodes starting at a position, using absolute reads so any
+    // number of cursors can share the buffer.
+    private final class Cursor {
+        private int position;
+
+        Cursor(final int position) {
+            this.position = position;
+        }
+
+        private int varint() throws AstFormatException {
+            int result = 0;
+            int shift = 0;
+            int next;
+            do {
+                if (position >= buffer.limit()) {
+                    throw new AstFormatException("Binary AST ends in the middle of a node");
+                }
+                if (shift > 28) {
+                    throw new AstFormatException("Binary AST varint too long at " + position);
+                }
+                next = buffer.get(position++);
+                result |= (next & 0x7F) << shift;
+                shift += 7;
+            } while ((next & 0x80) != 0);
+            return result;
+        }
+
+        private int signedVarint() throws AstFormatException {
+            final int zigzag = varint();
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        // a string table index
+        private int id() throws AstFormatException {
+            final int id = varint();
+            if (id < 0 || id >= stringCount) {
+                throw new AstFormatException("Binary AST string id " + id + " at " + position +
+                                             " out of range; there are " + stringCount);
+            }
+            return id;
+        }
+
+        // a list's length; every element takes at least a byte
+        private int count() throws AstFormatException {
+            final int count = varint();
+            if (count < 0 || count > buffer.limit() - position) {
+                throw new AstFormatException("Binary AST list of " + count + " at " + position +
+                                             " doesn't fit in the file");
+            }
+            return count;
+        }
+
+        private Variable variable() throws AstFormatException {
+            return AstLoader.this.variable(id());
+        }
+
+        private ClassName className() throws AstFormatException {
+            return AstLoader.this.className(id());
+        }
+
+        private MethodName methodName() throws AstFormatException {
+            return AstLoader.this.methodName(id());
+        }
+
+        // Where the method table starts and the methods start after it, at
+        // the current position, which is just past the method count.
+        private int methodsStart(final int methodCount) throws AstFormatException {
+            final long end = position + 4L * methodCount;
+            if (end > buffer.limit()) {
+                throw new AstFormatException("Binary AST method table at " + position +
+                                             " doesn't fit in the file");
+            }
+            return (int)end;
+        }
+
+        private int methodOffset(final int methodTable,
+                                 final int methodsStart,
+                                 final int index) throws AstFormatException {
+            final int offset = buffer.getInt(methodTable + 4 * index);
+            if (offset < 0 || offset >= buffer.limit() - methodsStart) {
+                throw new AstFormatException("Binary AST method offset " + offset + " outside the file");
+            }
+            return methodsStart + offset;
+        }
+
+        ClassDef classDef() throws AstFormatException {
+            final ClassName className = className();
+            final ClassName extendsClassName = className();
+            final List<Vardec> instanceVariables = vardecs();
+            final List<Vardec> constructorArguments = vardecs();
+            final List<Exp> superParams = exps();
+            final List<Stmt> constructorBody = stmts();
+            final int methodCount = count();
+            final int methodTable = position;
+            final int methodsStart = methodsStart(methodCount);
+            final List<MethodDef> methods = new LazyList<MethodDef>(methodCount) {
+                MethodDef load(final int index) {
+                    return new Cursor(methodOffset(methodTable, methodsStart, index)).methodDef();
+                }
+            };
+            return new ClassDef(className,
+                                extendsClassName,
+                                instanceVariables,
+                                constructorArguments,
+                                superParams,
+                                constructorBody,
+                                methods);
+        }
+
+        MethodDef methodDef() throws AstFormatException {
+            final Type returnType = type();
+            final MethodName methodName = methodName();
+            final List<Vardec> arguments = vardecs();
+            return new MethodDef(returnType, methodName, arguments, stmt());
+        }
+
+        private Type type() throws AstFormatException {
+            final int tag = varint();
+            switch (tag) {
+            case AstFormat.INT_TYPE:
+                return IntType.instance();
+            case AstFormat.BOOL_TYPE:
+                return BoolType.instance();
+            case AstFormat.VOID_TYPE:
+                return VoidType.instance();
+            case AstFormat.CLASS_TYPE:
+                return ClassNameType.instance(className());
+            default:
+                throw corrupt("type", tag);
+            }
+        }
+
+        private List<Vardec> vardecs() throws AstFormatException {
+            final int count = count();
+            final List<Vardec> result = new ArrayList<Vardec>(count);
+            for (int index = 0; index < count; index++) {
+                final Type type = type();
+                result.add(new Vardec(type, variable()));
+            }
+            return result;
+        }
+
+        private List<Exp> exps() throws AstFormatException {
+            final int count = count();
+            final List<Exp> result = new ArrayList<Exp>(count);
+            for (int index = 0; index < count; index++) {
+                result.add(exp());
+            }
+            return result;
+        }
+
+        private List<Stmt> stmts() throws AstFormatException {
+            final int count = count();
+            final List<Stmt> result = new ArrayList<Stmt>(count);
+            for (int index = 0; index < count; index++) {
+                result.add(stmt());
+            }
+            return result;
+        }
+
+        private Exp exp() throws AstFormatException {
+            final int tag = varint();
+            switch (tag) {
+            case AstFormat.INT_LITERAL:
+                return new IntLiteralExp(signedVarint());
+            case AstFormat.VARIABLE:
+                return new VariableExp(variable());
+            case AstFormat.TRUE:
+                return new BoolLiteralExp(true);
+            case AstFormat.FALSE:
+                return new BoolLiteralExp(false);
+            case AstFormat.THIS:
+                return new ThisExp();
+            case AstFormat.PLUS:
+                return op(PlusOp.instance());
+            case AstFormat.LESS_THAN:
+                return op(LessThanOp.instance());
+            case AstFormat.EQUALS:
+                return op(EqualsOp.instance());
+            case AstFormat.METHOD_CALL: {
+                final Exp target = exp();
+                final MethodName methodName = methodName();
+                return new MethodCallExp(target, methodName, exps());
+            }
+            case AstFormat.NEW: {
+                final ClassName className = className();
+                return new NewExp(className, exps());
+            }
+            default:
+                throw corrupt("expression", tag);
+            }
+        }
+
+        private Exp op(final Op op) throws AstFormatException {
+            final Exp left = exp();
+            return new OpExp(left, op, exp());
+        }
+
+        Stmt stmt() throws AstFormatException {
+            final int tag = varint();
+            switch (tag) {
+            case AstFormat.EXP_STMT:
+                return new ExpStmt(exp());
+            case AstFormat.VARIABLE_INIT: {
+                final Type type = type();
+                final Vardec vardec = new Vardec(type, variable());
+                return new VariableInitializationStmt(vardec, exp());
+            }
+            case AstFormat.IF: {
+                final Exp guard = exp();
+                final Stmt ifTrue = stmt();
+                return new IfStmt(guard, ifTrue, stmt());
+            }
+            case AstFormat.WHILE: {
+                final Exp guard = exp();
+                return new WhileStmt(guard, stmt());
+            }
+            case AstFormat.RETURN_VALUE:
+                return new ReturnNonVoidStmt(exp());
+            case AstFormat.RETURN_VOID:
+                return new ReturnVoidStmt();
+            case AstFormat.PRINTLN:
+                return new PrintlnStmt(exp());
+            case AstFormat.BLOCK:
+                return new BlockStmt(stmts());
+            default:
+                throw corrupt("statement", tag);
+            }
+        }
+
+        private AstFormatException corrupt(final String what, final int tag) {
+            return new AstFormatException("Unknown " + what + " tag " + tag +
+                                          " in binary AST at " + (position - 1));
+        }
+    }
+}
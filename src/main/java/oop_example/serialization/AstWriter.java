@@ -0,0 +1,242 @@
+package oop_example.serialization;
+
+import oop_example.parser.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Encodes a program in the binary AST format; see AstFormat.  AstLoader
+// reads it back.
+public class AstWriter implements ExpVisitor<ByteOutput, Void, RuntimeException>,
+                                  StmtVisitor<ByteOutput, Void, RuntimeException> {
+    private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+    private final List<String> strings = new ArrayList<String>();
+
+    private AstWriter() {}
+
+    public static byte[] encode(final Program program) {
+        return new AstWriter().program(program);
+    }
+
+    public static void write(final Program program, final Path path) throws IOException {
+        Files.write(path, encode(program));
+    }
+
+    private byte[] program(final Program program) {
+        // nodes first, with offsets from the start of the nodes, since
+        // where they start depends on the string table
+        final ByteOutput nodes = new ByteOutput();
+        final int[] classOffsets = new int[program.classes.size()];
+        for (int index = 0; index < classOffsets.length; index++) {
+            classOffsets[index] = nodes.size();
+            classDef(program.classes.get(index), nodes);
+        }
+        final int entryPointOffset = nodes.size();
+        program.entryPoint.accept(this, nodes);
+
+        final byte[][] encoded = new byte[strings.size()][];
+        int stringBytes = 0;
+        for (int index = 0; index < encoded.length; index++) {
+            encoded[index] = strings.get(index).getBytes(StandardCharsets.UTF_8);
+            stringBytes += encoded[index].length;
+        }
+        final int stringsStart = AstFormat.HEADER_SIZE + 4 + 4 * (encoded.length + 1);
+        final int classTableStart = stringsStart + stringBytes;
+        final int nodesStart = classTableStart + 4 + 4 * classOffsets.length + 4;
+
+        final ByteOutput out = new ByteOutput();
+        out.writeInt(AstFormat.MAGIC);
+        out.writeInt(AstFormat.VERSION);
+        out.writeInt(0); // checksum, filled in below
+        out.writeInt(nodesStart + nodes.size());
+        out.writeInt(encoded.length);
+        int position = stringsStart;
+        for (final byte[] string : encoded) {
+            out.writeInt(position);
+            position += string.length;
+        }
+        out.writeInt(position);
+        for (final byte[] string : encoded) {
+            out.write(string);
+        }
+        out.writeInt(classOffsets.length);
+        for (final int offset : classOffsets) {
+            out.writeInt(nodesStart + offset);
+        }
+        out.writeInt(nodesStart + entryPointOffset);
+        out.write(nodes);
+
+        final CRC32 crc = new CRC32();
+        crc.update(out.array(), AstFormat.HEADER_SIZE, out.size() - AstFormat.HEADER_SIZE);
+        out.setInt(AstFormat.CHECKSUM_OFFSET, (int)crc.getValue());
+        return out.toByteArray();
+    }
+
+    private void string(final String string, final ByteOutput out) {
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(string, id);
+            strings.add(string);
+        }
+        out.writeVarint(id);
+    }
+
+    private void classDef(final ClassDef classDef, final ByteOutput out) {
+        string(classDef.className.name, out);
+        string(classDef.extendsClassName.name, out);
+        vardecs(classDef.instanceVariables, out);
+        vardecs(classDef.constructorArguments, out);
+        exps(classDef.superParams, out);
+        stmts(classDef.constructorBody, out);
+
+        final ByteOutput methods = new ByteOutput();
+        out.writeVarint(classDef.methods.size());
+        for (final MethodDef method : classDef.methods) {
+            out.writeInt(methods.size());
+            type(method.returnType, methods);
+            string(method.methodName.name, methods);
+            vardecs(method.arguments, methods);
+            method.body.accept(this, methods);
+        }
+        out.write(methods);
+    }
+
+    private void type(final Type type, final ByteOutput out) {
+        if (type == IntType.instance()) {
+            out.writeVarint(AstFormat.INT_TYPE);
+        } else if (type == BoolType.instance()) {
+            out.writeVarint(AstFormat.BOOL_TYPE);
+        } else if (type == VoidType.instance()) {
+            out.writeVarint(AstFormat.VOID_TYPE);
+        } else {
+            out.writeVarint(AstFormat.CLASS_TYPE);
+            string(((ClassNameType)type).className.name, out);
+        }
+    }
+
+    private void vardecs(final List<Vardec> vardecs, final ByteOutput out) {
+        out.writeVarint(vardecs.size());
+        for (final Vardec vardec : vardecs) {
+            type(vardec.type, out);
+            string(vardec.variable.name, out);
+        }
+    }
+
+    private void exps(final List<Exp> exps, final ByteOutput out) {
+        out.writeVarint(exps.size());
+        for (final Exp exp : exps) {
+            exp.accept(this, out);
+        }
+    }
+
+    private void stmts(final List<Stmt> stmts, final ByteOutput out) {
+        out.writeVarint(stmts.size());
+        for (final Stmt stmt : stmts) {
+            stmt.accept(this, out);
+        }
+    }
+
+    public Void visitIntLiteral(final IntLiteralExp exp, final ByteOutput out) {
+        out.writeVarint(AstFormat.INT_LITERAL);
+        out.writeSignedVarint(exp.value);
+        return null;
+    }
+
+    public Void visitVariable(final VariableExp exp, final ByteOutput out) {
+        out.writeVarint(AstFormat.VARIABLE);
+        string(exp.variable.name, out);
+        return null;
+    }
+
+    public Void visitBoolLiteral(final BoolLiteralExp exp, final ByteOutput out) {
+        out.writeVarint(exp.value ? AstFormat.TRUE : AstFormat.FALSE);
+        return null;
+    }
+
+    public Void visitThis(final ThisExp exp, final ByteOutput out) {
+        out.writeVarint(AstFormat.THIS);
+        return null;
+    }
+
+    public Void visitOp(final OpExp exp, final ByteOutput out) {
+        if (exp.op == PlusOp.instance()) {
+            out.writeVarint(AstFormat.PLUS);
+        } else if (exp.op == LessThanOp.instance()) {
+            out.writeVarint(AstFormat.LESS_THAN);
+        } else {
+            out.writeVarint(AstFormat.EQUALS);
+        }
+        exp.left.accept(this, out);
+        exp.right.accept(this, out);
+        return null;
+    }
+
+    public Void visitMethodCall(final MethodCallExp exp, final ByteOutput out) {
+        out.writeVarint(AstFormat.METHOD_CALL);
+        exp.target.accept(this, out);
+        string(exp.methodName.name, out);
+        exps(exp.params, out);
+        return null;
+    }
+
+    public Void visitNew(final NewExp exp, final ByteOutput out) {
+        out.writeVarint(AstFormat.NEW);
+        string(exp.className.name, out);
+        exps(exp.params, out);
+        return null;
+    }
+
+    public Void visitExp(final ExpStmt stmt, final ByteOutput out) {
+        out.writeVarint(AstFormat.EXP_STMT);
+        return stmt.exp.accept(this, out);
+    }
+
+    public Void visitVariableInitialization(final VariableInitializationStmt stmt, final ByteOutput out) {
+        out.writeVarint(AstFormat.VARIABLE_INIT);
+        type(stmt.vardec.type, out);
+        string(stmt.vardec.variable.name, out);
+        return stmt.exp.accept(this, out);
+    }
+
+    public Void visitIf(final IfStmt stmt, final ByteOutput out) {
+        out.writeVarint(AstFormat.IF);
+        stmt.guard.accept(this, out);
+        stmt.ifTrue.accept(this, out);
+        return stmt.ifFalse.accept(this, out);
+    }
+
+    public Void visitWhile(final WhileStmt stmt, final ByteOutput out) {
+        out.writeVarint(AstFormat.WHILE);
+        stmt.guard.accept(this, out);
+        return stmt.body.accept(this, out);
+    }
+
+    public Void visitReturnNonVoid(final ReturnNonVoidStmt stmt, final ByteOutput out) {
+        out.writeVarint(AstFormat.RETURN_VALUE);
+        return stmt.exp.accept(this, out);
+    }
+
+    public Void visitReturnVoid(final ReturnVoidStmt stmt, final ByteOutput out) {
+        out.writeVarint(AstFormat.RETURN_VOID);
+        return null;
+    }
+
+    public Void visitPrintln(final PrintlnStmt stmt, final ByteOutput out) {
+        out.writeVarint(AstFormat.PRINTLN);
+        return stmt.exp.accept(this, out);
+    }
+
+    public Void visitBlock(final BlockStmt stmt, final ByteOutput out) {
+        out.writeVarint(AstFormat.BLOCK);
+        stmts(stmt.body, out);
+        return null;
+    }
+}
@@ -0,0 +1,79 @@
+package oop_example.serialization;
+
+import java.util.Arrays;
+
+// A growable byte array with the encodings the format uses.
+final class ByteOutput {
+    private byte[] bytes = new byte[256];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    private void ensure(final int more) {
+        if (size + more > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + more));
+        }
+    }
+
+    void writeByte(final int value) {
+        ensure(1);
+        bytes[size++] = (byte)value;
+    }
+
+    // unsigned LEB128: seven bits at a time, low bits first, with the top
+    // bit set on every byte but the last
+    void writeVarint(final int value) {
+        ensure(5);
+        int rest = value;
+        while ((rest & ~0x7F) != 0) {
+            bytes[size++] = (byte)((rest & 0x7F) | 0x80);
+            rest >>>= 7;
+        }
+        bytes[size++] = (byte)rest;
+    }
+
+    // maps 0, -1, 1, -2, ... to 0, 1, 2, 3, ...
+    void writeSignedVarint(final int value) {
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    // big-endian, as ByteBuffer reads by default
+    void writeInt(final int value) {
+        ensure(4);
+        bytes[size++] = (byte)(value >>> 24);
+        bytes[size++] = (byte)(value >>> 16);
+        bytes[size++] = (byte)(value >>> 8);
+        bytes[size++] = (byte)value;
+    }
+
+    void setInt(final int position, final int value) {
+        bytes[position] = (byte)(value >>> 24);
+        bytes[position + 1] = (byte)(value >>> 16);
+        bytes[position + 2] = (byte)(value >>> 8);
+        bytes[position + 3] = (byte)value;
+    }
+
+    void write(final byte[] more) {
+        write(more, more.length);
+    }
+
+    void write(final ByteOutput other) {
+        write(other.bytes, other.size);
+    }
+
+    private void write(final byte[] more, final int length) {
+        ensure(length);
+        System.arraycopy(more, 0, bytes, size, length);
+        size += length;
+    }
+
+    byte[] array() {
+        return bytes;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+}
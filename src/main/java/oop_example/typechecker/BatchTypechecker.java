@@ -0,0 +1,325 @@
+package oop_example.typechecker;
+
+import oop_example.parser.ClassDef;
+import oop_example.parser.MethodDef;
+import oop_example.parser.Program;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+// Checks many independent programs at once, each with its own Typechecker
+// on its own thread: a virtual thread when the JVM has them (JDK 21 on),
+// otherwise one of a pool of platform threads.
+//
+// A Typechecker shares nothing mutable with any other: the only state
+// outside it is the AST it checks, which is immutable, and the interned
+// ClassNameTypes, which are made thread-safely.  So one per program needs
+// no locking.
+//
+// Programs are taken from the input only as fast as they're checked, with
+// at most maxConcurrency in flight, so the input can be a lazy stream of
+// any length.  Each result is handed to the listener as soon as its
+// program is done, in the order they finish, on the thread that called
+// check().
+//
+// Timeouts are checked before each constructor, method and the entry
+// point, so a single very long declaration can run over.
+//
+// Every program gets exactly one result, whatever its check throws.  Only
+// running out of memory, or a broken JVM, stops the batch: check() then
+// throws that error itself.
+public class BatchTypechecker {
+    public static class Settings {
+        public int maxConcurrency = 256;
+        // per program, counted from when its check starts; 0 for none.
+        // Only checked between declarations, so it can't stop a single
+        // long constructor, method or entry point, which runs to the end.
+        public long timeoutMillis = 0;
+        // false always uses platform threads
+        public boolean virtualThreads = true;
+
+        public String toString() {
+            return ("Settings(maxConcurrency=" + maxConcurrency +
+                    ", timeoutMillis=" + timeoutMillis +
+                    ", virtualThreads=" + virtualThreads + ")");
+        }
+    }
+
+    public enum Status {
+        // errors holds every error found, and may be empty
+        CHECKED,
+        // ran past the timeout; errors holds those found so far
+        TIMED_OUT,
+        // checking itself failed; failure says how
+        FAILED
+    }
+
+    public static class Result {
+        // position in the input, from 0
+        public final long index;
+        public final Program program;
+        public final Status status;
+        public final List<TypeError> errors;
+        public final String failure; // null unless FAILED
+        public final long nanos;
+
+        public Result(final long index,
+                      final Program program,
+                      final Status status,
+                      final List<TypeError> errors,
+                      final String failure,
+                      final long nanos) {
+            this.index = index;
+            this.program = program;
+            this.status = status;
+            this.errors = errors;
+            this.failure = failure;
+            this.nanos = nanos;
+        }
+
+        public boolean isWellTyped() {
+            return status == Status.CHECKED && errors.isEmpty();
+        }
+
+        public String toString() {
+            return ("Result(" + index + ", " + status + ", " +
+                    ((failure == null) ? errors.toString() : failure) + ", " + nanos + "ns)");
+        }
+    }
+
+    public interface Listener {
+        void finished(Result result);
+    }
+
+    // totals for a whole batch
+    public static class Summary {
+        public final long wellTyped;
+        public final long illTyped;
+        public final long timedOut;
+        public final long failed;
+        // most programs being checked at the same time
+        public final int maxInFlight;
+        public final boolean usedVirtualThreads;
+
+        Summary(final long wellTyped,
+                final long illTyped,
+                final long timedOut,
+                final long failed,
+                final int maxInFlight,
+                final boolean usedVirtualThreads) {
+            this.wellTyped = wellTyped;
+            this.illTyped = illTyped;
+            this.timedOut = timedOut;
+            this.failed = failed;
+            this.maxInFlight = maxInFlight;
+            this.usedVirtualThreads = usedVirtualThreads;
+        }
+
+        public long total() {
+            return wellTyped + illTyped + timedOut + failed;
+        }
+
+        public String toString() {
+            return ("Summary(" + wellTyped + " well-typed, " + illTyped + " ill-typed, " +
+                    timedOut + " timed out, " + failed + " failed, at most " +
+                    maxInFlight + " at once" + (usedVirtualThreads ? " on virtual threads" : "") + ")");
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor, found reflectively so that
+    // this builds and runs on JVMs without it; null if there isn't one
+    private static final Method NEW_VIRTUAL_EXECUTOR = findVirtualExecutor();
+
+    private static Method findVirtualExecutor() {
+        try {
+            final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            // fails if they're still a preview feature that isn't enabled
+            ((ExecutorService)method.invoke(null)).shutdown();
+            return method;
+        } catch (final ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    public final Settings settings;
+
+    public BatchTypechecker(final Settings settings) {
+        if (settings.maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1: " + settings.maxConcurrency);
+        }
+        if (settings.timeoutMillis < 0) {
+            throw new IllegalArgumentException("timeoutMillis can't be negative: " + settings.timeoutMillis);
+        }
+        this.settings = settings;
+    }
+
+    public Summary check(final Stream<? extends Program> programs,
+                         final Listener listener) throws InterruptedException {
+        return check(programs.iterator(), listener);
+    }
+
+    // Returns once every program has been checked and its result given to
+    // the listener.  If interrupted, or if a check runs out of memory,
+    // stops the checks still running and throws; their results are never
+    // given.
+    public Summary check(final Iterator<? extends Program> programs,
+                         final Listener listener) throws InterruptedException {
+        final boolean virtual = settings.virtualThreads && virtualThreadsAvailable();
+        final ExecutorService executor = newExecutor(virtual);
+        final LinkedBlockingQueue<Result> finished = new LinkedBlockingQueue<Result>();
+        final AtomicReference<VirtualMachineError> fatal = new AtomicReference<VirtualMachineError>();
+        long wellTyped = 0;
+        long illTyped = 0;
+        long timedOut = 0;
+        long failed = 0;
+        int inFlight = 0;
+        int maxInFlight = 0;
+        long index = 0;
+        try {
+            while (programs.hasNext() || inFlight > 0) {
+                // wait for a result when there's nothing else to do
+                Result result = (inFlight >= settings.maxConcurrency || !programs.hasNext()) ?
+                    finished.take() :
+                    finished.poll();
+                while (result != null) {
+                    if (fatal.get() != null) {
+                        throw fatal.get();
+                    }
+                    inFlight--;
+                    if (result.status == Status.TIMED_OUT) {
+                        timedOut++;
+                    } else if (result.status == Status.FAILED) {
+                        failed++;
+                    } else if (result.errors.isEmpty()) {
+                        wellTyped++;
+                    } else {
+                        illTyped++;
+                    }
+                    listener.finished(result);
+                    result = finished.poll();
+                }
+                if (inFlight < settings.maxConcurrency && programs.hasNext()) {
+                    final long programIndex = index++;
+                    final Program program = programs.next();
+                    executor.execute(new Runnable() {
+                            public void run() {
+                                try {
+                                    finished.add(checkOne(programIndex, program));
+                                } catch (final VirtualMachineError e) {
+                                    // still a result, so check() wakes up
+                                    // to throw it
+                                    fatal.compareAndSet(null, e);
+                                    finished.add(new Result(programIndex, program, Status.FAILED,
+                                                            Collections.<TypeError>emptyList(),
+                                                            String.valueOf(e), 0));
+                                }
+                            }
+                        });
+                    inFlight++;
+                    maxInFlight = Math.max(maxInFlight, inFlight);
+                }
+            }
+        } finally {
+            // interrupts whatever is still running, which only happens if
+            // we're leaving early
+            executor.shutdownNow();
+        }
+        return new Summary(wellTyped, illTyped, timedOut, failed, maxInFlight, virtual);
+    }
+
+    private ExecutorService newExecutor(final boolean virtual) {
+        if (virtual) {
+            try {
+                return (ExecutorService)NEW_VIRTUAL_EXECUTOR.invoke(null);
+            } catch (final ReflectiveOperationException e) {
+                // worked when we looked it up; fall back all the same
+            }
+        }
+        final int threads = Math.min(settings.maxConcurrency, Runtime.getRuntime().availableProcessors());
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "batch-typechecker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    }
+
+    // thrown between declarations once a program's time is up
+    private static class TimedOut extends Exception {
+        TimedOut() {
+            super(null, null, false, false);
+        }
+    }
+
+    private Result checkOne(final long index, final Program program) {
+        final long start = System.nanoTime();
+        final long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(settings.timeoutMillis);
+        final Diagnostics diagnostics = new Diagnostics();
+        Status status = Status.CHECKED;
+        String failure = null;
+        try {
+            checkDeclarations(new Typechecker(program, diagnostics), diagnostics, start, timeoutNanos);
+        } catch (final TypeErrorException e) {
+            // only building the class table throws when collecting
+            diagnostics.reportClassHierarchy(e.getMessage());
+        } catch (final TimedOut e) {
+            status = Status.TIMED_OUT;
+        } catch (final StackOverflowError e) {
+            // a program nested too deeply for the thread's stack
+            status = Status.FAILED;
+            failure = String.valueOf(e);
+        } catch (final VirtualMachineError e) {
+            // out of memory or worse; see check()
+            throw e;
+        } catch (final Throwable e) {
+            // a bug in the typechecker, or in a program's own lists
+            status = Status.FAILED;
+            failure = String.valueOf(e);
+        }
+        return new Result(index, program, status,
+                          Collections.unmodifiableList(diagnostics.errors()),
+                          failure,
+                          System.nanoTime() - start);
+    }
+
+    // what Typechecker.isWellTypedProgram does, one declaration at a time
+    private static void checkDeclarations(final Typechecker typechecker,
+                                          final Diagnostics diagnostics,
+                                          final long start,
+                                          final long timeoutNanos) throws TypeErrorException, TimedOut {
+        for (final ClassDef classDef : typechecker.program.classes) {
+            checkTime(start, timeoutNanos);
+            typechecker.isWellTypedConstructor(classDef);
+            final TypeEnvironment fields = typechecker.classTable.lookupClass(classDef.className).fieldEnvironment;
+            for (final MethodDef method : classDef.methods) {
+                checkTime(start, timeoutNanos);
+                typechecker.isWellTypedMethodDef(method, fields, classDef.className);
+            }
+        }
+        checkTime(start, timeoutNanos);
+        diagnostics.setLocation(null, null);
+        typechecker.isWellTypedStmt(typechecker.program.entryPoint, TypeEnvironment.empty(), null, null);
+    }
+
+    // a timeout of 0 never runs out
+    private static void checkTime(final long start, final long timeoutNanos) throws TimedOut {
+        if ((timeoutNanos > 0 && System.nanoTime() - start > timeoutNanos) ||
+            Thread.currentThread().isInterrupted()) {
+            throw new TimedOut();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package oop_example.typechecker;
+
+import oop_example.parser.ClassDef;
+import oop_example.parser.ClassName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The inheritance tree, rooted at the built-in Object.
+//
+// Building it checks that the hierarchy really is a tree:
+// - every parent class exists
+// - there are no cycles, e.g.:
+//   class Foo extends Bar {}
+//   class Bar extends Foo {}
+//
+// Each class gets numbered by a depth-first walk from Object, recording when
+// we first enter the class (pre) and when we leave it (post).  A class's
+// descendants are exactly the classes entered after it and left before it,
+// so subclass queries are two integer comparisons:
+//
+// Object [0, 7]
+//   A    [1, 4]
+//     B  [2, 3]
+//   C    [5, 6]
+//
+// B is a subclass of A because 1 <= 2 and 3 <= 4; C isn't because 5 > 4.
+public class ClassHierarchy {
+    private final Map<ClassName, Integer> ids;
+    private final ClassName[] names;
+    private final int[] parents; // -1 for Object
+    private final int[] pre;
+    private final int[] post;
+    // all class ids, parents before children
+    private final int[] preorder;
+    // where each class is in preorder; its descendants come right after it
+    private final int[] preorderIndex;
+
+    public ClassHierarchy(final List<ClassDef> classDefs) throws TypeErrorException {
+        final int numClasses = classDefs.size() + 1;
+        ids = new HashMap<ClassName, Integer>(numClasses * 2);
+        names = new ClassName[numClasses];
+        parents = new int[numClasses];
+        ids.put(ClassTable.OBJECT_NAME, 0);
+        names[0] = ClassTable.OBJECT_NAME;
+        parents[0] = -1;
+        for (int index = 0; index < classDefs.size(); index++) {
+            final ClassName className = classDefs.get(index).className;
+            if (ids.put(className, index + 1) != null) {
+                throw new TypeErrorException("Duplicate class: " + className);
+            }
+            names[index + 1] = className;
+        }
+
+        // children as linked lists threaded through two arrays
+        final int[] firstChild = new int[numClasses];
+        final int[] nextSibling = new int[numClasses];
+        Arrays.fill(firstChild, -1);
+        for (int index = 0; index < classDefs.size(); index++) {
+            final ClassDef classDef = classDefs.get(index);
+            final Integer parentId = ids.get(classDef.extendsClassName);
+            if (parentId == null) {
+                throw new TypeErrorException("Class " + classDef.className +
+                                             " extends nonexistent class: " +
+                                             classDef.extendsClassName);
+            }
+            parents[index + 1] = parentId;
+            nextSibling[index + 1] = firstChild[parentId];
+            firstChild[parentId] = index + 1;
+        }
+
+        // Iterative, so deep hierarchies don't overflow the stack.
+        // cursor[id] is the next child of id still to be visited.
+        pre = new int[numClasses];
+        post = new int[numClasses];
+        preorder = new int[numClasses];
+        final int[] cursor = firstChild.clone();
+        final int[] stack = new int[numClasses];
+        int stackSize = 0;
+        int clock = 0;
+        int visited = 0;
+        stack[stackSize++] = 0;
+        pre[0] = clock++;
+        preorder[visited++] = 0;
+        while (stackSize > 0) {
+            final int current = stack[stackSize - 1];
+            final int child = cursor[current];
+            if (child == -1) {
+                post[current] = clock++;
+                stackSize--;
+            } else {
+                cursor[current] = nextSibling[child];
+                pre[child] = clock++;
+                preorder[visited++] = child;
+                stack[stackSize++] = child;
+            }
+        }
+
+        // Anything not reachable from Object must be on or below a cycle.
+        if (visited != numClasses) {
+            final boolean[] reached = new boolean[numClasses];
+            for (int index = 0; index < visited; index++) {
+                reached[preorder[index]] = true;
+            }
+            for (int id = 0; id < numClasses; id++) {
+                if (!reached[id]) {
+                    throw new TypeErrorException("Cyclic inheritance involving " + names[id]);
+                }
+            }
+        }
+
+        preorderIndex = new int[numClasses];
+        for (int index = 0; index < numClasses; index++) {
+            preorderIndex[preorder[index]] = index;
+        }
+    }
+
+    public boolean hasClass(final ClassName className) {
+        return ids.containsKey(className);
+    }
+
+    private int idFor(final ClassName className) throws TypeErrorException {
+        final Integer id = ids.get(className);
+        if (id == null) {
+            throw new TypeErrorException("No such class: " + className);
+        } else {
+            return id;
+        }
+    }
+
+    // reflexive: every class is a subclass of itself
+    public boolean isSubclassOf(final ClassName first,
+                                final ClassName second) throws TypeErrorException {
+        final int firstId = idFor(first);
+        final int secondId = idFor(second);
+        return pre[secondId] <= pre[firstId] && post[firstId] <= post[secondId];
+    }
+
+    // returns null for Object
+    public ClassName parentOf(final ClassName className) throws TypeErrorException {
+        final int parentId = parents[idFor(className)];
+        return (parentId == -1) ? null : names[parentId];
+    }
+
+    // every class including Object, parents before children
+    public List<ClassName> classesParentFirst() {
+        final List<ClassName> result = new ArrayList<ClassName>(preorder.length);
+        for (final int id : preorder) {
+            result.add(names[id]);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    // A class and all its descendants, parents before children.  Each
+    // class takes two ticks of the clock, one entering and one leaving, so
+    // the span between a class's pre and post counts its descendants.
+    public List<ClassName> subclassesOf(final ClassName className) throws TypeErrorException {
+        final int id = idFor(className);
+        final int descendants = (post[id] - pre[id] - 1) / 2;
+        final int start = preorderIndex[id];
+        final List<ClassName> result = new ArrayList<ClassName>(descendants + 1);
+        for (int index = start; index <= start + descendants; index++) {
+            result.add(names[preorder[index]]);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    public int size() {
+        return names.length;
+    }
+}
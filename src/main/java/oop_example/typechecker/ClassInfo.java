@@ -0,0 +1,122 @@
+package oop_example.typechecker;
+
+import oop_example.parser.ClassDef;
+import oop_example.parser.ClassName;
+import oop_example.parser.MethodDef;
+import oop_example.parser.MethodName;
+import oop_example.parser.Type;
+import oop_example.parser.Variable;
+import oop_example.parser.Vardec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Everything the typechecker needs to know about a single class, with
+// inheritance already taken into account.
+public class ClassInfo {
+    public final ClassName className;
+    public final ClassDef classDef; // null for the built-in Object
+    public final ClassInfo parent; // null for the built-in Object
+
+    // own plus inherited methods, by name
+    public final Map<MethodName, MethodInfo> methods;
+    // the same methods, indexed by slot
+    public final List<MethodInfo> methodTable;
+    // own plus inherited instance variables; own ones shadow inherited ones
+    public final Map<Variable, Type> fields;
+    // the same instance variables, as the starting environment for method
+    // bodies; shares structure with the parent's environment
+    public final TypeEnvironment fieldEnvironment;
+    public final List<Type> constructorTypes;
+
+    private ClassInfo(final ClassName className,
+                      final ClassDef classDef,
+                      final ClassInfo parent,
+                      final Map<MethodName, MethodInfo> methods,
+                      final List<MethodInfo> methodTable,
+                      final Map<Variable, Type> fields,
+                      final TypeEnvironment fieldEnvironment,
+                      final List<Type> constructorTypes) {
+        this.className = className;
+        this.classDef = classDef;
+        this.parent = parent;
+        this.methods = Collections.unmodifiableMap(methods);
+        this.methodTable = Collections.unmodifiableList(methodTable);
+        this.fields = Collections.unmodifiableMap(fields);
+        this.fieldEnvironment = fieldEnvironment;
+        this.constructorTypes = constructorTypes;
+    }
+
+    // Object has a no-arg constructor, no methods, and no fields
+    public static ClassInfo objectInfo(final ClassName objectName) {
+        return new ClassInfo(objectName,
+                             null,
+                             null,
+                             new HashMap<MethodName, MethodInfo>(),
+                             new ArrayList<MethodInfo>(),
+                             new HashMap<Variable, Type>(),
+                             TypeEnvironment.empty(),
+                             Collections.<Type>emptyList());
+    }
+
+    // assumes the parent has already been built
+    public static ClassInfo fromClassDef(final ClassDef classDef,
+                                         final ClassInfo parent) throws TypeErrorException {
+        final Map<MethodName, MethodInfo> methods =
+            new HashMap<MethodName, MethodInfo>(parent.methods);
+        final List<MethodInfo> methodTable =
+            new ArrayList<MethodInfo>(parent.methodTable);
+        final Map<MethodName, MethodDef> ownMethods = new HashMap<MethodName, MethodDef>();
+        for (final MethodDef methodDef : classDef.methods) {
+            if (ownMethods.put(methodDef.methodName, methodDef) != null) {
+                throw new TypeErrorException("Duplicate method " + methodDef.methodName +
+                                             " in class " + classDef.className);
+            }
+            final MethodInfo overridden = parent.methods.get(methodDef.methodName);
+            final MethodInfo info;
+            if (overridden == null) {
+                info = new MethodInfo(methodTable.size(), classDef.className, methodDef);
+                methodTable.add(info);
+            } else {
+                info = new MethodInfo(overridden.slot, classDef.className, methodDef);
+                if (!info.parameterTypes.equals(overridden.parameterTypes) ||
+                    info.returnType != overridden.returnType) {
+                    throw new TypeErrorException("Method " + methodDef.methodName +
+                                                 " in class " + classDef.className +
+                                                 " overrides with a different signature");
+                }
+                methodTable.set(info.slot, info);
+            }
+            methods.put(methodDef.methodName, info);
+        }
+
+        final Map<Variable, Type> fields = new LinkedHashMap<Variable, Type>(parent.fields);
+        final Map<Variable, Type> ownFields = new HashMap<Variable, Type>();
+        TypeEnvironment fieldEnvironment = parent.fieldEnvironment;
+        for (final Vardec vardec : classDef.instanceVariables) {
+            if (ownFields.put(vardec.variable, vardec.type) != null) {
+                throw new TypeErrorException("Duplicate instance variable " + vardec.variable +
+                                             " in class " + classDef.className);
+            }
+            fields.put(vardec.variable, vardec.type);
+            fieldEnvironment = fieldEnvironment.extend(vardec);
+        }
+
+        return new ClassInfo(classDef.className,
+                             classDef,
+                             parent,
+                             methods,
+                             methodTable,
+                             fields,
+                             fieldEnvironment,
+                             MethodInfo.typesOf(classDef.constructorArguments));
+    }
+
+    public String toString() {
+        return "ClassInfo(" + className.toString() + ")";
+    }
+}
@@ -0,0 +1,126 @@
+package oop_example.typechecker;
+
+import oop_example.parser.BlockStmt;
+import oop_example.parser.ClassDef;
+import oop_example.parser.ClassName;
+import oop_example.parser.Exp;
+import oop_example.parser.MethodDef;
+import oop_example.parser.Stmt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ClassInfos kept from one ClassTable to the next, for checking many
+// versions of the same classes (e.g., in a compile daemon).  A class's
+// ClassInfo is reused when its declaration (Fingerprint.addDeclaration)
+// is unchanged and its parent's ClassInfo was itself reused, so a change
+// to a class rebuilds it and everything below it.
+//
+// So that the cache only keeps what other classes can see of a class, the
+// ClassInfos it builds point at a copy of the ClassDef without its super
+// call, constructor body or method bodies (all empty), not at the one it
+// was given.  So only use a cache for checking: not with TypeAnnotations,
+// or for anything that reads bodies through the class table.
+//
+// Keeps the latest ClassInfo per class name, up to maxClasses, dropping
+// the least recently used beyond that.  Thread-safe.
+public class ClassInfoCache {
+    private static final List<Exp> NO_EXPS = Collections.<Exp>emptyList();
+    private static final List<Stmt> NO_STMTS = Collections.<Stmt>emptyList();
+    private static final Stmt EMPTY_BODY = new BlockStmt(NO_STMTS);
+
+    private static class Entry {
+        final long declaration;
+        final ClassInfo info;
+
+        Entry(final long declaration, final ClassInfo info) {
+            this.declaration = declaration;
+            this.info = info;
+        }
+    }
+
+    private final int maxClasses;
+    // in access order, so the eldest is the least recently used; guarded
+    // by itself
+    private final LinkedHashMap<ClassName, Entry> entries;
+    private final ClassInfo objectInfo = ClassInfo.objectInfo(ClassTable.OBJECT_NAME);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ClassInfoCache(final int maxClasses) {
+        if (maxClasses < 1) {
+            throw new IllegalArgumentException("maxClasses must be at least 1, got " + maxClasses);
+        }
+        this.maxClasses = maxClasses;
+        this.entries = new LinkedHashMap<ClassName, Entry>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(final Map.Entry<ClassName, Entry> eldest) {
+                return size() > ClassInfoCache.this.maxClasses;
+            }
+        };
+    }
+
+    // shared by every table built with this cache, so that classes
+    // extending Object can be reused too
+    ClassInfo objectInfo() {
+        return objectInfo;
+    }
+
+    // assumes the parent has already been built with this cache
+    ClassInfo fromClassDef(final ClassDef classDef,
+                           final ClassInfo parent) throws TypeErrorException {
+        final long declaration = new Fingerprint().addDeclaration(classDef).value();
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(classDef.className);
+        }
+        if (entry != null && entry.declaration == declaration && entry.info.parent == parent) {
+            hits.incrementAndGet();
+            return entry.info;
+        }
+        misses.incrementAndGet();
+        final ClassInfo info = ClassInfo.fromClassDef(withoutBodies(classDef), parent);
+        synchronized (entries) {
+            entries.put(classDef.className, new Entry(declaration, info));
+        }
+        return info;
+    }
+
+    // the declaration alone
+    private static ClassDef withoutBodies(final ClassDef classDef) {
+        final List<MethodDef> methods = new ArrayList<MethodDef>(classDef.methods.size());
+        for (final MethodDef method : classDef.methods) {
+            methods.add(new MethodDef(method.returnType, method.methodName, method.arguments, EMPTY_BODY));
+        }
+        return new ClassDef(classDef.className,
+                            classDef.extendsClassName,
+                            classDef.instanceVariables,
+                            classDef.constructorArguments,
+                            NO_EXPS,
+                            NO_STMTS,
+                            methods);
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
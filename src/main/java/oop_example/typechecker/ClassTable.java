@@ -0,0 +1,80 @@
+package oop_example.typechecker;
+
+import oop_example.parser.ClassDef;
+import oop_example.parser.ClassName;
+import oop_example.parser.MethodName;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// All classes in a program, built once so that queries about classes are
+// a hash lookup instead of a walk over every ClassDef.
+//
+// Classes are built parent-first, so each ClassInfo starts from a copy of
+// its parent's (already flattened) tables.
+public class ClassTable {
+    public static final ClassName OBJECT_NAME = new ClassName("Object");
+
+    public final ClassHierarchy hierarchy;
+    private final Map<ClassName, ClassInfo> classes;
+
+    public ClassTable(final List<ClassDef> classDefs) throws TypeErrorException {
+        this(classDefs, null);
+    }
+
+    // With a cache, unchanged classes are taken from it instead of being
+    // rebuilt; see ClassInfoCache for what that means for the result.
+    public ClassTable(final List<ClassDef> classDefs,
+                      final ClassInfoCache cache) throws TypeErrorException {
+        // checks for duplicate classes, missing parents, and cycles
+        hierarchy = new ClassHierarchy(classDefs);
+
+        final Map<ClassName, ClassDef> defs = new HashMap<ClassName, ClassDef>();
+        for (final ClassDef classDef : classDefs) {
+            defs.put(classDef.className, classDef);
+        }
+
+        classes = new HashMap<ClassName, ClassInfo>(hierarchy.size() * 2);
+        for (final ClassName className : hierarchy.classesParentFirst()) {
+            if (className.equals(OBJECT_NAME)) {
+                classes.put(OBJECT_NAME,
+                            (cache == null) ? ClassInfo.objectInfo(OBJECT_NAME) : cache.objectInfo());
+            } else {
+                final ClassDef classDef = defs.get(className);
+                final ClassInfo parent = classes.get(classDef.extendsClassName);
+                classes.put(className,
+                            (cache == null) ?
+                            ClassInfo.fromClassDef(classDef, parent) :
+                            cache.fromClassDef(classDef, parent));
+            }
+        }
+    }
+
+    public boolean hasClass(final ClassName className) {
+        return classes.containsKey(className);
+    }
+
+    public ClassInfo lookupClass(final ClassName className) throws TypeErrorException {
+        final ClassInfo info = classes.get(className);
+        if (info == null) {
+            throw new TypeErrorException("No such class: " + className);
+        } else {
+            return info;
+        }
+    }
+
+    public MethodInfo lookupMethod(final ClassName className,
+                                   final MethodName methodName) throws TypeErrorException {
+        final MethodInfo info = lookupClass(className).methods.get(methodName);
+        if (info == null) {
+            throw new TypeErrorException("No method named " + methodName + " on class " + className);
+        } else {
+            return info;
+        }
+    }
+
+    public int size() {
+        return classes.size();
+    }
+}
@@ -0,0 +1,43 @@
+package oop_example.typechecker;
+
+import oop_example.parser.ClassName;
+import oop_example.parser.MethodName;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Collects type errors instead of stopping at the first one.  Hand one to
+// the Typechecker constructor to switch it into collecting mode.
+//
+// The typechecker tells us which constructor or method it is in, and every
+// error reported after that is tagged with it.  Not thread-safe.
+public class Diagnostics {
+    private final List<TypeError> errors = new ArrayList<TypeError>();
+    private ClassName className;
+    private MethodName methodName;
+
+    public void setLocation(final ClassName className,
+                            final MethodName methodName) {
+        this.className = className;
+        this.methodName = methodName;
+    }
+
+    public void report(final String message) {
+        errors.add(new TypeError(message, className, methodName));
+    }
+
+    // wherever we are; see TypeError.inClassHierarchy
+    public void reportClassHierarchy(final String message) {
+        errors.add(TypeError.inClassHierarchy(message));
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    // in the order they were found
+    public List<TypeError> errors() {
+        return Collections.unmodifiableList(errors);
+    }
+}
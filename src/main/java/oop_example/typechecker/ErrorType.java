@@ -0,0 +1,24 @@
+package oop_example.typechecker;
+
+import oop_example.parser.Type;
+
+// The type of an expression that already had a type error, used when
+// collecting diagnostics.  It's compatible with everything, so a single
+// mistake gets reported once instead of once per enclosing expression:
+//
+// int x = undefined + 1;  // one error: undefined isn't in scope
+//
+// This never appears in a program; only the typechecker produces it.
+public final class ErrorType implements Type {
+    private static final ErrorType INSTANCE = new ErrorType();
+
+    private ErrorType() {}
+
+    public static ErrorType instance() { return INSTANCE; }
+
+    public int hashCode() { return 6; }
+    public boolean equals(final Object other) {
+        return other == this;
+    }
+    public String toString() { return "ErrorType"; }
+}
@@ -0,0 +1,198 @@
+package oop_example.typechecker;
+
+import oop_example.parser.*;
+
+import java.util.List;
+
+// 64-bit content hash of AST fragments, for telling whether a declaration
+// changed between two versions of a program.  Unlike hashCode(), this is
+// order-sensitive (a + b and b + a differ) and tags every node with its
+// kind, so accidental collisions are very unlikely.
+//
+// Usage: new Fingerprint().add(method).value()
+public class Fingerprint {
+    private static final long PRIME = 0x100000001b3L;
+    private long hash = 0xcbf29ce484222325L;
+
+    public long value() {
+        // final avalanche, so nearby inputs spread over all bits
+        long result = hash;
+        result ^= result >>> 33;
+        result *= 0xff51afd7ed558ccdL;
+        result ^= result >>> 33;
+        result *= 0xc4ceb9fe1a85ec53L;
+        result ^= result >>> 33;
+        return result;
+    }
+
+    public Fingerprint add(final long value) {
+        hash = (hash ^ value) * PRIME;
+        return this;
+    }
+
+    public Fingerprint add(final String value) {
+        add(value.length());
+        for (int index = 0; index < value.length(); index++) {
+            add(value.charAt(index));
+        }
+        return this;
+    }
+
+    public Fingerprint add(final ClassName className) {
+        return (className == null) ? add(0) : add(1).add(className.name);
+    }
+
+    public Fingerprint add(final MethodName methodName) {
+        return (methodName == null) ? add(0) : add(1).add(methodName.name);
+    }
+
+    public Fingerprint add(final Type type) {
+        if (type == IntType.instance()) {
+            return add(1);
+        } else if (type == BoolType.instance()) {
+            return add(2);
+        } else if (type == VoidType.instance()) {
+            return add(3);
+        } else if (type instanceof ClassNameType) {
+            return add(4).add(((ClassNameType)type).className);
+        } else {
+            return add(5).add(String.valueOf(type));
+        }
+    }
+
+    public Fingerprint add(final Vardec vardec) {
+        return add(vardec.type).add(vardec.variable.name);
+    }
+
+    public Fingerprint addVardecs(final List<Vardec> vardecs) {
+        add(vardecs.size());
+        for (final Vardec vardec : vardecs) {
+            add(vardec);
+        }
+        return this;
+    }
+
+    public Fingerprint addTypes(final List<Type> types) {
+        add(types.size());
+        for (final Type type : types) {
+            add(type);
+        }
+        return this;
+    }
+
+    public Fingerprint addExps(final List<Exp> exps) {
+        add(exps.size());
+        for (final Exp exp : exps) {
+            add(exp);
+        }
+        return this;
+    }
+
+    public Fingerprint addStmts(final List<Stmt> stmts) {
+        add(stmts.size());
+        for (final Stmt stmt : stmts) {
+            add(stmt);
+        }
+        return this;
+    }
+
+    public Fingerprint add(final Exp exp) {
+        if (exp instanceof IntLiteralExp) {
+            return add(10).add(((IntLiteralExp)exp).value);
+        } else if (exp instanceof VariableExp) {
+            return add(11).add(((VariableExp)exp).variable.name);
+        } else if (exp instanceof BoolLiteralExp) {
+            return add(12).add(((BoolLiteralExp)exp).value ? 1 : 0);
+        } else if (exp instanceof ThisExp) {
+            return add(13);
+        } else if (exp instanceof OpExp) {
+            final OpExp asOp = (OpExp)exp;
+            return add(14).add(asOp.op.toString()).add(asOp.left).add(asOp.right);
+        } else if (exp instanceof MethodCallExp) {
+            final MethodCallExp asCall = (MethodCallExp)exp;
+            return add(15).add(asCall.target).add(asCall.methodName).addExps(asCall.params);
+        } else if (exp instanceof NewExp) {
+            final NewExp asNew = (NewExp)exp;
+            return add(16).add(asNew.className).addExps(asNew.params);
+        } else {
+            return add(17).add(String.valueOf(exp));
+        }
+    }
+
+    public Fingerprint add(final Stmt stmt) {
+        if (stmt instanceof ExpStmt) {
+            return add(20).add(((ExpStmt)stmt).exp);
+        } else if (stmt instanceof VariableInitializationStmt) {
+            final VariableInitializationStmt asVar = (VariableInitializationStmt)stmt;
+            return add(21).add(asVar.vardec).add(asVar.exp);
+        } else if (stmt instanceof IfStmt) {
+            final IfStmt asIf = (IfStmt)stmt;
+            return add(22).add(asIf.guard).add(asIf.ifTrue).add(asIf.ifFalse);
+        } else if (stmt instanceof WhileStmt) {
+            final WhileStmt asWhile = (WhileStmt)stmt;
+            return add(23).add(asWhile.guard).add(asWhile.body);
+        } else if (stmt instanceof ReturnNonVoidStmt) {
+            return add(24).add(((ReturnNonVoidStmt)stmt).exp);
+        } else if (stmt instanceof ReturnVoidStmt) {
+            return add(25);
+        } else if (stmt instanceof PrintlnStmt) {
+            return add(26).add(((PrintlnStmt)stmt).exp);
+        } else if (stmt instanceof BlockStmt) {
+            return add(27).addStmts(((BlockStmt)stmt).body);
+        } else {
+            return add(28).add(String.valueOf(stmt));
+        }
+    }
+
+    public Fingerprint add(final MethodDef method) {
+        return (add(30).add(method.returnType)
+                .add(method.methodName)
+                .addVardecs(method.arguments)
+                .add(method.body));
+    }
+
+    // everything that goes into checking a class's constructor, other than
+    // the class's signature
+    public Fingerprint addConstructor(final ClassDef classDef) {
+        return (add(31).add(classDef.extendsClassName)
+                .addVardecs(classDef.constructorArguments)
+                .addExps(classDef.superParams)
+                .addStmts(classDef.constructorBody));
+    }
+
+    // Everything ClassInfo.fromClassDef reads from a class: its name and
+    // parent, its own instance variables, its constructor's parameter types,
+    // and its own method signatures.  Bodies don't matter.
+    public Fingerprint addDeclaration(final ClassDef classDef) {
+        add(33).add(classDef.className).add(classDef.extendsClassName).addVardecs(classDef.instanceVariables);
+        add(classDef.constructorArguments.size());
+        for (final Vardec vardec : classDef.constructorArguments) {
+            add(vardec.type);
+        }
+        add(classDef.methods.size());
+        for (final MethodDef method : classDef.methods) {
+            add(method.methodName).add(method.returnType).addVardecs(method.arguments);
+        }
+        return this;
+    }
+
+    // Everything other classes can see of a class: its ancestors, its
+    // (inherited) instance variables, constructor, and method signatures.
+    // Method bodies don't matter.
+    public Fingerprint addSignature(final ClassInfo classInfo) {
+        add(32);
+        for (ClassInfo current = classInfo; current != null; current = current.parent) {
+            add(current.className);
+        }
+        add(classInfo.fields.size());
+        for (final Variable field : classInfo.fields.keySet()) {
+            add(field.name).add(classInfo.fields.get(field));
+        }
+        addTypes(classInfo.constructorTypes);
+        add(classInfo.methodTable.size());
+        for (final MethodInfo method : classInfo.methodTable) {
+            add(method.methodDef.methodName).add(method.returnType).addTypes(method.parameterTypes);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,287 @@
+package oop_example.typechecker;
+
+import oop_example.parser.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Re-typechecks a program after an edit, reusing results for declarations
+// that can't have changed outcome.
+//
+// Each constructor, each method, and the entry point is a separate
+// declaration.  For each one we remember:
+// - a fingerprint of its own source
+// - every class whose signature it looked at while being checked (found by
+//   watching the typechecker's class lookups), with a fingerprint of that
+//   class's signature at the time
+// - the resulting error, if any
+//
+// On the next run, a declaration is re-checked only if its own source
+// changed or one of the signatures it looked at changed.  Editing a method
+// body therefore re-checks just that method; changing a method's parameter
+// types re-checks that method plus everything that calls it.
+//
+// Usage:
+//   Result first = IncrementalTypechecker.check(program, null);
+//   Result second = IncrementalTypechecker.check(editedProgram, first.session);
+//   second.rechecked // what actually had to be checked again
+public class IncrementalTypechecker {
+    // a constructor (methodName is null), method, or the entry point (both null)
+    public static class Declaration {
+        public final ClassName className;
+        public final MethodName methodName;
+
+        public Declaration(final ClassName className,
+                           final MethodName methodName) {
+            this.className = className;
+            this.methodName = methodName;
+        }
+
+        public int hashCode() {
+            return (((className == null) ? 0 : className.hashCode()) * 31 +
+                    ((methodName == null) ? 0 : methodName.hashCode()));
+        }
+
+        public boolean equals(final Object other) {
+            if (other instanceof Declaration) {
+                final Declaration otherDecl = (Declaration)other;
+                return (((className == null) ? otherDecl.className == null : className.equals(otherDecl.className)) &&
+                        ((methodName == null) ? otherDecl.methodName == null : methodName.equals(otherDecl.methodName)));
+            } else {
+                return false;
+            }
+        }
+
+        public String toString() {
+            if (className == null) {
+                return "entry point";
+            } else if (methodName == null) {
+                return className.name + " constructor";
+            } else {
+                return className.name + "." + methodName.name;
+            }
+        }
+    }
+
+    private static class CheckedDeclaration {
+        final long sourceFingerprint;
+        // class -> signature fingerprint, for every class looked at
+        final Map<ClassName, Long> dependencies;
+        final TypeError error; // null if well-typed
+
+        CheckedDeclaration(final long sourceFingerprint,
+                           final Map<ClassName, Long> dependencies,
+                           final TypeError error) {
+            this.sourceFingerprint = sourceFingerprint;
+            this.dependencies = dependencies;
+            this.error = error;
+        }
+    }
+
+    // What one run leaves behind for the next.  Immutable.
+    public static class Session {
+        private final Map<Declaration, CheckedDeclaration> declarations;
+
+        private Session(final Map<Declaration, CheckedDeclaration> declarations) {
+            this.declarations = Collections.unmodifiableMap(declarations);
+        }
+
+        public int size() {
+            return declarations.size();
+        }
+    }
+
+    public static class Result {
+        public final Session session;
+        // first error in each declaration that has one, in program order
+        public final List<TypeError> errors;
+        public final List<Declaration> rechecked;
+        public final int reused;
+
+        private Result(final Session session,
+                       final List<TypeError> errors,
+                       final List<Declaration> rechecked,
+                       final int reused) {
+            this.session = session;
+            this.errors = Collections.unmodifiableList(errors);
+            this.rechecked = Collections.unmodifiableList(rechecked);
+            this.reused = reused;
+        }
+
+        public boolean isWellTyped() {
+            return errors.isEmpty();
+        }
+    }
+
+    // Notes every class whose signature the typechecker asks about.
+    private static class RecordingTypechecker extends Typechecker {
+        final Set<ClassName> lookedAt = new LinkedHashSet<ClassName>();
+
+        RecordingTypechecker(final Program program) throws TypeErrorException {
+            super(program);
+        }
+
+        public MethodInfo methodForCall(final ClassName className,
+                                        final MethodName methodName) throws TypeErrorException {
+            lookedAt.add(className);
+            return super.methodForCall(className, methodName);
+        }
+
+        public List<Type> expectedConstructorTypesForClass(final ClassName className)
+            throws TypeErrorException {
+            lookedAt.add(className);
+            return super.expectedConstructorTypesForClass(className);
+        }
+
+        public boolean isSubtypeOf(final Type first, final Type second) throws TypeErrorException {
+            if (first instanceof ClassNameType) {
+                lookedAt.add(((ClassNameType)first).className);
+            }
+            if (second instanceof ClassNameType) {
+                lookedAt.add(((ClassNameType)second).className);
+            }
+            return super.isSubtypeOf(first, second);
+        }
+    }
+
+    // Problems with the class hierarchy itself are thrown, as with Typechecker.
+    public static Result check(final Program program,
+                               final Session previous) throws TypeErrorException {
+        final RecordingTypechecker typechecker = new RecordingTypechecker(program);
+        final Map<ClassName, Long> signatures = new HashMap<ClassName, Long>();
+        final Map<Declaration, CheckedDeclaration> declarations =
+            new LinkedHashMap<Declaration, CheckedDeclaration>();
+        final List<TypeError> errors = new ArrayList<TypeError>();
+        final List<Declaration> rechecked = new ArrayList<Declaration>();
+        int reused = 0;
+
+        for (final ClassDef classDef : program.classes) {
+            final List<Declaration> classDecls = new ArrayList<Declaration>();
+            final List<Long> sources = new ArrayList<Long>();
+            classDecls.add(new Declaration(classDef.className, null));
+            sources.add(new Fingerprint().addConstructor(classDef).value());
+            for (final MethodDef method : classDef.methods) {
+                classDecls.add(new Declaration(classDef.className, method.methodName));
+                sources.add(new Fingerprint().add(method).value());
+            }
+
+            for (int index = 0; index < classDecls.size(); index++) {
+                final Declaration decl = classDecls.get(index);
+                final long source = sources.get(index);
+                CheckedDeclaration checked = reusable(previous, decl, source, typechecker, signatures);
+                if (checked == null) {
+                    final MethodDef method = (index == 0) ? null : classDef.methods.get(index - 1);
+                    checked = checkDeclaration(typechecker, decl, source, signatures, classDef, method);
+                    rechecked.add(decl);
+                } else {
+                    reused++;
+                }
+                declarations.put(decl, checked);
+                if (checked.error != null) {
+                    errors.add(checked.error);
+                }
+            }
+        }
+
+        final Declaration entry = new Declaration(null, null);
+        final long entrySource = new Fingerprint().add(program.entryPoint).value();
+        CheckedDeclaration checkedEntry = reusable(previous, entry, entrySource, typechecker, signatures);
+        if (checkedEntry == null) {
+            checkedEntry = checkDeclaration(typechecker, entry, entrySource, signatures, null, null);
+            rechecked.add(entry);
+        } else {
+            reused++;
+        }
+        declarations.put(entry, checkedEntry);
+        if (checkedEntry.error != null) {
+            errors.add(checkedEntry.error);
+        }
+
+        return new Result(new Session(declarations), errors, rechecked, reused);
+    }
+
+    // the previous result for this declaration, if it still holds
+    private static CheckedDeclaration reusable(final Session previous,
+                                               final Declaration decl,
+                                               final long source,
+                                               final Typechecker typechecker,
+                                               final Map<ClassName, Long> signatures) {
+        if (previous == null) {
+            return null;
+        }
+        final CheckedDeclaration old = previous.declarations.get(decl);
+        if (old == null || old.sourceFingerprint != source) {
+            return null;
+        }
+        for (final Map.Entry<ClassName, Long> dependency : old.dependencies.entrySet()) {
+            if (signatureOf(dependency.getKey(), typechecker, signatures) != dependency.getValue()) {
+                return null;
+            }
+        }
+        return old;
+    }
+
+    private static CheckedDeclaration checkDeclaration(final RecordingTypechecker typechecker,
+                                                       final Declaration decl,
+                                                       final long source,
+                                                       final Map<ClassName, Long> signatures,
+                                                       final ClassDef classDef,
+                                                       final MethodDef method) {
+        typechecker.lookedAt.clear();
+        TypeError error = null;
+        try {
+            if (classDef == null) {
+                typechecker.isWellTypedStmt(typechecker.program.entryPoint,
+                                            TypeEnvironment.empty(),
+                                            null,
+                                            null);
+            } else {
+                // the class's own instance variables are always used
+                typechecker.lookedAt.add(classDef.className);
+                if (method == null) {
+                    typechecker.isWellTypedConstructor(classDef);
+                } else {
+                    typechecker.isWellTypedMethodDef(method,
+                                                     typechecker.classTable.lookupClass(classDef.className).fieldEnvironment,
+                                                     classDef.className);
+                }
+            }
+        } catch (final TypeErrorException e) {
+            error = new TypeError(e.getMessage(), decl.className, decl.methodName);
+        }
+
+        final Map<ClassName, Long> dependencies = new HashMap<ClassName, Long>();
+        for (final ClassName className : typechecker.lookedAt) {
+            dependencies.put(className, signatureOf(className, typechecker, signatures));
+        }
+        return new CheckedDeclaration(source, dependencies, error);
+    }
+
+    // 0 stands for "no such class", so adding the class later invalidates
+    // anything that failed because it was missing
+    private static long signatureOf(final ClassName className,
+                                    final Typechecker typechecker,
+                                    final Map<ClassName, Long> signatures) {
+        final Long cached = signatures.get(className);
+        if (cached != null) {
+            return cached;
+        }
+        long signature = 0;
+        if (typechecker.classTable.hasClass(className)) {
+            try {
+                signature = new Fingerprint().addSignature(typechecker.classTable.lookupClass(className)).value();
+            } catch (final TypeErrorException e) {
+                // can't happen; we just checked the class exists
+                throw new IllegalStateException(e);
+            }
+        }
+        signatures.put(className, signature);
+        return signature;
+    }
+}
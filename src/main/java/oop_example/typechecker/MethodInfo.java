@@ -0,0 +1,51 @@
+package oop_example.typechecker;
+
+import oop_example.parser.ClassName;
+import oop_example.parser.MethodDef;
+import oop_example.parser.Type;
+import oop_example.parser.Vardec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Signature of a method as seen from some class.  The same MethodInfo is
+// shared by the declaring class and every subclass that inherits it without
+// overriding it.
+public class MethodInfo {
+    // position in the flattened method table; an override reuses the slot
+    // of the method it overrides
+    public final int slot;
+    public final ClassName declaringClass;
+    public final MethodDef methodDef;
+    public final List<Type> parameterTypes; // unmodifiable
+    public final Type returnType;
+
+    public MethodInfo(final int slot,
+                      final ClassName declaringClass,
+                      final MethodDef methodDef) {
+        this.slot = slot;
+        this.declaringClass = declaringClass;
+        this.methodDef = methodDef;
+        this.parameterTypes = typesOf(methodDef.arguments);
+        this.returnType = methodDef.returnType;
+    }
+
+    public static List<Type> typesOf(final List<Vardec> vardecs) {
+        if (vardecs.isEmpty()) {
+            return Collections.emptyList();
+        } else {
+            final List<Type> types = new ArrayList<Type>(vardecs.size());
+            for (final Vardec vardec : vardecs) {
+                types.add(vardec.type);
+            }
+            return Collections.unmodifiableList(types);
+        }
+    }
+
+    public String toString() {
+        return ("MethodInfo(" + slot + ", " +
+                declaringClass.toString() + ", " +
+                methodDef.methodName.toString() + ")");
+    }
+}
@@ -0,0 +1,129 @@
+package oop_example.typechecker;
+
+import oop_example.parser.ClassDef;
+import oop_example.parser.MethodDef;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Checks a program's class bodies on a ForkJoinPool.
+//
+// Once the class table is built, the typechecker holds no mutable state, so
+// every constructor and method can be checked on its own.  Those checks are
+// laid out in program order and split in halves recursively; each half
+// returns the first error it found (or null), and the left half's error
+// wins.  That way the reported error is always the one the sequential
+// checker would have reported, no matter how the work was scheduled.
+//
+// The entry point is checked last, after all classes are known to be fine.
+public class ParallelTypechecker {
+    public final Typechecker typechecker;
+    public final int parallelism;
+
+    public ParallelTypechecker(final Typechecker typechecker,
+                               final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        if (typechecker.diagnostics != null) {
+            throw new IllegalArgumentException("parallel checking doesn't support collecting diagnostics");
+        }
+        if (typechecker.annotations != null) {
+            throw new IllegalArgumentException("parallel checking doesn't support recording annotations");
+        }
+        if (typechecker.metrics != null) {
+            throw new IllegalArgumentException("parallel checking doesn't support metrics");
+        }
+        this.typechecker = typechecker;
+        this.parallelism = parallelism;
+    }
+
+    // a single constructor or method to check
+    private static class Unit {
+        final ClassDef classDef;
+        final MethodDef method; // null for the constructor
+
+        Unit(final ClassDef classDef, final MethodDef method) {
+            this.classDef = classDef;
+            this.method = method;
+        }
+    }
+
+    private class CheckTask extends RecursiveTask<TypeErrorException> {
+        private final List<Unit> units;
+        private final int start;
+        private final int end;
+        private final int leafSize;
+
+        CheckTask(final List<Unit> units, final int start, final int end, final int leafSize) {
+            this.units = units;
+            this.start = start;
+            this.end = end;
+            this.leafSize = leafSize;
+        }
+
+        protected TypeErrorException compute() {
+            if (end - start <= leafSize) {
+                for (int index = start; index < end; index++) {
+                    try {
+                        check(units.get(index));
+                    } catch (final TypeErrorException e) {
+                        return e;
+                    }
+                }
+                return null;
+            } else {
+                final int middle = (start + end) >>> 1;
+                final CheckTask left = new CheckTask(units, start, middle, leafSize);
+                final CheckTask right = new CheckTask(units, middle, end, leafSize);
+                right.fork();
+                final TypeErrorException leftError = left.compute();
+                final TypeErrorException rightError = right.join();
+                return (leftError != null) ? leftError : rightError;
+            }
+        }
+    }
+
+    private void check(final Unit unit) throws TypeErrorException {
+        if (unit.method == null) {
+            typechecker.isWellTypedConstructor(unit.classDef);
+        } else {
+            typechecker.isWellTypedMethodDef(unit.method,
+                                             typechecker.classTable.lookupClass(unit.classDef.className).fieldEnvironment,
+                                             unit.classDef.className);
+        }
+    }
+
+    public void isWellTypedProgram() throws TypeErrorException {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            isWellTypedProgram(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void isWellTypedProgram(final ForkJoinPool pool) throws TypeErrorException {
+        final List<Unit> units = new ArrayList<Unit>();
+        for (final ClassDef classDef : typechecker.program.classes) {
+            units.add(new Unit(classDef, null));
+            for (final MethodDef method : classDef.methods) {
+                units.add(new Unit(classDef, method));
+            }
+        }
+
+        // a few leaves per worker, so idle workers can steal
+        final int leafSize = Math.max(1, units.size() / (pool.getParallelism() * 8));
+        final TypeErrorException error = pool.invoke(new CheckTask(units, 0, units.size(), leafSize));
+        if (error != null) {
+            throw error;
+        }
+
+        typechecker.isWellTypedStmt(typechecker.program.entryPoint,
+                                    TypeEnvironment.empty(),
+                                    null,
+                                    null);
+    }
+}
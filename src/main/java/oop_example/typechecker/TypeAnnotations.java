@@ -0,0 +1,150 @@
+package oop_example.typechecker;
+
+import oop_example.parser.Exp;
+import oop_example.parser.MethodCallExp;
+import oop_example.parser.NewExp;
+import oop_example.parser.Type;
+import oop_example.parser.Vardec;
+import oop_example.parser.VariableExp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// What the typechecker worked out about each expression of a program, so
+// later stages can look it up instead of working it out again:
+// - every Exp: its type
+// - every MethodCallExp: the method it resolved to on the receiver's
+//   static type (MethodInfo.methodDef and .declaringClass)
+// - every NewExp: the class it instantiates (ClassInfo.classDef)
+// - every VariableExp: the instance variable, parameter or local
+//   declaration it refers to
+//
+// AST nodes compare structurally, so this goes by identity: two `x`s in
+// different methods can have different types.  Rather than an
+// IdentityHashMap of small records, entries live in three parallel arrays
+// with linear probing, one slot per expression.
+//
+// When collecting diagnostics, expressions inside a statement that failed
+// to check may be missing.
+public class TypeAnnotations {
+    private static final int INITIAL_CAPACITY = 64; // power of two
+
+    private Exp[] keys;
+    private Type[] types;
+    // MethodInfo, ClassInfo or Vardec, depending on the kind of key
+    private Object[] extras;
+    private int size;
+
+    public TypeAnnotations() {
+        this(INITIAL_CAPACITY);
+    }
+
+    // expectedSize: roughly how many expressions will be recorded
+    public TypeAnnotations(final int expectedSize) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < expectedSize + expectedSize / 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(final int capacity) {
+        keys = new Exp[capacity];
+        types = new Type[capacity];
+        extras = new Object[capacity];
+    }
+
+    private static int indexFor(final Exp exp, final int mask) {
+        final int hash = System.identityHashCode(exp);
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    // where exp is, or the empty slot it would go in
+    private int find(final Exp exp) {
+        final int mask = keys.length - 1;
+        int index = indexFor(exp, mask);
+        while (keys[index] != null && keys[index] != exp) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    // Called by the typechecker.  A node checked twice (e.g., shared
+    // between two places in the tree) keeps what it was given last.
+    void record(final Exp exp, final Type type, final Object extra) {
+        int index = find(exp);
+        if (keys[index] == null) {
+            // keep the load factor at most 2/3
+            if (3 * (size + 1) > 2 * keys.length) {
+                grow();
+                index = find(exp);
+            }
+            keys[index] = exp;
+            size++;
+        }
+        types[index] = type;
+        extras[index] = extra;
+    }
+
+    private void grow() {
+        final Exp[] oldKeys = keys;
+        final Type[] oldTypes = types;
+        final Object[] oldExtras = extras;
+        allocate(oldKeys.length * 2);
+        for (int oldIndex = 0; oldIndex < oldKeys.length; oldIndex++) {
+            if (oldKeys[oldIndex] != null) {
+                final int index = find(oldKeys[oldIndex]);
+                keys[index] = oldKeys[oldIndex];
+                types[index] = oldTypes[oldIndex];
+                extras[index] = oldExtras[oldIndex];
+            }
+        }
+    }
+
+    private Object extraOf(final Exp exp) {
+        final int index = find(exp);
+        return (keys[index] == null) ? null : extras[index];
+    }
+
+    // null if exp wasn't checked
+    public Type typeOf(final Exp exp) {
+        final int index = find(exp);
+        return (keys[index] == null) ? null : types[index];
+    }
+
+    // null if the call wasn't checked, or its method couldn't be found
+    public MethodInfo methodOf(final MethodCallExp exp) {
+        return (MethodInfo)extraOf(exp);
+    }
+
+    // null if the expression wasn't checked, or its class doesn't exist
+    public ClassInfo classOf(final NewExp exp) {
+        return (ClassInfo)extraOf(exp);
+    }
+
+    // null if the variable wasn't checked, or wasn't in scope
+    public Vardec bindingOf(final VariableExp exp) {
+        return (Vardec)extraOf(exp);
+    }
+
+    // every checked call that resolved to a method, in no particular order
+    public List<MethodCallExp> calls() {
+        final List<MethodCallExp> result = new ArrayList<MethodCallExp>();
+        for (int index = 0; index < keys.length; index++) {
+            if (keys[index] instanceof MethodCallExp && extras[index] != null) {
+                result.add((MethodCallExp)keys[index]);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    // number of expressions recorded
+    public int size() {
+        return size;
+    }
+
+    public String toString() {
+        return "TypeAnnotations(" + size + " expressions)";
+    }
+}
@@ -0,0 +1,255 @@
+package oop_example.typechecker;
+
+import oop_example.parser.Type;
+import oop_example.parser.Vardec;
+import oop_example.parser.Variable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Immutable map from variables to their types, and to the declarations
+// that bound them, where those are known.  Adding a binding returns a
+// new environment and leaves the old one untouched, so it's safe to hold on
+// to an environment from an outer scope while an inner scope extends it:
+//
+// int x = 1;        // env1 = { x: int }
+// while (true) {
+//   bool y = true;  // env2 = { x: int, y: bool }
+// }
+// // back to env1
+//
+// Internally this is a hash array mapped trie (HAMT): a 32-way tree indexed
+// by 5 bits of the hash at a time.  Adding a binding copies only the nodes on
+// the path to the key, which is O(log32 n), and shares everything else with
+// the old environment.
+public class TypeEnvironment {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final TypeEnvironment EMPTY =
+        new TypeEnvironment(new BitmapNode(0, new Object[0]), 0);
+
+    private final Node root;
+    private final int size;
+
+    private TypeEnvironment(final Node root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static TypeEnvironment empty() {
+        return EMPTY;
+    }
+
+    public static TypeEnvironment fromMap(final Map<Variable, Type> map) {
+        TypeEnvironment result = EMPTY;
+        for (final Map.Entry<Variable, Type> entry : map.entrySet()) {
+            result = result.extend(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    // returns null if the variable isn't in scope
+    public Type get(final Variable variable) {
+        final Entry entry = root.get(variable, variable.hashCode(), 0);
+        return (entry == null) ? null : entry.type;
+    }
+
+    // The instance variable, parameter or local declaration the variable
+    // refers to.  Null if it isn't in scope, or was bound without one.
+    public Vardec bindingOf(final Variable variable) {
+        final Entry entry = root.get(variable, variable.hashCode(), 0);
+        return (entry == null) ? null : entry.vardec;
+    }
+
+    public boolean containsVariable(final Variable variable) {
+        return get(variable) != null;
+    }
+
+    // Later bindings shadow earlier ones with the same name.
+    public TypeEnvironment extend(final Variable variable, final Type type) {
+        return extend(new Entry(variable, variable.hashCode(), type, null));
+    }
+
+    public TypeEnvironment extend(final Vardec vardec) {
+        return extend(new Entry(vardec.variable, vardec.variable.hashCode(), vardec.type, vardec));
+    }
+
+    private TypeEnvironment extend(final Entry entry) {
+        final boolean isNew = get(entry.variable) == null;
+        return new TypeEnvironment(root.put(entry, 0), isNew ? size + 1 : size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Map<Variable, Type> toMap() {
+        final Map<Variable, Type> result = new LinkedHashMap<Variable, Type>();
+        root.addAllTo(result);
+        return result;
+    }
+
+    public int hashCode() {
+        return toMap().hashCode();
+    }
+
+    public boolean equals(final Object other) {
+        return (other instanceof TypeEnvironment &&
+                size == ((TypeEnvironment)other).size &&
+                toMap().equals(((TypeEnvironment)other).toMap()));
+    }
+
+    public String toString() {
+        return "TypeEnvironment(" + toMap().toString() + ")";
+    }
+
+    private static abstract class Node {
+        abstract Entry get(Variable variable, int hash, int shift);
+        abstract Node put(Entry entry, int shift);
+        abstract void addAllTo(Map<Variable, Type> map);
+    }
+
+    private static class Entry {
+        final Variable variable;
+        final int hash;
+        final Type type;
+        final Vardec vardec; // null if not known
+
+        Entry(final Variable variable, final int hash, final Type type, final Vardec vardec) {
+            this.variable = variable;
+            this.hash = hash;
+            this.type = type;
+            this.vardec = vardec;
+        }
+    }
+
+    // Slots holds an Entry or a Node for every bit set in bitmap, in bit order.
+    private static class BitmapNode extends Node {
+        final int bitmap;
+        final Object[] slots;
+
+        BitmapNode(final int bitmap, final Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        Entry get(final Variable variable, final int hash, final int shift) {
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            final Object slot = slots[Integer.bitCount(bitmap & (bit - 1))];
+            if (slot instanceof Entry) {
+                final Entry entry = (Entry)slot;
+                return (entry.hash == hash && entry.variable.equals(variable)) ? entry : null;
+            } else {
+                return ((Node)slot).get(variable, hash, shift + BITS);
+            }
+        }
+
+        Node put(final Entry newEntry, final int shift) {
+            final int bit = 1 << ((newEntry.hash >>> shift) & MASK);
+            final int index = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                final Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                newSlots[index] = newEntry;
+                System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+                return new BitmapNode(bitmap | bit, newSlots);
+            }
+
+            final Object slot = slots[index];
+            final Object replacement;
+            if (slot instanceof Entry) {
+                final Entry entry = (Entry)slot;
+                if (entry.hash == newEntry.hash && entry.variable.equals(newEntry.variable)) {
+                    replacement = newEntry;
+                } else {
+                    replacement = merge(entry, newEntry, shift + BITS);
+                }
+            } else {
+                replacement = ((Node)slot).put(newEntry, shift + BITS);
+            }
+            final Object[] newSlots = slots.clone();
+            newSlots[index] = replacement;
+            return new BitmapNode(bitmap, newSlots);
+        }
+
+        void addAllTo(final Map<Variable, Type> map) {
+            for (final Object slot : slots) {
+                if (slot instanceof Entry) {
+                    map.put(((Entry)slot).variable, ((Entry)slot).type);
+                } else {
+                    ((Node)slot).addAllTo(map);
+                }
+            }
+        }
+    }
+
+    // Entries whose full 32-bit hashes are identical
+    private static class CollisionNode extends Node {
+        final int hash;
+        final Entry[] entries;
+
+        CollisionNode(final int hash, final Entry[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        Entry get(final Variable variable, final int hash, final int shift) {
+            if (hash == this.hash) {
+                for (final Entry entry : entries) {
+                    if (entry.variable.equals(variable)) {
+                        return entry;
+                    }
+                }
+            }
+            return null;
+        }
+
+        Node put(final Entry newEntry, final int shift) {
+            if (newEntry.hash != this.hash) {
+                // a different hash that happened to share our path so far
+                final int bit = 1 << ((this.hash >>> shift) & MASK);
+                return new BitmapNode(bit, new Object[]{ this }).put(newEntry, shift);
+            }
+            for (int index = 0; index < entries.length; index++) {
+                if (entries[index].variable.equals(newEntry.variable)) {
+                    final Entry[] newEntries = entries.clone();
+                    newEntries[index] = newEntry;
+                    return new CollisionNode(hash, newEntries);
+                }
+            }
+            final Entry[] newEntries = new Entry[entries.length + 1];
+            System.arraycopy(entries, 0, newEntries, 0, entries.length);
+            newEntries[entries.length] = newEntry;
+            return new CollisionNode(hash, newEntries);
+        }
+
+        void addAllTo(final Map<Variable, Type> map) {
+            for (final Entry entry : entries) {
+                map.put(entry.variable, entry.type);
+            }
+        }
+    }
+
+    // builds the smallest subtree holding two entries for different variables
+    private static Node merge(final Entry first, final Entry second, final int shift) {
+        if (first.hash == second.hash) {
+            return new CollisionNode(first.hash, new Entry[]{ first, second });
+        }
+        final int firstIndex = (first.hash >>> shift) & MASK;
+        final int secondIndex = (second.hash >>> shift) & MASK;
+        if (firstIndex == secondIndex) {
+            return new BitmapNode(1 << firstIndex,
+                                  new Object[]{ merge(first, second, shift + BITS) });
+        } else if (firstIndex < secondIndex) {
+            return new BitmapNode((1 << firstIndex) | (1 << secondIndex),
+                                  new Object[]{ first, second });
+        } else {
+            return new BitmapNode((1 << firstIndex) | (1 << secondIndex),
+                                  new Object[]{ second, first });
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package oop_example.typechecker;
+
+import oop_example.parser.ClassName;
+import oop_example.parser.MethodName;
+
+// A single type error, as a plain value.
+public class TypeError {
+    public final String message;
+    public final ClassName className; // null in the entry point
+    public final MethodName methodName; // null in a constructor or the entry point
+    // about how the classes fit together rather than any one body, like a
+    // cycle or a missing parent; className and methodName are null
+    public final boolean inClassHierarchy;
+
+    public TypeError(final String message,
+                     final ClassName className,
+                     final MethodName methodName) {
+        this(message, className, methodName, false);
+    }
+
+    private TypeError(final String message,
+                      final ClassName className,
+                      final MethodName methodName,
+                      final boolean inClassHierarchy) {
+        this.message = message;
+        this.className = className;
+        this.methodName = methodName;
+        this.inClassHierarchy = inClassHierarchy;
+    }
+
+    public static TypeError inClassHierarchy(final String message) {
+        return new TypeError(message, null, null, true);
+    }
+
+    public int hashCode() {
+        return ((inClassHierarchy ? 1 : 0) +
+                message.hashCode() +
+                ((className == null) ? 0 : className.hashCode()) +
+                ((methodName == null) ? 0 : methodName.hashCode()));
+    }
+
+    public boolean equals(final Object other) {
+        if (other instanceof TypeError) {
+            final TypeError otherError = (TypeError)other;
+            return (inClassHierarchy == otherError.inClassHierarchy &&
+                    message.equals(otherError.message) &&
+                    ((className == null) ? otherError.className == null : className.equals(otherError.className)) &&
+                    ((methodName == null) ? otherError.methodName == null : methodName.equals(otherError.methodName)));
+        } else {
+            return false;
+        }
+    }
+
+    public String toString() {
+        final String where;
+        if (inClassHierarchy) {
+            where = "class hierarchy";
+        } else if (className == null) {
+            where = "entry point";
+        } else if (methodName == null) {
+            where = className.name + " constructor";
+        } else {
+            where = className.name + "." + methodName.name;
+        }
+        return where + ": " + message;
+    }
+}
@@ -1,7 +1,9 @@
 package oop_example.typechecker;
 
 public class TypeErrorException extends Exception {
+    // Type errors are about the program being checked, not about where in
+    // the typechecker we noticed them, so we skip capturing a stack trace.
     public TypeErrorException(final String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -1,8 +1,8 @@
 package oop_example.typechecker;
 
+import oop_example.parser.*;
+
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
 
 // typechecks: well-typed: no type errors
 // doesn't typecheck: ill-typed: some number of type errors (>0)
@@ -24,20 +24,153 @@ public class Typechecker {
 
     public final List<ClassDef> classes;
     public final Program program;
+    // ClassName -> flattened methods, fields, and constructor of the class
+    public final ClassTable classTable;
+    // null: stop at the first error by throwing TypeErrorException
+    // non-null: record every error here and keep going
+    public final Diagnostics diagnostics;
+    // null: don't record anything
+    // non-null: record the type of each expression, and what it refers to, here
+    public final TypeAnnotations annotations;
+    // null: don't measure
+    // non-null: count and time what checking does here
+    public final TypecheckerMetrics metrics;
     
-    // recommended: ClassName -> All Methods on the Class
-    // recommended: ClassName -> ParentClass
-    public Typechecker(final Program program) {
+    public Typechecker(final Program program) throws TypeErrorException {
+        this(program, null);
+    }
+
+    public Typechecker(final Program program,
+                       final Diagnostics diagnostics) throws TypeErrorException {
+        this(program, diagnostics, null);
+    }
+
+    // Problems with the class hierarchy itself (duplicate or cyclic classes,
+    // bad overrides) are always thrown, since there's no class table to check
+    // anything else against.
+    public Typechecker(final Program program,
+                       final Diagnostics diagnostics,
+                       final TypeAnnotations annotations) throws TypeErrorException {
+        this(program, diagnostics, annotations, null);
+    }
+
+    public Typechecker(final Program program,
+                       final Diagnostics diagnostics,
+                       final TypeAnnotations annotations,
+                       final TypecheckerMetrics metrics) throws TypeErrorException {
+        // also checks that the class hierarchy is a tree
+        this(program, new ClassTable(program.classes), diagnostics, annotations, metrics);
+    }
+
+    // For a class table built elsewhere, e.g., with a ClassInfoCache.  It
+    // must have been built from this program's classes.
+    public Typechecker(final Program program,
+                       final ClassTable classTable,
+                       final Diagnostics diagnostics,
+                       final TypeAnnotations annotations,
+                       final TypecheckerMetrics metrics) {
         this.program = program;
         this.classes = program.classes;
-        // TODO: check that class hierarchy is a tree
+        this.classTable = classTable;
+        this.diagnostics = diagnostics;
+        this.annotations = annotations;
+        this.metrics = metrics;
+    }
+
+    // Checks the whole program and returns every error found, in order.
+    public static List<TypeError> collectErrors(final Program program) {
+        return collectErrors(program, null);
+    }
+
+    // The same, taking unchanged classes from the cache, if any
+    public static List<TypeError> collectErrors(final Program program,
+                                                final ClassInfoCache cache) {
+        final Diagnostics diagnostics = new Diagnostics();
+        try {
+            new Typechecker(program, new ClassTable(program.classes, cache), diagnostics, null, null)
+                .isWellTypedProgram();
+        } catch (final TypeErrorException e) {
+            // only building the class table throws when collecting
+            diagnostics.reportClassHierarchy(e.getMessage());
+        }
+        return diagnostics.errors();
+    }
+
+    // Checks the whole program, and returns what was found out about each
+    // of its expressions.
+    public static TypeAnnotations annotate(final Program program) throws TypeErrorException {
+        return new Typechecker(program, null, new TypeAnnotations()).isWellTypedProgram();
+    }
+
+    // Throws when not collecting diagnostics.  Otherwise, records the error
+    // and returns ErrorType so checking can carry on.
+    public Type typeError(final String message) throws TypeErrorException {
+        if (diagnostics == null) {
+            throw new TypeErrorException(message);
+        } else {
+            report(message);
+            return ErrorType.instance();
+        }
+    }
+
+    private void report(final String message) {
+        diagnostics.report(message);
+        if (metrics != null) {
+            metrics.errors++;
+        }
+    }
+
+    // ClassTable lookups, counted when measuring
+    private ClassInfo lookupClass(final ClassName className) throws TypeErrorException {
+        if (metrics == null) {
+            return classTable.lookupClass(className);
+        }
+        metrics.classLookups++;
+        try {
+            return classTable.lookupClass(className);
+        } catch (final TypeErrorException e) {
+            metrics.classLookupMisses++;
+            throw e;
+        }
+    }
+
+    private MethodInfo lookupMethod(final ClassName className,
+                                    final MethodName methodName) throws TypeErrorException {
+        if (metrics == null) {
+            return classTable.lookupMethod(className, methodName);
+        }
+        metrics.methodLookups++;
+        try {
+            return classTable.lookupMethod(className, methodName);
+        } catch (final TypeErrorException e) {
+            metrics.methodLookupMisses++;
+            throw e;
+        }
+    }
+
+    // addToMap, counted when measuring
+    private TypeEnvironment bind(final TypeEnvironment typeEnvironment,
+                                 final Vardec vardec) {
+        final TypeEnvironment result = addToMap(typeEnvironment, vardec);
+        if (metrics != null) {
+            metrics.bound(result);
+        }
+        return result;
+    }
+
+    private static boolean isIntOrError(final Type type) {
+        return type == IntType.instance() || type == ErrorType.instance();
+    }
+
+    private static boolean isBoolOrError(final Type type) {
+        return type == BoolType.instance() || type == ErrorType.instance();
     }
 
     public Type typeofVariable(final VariableExp exp,
-                               final Map<Variable, Type> typeEnvironment) throws TypeErrorException {
+                               final TypeEnvironment typeEnvironment) throws TypeErrorException {
         final Type mapType = typeEnvironment.get(exp.variable);
         if (mapType == null) {
-            throw new TypeErrorException("Used variable not in scope: " + exp.variable.name);
+            return typeError("Used variable not in scope: " + exp.variable.name);
         } else {
             return mapType;
         }
@@ -45,50 +178,24 @@ public class Typechecker {
 
     public Type typeofThis(final ClassName classWeAreIn) throws TypeErrorException {
         if (classWeAreIn == null) {
-            throw new TypeErrorException("this used in the entry point");
+            return typeError("this used in the entry point");
         } else {
-            return new ClassNameType(classWeAreIn);
+            return ClassNameType.instance(classWeAreIn);
         }
     }
 
-    public Type typeofOp(final OpExp exp,
-                         final Map<Variable, Type> typeEnvironment,
-                         final ClassName classWeAreIn) throws TypeErrorException {
-        final Type leftType = typeof(exp.left, typeEnvironment, classWeAreIn);
-        final Type rightType = typeof(exp.right, typeEnvironment, classWeAreIn);
-        // (leftType, exp.op, rightType) match {
-        //   case (IntType, PlusOp, IntType) => IntType
-        //   case (IntType, LessThanOp | EqualsOp, IntType) => Booltype
-        //   case _ => throw new TypeErrorException("Operator mismatch")
-        // }
-        if (exp.op instanceof PlusOp) {
-            if (leftType instanceof IntType && rightType instanceof IntType) {
-                return new IntType();
-            } else {
-                throw new TypeErrorException("Operand type mismatch for +");
-            }
-        } else if (exp.op instanceof LessThanOp) {
-            if (leftType instanceof IntType && rightType instanceof IntType) {
-                return new BoolType();
-            } else {
-                throw new TypeErrorException("Operand type mismatch for <");
-            }
-        } else if (exp.op instanceof EqualsOp) {
-            if (leftType instanceof IntType && rightType instanceof IntType) {
-                return new BoolType();
-            } else {
-                throw new TypeErrorException("Operand type mismatch for ==");
-            }
-        } else {
-            throw new TypeErrorException("Unsupported operation: " + exp.op);
-        }
+    // What a call of methodName on an object of className runs, as far as
+    // its types go: the one lookup behind a method call, and the hook for
+    // watching which methods a body calls (see IncrementalTypechecker).
+    public MethodInfo methodForCall(final ClassName className,
+                                    final MethodName methodName) throws TypeErrorException {
+        return lookupMethod(className, methodName);
     }
 
     public Type expectedReturnTypeForClassAndMethod(final ClassName className,
-                                                    final MethodName methodName) {
-        // WRONG - needs to find the given class and method, and return the expected
-        // return type for this
-        return null;
+                                                    final MethodName methodName)
+        throws TypeErrorException {
+        return methodForCall(className, methodName).returnType;
     }
 
     // Doesn't handle access modifiers right now; would be to know which class we
@@ -115,252 +222,407 @@ public class Typechecker {
     //   }
     // }
     //
-    // doesn't handle inherited methods
-    // for every class:
-    //   - Methods on that class
-    //   - Methods on the parent of that class
+    // Inherited methods are already folded into the class table, so this is
+    // a lookup.  The returned list is shared and unmodifiable.
     public List<Type> expectedParameterTypesForClassAndMethod(final ClassName className,
                                                               final MethodName methodName)
         throws TypeErrorException {
-        for (final ClassDef candidateClass : classes) {
-            if (candidateClass.className.equals(className)) {
-                for (final MethodDef candidateMethod : candidateClass.methods) {
-                    if (candidateMethod.methodName.equals(methodName)) {
-                        final List<Type> expectedTypes = new ArrayList<Type>();
-                        for (final Vardec vardec : candidteMethod.arguments) {
-                            expectedTypes.add(vardec.type);
-                        }
-                        return expectedTypes;
-                    }
-                }
-            }
-        }
-
-        throw new TypeErrorException("No method named " + methodName + " on class " + className);
+        return methodForCall(className, methodName).parameterTypes;
     }
 
+    // Only class types have subtypes; int, bool, and void are only equal to
+    // themselves.  Constant time, using the hierarchy's interval numbering.
     public boolean isSubtypeOf(final Type first, final Type second) throws TypeErrorException {
-        // WRONG: needs to check this
-        return true;
+        if (first instanceof ClassNameType && second instanceof ClassNameType) {
+            return classTable.hierarchy.isSubclassOf(((ClassNameType)first).className,
+                                                     ((ClassNameType)second).className);
+        } else {
+            return false;
+        }
     }
     
+    // types are interned, so equal types are the same object
     public void isEqualOrSubtypeOf(final Type first, final Type second) throws TypeErrorException {
-        if (!(first.equals(second) || isSubtypeOf(first, second))) {
-            throw new TypeErorException("types incompatible: " + first + ", " + second);
-        }
-    }
-
-    // List<Type> - expected types
-    // List<Exp> - received expressions
-    public void expressionsOk(final List<Type> expectedTypes,
-                              final List<Exp> receivedExpressions,
-                              final Map<Variable, Type> typeEnvironment,
-                              final ClassName classWeAreIn) throws TypeErrorException {
-        if (expectedTypes.size() != receivedExpressions.size()) {
-            throw new TypeErrorException("Wrong number of parameters");
-        }
-        for (int index = 0; index < expectedTypes.size(); index++) {
-            final Type paramType = typeof(receivedExpressions.get(index), typeEnvironment, classWeAreIn);
-            final Type expectedType = expectedTypes.get(index);
-            // myMethod(int, bool, int)
-            // myMethod(  2, true,   3)
-            //
-            // myMethod2(BaseClass)
-            // myMethod2(new SubClass())
-            isEqualOrSubtypeOf(paramType, expectedType);
+        if (first == ErrorType.instance() || second == ErrorType.instance()) {
+            // already reported
+            return;
         }
-    }
-    
-    // 1.) target should be a class.
-    // 2.) target needs to have the methodname method
-    // 3.) need to know the expected parameter types for the method
-    //
-    // exp.methodname(exp*)
-    // target.methodName(params)
-    public Type typeofMethodCall(final MethodCallExp exp,
-                                 final Map<Variable, Type> typeEnvironment,
-                                 final ClassName classWeAreIn) throws TypeErrorException {
-        final Type targetType = typeof(exp.target, typeEnvironment, classWeAreIn);
-        if (targetType instanceof ClassNameType) {
-            final ClassName className = ((ClassNameType)targetType).className;
-            final List<Type> expectedTypes =
-                expectedParameterTypesForClassAndMethod(className, exp.methodName);
-            expressionsOk(expectedTypes, exp.params, typeEnvironment, classWeAreIn);
-            return expectedReturnTypeForClassAndMethod(className, exp.methodName);
-        } else {
-            throw new TypeErrorException("Called method on non-class type: " + targetType);
+        if (!(first == second || isSubtypeOf(first, second))) {
+            typeError("types incompatible: " + first + ", " + second);
         }
     }
 
+    // throws an exception if this class doesn't exist
     public List<Type> expectedConstructorTypesForClass(final ClassName className)
         throws TypeErrorException {
-        // WRONG - needs to grab the expected constructor types for this class
-        // throws an exception if this class doesn't exception
-        return null;
-    }
-    
-    // new classname(exp*)
-    // new className(params)
-    public Type typeofNew(final NewExp exp,
-                          final Map<Variable, Type> typeEnvironment,
-                          final ClassName classWeAreIn) throws TypeErrorException {
-        // need to know what the constructor arguments for this class are
-        final List<Type> expectedTypes = expectedConstructorTypesForClass(exp.className);
-        expressionsOk(expectedTypes, exp.params, typeEnvironment, classWeAreIn);
-        return new ClassNameType(exp.className);
+        return lookupClass(className).constructorTypes;
     }
     
     // classWeAreIn is null if we are in the entry point
     public Type typeof(final Exp exp,
-                       final Map<Variable, Type> typeEnvironment,
+                       final TypeEnvironment typeEnvironment,
                        final ClassName classWeAreIn) throws TypeErrorException {
-        if (exp instanceof IntLiteralExp) {
-            return new IntType();
-        } else if (exp instanceof VariableExp) {
-            return typeofVariable((VariableExp)exp, typeEnvironment);
-        } else if (exp instanceof BoolLiteralExp) {
-            return new BoolType();
-        } else if (exp instanceof ThisExp) {
-            return typeofThis(classWeAreIn);
-        } else if (exp instanceof OpExp) {
-            return typeofOp((OpExp)exp, typeEnvironment, classWeAreIn);
-        } else if (exp instanceof MethodCallExp) {
-            return typeofMethodCall((MethodCallExp)exp, typeEnvironment, classWeAreIn);
-        } else if (exp instanceof NewExp) {
-            return typeofNew((NewExp)exp, typeEnvironment, classWeAreIn);
-        } else {
-            throw new TypeErrorException("Unrecognized expression: " + exp);
-        }
+        return exp.accept(new BodyChecker(classWeAreIn, null), typeEnvironment);
     }
 
-    public static Map<Variable, Type> addToMap(final Map<Variable, Type> map,
-                                               final Variable variable,
-                                               final Type type) {
-        final Map<Variable, Type> result = new HashMap<Variable, Type>();
-        result.putAll(map);
-        result.put(variable, type);
-        return result;
+    // List<Type> - expected types
+    // List<Exp> - received expressions
+    public void expressionsOk(final List<Type> expectedTypes,
+                              final List<Exp> receivedExpressions,
+                              final TypeEnvironment typeEnvironment,
+                              final ClassName classWeAreIn) throws TypeErrorException {
+        new BodyChecker(classWeAreIn, null).expressionsOk(expectedTypes,
+                                                          receivedExpressions,
+                                                          typeEnvironment);
+    }
+
+    // O(log n), and leaves the given environment untouched
+    public static TypeEnvironment addToMap(final TypeEnvironment typeEnvironment,
+                                           final Variable variable,
+                                           final Type type) {
+        return typeEnvironment.extend(variable, type);
+    }
+
+    // also remembers the declaration, for TypeAnnotations.bindingOf
+    public static TypeEnvironment addToMap(final TypeEnvironment typeEnvironment,
+                                           final Vardec vardec) {
+        return typeEnvironment.extend(vardec);
+    }
+
+    // functionReturnType is null if we are in the entry point
+    public TypeEnvironment isWellTypedStmt(final Stmt stmt,
+                                           final TypeEnvironment typeEnvironment,
+                                           final ClassName classWeAreIn,
+                                           final Type functionReturnType) throws TypeErrorException {
+        return new BodyChecker(classWeAreIn, functionReturnType).isWellTypedStmt(stmt, typeEnvironment);
     }
 
-    public Map<Variable, Type> isWellTypedVar(final VariableInitializationStmt stmt,
-                                              final Map<Variable, Type> typeEnvironment,
-                                              final ClassName classWeAreIn) throws TypeErrorException {
-        final Type expType = typeof(stmt.exp, typeEnvironment, classWeAreIn);
-        isEqualOrSubtypeOf(expType, stmt.vardec.type);
-        return addToMap(typeEnvironment, stt.vardec.variable, stmt.vardec.type);
+    public TypeEnvironment isWellTypedBlock(final BlockStmt stmt,
+                                            final TypeEnvironment typeEnvironment,
+                                            final ClassName classWeAreIn,
+                                            final Type functionReturnType) throws TypeErrorException {
+        return new BodyChecker(classWeAreIn, functionReturnType).visitBlock(stmt, typeEnvironment);
     }
 
-    public Map<Variable, Type> isWellTypedIf(final IfStmt stmt,
-                                             final Map<Variable, Type> typeEnvironment,
-                                             final ClassName classWeAreIn,
-                                             final Type functionReturnType) throws TypeErrorException {
-        if (typeof(stmt.guard, typeEnvironment, classWeAreIn) instanceof BoolType) {
-            isWellTypedStmt(stmt.ifTrue, typeEnvironment, classWeAreIn, functionReturnType);
-            isWellTypedStmt(stmt.ifFalse, typeEnvironment, classWeAreIn, functionReturnType);
+    // Checks the expressions and statements of one constructor, method, or
+    // the entry point.  The class we are in and the return type stay the
+    // same throughout a body, so they live here; the type environment
+    // changes from statement to statement, so it's passed along as the
+    // visitor's context.
+    //
+    // Dispatching through accept() rather than an instanceof chain is for
+    // structure, not speed: adding a kind of node can't compile until
+    // every visitor handles it.  DispatchBenchmark (in benchmarks/) finds
+    // the visitor no faster than the chain it replaced, and about a third
+    // slower on shallow trees.
+    private class BodyChecker implements ExpVisitor<TypeEnvironment, Type, TypeErrorException>,
+                                         StmtVisitor<TypeEnvironment, TypeEnvironment, TypeErrorException> {
+        private final ClassName classWeAreIn; // null in the entry point
+        private final Type functionReturnType; // null in the entry point
+
+        BodyChecker(final ClassName classWeAreIn,
+                    final Type functionReturnType) {
+            this.classWeAreIn = classWeAreIn;
+            this.functionReturnType = functionReturnType;
+        }
+
+        private void visited(final int kind) {
+            if (metrics != null) {
+                metrics.visits[kind]++;
+            }
+        }
+
+        // extra: what annotations will hand back for exp, if anything
+        private Type noted(final Exp exp, final Type type, final Object extra) {
+            if (annotations != null) {
+                annotations.record(exp, type, extra);
+            }
+            return type;
+        }
+
+        public Type visitIntLiteral(final IntLiteralExp exp,
+                                    final TypeEnvironment typeEnvironment) {
+            visited(TypecheckerMetrics.INT_LITERAL);
+            return noted(exp, IntType.instance(), null);
+        }
+
+        public Type visitVariable(final VariableExp exp,
+                                  final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            visited(TypecheckerMetrics.VARIABLE);
+            return noted(exp,
+                         typeofVariable(exp, typeEnvironment),
+                         typeEnvironment.bindingOf(exp.variable));
+        }
+
+        public Type visitBoolLiteral(final BoolLiteralExp exp,
+                                     final TypeEnvironment typeEnvironment) {
+            visited(TypecheckerMetrics.BOOL_LITERAL);
+            return noted(exp, BoolType.instance(), null);
+        }
+
+        public Type visitThis(final ThisExp exp,
+                              final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            visited(TypecheckerMetrics.THIS);
+            return noted(exp, typeofThis(classWeAreIn), null);
+        }
+
+        public Type visitOp(final OpExp exp,
+                            final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            visited(TypecheckerMetrics.OP);
+            return noted(exp, typeofOp(exp, typeEnvironment), null);
+        }
+
+        private Type typeofOp(final OpExp exp,
+                              final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            final Type leftType = exp.left.accept(this, typeEnvironment);
+            final Type rightType = exp.right.accept(this, typeEnvironment);
+            // (leftType, exp.op, rightType) match {
+            //   case (IntType, PlusOp, IntType) => IntType
+            //   case (IntType, LessThanOp | EqualsOp, IntType) => Booltype
+            //   case _ => throw new TypeErrorException("Operator mismatch")
+            // }
+            if (exp.op == PlusOp.instance()) {
+                if (isIntOrError(leftType) && isIntOrError(rightType)) {
+                    return IntType.instance();
+                } else {
+                    return typeError("Operand type mismatch for +");
+                }
+            } else if (exp.op == LessThanOp.instance()) {
+                if (isIntOrError(leftType) && isIntOrError(rightType)) {
+                    return BoolType.instance();
+                } else {
+                    return typeError("Operand type mismatch for <");
+                }
+            } else if (exp.op == EqualsOp.instance()) {
+                if (isIntOrError(leftType) && isIntOrError(rightType)) {
+                    return BoolType.instance();
+                } else {
+                    return typeError("Operand type mismatch for ==");
+                }
+            } else {
+                return typeError("Unsupported operation: " + exp.op);
+            }
+        }
+
+        public void expressionsOk(final List<Type> expectedTypes,
+                                  final List<Exp> receivedExpressions,
+                                  final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            if (expectedTypes.size() != receivedExpressions.size()) {
+                typeError("Wrong number of parameters");
+                // still look for errors in the parameters themselves
+                visitParams(receivedExpressions, typeEnvironment);
+                return;
+            }
+            for (int index = 0; index < expectedTypes.size(); index++) {
+                final Type paramType = receivedExpressions.get(index).accept(this, typeEnvironment);
+                final Type expectedType = expectedTypes.get(index);
+                // myMethod(int, bool, int)
+                // myMethod(  2, true,   3)
+                //
+                // myMethod2(BaseClass)
+                // myMethod2(new SubClass())
+                isEqualOrSubtypeOf(paramType, expectedType);
+            }
+        }
+
+        // for calls that can't be checked against anything, but whose
+        // parameters can still have errors of their own
+        private void visitParams(final List<Exp> params,
+                                 final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            for (final Exp param : params) {
+                param.accept(this, typeEnvironment);
+            }
+        }
+
+        // 1.) target should be a class.
+        // 2.) target needs to have the methodname method
+        // 3.) need to know the expected parameter types for the method
+        //
+        // exp.methodname(exp*)
+        // target.methodName(params)
+        public Type visitMethodCall(final MethodCallExp exp,
+                                    final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            visited(TypecheckerMetrics.METHOD_CALL);
+            final Type targetType = exp.target.accept(this, typeEnvironment);
+            if (targetType instanceof ClassNameType) {
+                final ClassName className = ((ClassNameType)targetType).className;
+                final MethodInfo method;
+                try {
+                    method = methodForCall(className, exp.methodName);
+                } catch (final TypeErrorException e) {
+                    // no such method: throws unless collecting
+                    final Type errorType = typeError(e.getMessage());
+                    visitParams(exp.params, typeEnvironment);
+                    return noted(exp, errorType, null);
+                }
+                expressionsOk(method.parameterTypes, exp.params, typeEnvironment);
+                return noted(exp, method.returnType, (annotations == null) ? null : method);
+            } else if (targetType == ErrorType.instance()) {
+                // already reported; still look for errors in the parameters
+                visitParams(exp.params, typeEnvironment);
+                return noted(exp, ErrorType.instance(), null);
+            } else {
+                return noted(exp, typeError("Called method on non-class type: " + targetType), null);
+            }
+        }
+
+        // new classname(exp*)
+        // new className(params)
+        public Type visitNew(final NewExp exp,
+                             final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            visited(TypecheckerMetrics.NEW);
+            // need to know what the constructor arguments for this class are
+            final List<Type> expectedTypes;
+            try {
+                expectedTypes = expectedConstructorTypesForClass(exp.className);
+            } catch (final TypeErrorException e) {
+                // no such class: throws unless collecting
+                final Type errorType = typeError(e.getMessage());
+                visitParams(exp.params, typeEnvironment);
+                return noted(exp, errorType, null);
+            }
+            expressionsOk(expectedTypes, exp.params, typeEnvironment);
+            return noted(exp,
+                         ClassNameType.instance(exp.className),
+                         (annotations == null) ? null : lookupClass(exp.className));
+        }
+
+        // When collecting diagnostics, anything that still throws is recorded
+        // and we move on to the next statement.  Missing classes and methods
+        // don't: they're reported where they're used, like other errors.  A
+        // failed variable declaration still introduces its variable, so
+        // later uses don't cause more errors.
+        public TypeEnvironment isWellTypedStmt(final Stmt stmt,
+                                               final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            if (diagnostics == null) {
+                return stmt.accept(this, typeEnvironment);
+            } else {
+                try {
+                    return stmt.accept(this, typeEnvironment);
+                } catch (final TypeErrorException e) {
+                    report(e.getMessage());
+                    if (stmt instanceof VariableInitializationStmt) {
+                        final Vardec vardec = ((VariableInitializationStmt)stmt).vardec;
+                        return bind(typeEnvironment, vardec);
+                    } else {
+                        return typeEnvironment;
+                    }
+                }
+            }
+        }
+
+        public TypeEnvironment visitExp(final ExpStmt stmt,
+                                        final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            visited(TypecheckerMetrics.EXP_STMT);
+            stmt.exp.accept(this, typeEnvironment);
             return typeEnvironment;
-        } else {
-            throw new TypeErrorException("guard of if is not a boolean: " + stmt);
         }
-    }
 
-    public Map<Variable, Type> isWellTypedWhile(final WhileStmt stmt,
-                                                final Map<Variable, Type> typeEnvironment,
-                                                final ClassName classWeAreIn,
-                                                final Type functionReturnType) throws TypeErrorException {
-        if (typeof(stmt.guard, typeEnvironment, classWeAreIn) instanceof BoolType) {
-            isWellTypedStmt(stmt.body, typeEnvironment, classWeAreIn, functionReturnType);
+        public TypeEnvironment visitVariableInitialization(final VariableInitializationStmt stmt,
+                                                           final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            visited(TypecheckerMetrics.VARIABLE_INIT);
+            final Type expType = stmt.exp.accept(this, typeEnvironment);
+            isEqualOrSubtypeOf(expType, stmt.vardec.type);
+            return bind(typeEnvironment, stmt.vardec);
+        }
+
+        // bool x = true;
+        // while (true) {
+        //   int x = 17;
+        //   break;
+        // }
+        public TypeEnvironment visitIf(final IfStmt stmt,
+                                       final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            visited(TypecheckerMetrics.IF);
+            if (!isBoolOrError(stmt.guard.accept(this, typeEnvironment))) {
+                typeError("guard of if is not a boolean: " + stmt);
+            }
+            isWellTypedStmt(stmt.ifTrue, typeEnvironment);
+            isWellTypedStmt(stmt.ifFalse, typeEnvironment);
             return typeEnvironment;
-        } else {
-            throw new TypeErrorException("guard on while is not a boolean: " + stmt);
         }
-    }
 
-    public Map<Variable, Type> isWellTypedBlock(final BlockStmt stmt,
-                                                Map<Variable, Type> typeEnvironment,
-                                                final ClassName classWeAreIn,
-                                                final Type functionReturnType) throws TypeErrorException {
-        for (final Stmt bodyStmt : stmt.body) {
-            typeEnvironment = isWellTypedStmt(bodyStmt, typeEnvironment, classWeAreIn, functionReturnType);
+        public TypeEnvironment visitWhile(final WhileStmt stmt,
+                                          final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            visited(TypecheckerMetrics.WHILE);
+            if (!isBoolOrError(stmt.guard.accept(this, typeEnvironment))) {
+                typeError("guard on while is not a boolean: " + stmt);
+            }
+            isWellTypedStmt(stmt.body, typeEnvironment);
+            return typeEnvironment;
         }
-        return typeEnvironment;
-    }
-    
-    // return exp;
-    public Map<Variable, Type> isWellTypedReturnNonVoid(final ReturnNonVoidStmt stmt,
-                                                        final Map<Variable, Type> typeEnvironment,
-                                                        final ClassName classWeAreIn,
-                                                        final Type functionReturnType) throws TypeErrorException {
-        if (functionReturnType == null) {
-            throw new TypeErrorException("return in program entry point");
-        } else {
-            final Type receivedType = typeof(stmt.exp, typeEnvironment, classWeAreIn);
-            isEqualOrSubtypeOf(receivedType, functionReturnType);
+
+        public TypeEnvironment visitBlock(final BlockStmt stmt,
+                                          TypeEnvironment typeEnvironment) throws TypeErrorException {
+            visited(TypecheckerMetrics.BLOCK);
+            for (final Stmt bodyStmt : stmt.body) {
+                typeEnvironment = isWellTypedStmt(bodyStmt, typeEnvironment);
+            }
             return typeEnvironment;
         }
-    }
 
-    public Map<Variable, Type> isWellTypedReturnVoid(final Map<Variable, Type> typeEnvironment,
-                                                     final ClassName classWeAreIn,
-                                                     final Type functionReturnType) throws TypeErrorException {
-        if (functionReturnType == null) {
-            throw new TypeErrorException("return in program entry point");
-        } else if (!functionReturnType.equals(new VoidType())) {
-            throw new TypeErrorException("return of void in non-void context");
-        } else {
+        // return exp;
+        public TypeEnvironment visitReturnNonVoid(final ReturnNonVoidStmt stmt,
+                                                  final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            visited(TypecheckerMetrics.RETURN_NON_VOID);
+            // the misplaced return is the error, before anything in it
+            if (functionReturnType == null) {
+                typeError("return in program entry point");
+                stmt.exp.accept(this, typeEnvironment);
+            } else {
+                isEqualOrSubtypeOf(stmt.exp.accept(this, typeEnvironment), functionReturnType);
+            }
             return typeEnvironment;
         }
-    }
-    
-    // bool x = true;
-    // while (true) {
-    //   int x = 17;
-    //   break;
-    // }
-    public Map<Variable, Type> isWellTypedStmt(final Stmt stmt,
-                                               final Map<Variable, Type> typeEnvironment,
-                                               final ClassName classWeAreIn,
-                                               final Type functionReturnType) throws TypeErrorException {
-        if (stmt instanceof ExpStmt) {
-            typeof(((ExpStmt)stmt).exp, typeEnvironment, classWeAreIn, functionReturnType);
+
+        public TypeEnvironment visitReturnVoid(final ReturnVoidStmt stmt,
+                                               final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            visited(TypecheckerMetrics.RETURN_VOID);
+            if (functionReturnType == null) {
+                typeError("return in program entry point");
+            } else if (functionReturnType != VoidType.instance()) {
+                typeError("return of void in non-void context");
+            }
             return typeEnvironment;
-        } else if (stmt instanceof VariableInitializationStmt) {
-            return isWellTypedVar((VariableInitializationStmt)stmt, typeEnvironment, classWeAreIn, functionReturnType);
-        } else if (stmt instanceof IfStmt) {
-            return isWellTypedIf((IfStmt)stmt, typeEnvironment, classWeAreIn, functionReturnType);
-        } else if (stmt instanceof WhileStmt) {
-            return isWellTypedWhile((WhileStmt)stmt, typeEnvironment, classWeAreIn, functionReturnType);
-        } else if (stmt instanceof ReturnNonVoidStmt) {
-            return isWellTypedReturnNonVoid((ReturnNonVoidStmt)stmt, typeEnvironment, classWeAreIn, functionReturnType);
-        } else if (stmt instanceof ReturnVoidStmt) {
-            return isWellTypedReturnVoid(typeEnvironment, classWeAreIn, functionReturnType);
-        } else if (stmt instanceof PrintlnStmt) {
-            typeof(((PrintlnStmt)stmt).exp, typeEnvironment, classWeAreIn, functionReturnType);
+        }
+
+        public TypeEnvironment visitPrintln(final PrintlnStmt stmt,
+                                            final TypeEnvironment typeEnvironment) throws TypeErrorException {
+            visited(TypecheckerMetrics.PRINTLN);
+            stmt.exp.accept(this, typeEnvironment);
             return typeEnvironment;
-        } else if (stmt instanceof BlockStmt) {
-            return isWellTypedBlock((BlockStmt)stmt, typeEnvironment, classWeAreIn, functionReturnType);
-        } else {
-            throw new TypeErrorException("Unsupported statement: " + stmt);
         }
     }
 
     // methoddef ::= type methodname(vardec*) stmt
     public void isWellTypedMethodDef(final MethodDef method,
-                                     Map<Variable, Type> typeEnvironment, // instance variables
+                                     TypeEnvironment typeEnvironment, // instance variables
                                      final ClassName classWeAreIn) throws TypeErrorException {
-        // starting type environment: just instance variables
-        // int addTwo(int x, int y) { return x + y; }
-        //
-        // int x;
-        // int addTwo(bool x, int x) { return x; }
-        for (final Vardec vardec : method.arguments) {
-            // odd semantics: last variable declaration shadows prior one
-            typeEnvironment = addToMap(typeEnvironment, vardec.variable, vardec.type);
+        final TypecheckerMetrics.Span span =
+            (metrics == null) ? null : metrics.startMethod(classWeAreIn, method.methodName);
+        try {
+            // starting type environment: just instance variables
+            // int addTwo(int x, int y) { return x + y; }
+            //
+            // int x;
+            // int addTwo(bool x, int x) { return x; }
+            if (diagnostics != null) {
+                diagnostics.setLocation(classWeAreIn, method.methodName);
+            }
+            for (final Vardec vardec : method.arguments) {
+                // odd semantics: last variable declaration shadows prior one
+                typeEnvironment = bind(typeEnvironment, vardec);
+            }
+
+            isWellTypedStmt(method.body,
+                            typeEnvironment, // instance variables + parameters
+                            classWeAreIn,
+                            method.returnType);
+        } finally {
+            if (span != null) {
+                span.end();
+            }
         }
-        
-        isWellTypedStmt(method.body,
-                        typeEnvironment, // instance variables + parameters
-                        classWeAreIn,
-                        method.returnType);
     }
 
     // classdef ::= class classname extends classname {
@@ -372,57 +634,122 @@ public class Typechecker {
     //            methoddef*
     //          }
 
+    // constructor(vardec*) {
+    //   super(exp*);
+    //   stmt*
+    // }
+    public void isWellTypedConstructor(final ClassDef classDef) throws TypeErrorException {
+        final TypecheckerMetrics.Span span =
+            (metrics == null) ? null : metrics.startMethod(classDef.className, null);
+        try {
+            if (diagnostics != null) {
+                diagnostics.setLocation(classDef.className, null);
+            }
+            TypeEnvironment constructorTypeEnvironment =
+                lookupClass(classDef.className).fieldEnvironment;
+            for (final Vardec vardec : classDef.constructorArguments) {
+                constructorTypeEnvironment = bind(constructorTypeEnvironment, vardec);
+            }
+            // check call to super
+            try {
+                expressionsOk(expectedConstructorTypesForClass(classDef.extendsClassName),
+                              classDef.superParams,
+                              constructorTypeEnvironment,
+                              classDef.className);
+            } catch (final TypeErrorException e) {
+                if (diagnostics == null) {
+                    throw e;
+                }
+                report(e.getMessage());
+            }
+            isWellTypedBlock(new BlockStmt(classDef.constructorBody),
+                             constructorTypeEnvironment,
+                             classDef.className,
+                             VoidType.instance());
+        } finally {
+            if (span != null) {
+                span.end();
+            }
+        }
+    }
+
     // -Check constructor
     // -Check methods
+    //
+    // The constructor and each method only depend on the class table, so
+    // they can be checked independently of each other (see ParallelTypechecker).
     public void isWellTypedClassDef(final ClassDef classDef) throws TypeErrorException {
-        // TODO: add instance variables from parent classes; currently broken
-        // weird: duplicate instance variables
-        // class MyClass extends Object {
-        //   int x;
-        //   bool x;
-        //   ...
-        // }
-        Map<Variable, Type> typeEnvironment = new HashMap<Variable, Type>();
-        for (final Vardec vardec : classDef.instanceVariables) {
-            typeEnvironment = addToMap(typeEnvironment, vardec.variable, vardec.type);
-        }
-        
-        // check constructor
-        Map<Variable, Type> constructorTypeEnvironment = typeEnvironment;
-        for (final Vardec vardec : classDef.constructorArguments) {
-            constructorTypeEnvironment = addToMap(constructorTypeEnvironment, vardec.variable, vardec.type);
-        }
-        // check call to super
-        expressionsOk(expectedConstructorTypesForClass(classDef.extendsClassName),
-                      classDef.superParams,
-                      constructorTypeEnvironment,
-                      classDef.className);
-        isWellTypedBlock(new BlockStmt(classDef.constructorBody),
-                         constructorTypeEnvironment,
-                         classDef.className,
-                         new VoidType());
-
-        // check methods
-        // TODO - this is broken - doesn't check for methods with duplicate names
-        //
-        // int foo(int x) { ... }
-        // int foo(bool b) { ... }
-        for (final MethodDef method : classDef.methods) {
-            isWellTypedMethodDef(method,
-                                 typeEnvironment,
-                                 classDef.className);
+        final TypecheckerMetrics.Span span =
+            (metrics == null) ? null : metrics.startClass(classDef.className);
+        try {
+            // instance variables, including those from parent classes.  Duplicate
+            // instance variables within one class are rejected by the class table:
+            // class MyClass extends Object {
+            //   int x;
+            //   bool x;
+            //   ...
+            // }
+            final TypeEnvironment typeEnvironment =
+                lookupClass(classDef.className).fieldEnvironment;
+
+            isWellTypedConstructor(classDef);
+
+            // check methods
+            // methods with duplicate names are rejected by the class table:
+            //
+            // int foo(int x) { ... }
+            // int foo(bool b) { ... }
+            for (final MethodDef method : classDef.methods) {
+                isWellTypedMethodDef(method,
+                                     typeEnvironment,
+                                     classDef.className);
+            }
+        } finally {
+            if (span != null) {
+                span.end();
+            }
         }
     }
 
     // program ::= classdef* stmt
-    public void isWellTypedProgram() throws TypeErrorException {
-        for (final ClassDef classDef : program.classes) {
-            isWellTypedClassDef(classDef);
+    //
+    // Returns annotations, which is null unless this typechecker was
+    // given a table to record into.
+    public TypeAnnotations isWellTypedProgram() throws TypeErrorException {
+        final TypecheckerMetrics.Span span =
+            (metrics == null) ? null : metrics.startProgram();
+        try {
+            for (final ClassDef classDef : program.classes) {
+                isWellTypedClassDef(classDef);
+            }
+
+            if (diagnostics != null) {
+                diagnostics.setLocation(null, null);
+            }
+            isWellTypedStmt(program.entryPoint,
+                            TypeEnvironment.empty(),
+                            null,
+                            null);
+            return annotations;
+        } catch (final TypeErrorException e) {
+            // reported errors don't throw, so this one hasn't been counted
+            if (metrics != null) {
+                metrics.errors++;
+            }
+            throw e;
+        } finally {
+            if (span != null) {
+                span.end();
+            }
         }
+    }
 
-        isWellTypedStmt(program.entryPoint,
-                        new HashMap<Varible, Type>(),
-                        null,
-                        null);
+    // Same result as isWellTypedProgram, but checks constructors and methods
+    // on a ForkJoinPool with the given parallelism.  If there are several
+    // errors, reports the one isWellTypedProgram would have.
+    // Only for the throwing mode without annotations or metrics; none of
+    // Diagnostics, TypeAnnotations or TypecheckerMetrics is thread-safe.
+    public void isWellTypedProgramParallel(final int parallelism) throws TypeErrorException {
+        new ParallelTypechecker(this, parallelism).isWellTypedProgram();
     }
 }
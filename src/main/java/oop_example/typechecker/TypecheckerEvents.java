@@ -0,0 +1,117 @@
+package oop_example.typechecker;
+
+import oop_example.parser.ClassName;
+import oop_example.parser.MethodName;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// The JDK Flight Recorder events TypecheckerMetrics emits.  Kept apart so
+// that nothing touches jdk.jfr unless metrics are on and JFR is there.
+//
+// Each event is begun when checking starts and committed when it ends,
+// so its duration is the time spent; events are only filled in and
+// written if a recording wants them.
+final class TypecheckerEvents {
+    private TypecheckerEvents() {}
+
+    @Name("oop_example.TypecheckClass")
+    @Label("Typecheck Class")
+    @Description("Checking a class's constructor and methods")
+    @Category({ "oop_example", "Typechecker" })
+    static final class ClassEvent extends Event {
+        @Label("Class")
+        String className;
+    }
+
+    @Name("oop_example.TypecheckMethod")
+    @Label("Typecheck Method")
+    @Description("Checking one constructor or method")
+    @Category({ "oop_example", "Typechecker" })
+    static final class MethodEvent extends Event {
+        @Label("Class")
+        String className;
+
+        @Label("Method")
+        @Description("Empty for the constructor")
+        String methodName;
+    }
+
+    @Name("oop_example.TypecheckProgram")
+    @Label("Typecheck Program")
+    @Description("Checking a whole program, with the counts so far")
+    @Category({ "oop_example", "Typechecker" })
+    static final class ProgramEvent extends Event {
+        @Label("Nodes Visited")
+        long nodesVisited;
+
+        @Label("Class Lookups")
+        long classLookups;
+
+        @Label("Class Lookup Misses")
+        long classLookupMisses;
+
+        @Label("Method Lookups")
+        long methodLookups;
+
+        @Label("Method Lookup Misses")
+        long methodLookupMisses;
+
+        @Label("Bindings")
+        long bindings;
+
+        @Label("Largest Environment")
+        int maxEnvironmentSize;
+
+        @Label("Errors")
+        long errors;
+    }
+
+    static Object beginClass(final ClassName className) {
+        final ClassEvent event = new ClassEvent();
+        event.className = className.name;
+        event.begin();
+        return event;
+    }
+
+    static Object beginMethod(final ClassName className, final MethodName methodName) {
+        final MethodEvent event = new MethodEvent();
+        event.className = className.name;
+        event.methodName = (methodName == null) ? "" : methodName.name;
+        event.begin();
+        return event;
+    }
+
+    static Object beginProgram() {
+        final ProgramEvent event = new ProgramEvent();
+        event.begin();
+        return event;
+    }
+
+    static void end(final Object begun) {
+        final Event event = (Event)begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+
+    static void endProgram(final Object begun, final TypecheckerMetrics metrics) {
+        final ProgramEvent event = (ProgramEvent)begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.nodesVisited = metrics.nodesVisited();
+            event.classLookups = metrics.classLookups;
+            event.classLookupMisses = metrics.classLookupMisses;
+            event.methodLookups = metrics.methodLookups;
+            event.methodLookupMisses = metrics.methodLookupMisses;
+            event.bindings = metrics.bindings;
+            event.maxEnvironmentSize = metrics.maxEnvironmentSize;
+            event.errors = metrics.errors;
+            event.commit();
+        }
+    }
+}
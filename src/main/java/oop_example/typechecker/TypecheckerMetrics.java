@@ -0,0 +1,274 @@
+package oop_example.typechecker;
+
+import oop_example.parser.ClassName;
+import oop_example.parser.MethodName;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Where a typechecker's time goes.  Hand one to the Typechecker
+// constructor to switch measuring on; with none, every hook in the
+// typechecker is a single null check.
+//
+// Records:
+// - wall time for each constructor and method, each class, and the program
+// - how many of each kind of node were visited
+// - class and method lookups, and how many found nothing
+// - how many variables were bound, and how big environments got
+// - how many errors were found
+//
+// Read it all with snapshot().  While measuring, it also emits JDK Flight
+// Recorder events (see TypecheckerEvents), which cost next to nothing
+// unless a recording has them enabled:
+//
+// java -XX:StartFlightRecording:filename=check.jfr ...
+// jfr print --events oop_example.TypecheckMethod check.jfr
+//
+// Not thread-safe.
+public class TypecheckerMetrics {
+    // node kinds, indexing visits
+    static final int INT_LITERAL = 0;
+    static final int VARIABLE = 1;
+    static final int BOOL_LITERAL = 2;
+    static final int THIS = 3;
+    static final int OP = 4;
+    static final int METHOD_CALL = 5;
+    static final int NEW = 6;
+    static final int EXP_STMT = 7;
+    static final int VARIABLE_INIT = 8;
+    static final int IF = 9;
+    static final int WHILE = 10;
+    static final int RETURN_NON_VOID = 11;
+    static final int RETURN_VOID = 12;
+    static final int PRINTLN = 13;
+    static final int BLOCK = 14;
+    private static final String[] KIND_NAMES = {
+        "IntLiteralExp", "VariableExp", "BoolLiteralExp", "ThisExp", "OpExp",
+        "MethodCallExp", "NewExp", "ExpStmt", "VariableInitializationStmt",
+        "IfStmt", "WhileStmt", "ReturnNonVoidStmt", "ReturnVoidStmt",
+        "PrintlnStmt", "BlockStmt"
+    };
+
+    private static final boolean JFR_AVAILABLE = isJfrAvailable();
+
+    final long[] visits = new long[KIND_NAMES.length];
+    long classLookups;
+    long classLookupMisses;
+    long methodLookups;
+    long methodLookupMisses;
+    long bindings;
+    long totalEnvironmentSize;
+    int maxEnvironmentSize;
+    long errors;
+
+    private final boolean emitEvents;
+    private final List<Timing> timings = new ArrayList<Timing>();
+    private final Map<ClassName, Long> classNanos = new LinkedHashMap<ClassName, Long>();
+    private long programNanos;
+
+    // emits JFR events if this JVM has JFR
+    public TypecheckerMetrics() {
+        this(JFR_AVAILABLE);
+    }
+
+    public TypecheckerMetrics(final boolean emitEvents) {
+        if (emitEvents && !JFR_AVAILABLE) {
+            throw new IllegalArgumentException("JDK Flight Recorder isn't available");
+        }
+        this.emitEvents = emitEvents;
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (final ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    void bound(final TypeEnvironment environment) {
+        bindings++;
+        final int size = environment.size();
+        totalEnvironmentSize += size;
+        if (size > maxEnvironmentSize) {
+            maxEnvironmentSize = size;
+        }
+    }
+
+    // The time spent checking the program, a whole class, or one
+    // constructor or method.  Started by the start methods below, and
+    // recorded by end().
+    final class Span {
+        private final ClassName className; // null for the program
+        private final MethodName methodName; // null for a class or constructor
+        private final boolean wholeClass;
+        private final long start;
+        private final Object event; // null if not emitting
+
+        private Span(final ClassName className,
+                     final MethodName methodName,
+                     final boolean wholeClass,
+                     final Object event) {
+            this.className = className;
+            this.methodName = methodName;
+            this.wholeClass = wholeClass;
+            this.event = event;
+            this.start = System.nanoTime();
+        }
+
+        void end() {
+            final long nanos = System.nanoTime() - start;
+            if (className == null) {
+                programNanos += nanos;
+                if (event != null) {
+                    TypecheckerEvents.endProgram(event, TypecheckerMetrics.this);
+                }
+            } else if (wholeClass) {
+                final Long sofar = classNanos.get(className);
+                classNanos.put(className, (sofar == null) ? nanos : sofar + nanos);
+                if (event != null) {
+                    TypecheckerEvents.end(event);
+                }
+            } else {
+                timings.add(new Timing(className, methodName, nanos));
+                if (event != null) {
+                    TypecheckerEvents.end(event);
+                }
+            }
+        }
+    }
+
+    Span startProgram() {
+        return new Span(null, null, false, emitEvents ? TypecheckerEvents.beginProgram() : null);
+    }
+
+    Span startClass(final ClassName className) {
+        return new Span(className, null, true,
+                        emitEvents ? TypecheckerEvents.beginClass(className) : null);
+    }
+
+    // methodName is null for the constructor
+    Span startMethod(final ClassName className, final MethodName methodName) {
+        return new Span(className, methodName, false,
+                        emitEvents ? TypecheckerEvents.beginMethod(className, methodName) : null);
+    }
+
+    long nodesVisited() {
+        long total = 0;
+        for (final long count : visits) {
+            total += count;
+        }
+        return total;
+    }
+
+    public Snapshot snapshot() {
+        final Map<String, Long> visitCounts = new LinkedHashMap<String, Long>();
+        for (int kind = 0; kind < KIND_NAMES.length; kind++) {
+            visitCounts.put(KIND_NAMES[kind], visits[kind]);
+        }
+        return new Snapshot(visitCounts,
+                            classLookups,
+                            classLookupMisses,
+                            methodLookups,
+                            methodLookupMisses,
+                            bindings,
+                            totalEnvironmentSize,
+                            maxEnvironmentSize,
+                            errors,
+                            new ArrayList<Timing>(timings),
+                            new LinkedHashMap<ClassName, Long>(classNanos),
+                            programNanos);
+    }
+
+    // Wall time for one constructor or method.
+    public static class Timing {
+        public final ClassName className;
+        public final MethodName methodName; // null for the constructor
+        public final long nanos;
+
+        public Timing(final ClassName className,
+                      final MethodName methodName,
+                      final long nanos) {
+            this.className = className;
+            this.methodName = methodName;
+            this.nanos = nanos;
+        }
+
+        public String toString() {
+            return ("Timing(" + className + ", " +
+                    ((methodName == null) ? "constructor" : methodName.toString()) + ", " +
+                    nanos + "ns)");
+        }
+    }
+
+    // The counts at the time snapshot() was called.
+    public static class Snapshot {
+        // by node class name, e.g., "OpExp", in a fixed order
+        public final Map<String, Long> nodeVisits;
+        public final long classLookups;
+        public final long classLookupMisses;
+        public final long methodLookups;
+        public final long methodLookupMisses;
+        // variables bound, including parameters
+        public final long bindings;
+        // sum over bindings of the environment's size right after
+        public final long totalEnvironmentSize;
+        public final int maxEnvironmentSize;
+        public final long errors;
+        // in the order checked
+        public final List<Timing> timings;
+        // constructor plus methods, by class, in the order checked
+        public final Map<ClassName, Long> classNanos;
+        public final long programNanos;
+
+        Snapshot(final Map<String, Long> nodeVisits,
+                 final long classLookups,
+                 final long classLookupMisses,
+                 final long methodLookups,
+                 final long methodLookupMisses,
+                 final long bindings,
+                 final long totalEnvironmentSize,
+                 final int maxEnvironmentSize,
+                 final long errors,
+                 final List<Timing> timings,
+                 final Map<ClassName, Long> classNanos,
+                 final long programNanos) {
+            this.nodeVisits = Collections.unmodifiableMap(nodeVisits);
+            this.classLookups = classLookups;
+            this.classLookupMisses = classLookupMisses;
+            this.methodLookups = methodLookups;
+            this.methodLookupMisses = methodLookupMisses;
+            this.bindings = bindings;
+            this.totalEnvironmentSize = totalEnvironmentSize;
+            this.maxEnvironmentSize = maxEnvironmentSize;
+            this.errors = errors;
+            this.timings = Collections.unmodifiableList(timings);
+            this.classNanos = Collections.unmodifiableMap(classNanos);
+            this.programNanos = programNanos;
+        }
+
+        public long nodesVisited() {
+            long total = 0;
+            for (final long count : nodeVisits.values()) {
+                total += count;
+            }
+            return total;
+        }
+
+        public double meanEnvironmentSize() {
+            return (bindings == 0) ? 0.0 : (double)totalEnvironmentSize / bindings;
+        }
+
+        public String toString() {
+            return ("Snapshot(" + nodesVisited() + " nodes, " +
+                    classLookups + " class lookups (" + classLookupMisses + " missed), " +
+                    methodLookups + " method lookups (" + methodLookupMisses + " missed), " +
+                    bindings + " bindings (max environment " + maxEnvironmentSize + "), " +
+                    errors + " errors, " + programNanos + "ns)");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package oop_example.vm;
+
+// A lowered body: a method, a constructor or the entry point.
+//
+// Calls overlap frames: the caller puts the receiver and arguments in its
+// highest registers, and those become the callee's first registers, so
+// nothing is copied.  Int parameters are int registers 0, 1, ... in order,
+// and ref parameters are ref registers 1, 2, ... after this.
+final class Function {
+    final String name;
+    final int index; // in the VM's function table
+    int[] code;
+    int intRegisters;
+    int refRegisters;
+
+    Function(final String name, final int index) {
+        this.name = name;
+        this.index = index;
+    }
+
+    // one instruction per line, for debugging and tests
+    String disassemble() {
+        final StringBuilder builder = new StringBuilder(name).append(":\n");
+        int pc = 0;
+        while (pc < code.length) {
+            final int opcode = code[pc];
+            builder.append(String.format("%4d  %s", pc, Opcodes.NAMES[opcode]));
+            for (int operand = 1; operand <= Opcodes.OPERANDS[opcode]; operand++) {
+                builder.append(operand == 1 ? " " : ", ").append(code[pc + operand]);
+            }
+            builder.append('\n');
+            pc += 1 + Opcodes.OPERANDS[opcode];
+        }
+        return builder.toString();
+    }
+
+    public String toString() {
+        return "Function(" + name + ")";
+    }
+}
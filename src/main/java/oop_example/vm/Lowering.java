@@ -0,0 +1,535 @@
+package oop_example.vm;
+
+import oop_example.analysis.ClassHierarchyAnalysis;
+import oop_example.parser.*;
+import oop_example.typechecker.ClassTable;
+import oop_example.typechecker.MethodInfo;
+import oop_example.typechecker.TypeErrorException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Lowers one body to register code.
+//
+// Registers are allocated like a stack: locals and temporaries take the
+// next free register of their kind and give it back when they go out of
+// scope, so everything above the current top is free.  That's what lets a
+// call put its arguments at the top and have the callee's frame start
+// there.
+//
+// Variables are read from their own registers rather than copied, and
+// comparisons that are only used for branching never produce a bool.
+final class Lowering implements StmtVisitor<Void, Void, RuntimeException> {
+    private final ClassTable classTable;
+    private final Map<ClassName, VmClass> classes;
+    private final Map<MethodInfo, Function> methods;
+    private final ClassHierarchyAnalysis analysis;
+    private final List<String> strings; // FAIL messages and CALL method names
+    private final VmClass vmClass; // null in the entry point
+    private final Type returnType;
+
+    private int[] code = new int[64];
+    private int length;
+    private Scope scope;
+    private int nextInt;
+    private int nextRef;
+    private int maxInt;
+    private int maxRef;
+
+    // A variable in scope, newest binding first.
+    private static final class Scope {
+        final Variable variable;
+        final Type type;
+        final int register;
+        final Scope next;
+
+        Scope(final Variable variable, final Type type, final int register, final Scope next) {
+            this.variable = variable;
+            this.type = type;
+            this.register = register;
+            this.next = next;
+        }
+    }
+
+    // A jump target; jumps to it before it's placed are patched when it is.
+    private static final class Label {
+        int position = -1;
+        int[] fixups = new int[2];
+        int fixupCount;
+    }
+
+    Lowering(final ClassTable classTable,
+             final Map<ClassName, VmClass> classes,
+             final Map<MethodInfo, Function> methods,
+             final ClassHierarchyAnalysis analysis,
+             final List<String> strings,
+             final VmClass vmClass,
+             final Type returnType) {
+        this.classTable = classTable;
+        this.classes = classes;
+        this.methods = methods;
+        this.analysis = analysis;
+        this.strings = strings;
+        this.vmClass = vmClass;
+        this.returnType = returnType;
+        // ref register 0 is this, even in the entry point where it's null
+        this.nextRef = 1;
+        this.maxRef = 1;
+    }
+
+    static boolean isIntLike(final Type type) {
+        return type == IntType.instance() || type == BoolType.instance();
+    }
+
+    private MethodInfo lookupMethod(final ClassName className, final MethodName methodName) {
+        try {
+            return classTable.lookupMethod(className, methodName);
+        } catch (final TypeErrorException e) {
+            throw new IllegalStateException("Lowering a program that doesn't typecheck", e);
+        }
+    }
+
+    private List<Type> constructorTypes(final ClassName className) {
+        try {
+            return classTable.lookupClass(className).constructorTypes;
+        } catch (final TypeErrorException e) {
+            throw new IllegalStateException("Lowering a program that doesn't typecheck", e);
+        }
+    }
+
+    // ---- emitting ----
+
+    private void emit(final int... words) {
+        if (length + words.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, length + words.length));
+        }
+        System.arraycopy(words, 0, code, length, words.length);
+        length += words.length;
+    }
+
+    // the last operand of the instruction just emitted is the target
+    private void emitJump(final Label target, final int... words) {
+        emit(words);
+        if (target.position >= 0) {
+            code[length - 1] = target.position;
+        } else {
+            if (target.fixupCount == target.fixups.length) {
+                target.fixups = Arrays.copyOf(target.fixups, target.fixupCount * 2);
+            }
+            target.fixups[target.fixupCount++] = length - 1;
+        }
+    }
+
+    private void place(final Label label) {
+        label.position = length;
+        for (int index = 0; index < label.fixupCount; index++) {
+            code[label.fixups[index]] = length;
+        }
+    }
+
+    private int string(final String value) {
+        strings.add(value);
+        return strings.size() - 1;
+    }
+
+    private int intRegister() {
+        maxInt = Math.max(maxInt, nextInt + 1);
+        return nextInt++;
+    }
+
+    private int refRegister() {
+        maxRef = Math.max(maxRef, nextRef + 1);
+        return nextRef++;
+    }
+
+    // ---- bodies ----
+
+    void parameters(final List<Vardec> vardecs) {
+        for (final Vardec vardec : vardecs) {
+            declare(vardec);
+        }
+    }
+
+    private int declare(final Vardec vardec) {
+        final int register = isIntLike(vardec.type) ? intRegister() : refRegister();
+        scope = new Scope(vardec.variable, vardec.type, register, scope);
+        return register;
+    }
+
+    // constructors start by running the parent's constructor on this
+    void superCall(final ClassDef classDef) {
+        final VmClass parent = vmClass.parent;
+        if (parent.constructor == null) {
+            return; // Object: no arguments, nothing to run
+        }
+        final int intMark = nextInt;
+        final int refMark = nextRef;
+        final int refBase = refRegister();
+        emit(Opcodes.RMOV, refBase, 0);
+        final int intBase = arguments(constructorTypes(classDef.extendsClassName), classDef.superParams, refBase);
+        emit(Opcodes.SUPER, parent.constructor.index, intBase, refBase);
+        nextInt = intMark;
+        nextRef = refMark;
+    }
+
+    void statements(final List<Stmt> stmts) {
+        block(stmts);
+    }
+
+    // Falling off the end of a void body returns; the typechecker doesn't
+    // make sure other bodies return on every path, so those fail, like
+    // the interpreter.
+    void finish(final Function function) {
+        if (returnType == VoidType.instance()) {
+            emit(Opcodes.RETV);
+        } else {
+            emit(Opcodes.FAIL, string(function.name + " ended without returning a value"));
+        }
+        function.code = Arrays.copyOf(code, length);
+        function.intRegisters = maxInt;
+        function.refRegisters = maxRef;
+    }
+
+    // ---- expressions ----
+
+    private Scope local(final Exp exp) {
+        if (exp instanceof VariableExp) {
+            final Variable variable = ((VariableExp)exp).variable;
+            for (Scope current = scope; current != null; current = current.next) {
+                if (current.variable.equals(variable)) {
+                    return current;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIntLiteral(final Exp exp) {
+        return exp instanceof IntLiteralExp;
+    }
+
+    // The register an int or bool expression's value is in: a local's own
+    // register, or a new temporary that the caller gives back.
+    private int intOperand(final Exp exp) {
+        final Scope local = local(exp);
+        if (local != null) {
+            return local.register;
+        }
+        final int register = intRegister();
+        intInto(exp, register);
+        return register;
+    }
+
+    private void intInto(final Exp exp, final int dst) {
+        final int intMark = nextInt;
+        final int refMark = nextRef;
+        if (exp instanceof IntLiteralExp) {
+            emit(Opcodes.ICONST, dst, ((IntLiteralExp)exp).value);
+        } else if (exp instanceof BoolLiteralExp) {
+            emit(Opcodes.ICONST, dst, ((BoolLiteralExp)exp).value ? 1 : 0);
+        } else if (exp instanceof VariableExp) {
+            final Scope local = local(exp);
+            if (local != null) {
+                if (local.register != dst) {
+                    emit(Opcodes.IMOV, dst, local.register);
+                }
+            } else {
+                emit(Opcodes.GETI, dst, vmClass.intFields.get(((VariableExp)exp).variable));
+            }
+        } else if (exp instanceof OpExp) {
+            final OpExp op = (OpExp)exp;
+            if (op.op == PlusOp.instance() && isIntLiteral(op.right)) {
+                emit(Opcodes.IADDI, dst, intOperand(op.left), ((IntLiteralExp)op.right).value);
+            } else if (op.op == PlusOp.instance() && isIntLiteral(op.left)) {
+                emit(Opcodes.IADDI, dst, intOperand(op.right), ((IntLiteralExp)op.left).value);
+            } else {
+                final int left = intOperand(op.left);
+                final int right = intOperand(op.right);
+                final int opcode;
+                if (op.op == PlusOp.instance()) {
+                    opcode = Opcodes.IADD;
+                } else if (op.op == LessThanOp.instance()) {
+                    opcode = Opcodes.ILT;
+                } else {
+                    opcode = Opcodes.IEQ;
+                }
+                emit(opcode, dst, left, right);
+            }
+        } else if (exp instanceof MethodCallExp) {
+            call((MethodCallExp)exp, dst);
+        } else {
+            throw new IllegalStateException("Not an int or bool expression: " + exp);
+        }
+        nextInt = intMark;
+        nextRef = refMark;
+    }
+
+    private int refOperand(final Exp exp) {
+        final Scope local = local(exp);
+        if (local != null) {
+            return local.register;
+        } else if (exp instanceof ThisExp) {
+            return 0;
+        }
+        final int register = refRegister();
+        refInto(exp, register);
+        return register;
+    }
+
+    // returns the expression's static class
+    private ClassName refInto(final Exp exp, final int dst) {
+        final int intMark = nextInt;
+        final int refMark = nextRef;
+        final ClassName type;
+        if (exp instanceof VariableExp) {
+            final Variable variable = ((VariableExp)exp).variable;
+            final Scope local = local(exp);
+            if (local != null) {
+                if (local.register != dst) {
+                    emit(Opcodes.RMOV, dst, local.register);
+                }
+                type = ((ClassNameType)local.type).className;
+            } else {
+                emit(Opcodes.GETR, dst, vmClass.refFields.get(variable));
+                type = ((ClassNameType)fieldType(variable)).className;
+            }
+        } else if (exp instanceof ThisExp) {
+            emit(Opcodes.RMOV, dst, 0);
+            type = vmClass.className;
+        } else if (exp instanceof MethodCallExp) {
+            type = ((ClassNameType)call((MethodCallExp)exp, dst)).className;
+        } else if (exp instanceof NewExp) {
+            final NewExp newExp = (NewExp)exp;
+            final int refBase = refRegister();
+            final int intBase = arguments(constructorTypes(newExp.className), newExp.params, refBase);
+            emit(Opcodes.NEW, dst, classes.get(newExp.className).index, intBase, refBase);
+            type = newExp.className;
+        } else {
+            throw new IllegalStateException("Not a reference expression: " + exp);
+        }
+        nextInt = intMark;
+        nextRef = refMark;
+        return type;
+    }
+
+    private Type fieldType(final Variable variable) {
+        try {
+            return classTable.lookupClass(vmClass.className).fields.get(variable);
+        } catch (final TypeErrorException e) {
+            throw new IllegalStateException("Lowering a program that doesn't typecheck", e);
+        }
+    }
+
+    // Puts arguments in the registers after refBase, which holds the
+    // receiver: int arguments at the top of the int registers, and ref
+    // arguments after refBase.  Returns where the int arguments start.
+    private int arguments(final List<Type> types, final List<Exp> params, final int refBase) {
+        final int intBase = nextInt;
+        int ints = 0;
+        int refs = 0;
+        for (final Type type : types) {
+            if (isIntLike(type)) {
+                intRegister();
+            } else {
+                refRegister();
+            }
+        }
+        for (int index = 0; index < params.size(); index++) {
+            if (isIntLike(types.get(index))) {
+                intInto(params.get(index), intBase + ints++);
+            } else {
+                refInto(params.get(index), refBase + 1 + refs++);
+            }
+        }
+        return intBase;
+    }
+
+    // returns the method's return type
+    private Type call(final MethodCallExp exp, final int dst) {
+        final int refBase = refRegister();
+        final ClassName receiverClass = refInto(exp.target, refBase);
+        final MethodInfo method = lookupMethod(receiverClass, exp.methodName);
+        final int intBase = arguments(method.parameterTypes, exp.params, refBase);
+        // calls only one method can answer don't need the method table
+        final MethodInfo target = analysis.directTarget(exp);
+        if (target != null) {
+            emit(Opcodes.CALLD, dst, methods.get(target).index, intBase, refBase, string(exp.methodName.name));
+        } else {
+            emit(Opcodes.CALL, dst, method.slot, intBase, refBase, string(exp.methodName.name));
+        }
+        return method.returnType;
+    }
+
+    // evaluated for its effects only
+    private void discard(final Exp exp) {
+        final int intMark = nextInt;
+        final int refMark = nextRef;
+        if (exp instanceof MethodCallExp) {
+            call((MethodCallExp)exp, 0);
+        } else if (exp instanceof NewExp) {
+            refInto(exp, refRegister());
+        } else if (exp instanceof OpExp) {
+            // operators have no effects of their own
+            discard(((OpExp)exp).left);
+            discard(((OpExp)exp).right);
+        }
+        nextInt = intMark;
+        nextRef = refMark;
+    }
+
+    // Jumps to target if the guard is false, and falls through if it's
+    // true, branching on comparisons directly.
+    private void jumpIfFalse(final Exp guard, final Label target) {
+        final int intMark = nextInt;
+        final int refMark = nextRef;
+        if (guard instanceof BoolLiteralExp) {
+            if (!((BoolLiteralExp)guard).value) {
+                emitJump(target, Opcodes.JMP, 0);
+            }
+        } else if (guard instanceof OpExp && ((OpExp)guard).op != PlusOp.instance()) {
+            final OpExp op = (OpExp)guard;
+            final boolean lessThan = op.op == LessThanOp.instance();
+            if (isIntLiteral(op.right)) {
+                emitJump(target, lessThan ? Opcodes.JGEI : Opcodes.JNEI,
+                         intOperand(op.left), ((IntLiteralExp)op.right).value, 0);
+            } else if (!lessThan && isIntLiteral(op.left)) {
+                emitJump(target, Opcodes.JNEI, intOperand(op.right), ((IntLiteralExp)op.left).value, 0);
+            } else {
+                final int left = intOperand(op.left);
+                final int right = intOperand(op.right);
+                emitJump(target, lessThan ? Opcodes.JGE : Opcodes.JNE, left, right, 0);
+            }
+        } else {
+            emitJump(target, Opcodes.JF, intOperand(guard), 0);
+        }
+        nextInt = intMark;
+        nextRef = refMark;
+    }
+
+    // ---- statements ----
+
+    private void block(final List<Stmt> stmts) {
+        final Scope outer = scope;
+        final int intMark = nextInt;
+        final int refMark = nextRef;
+        for (final Stmt stmt : stmts) {
+            stmt.accept(this, null);
+        }
+        scope = outer;
+        nextInt = intMark;
+        nextRef = refMark;
+    }
+
+    private void nested(final Stmt stmt) {
+        block(Arrays.asList(stmt));
+    }
+
+    public Void visitExp(final ExpStmt stmt, final Void context) {
+        discard(stmt.exp);
+        return null;
+    }
+
+    // the initializer is lowered before the variable comes into scope
+    public Void visitVariableInitialization(final VariableInitializationStmt stmt, final Void context) {
+        if (isIntLike(stmt.vardec.type)) {
+            final int register = intRegister();
+            intInto(stmt.exp, register);
+            scope = new Scope(stmt.vardec.variable, stmt.vardec.type, register, scope);
+        } else {
+            final int register = refRegister();
+            refInto(stmt.exp, register);
+            scope = new Scope(stmt.vardec.variable, stmt.vardec.type, register, scope);
+        }
+        return null;
+    }
+
+    public Void visitIf(final IfStmt stmt, final Void context) {
+        final Label ifFalse = new Label();
+        final Label done = new Label();
+        jumpIfFalse(stmt.guard, ifFalse);
+        nested(stmt.ifTrue);
+        emitJump(done, Opcodes.JMP, 0);
+        place(ifFalse);
+        nested(stmt.ifFalse);
+        place(done);
+        return null;
+    }
+
+    public Void visitWhile(final WhileStmt stmt, final Void context) {
+        final Label top = new Label();
+        final Label done = new Label();
+        place(top);
+        jumpIfFalse(stmt.guard, done);
+        nested(stmt.body);
+        emitJump(top, Opcodes.JMP, 0);
+        place(done);
+        return null;
+    }
+
+    public Void visitReturnNonVoid(final ReturnNonVoidStmt stmt, final Void context) {
+        final int intMark = nextInt;
+        final int refMark = nextRef;
+        if (isIntLike(returnType)) {
+            emit(Opcodes.RETI, intOperand(stmt.exp));
+        } else {
+            emit(Opcodes.RETR, refOperand(stmt.exp));
+        }
+        nextInt = intMark;
+        nextRef = refMark;
+        return null;
+    }
+
+    public Void visitReturnVoid(final ReturnVoidStmt stmt, final Void context) {
+        emit(Opcodes.RETV);
+        return null;
+    }
+
+    public Void visitPrintln(final PrintlnStmt stmt, final Void context) {
+        final int intMark = nextInt;
+        final int refMark = nextRef;
+        final Exp exp = stmt.exp;
+        final Type type = staticType(exp);
+        if (type == IntType.instance()) {
+            emit(Opcodes.PRINTI, intOperand(exp));
+        } else if (type == BoolType.instance()) {
+            emit(Opcodes.PRINTB, intOperand(exp));
+        } else if (type == VoidType.instance()) {
+            discard(exp);
+            emit(Opcodes.PRINTNULL);
+        } else {
+            emit(Opcodes.PRINTR, refOperand(exp));
+        }
+        nextInt = intMark;
+        nextRef = refMark;
+        return null;
+    }
+
+    public Void visitBlock(final BlockStmt stmt, final Void context) {
+        block(stmt.body);
+        return null;
+    }
+
+    // Only println needs to know an expression's type before lowering it,
+    // and only at the top, so this doesn't look further than it has to.
+    private Type staticType(final Exp exp) {
+        if (exp instanceof IntLiteralExp) {
+            return IntType.instance();
+        } else if (exp instanceof BoolLiteralExp) {
+            return BoolType.instance();
+        } else if (exp instanceof OpExp) {
+            return (((OpExp)exp).op == PlusOp.instance()) ? IntType.instance() : BoolType.instance();
+        } else if (exp instanceof VariableExp) {
+            final Scope local = local(exp);
+            return (local != null) ? local.type : fieldType(((VariableExp)exp).variable);
+        } else if (exp instanceof ThisExp) {
+            return ClassNameType.instance(vmClass.className);
+        } else if (exp instanceof NewExp) {
+            return ClassNameType.instance(((NewExp)exp).className);
+        } else {
+            final MethodCallExp call = (MethodCallExp)exp;
+            return lookupMethod(((ClassNameType)staticType(call.target)).className, call.methodName).returnType;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package oop_example.vm;
+
+// The VM's instruction set.  An instruction is its opcode followed by its
+// operands, all ints in a Function's code array.  Register operands are
+// relative to the current frame; there are separate int registers (ints
+// and bools) and ref registers, and ref register 0 is always this.
+//
+// JF, JGE*, JNE* and the *I forms are the superinstructions: a comparison
+// and the branch on it in one dispatch, and + with a constant operand.
+final class Opcodes {
+    private Opcodes() {}
+
+    static final int ICONST = 0;   // dst, value
+    static final int IMOV = 1;     // dst, src
+    static final int RMOV = 2;     // dst, src
+    static final int IADD = 3;     // dst, a, b
+    static final int IADDI = 4;    // dst, a, value
+    static final int ILT = 5;      // dst, a, b
+    static final int IEQ = 6;      // dst, a, b
+    static final int JMP = 7;      // target
+    static final int JF = 8;       // a, target: jump if a is false
+    static final int JGE = 9;      // a, b, target: jump unless a < b
+    static final int JGEI = 10;    // a, value, target: jump unless a < value
+    static final int JNE = 11;     // a, b, target: jump unless a == b
+    static final int JNEI = 12;    // a, value, target: jump unless a == value
+    static final int GETI = 13;    // dst, field
+    static final int GETR = 14;    // dst, field
+    static final int NEW = 15;     // dst, class, intBase, refBase
+    static final int CALL = 16;    // dst, slot, intBase, refBase, name
+    static final int SUPER = 17;   // function, intBase, refBase
+    static final int RETI = 18;    // src
+    static final int RETR = 19;    // src
+    static final int RETV = 20;
+    static final int PRINTI = 21;  // src
+    static final int PRINTB = 22;  // src
+    static final int PRINTR = 23;  // src
+    static final int PRINTNULL = 24;
+    static final int FAIL = 25;    // message
+    static final int CALLD = 26;   // dst, function, intBase, refBase, name: CALL without dispatch
+
+    static final String[] NAMES = {
+        "ICONST", "IMOV", "RMOV", "IADD", "IADDI", "ILT", "IEQ",
+        "JMP", "JF", "JGE", "JGEI", "JNE", "JNEI",
+        "GETI", "GETR", "NEW", "CALL", "SUPER",
+        "RETI", "RETR", "RETV",
+        "PRINTI", "PRINTB", "PRINTR", "PRINTNULL", "FAIL",
+        "CALLD"
+    };
+
+    // operands per opcode
+    static final int[] OPERANDS = {
+        2, 2, 2, 3, 3, 3, 3,
+        1, 2, 3, 3, 3, 3,
+        2, 2, 4, 5, 3,
+        1, 1, 0,
+        1, 1, 1, 0, 1,
+        5
+    };
+}
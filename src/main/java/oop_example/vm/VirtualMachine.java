@@ -0,0 +1,379 @@
+package oop_example.vm;
+
+import oop_example.analysis.ClassHierarchyAnalysis;
+import oop_example.interpreter.EvaluationException;
+import oop_example.parser.*;
+import oop_example.typechecker.ClassInfo;
+import oop_example.typechecker.ClassTable;
+import oop_example.typechecker.MethodInfo;
+import oop_example.typechecker.TypeAnnotations;
+import oop_example.typechecker.TypeErrorException;
+import oop_example.typechecker.Typechecker;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Runs programs lowered to register code (see Opcodes and Lowering).
+//
+// Everything is lowered up front.  run() is one loop over the current
+// function's code with the program counter, frame bases and register
+// arrays in locals; calls push the caller's state onto arrays rather than
+// recursing in Java, so deep recursion in a program costs no Java stack
+// and nothing is allocated per instruction or per call, apart from the
+// objects the program creates.  Java has no computed goto, so dispatch is
+// a dense switch, which the JIT turns into a jump table.
+//
+// Not thread-safe: the register and frame arrays are reused between runs.
+public class VirtualMachine {
+    // deeper than this is reported as a stack overflow, like the interpreter
+    public static final int MAX_DEPTH = 1 << 22;
+
+    private final PrintStream out;
+    private final VmClass[] classes;
+    private final Function[] functions;
+    private final String[] strings;
+    private final Function entryPoint;
+
+    // registers for all frames; a frame's registers start at its bases
+    private int[] ints = new int[1024];
+    private Object[] refs = new Object[1024];
+    // the callers of the running function
+    private Function[] callerFunctions = new Function[256];
+    private int[] callerPcs = new int[256];
+    private int[] callerIntBases = new int[256];
+    private int[] callerRefBases = new int[256];
+    // where each frame's return value goes, as an absolute register
+    private int[] returnRegisters = new int[256];
+
+    public VirtualMachine(final Program program, final PrintStream out) throws TypeErrorException {
+        final Typechecker typechecker = new Typechecker(program, null, new TypeAnnotations());
+        final TypeAnnotations annotations = typechecker.isWellTypedProgram();
+        final ClassTable classTable = typechecker.classTable;
+        this.out = out;
+
+        // parents first, so fields can be laid out after the parent's
+        final Map<ClassName, VmClass> byName = new HashMap<ClassName, VmClass>();
+        final List<VmClass> classList = new ArrayList<VmClass>();
+        for (final ClassName className : classTable.hierarchy.classesParentFirst()) {
+            final ClassInfo info = classTable.lookupClass(className);
+            final VmClass vmClass = (info.parent == null)
+                ? VmClass.object(className)
+                : layOut(info.classDef, classList.size(), byName.get(info.parent.className));
+            byName.put(className, vmClass);
+            classList.add(vmClass);
+        }
+
+        final List<Function> functionList = new ArrayList<Function>();
+        final List<String> stringList = new ArrayList<String>();
+        for (final VmClass vmClass : classList) {
+            final ClassDef classDef = classTable.lookupClass(vmClass.className).classDef;
+            if (classDef != null) {
+                vmClass.constructor = new Function(classDef.className.name + ".constructor", functionList.size());
+                functionList.add(vmClass.constructor);
+            }
+        }
+        // MethodInfos are shared with subclasses that inherit them, and so
+        // are the Functions
+        final Map<MethodInfo, Function> methods = new IdentityHashMap<MethodInfo, Function>();
+        for (final VmClass vmClass : classList) {
+            final List<MethodInfo> methodTable = classTable.lookupClass(vmClass.className).methodTable;
+            vmClass.methodTable = new Function[methodTable.size()];
+            for (final MethodInfo info : methodTable) {
+                Function function = methods.get(info);
+                if (function == null) {
+                    function = new Function(info.declaringClass.name + "." + info.methodDef.methodName.name,
+                                            functionList.size());
+                    methods.put(info, function);
+                    functionList.add(function);
+                }
+                vmClass.methodTable[info.slot] = function;
+            }
+        }
+
+        final ClassHierarchyAnalysis analysis = ClassHierarchyAnalysis.analyze(classTable, annotations);
+        for (final VmClass vmClass : classList) {
+            final ClassDef classDef = classTable.lookupClass(vmClass.className).classDef;
+            if (classDef == null) {
+                continue;
+            }
+            final Lowering constructor = new Lowering(classTable, byName, methods, analysis, stringList,
+                                                      vmClass, VoidType.instance());
+            constructor.parameters(classDef.constructorArguments);
+            constructor.superCall(classDef);
+            constructor.statements(classDef.constructorBody);
+            constructor.finish(vmClass.constructor);
+            for (final MethodDef methodDef : classDef.methods) {
+                final Lowering method = new Lowering(classTable, byName, methods, analysis, stringList,
+                                                     vmClass, methodDef.returnType);
+                method.parameters(methodDef.arguments);
+                methodDef.body.accept(method, null);
+                method.finish(methods.get(classTable.lookupMethod(vmClass.className, methodDef.methodName)));
+            }
+        }
+        this.entryPoint = new Function("entry point", -1);
+        final Lowering entry = new Lowering(classTable, byName, methods, analysis, stringList,
+                                            null, VoidType.instance());
+        program.entryPoint.accept(entry, null);
+        entry.finish(entryPoint);
+
+        this.classes = classList.toArray(new VmClass[0]);
+        this.functions = functionList.toArray(new Function[0]);
+        this.strings = stringList.toArray(new String[0]);
+    }
+
+    private static VmClass layOut(final ClassDef classDef, final int index, final VmClass parent) {
+        final Map<Variable, Integer> intFields = new HashMap<Variable, Integer>(parent.intFields);
+        final Map<Variable, Integer> refFields = new HashMap<Variable, Integer>(parent.refFields);
+        int intCount = parent.intFieldCount;
+        int refCount = parent.refFieldCount;
+        for (final Vardec vardec : classDef.instanceVariables) {
+            // an own field hides an inherited one of either kind
+            intFields.remove(vardec.variable);
+            refFields.remove(vardec.variable);
+            if (Lowering.isIntLike(vardec.type)) {
+                intFields.put(vardec.variable, intCount++);
+            } else {
+                refFields.put(vardec.variable, refCount++);
+            }
+        }
+        return new VmClass(classDef.className, index, parent, intFields, refFields, intCount, refCount);
+    }
+
+    public static void run(final Program program,
+                           final PrintStream out) throws TypeErrorException, EvaluationException {
+        new VirtualMachine(program, out).run();
+    }
+
+    // the lowered code, for debugging
+    public String disassemble() {
+        final StringBuilder builder = new StringBuilder();
+        for (final Function function : functions) {
+            builder.append(function.disassemble()).append('\n');
+        }
+        return builder.append(entryPoint.disassemble()).toString();
+    }
+
+    private void ensureRegisters(final int intTop, final int refTop) {
+        if (intTop > ints.length) {
+            ints = Arrays.copyOf(ints, Math.max(ints.length * 2, intTop));
+        }
+        if (refTop > refs.length) {
+            refs = Arrays.copyOf(refs, Math.max(refs.length * 2, refTop));
+        }
+    }
+
+    // called when the frame arrays are full
+    private void growFrames(final int depth) throws EvaluationException {
+        if (depth >= MAX_DEPTH) {
+            throw new EvaluationException("Stack overflow");
+        }
+        final int size = callerPcs.length * 2;
+        callerFunctions = Arrays.copyOf(callerFunctions, size);
+        callerPcs = Arrays.copyOf(callerPcs, size);
+        callerIntBases = Arrays.copyOf(callerIntBases, size);
+        callerRefBases = Arrays.copyOf(callerRefBases, size);
+        returnRegisters = Arrays.copyOf(returnRegisters, size);
+    }
+
+    public void run() throws EvaluationException {
+        Function function = entryPoint;
+        int[] code = function.code;
+        int pc = 0;
+        int intBase = 0;
+        int refBase = 0;
+        int depth = 0;
+        ensureRegisters(function.intRegisters, function.refRegisters);
+        int[] ints = this.ints;
+        Object[] refs = this.refs;
+        refs[0] = null;
+
+        while (true) {
+            switch (code[pc]) {
+            case Opcodes.ICONST:
+                ints[intBase + code[pc + 1]] = code[pc + 2];
+                pc += 3;
+                break;
+            case Opcodes.IMOV:
+                ints[intBase + code[pc + 1]] = ints[intBase + code[pc + 2]];
+                pc += 3;
+                break;
+            case Opcodes.RMOV:
+                refs[refBase + code[pc + 1]] = refs[refBase + code[pc + 2]];
+                pc += 3;
+                break;
+            case Opcodes.IADD:
+                ints[intBase + code[pc + 1]] = ints[intBase + code[pc + 2]] + ints[intBase + code[pc + 3]];
+                pc += 4;
+                break;
+            case Opcodes.IADDI:
+                ints[intBase + code[pc + 1]] = ints[intBase + code[pc + 2]] + code[pc + 3];
+                pc += 4;
+                break;
+            case Opcodes.ILT:
+                ints[intBase + code[pc + 1]] = (ints[intBase + code[pc + 2]] < ints[intBase + code[pc + 3]]) ? 1 : 0;
+                pc += 4;
+                break;
+            case Opcodes.IEQ:
+                ints[intBase + code[pc + 1]] = (ints[intBase + code[pc + 2]] == ints[intBase + code[pc + 3]]) ? 1 : 0;
+                pc += 4;
+                break;
+            case Opcodes.JMP:
+                pc = code[pc + 1];
+                break;
+            case Opcodes.JF:
+                pc = (ints[intBase + code[pc + 1]] == 0) ? code[pc + 2] : pc + 3;
+                break;
+            case Opcodes.JGE:
+                pc = (ints[intBase + code[pc + 1]] < ints[intBase + code[pc + 2]]) ? pc + 4 : code[pc + 3];
+                break;
+            case Opcodes.JGEI:
+                pc = (ints[intBase + code[pc + 1]] < code[pc + 2]) ? pc + 4 : code[pc + 3];
+                break;
+            case Opcodes.JNE:
+                pc = (ints[intBase + code[pc + 1]] == ints[intBase + code[pc + 2]]) ? pc + 4 : code[pc + 3];
+                break;
+            case Opcodes.JNEI:
+                pc = (ints[intBase + code[pc + 1]] == code[pc + 2]) ? pc + 4 : code[pc + 3];
+                break;
+            case Opcodes.GETI:
+                ints[intBase + code[pc + 1]] = ((VmObject)refs[refBase]).ints[code[pc + 2]];
+                pc += 3;
+                break;
+            case Opcodes.GETR:
+                refs[refBase + code[pc + 1]] = ((VmObject)refs[refBase]).refs[code[pc + 2]];
+                pc += 3;
+                break;
+            case Opcodes.CALL:
+            case Opcodes.CALLD: {
+                final VmObject receiver = (VmObject)refs[refBase + code[pc + 4]];
+                if (receiver == null) {
+                    throw new EvaluationException("Called " + strings[code[pc + 5]] + " on null");
+                }
+                if (depth == callerPcs.length) {
+                    growFrames(depth);
+                }
+                callerFunctions[depth] = function;
+                callerPcs[depth] = pc + 6;
+                callerIntBases[depth] = intBase;
+                callerRefBases[depth] = refBase;
+                returnRegisters[depth] = code[pc + 1];
+                depth++;
+                intBase += code[pc + 3];
+                refBase += code[pc + 4];
+                function = (code[pc] == Opcodes.CALL)
+                    ? receiver.vmClass.methodTable[code[pc + 2]]
+                    : functions[code[pc + 2]];
+                code = function.code;
+                pc = 0;
+                if (intBase + function.intRegisters > ints.length || refBase + function.refRegisters > refs.length) {
+                    ensureRegisters(intBase + function.intRegisters, refBase + function.refRegisters);
+                    ints = this.ints;
+                    refs = this.refs;
+                }
+                break;
+            }
+            // constructors: NEW runs the class's, SUPER the parent's on this
+            case Opcodes.NEW:
+            case Opcodes.SUPER: {
+                final Function callee;
+                final int next;
+                if (code[pc] == Opcodes.NEW) {
+                    final VmClass vmClass = classes[code[pc + 2]];
+                    final VmObject created = new VmObject(vmClass);
+                    refs[refBase + code[pc + 1]] = created;
+                    if (vmClass.constructor == null) {
+                        pc += 5;
+                        break;
+                    }
+                    refs[refBase + code[pc + 4]] = created;
+                    callee = vmClass.constructor;
+                    next = pc + 5;
+                    pc += 2;
+                } else {
+                    callee = functions[code[pc + 1]];
+                    next = pc + 4;
+                    pc += 1;
+                }
+                // pc is now at the intBase, refBase operands
+                if (depth == callerPcs.length) {
+                    growFrames(depth);
+                }
+                callerFunctions[depth] = function;
+                callerPcs[depth] = next;
+                callerIntBases[depth] = intBase;
+                callerRefBases[depth] = refBase;
+                depth++;
+                intBase += code[pc + 1];
+                refBase += code[pc + 2];
+                function = callee;
+                code = callee.code;
+                pc = 0;
+                if (intBase + function.intRegisters > ints.length || refBase + function.refRegisters > refs.length) {
+                    ensureRegisters(intBase + function.intRegisters, refBase + function.refRegisters);
+                    ints = this.ints;
+                    refs = this.refs;
+                }
+                break;
+            }
+            case Opcodes.RETI: {
+                final int result = ints[intBase + code[pc + 1]];
+                depth--;
+                function = callerFunctions[depth];
+                code = function.code;
+                pc = callerPcs[depth];
+                intBase = callerIntBases[depth];
+                refBase = callerRefBases[depth];
+                ints[intBase + returnRegisters[depth]] = result;
+                break;
+            }
+            case Opcodes.RETR: {
+                final Object result = refs[refBase + code[pc + 1]];
+                depth--;
+                function = callerFunctions[depth];
+                code = function.code;
+                pc = callerPcs[depth];
+                intBase = callerIntBases[depth];
+                refBase = callerRefBases[depth];
+                refs[refBase + returnRegisters[depth]] = result;
+                break;
+            }
+            case Opcodes.RETV:
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+                function = callerFunctions[depth];
+                code = function.code;
+                pc = callerPcs[depth];
+                intBase = callerIntBases[depth];
+                refBase = callerRefBases[depth];
+                break;
+            case Opcodes.PRINTI:
+                out.println(ints[intBase + code[pc + 1]]);
+                pc += 2;
+                break;
+            case Opcodes.PRINTB:
+                out.println(ints[intBase + code[pc + 1]] != 0);
+                pc += 2;
+                break;
+            case Opcodes.PRINTR:
+                out.println(refs[refBase + code[pc + 1]]);
+                pc += 2;
+                break;
+            case Opcodes.PRINTNULL:
+                out.println((Object)null);
+                pc += 1;
+                break;
+            case Opcodes.FAIL:
+                throw new EvaluationException(strings[code[pc + 1]]);
+            default:
+                throw new IllegalStateException("Bad opcode " + code[pc] + " at " + pc + " in " + function);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package oop_example.vm;
+
+import oop_example.parser.ClassName;
+import oop_example.parser.Variable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// A class as the VM sees it: field layout, method table and constructor.
+// A class's fields come after its parent's, so inherited code finds them
+// at the same index; own fields hide inherited ones with the same name.
+final class VmClass {
+    final ClassName className;
+    final int index; // in the VM's class table
+    final VmClass parent; // null for Object
+    final Map<Variable, Integer> intFields;
+    final Map<Variable, Integer> refFields;
+    final int intFieldCount;
+    final int refFieldCount;
+    Function[] methodTable;
+    Function constructor; // null for Object, which has nothing to run
+
+    VmClass(final ClassName className,
+            final int index,
+            final VmClass parent,
+            final Map<Variable, Integer> intFields,
+            final Map<Variable, Integer> refFields,
+            final int intFieldCount,
+            final int refFieldCount) {
+        this.className = className;
+        this.index = index;
+        this.parent = parent;
+        this.intFields = intFields;
+        this.refFields = refFields;
+        this.intFieldCount = intFieldCount;
+        this.refFieldCount = refFieldCount;
+    }
+
+    static VmClass object(final ClassName objectName) {
+        return new VmClass(objectName, 0, null, new HashMap<Variable, Integer>(), new HashMap<Variable, Integer>(), 0, 0);
+    }
+
+    public String toString() {
+        return "VmClass(" + className.name + ")";
+    }
+}
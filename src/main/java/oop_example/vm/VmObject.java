@@ -0,0 +1,19 @@
+package oop_example.vm;
+
+// An instance: its class, and its fields split by kind like registers.
+final class VmObject {
+    final VmClass vmClass;
+    final int[] ints;
+    final Object[] refs;
+
+    VmObject(final VmClass vmClass) {
+        this.vmClass = vmClass;
+        this.ints = new int[vmClass.intFieldCount];
+        this.refs = new Object[vmClass.refFieldCount];
+    }
+
+    // what println shows, same as the interpreter
+    public String toString() {
+        return vmClass.className.name + "@" + Integer.toHexString(System.identityHashCode(this));
+    }
+}
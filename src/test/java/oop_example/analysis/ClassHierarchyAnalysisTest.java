@@ -0,0 +1,82 @@
+package oop_example.analysis;
+
+import oop_example.parser.*;
+import oop_example.typechecker.MethodInfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ClassHierarchyAnalysisTest {
+    // Shape.area is overridden by Square only; Shape.name isn't overridden
+    // at all; Square.area has no overrides below Square
+    private static final String SHAPES =
+        "class Shape extends Object { constructor() { super(); } " +
+        "  int area() { return 0; } int name() { return 1; } }" +
+        "class Square extends Shape { constructor() { super(); } int area() { return 4; } }" +
+        "class Tile extends Square { constructor() { super(); } }" +
+        "class Circle extends Shape { constructor() { super(); } }" +
+        "{ Shape s = new Square(); Square q = new Tile();" +
+        "  println(s.area()); println(s.name()); println(q.area()); println(new Circle().area()); }";
+
+    private static MethodCallExp call(final Program program, final int statement) {
+        return (MethodCallExp)((PrintlnStmt)((BlockStmt)program.entryPoint).body.get(statement)).exp;
+    }
+
+    private static Set<String> names(final List<MethodInfo> targets) {
+        final Set<String> names = new HashSet<String>();
+        for (final MethodInfo target : targets) {
+            names.add(target.declaringClass.name + "." + target.methodDef.methodName.name);
+        }
+        return names;
+    }
+
+    @Test
+    public void testTargetsFollowOverridesBelowTheStaticType() throws Exception {
+        final Program program = Parser.parse(SHAPES);
+        final ClassHierarchyAnalysis analysis = ClassHierarchyAnalysis.analyze(program);
+
+        final MethodCallExp shapeArea = call(program, 2);
+        assertEquals(new HashSet<String>(java.util.Arrays.asList("Shape.area", "Square.area")),
+                     names(analysis.targets(shapeArea)));
+        assertFalse(analysis.isMonomorphic(shapeArea));
+        assertNull(analysis.directTarget(shapeArea));
+
+        // inherited everywhere, so one target
+        assertEquals("Shape.name", names(analysis.targets(call(program, 3))).iterator().next());
+        // Tile inherits Square's area, Circle inherits Shape's
+        assertEquals("Square.area", analysis.directTarget(call(program, 4)).declaringClass.name + ".area");
+        assertEquals("Shape", analysis.directTarget(call(program, 5)).declaringClass.name);
+
+        assertEquals(4, analysis.callSites());
+        assertEquals(3, analysis.monomorphicSites());
+    }
+
+    // the table goes by node, not by what the call looks like
+    private static MethodCallExp returned(final MethodDef method) {
+        return (MethodCallExp)((ReturnNonVoidStmt)((BlockStmt)method.body).body.get(0)).exp;
+    }
+
+    @Test
+    public void testSitesAreKeyedByIdentity() throws Exception {
+        final Program program = Parser.parse(
+            "class A extends Object { constructor() { super(); } int m() { return 1; } }" +
+            "class B extends A { constructor() { super(); } int m() { return 2; } }" +
+            "class C extends Object { constructor() { super(); } int test(A x) { return x.m(); } }" +
+            "class D extends Object { constructor() { super(); } int test(B x) { return x.m(); } }" +
+            "{ }");
+        final ClassHierarchyAnalysis analysis = ClassHierarchyAnalysis.analyze(program);
+        final MethodCallExp inC = returned(program.classes.get(2).methods.get(0));
+        final MethodCallExp inD = returned(program.classes.get(3).methods.get(0));
+        assertEquals(inC, inD);
+        assertFalse(analysis.isMonomorphic(inC));
+        assertTrue(analysis.isMonomorphic(inD));
+        assertNull(analysis.targets(new MethodCallExp(new ThisExp(), new MethodName("m"), new java.util.ArrayList<Exp>())));
+    }
+}
@@ -0,0 +1,123 @@
+package oop_example.analysis;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.parser.*;
+import oop_example.typechecker.Diagnostics;
+import oop_example.typechecker.TypeErrorException;
+import oop_example.typechecker.Typechecker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ReachabilityAnalysisTest {
+    // Shape.area is overridden by Square; Unused is never mentioned; Tag
+    // is only ever a parameter type; Shape.broken is never called
+    private static final String SHAPES =
+        "class Tag extends Object { constructor() { super(); } }" +
+        "class Shape extends Object { constructor() { super(); } " +
+        "  int area() { return 0; } int tagged(Tag t) { return 1; } bool broken() { return 1; } }" +
+        "class Square extends Shape { constructor() { super(); } int area() { return 4; } }" +
+        "class Unused extends Object { constructor() { super(); } int m() { return true; } }";
+
+    private static MethodDef method(final Program program, final String className, final String methodName) {
+        for (final ClassDef classDef : program.classes) {
+            if (classDef.className.name.equals(className)) {
+                for (final MethodDef method : classDef.methods) {
+                    if (method.methodName.name.equals(methodName)) {
+                        return method;
+                    }
+                }
+            }
+        }
+        throw new AssertionError("no method " + className + "." + methodName);
+    }
+
+    @Test
+    public void testChecksOnlyWhatTheEntryPointReaches() throws Exception {
+        final Program program = Parser.parse(SHAPES + "{ Shape s = new Shape(); println(s.area()); }");
+        try {
+            new Typechecker(program).isWellTypedProgram();
+            fail("the whole program isn't well-typed");
+        } catch (final TypeErrorException e) {
+            // expected
+        }
+        final ReachabilityAnalysis analysis = ReachabilityAnalysis.check(program);
+        // Shape.area, and Square.area since s could be a Square
+        assertTrue(analysis.isReached(method(program, "Shape", "area")));
+        assertTrue(analysis.isReached(method(program, "Square", "area")));
+        assertFalse(analysis.isReached(method(program, "Shape", "broken")));
+        assertFalse(analysis.isKept(new ClassName("Unused")));
+        assertFalse(analysis.isKept(new ClassName("Tag")));
+        // entry point, Shape's and Square's constructors, both areas
+        assertEquals(5, analysis.checkedDeclarations());
+    }
+
+    @Test
+    public void testFindsErrorsInOverridesAndConstructors() throws Exception {
+        final String badOverride = SHAPES.replace("int area() { return 4; }", "int area() { return false; }");
+        try {
+            ReachabilityAnalysis.check(Parser.parse(badOverride + "{ println(new Shape().area()); }"));
+            fail("Square.area can be reached");
+        } catch (final TypeErrorException e) {
+            assertEquals("types incompatible: BoolType, IntType", e.getMessage());
+        }
+
+        final Diagnostics diagnostics = new Diagnostics();
+        ReachabilityAnalysis.check(Parser.parse(SHAPES + "{ println(new Unused().m() + new Shape().broken()); }"),
+                                   diagnostics);
+        assertEquals(3, diagnostics.errors().size());
+    }
+
+    @Test
+    public void testPrunesUnreachedClassesAndMethods() throws Exception {
+        final Program program = Parser.parse(SHAPES + "{ println(new Square().tagged(new Tag())); }");
+        final Program pruned = ReachabilityAnalysis.prune(program);
+        final Program expected = Parser.parse(
+            "class Tag extends Object { constructor() { super(); } }" +
+            "class Shape extends Object { constructor() { super(); } int tagged(Tag t) { return 1; } }" +
+            "class Square extends Shape { constructor() { super(); } }" +
+            "{ println(new Square().tagged(new Tag())); }");
+        assertEquals(expected, pruned);
+    }
+
+    @Test
+    public void testKeepsClassesNamedAsTypes() throws Exception {
+        // Tag is never made, but tagged's signature needs it
+        final Program pruned =
+            ReachabilityAnalysis.prune(Parser.parse(SHAPES + "{ Shape s = new Square(); println(s.area()); }"));
+        assertEquals(Arrays.asList("Shape", "Square"), names(pruned));
+        final Program withTag = ReachabilityAnalysis.prune(Parser.parse(
+            SHAPES.replace("int area() { return 0; }", "int area() { return this.tagged(this.tag()); } Tag tag() { return this.tag(); }") +
+            "{ println(new Shape().area()); }"));
+        assertEquals(Arrays.asList("Tag", "Shape", "Square"), names(withTag));
+        new Typechecker(withTag).isWellTypedProgram();
+    }
+
+    private static List<String> names(final Program program) {
+        final List<String> names = new ArrayList<String>();
+        for (final ClassDef classDef : program.classes) {
+            names.add(classDef.className.name);
+        }
+        return names;
+    }
+
+    @Test
+    public void testPrunedGeneratedProgramsStillCheck() throws Exception {
+        for (long seed = 0; seed < 10; seed++) {
+            final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+            settings.classCount = 50;
+            settings.seed = seed;
+            final Program pruned = ReachabilityAnalysis.prune(ProgramGenerator.generate(settings));
+            new Typechecker(pruned).isWellTypedProgram();
+            // and pruning again changes nothing
+            assertEquals(pruned, ReachabilityAnalysis.prune(pruned));
+        }
+    }
+}
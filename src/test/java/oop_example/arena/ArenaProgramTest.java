@@ -0,0 +1,108 @@
+package oop_example.arena;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.parser.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ArenaProgramTest {
+    private static final String PROGRAM =
+        "class Base extends Object { int x; " +
+        "  constructor(int x) { super(); println(x); } " +
+        "  int get(int y) { return y + 1; } }" +
+        "class Sub extends Base { bool b; constructor() { super(3); } " +
+        "  Base self() { return this; } void none() { return; } }" +
+        "{ Sub s = new Sub(); int x = 2; println(s.get(x)); " +
+        "  if (x < 3) { bool b = false; println(b); } else { while (true == false) println(-1); } }";
+
+    @Test
+    public void testRoundTripsParsedPrograms() throws Exception {
+        final Program program = Parser.parse(PROGRAM);
+        assertEquals(program, ArenaProgram.fromProgram(program).toProgram());
+    }
+
+    @Test
+    public void testRoundTripsGeneratedPrograms() {
+        for (long seed = 0; seed < 10; seed++) {
+            final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+            settings.seed = seed;
+            final Program program = ProgramGenerator.generate(settings);
+            assertEquals(program, ArenaProgram.fromProgram(program).toProgram());
+        }
+    }
+
+    @Test
+    public void testLaysNodesOutInPreorder() throws Exception {
+        final ArenaProgram arena = ArenaProgram.fromProgram(Parser.parse("{ println(1 + x); }"));
+        assertEquals(ArenaProgram.PROGRAM, arena.kind(0));
+        assertEquals(ArenaProgram.BLOCK, arena.kind(1));
+        assertEquals(ArenaProgram.PRINTLN, arena.kind(2));
+        assertEquals(ArenaProgram.PLUS, arena.kind(3));
+        assertEquals(ArenaProgram.INT_LITERAL, arena.kind(4));
+        assertEquals(1, arena.payload(4));
+        assertEquals(ArenaProgram.VARIABLE, arena.kind(5));
+        assertEquals("x", arena.symbolName(arena.symbol(5)));
+        assertEquals(6, arena.size());
+
+        assertEquals(4, arena.firstChild(3));
+        assertEquals(5, arena.nextSibling(4));
+        assertEquals(ArenaProgram.NONE, arena.nextSibling(5));
+        assertEquals(ArenaProgram.NONE, arena.firstChild(5));
+        assertEquals("Object", arena.symbolName(ArenaProgram.OBJECT_SYMBOL));
+    }
+
+    @Test
+    public void testCursorVisitsEveryNode() throws Exception {
+        final ArenaProgram arena = ArenaProgram.fromProgram(Parser.parse(PROGRAM));
+        final ArenaCursor cursor = arena.cursor();
+        int visited = 1;
+        int expected = 1; // preorder numbering
+        boolean done = false;
+        while (!done) {
+            if (cursor.toFirstChild() || cursor.toNextSibling()) {
+                assertEquals(expected++, cursor.node());
+                visited++;
+            } else {
+                done = true;
+                while (cursor.toParent()) {
+                    if (cursor.toNextSibling()) {
+                        assertEquals(expected++, cursor.node());
+                        visited++;
+                        done = false;
+                        break;
+                    }
+                }
+            }
+        }
+        assertEquals(arena.size(), visited);
+        assertEquals(0, cursor.depth());
+        assertFalse(cursor.toParent());
+    }
+
+    @Test
+    public void testCursorReadsNodes() throws Exception {
+        final ArenaProgram arena = ArenaProgram.fromProgram(Parser.parse(PROGRAM));
+        final ArenaCursor cursor = arena.cursor();
+        assertNull(cursor.name());
+        assertTrue(cursor.toFirstChild());
+        assertEquals(ArenaProgram.CLASS, cursor.kind());
+        assertEquals("Base", cursor.name());
+        assertEquals(ArenaProgram.OBJECT_SYMBOL, cursor.payload());
+
+        final ArenaCursor field = cursor.copy();
+        assertTrue(field.toFirstChild());
+        assertEquals(ArenaProgram.FIELD, field.kind());
+        assertEquals(ArenaProgram.INT_TYPE, field.payload());
+        assertEquals(2, field.depth());
+        // the copy moved on its own
+        assertEquals(1, cursor.depth());
+
+        assertTrue(cursor.toNextSibling());
+        assertEquals("Sub", cursor.name());
+        assertEquals("Base", arena.symbolName(cursor.payload()));
+    }
+}
@@ -0,0 +1,100 @@
+package oop_example.arena;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.parser.Parser;
+import oop_example.parser.Program;
+import oop_example.typechecker.TypeErrorException;
+import oop_example.typechecker.Typechecker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ArenaTypecheckerTest {
+    private static final String CLASSES =
+        "class Base extends Object { int x; " +
+        "  constructor(int x) { super(); } " +
+        "  int get(int y) { return y + x; } " +
+        "  Base self() { return this; } }" +
+        "class Sub extends Base { constructor() { super(3); } " +
+        "  int get(int y) { return 0; } }";
+
+    private static String treeResult(final Program program) {
+        try {
+            new Typechecker(program).isWellTypedProgram();
+            return "ok";
+        } catch (final TypeErrorException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String arenaResult(final Program program) {
+        try {
+            new ArenaTypechecker(ArenaProgram.fromProgram(program)).isWellTypedProgram();
+            return "ok";
+        } catch (final TypeErrorException e) {
+            return e.getMessage();
+        }
+    }
+
+    // both typecheckers give the expected result
+    private static void assertResult(final String expected, final String source) throws Exception {
+        final Program program = Parser.parse(source);
+        assertEquals(expected, treeResult(program));
+        assertEquals(expected, arenaResult(program));
+    }
+
+    @Test
+    public void testAcceptsWellTypedPrograms() throws Exception {
+        assertResult("ok", CLASSES + "{ Base b = new Sub(); println(b.self().get(1)); }");
+        assertResult("ok", "{ { int x = 1; } println(x); }"); // a bare block's variables stay in scope
+        assertResult("ok", "{ int x = 1; if (true) { bool x = false; } else { } println(x + 1); }");
+        for (long seed = 0; seed < 10; seed++) {
+            final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+            settings.seed = seed;
+            assertEquals("ok", arenaResult(ProgramGenerator.generate(settings)));
+        }
+    }
+
+    @Test
+    public void testRejectsBadClassTables() throws Exception {
+        assertResult("Duplicate class: ClassName(A)",
+                     "class A extends Object { constructor() { super(); } }" +
+                     "class A extends Object { constructor() { super(); } } { }");
+        assertResult("Class ClassName(A) extends nonexistent class: ClassName(B)",
+                     "class A extends B { constructor() { super(); } } { }");
+        assertResult("Cyclic inheritance involving ClassName(A)",
+                     "class A extends B { constructor() { super(); } }" +
+                     "class B extends A { constructor() { super(); } } { }");
+        assertResult("Duplicate method MethodName(m) in class ClassName(A)",
+                     "class A extends Object { constructor() { super(); } " +
+                     "  void m() { } void m() { } } { }");
+        assertResult("Method MethodName(get) in class ClassName(C) overrides with a different signature",
+                     CLASSES + "class C extends Sub { constructor() { super(); } bool get(int y) { return true; } } { }");
+        assertResult("Duplicate instance variable Variable(x) in class ClassName(A)",
+                     "class A extends Object { int x; bool x; constructor() { super(); } } { }");
+    }
+
+    @Test
+    public void testRejectsBadBodies() throws Exception {
+        assertResult("Used variable not in scope: y",
+                     "{ if (true) { int y = 1; } else { } println(y); }");
+        assertResult("this used in the entry point", "{ println(this); }");
+        assertResult("Operand type mismatch for <", "{ println(true < 1); }");
+        assertResult("types incompatible: ClassNameType(ClassName(Base)), ClassNameType(ClassName(Sub))",
+                     CLASSES + "{ Sub s = new Base(1); }");
+        assertResult("No such class: ClassName(Missing)", CLASSES + "{ println(new Missing()); }");
+        assertResult("No method named MethodName(nope) on class ClassName(Sub)",
+                     CLASSES + "{ println(new Sub().nope()); }");
+        assertResult("Called method on non-class type: IntType", "{ println(1.get()); }");
+        assertResult("Wrong number of parameters", CLASSES + "{ println(new Sub().get()); }");
+        assertResult("return in program entry point", "{ return; }");
+        assertResult("return in program entry point", "{ return this; }");
+        assertResult("return of void in non-void context",
+                     "class A extends Object { constructor() { super(); } int m() { return; } } { }");
+        // names the statement, which both describe the same way
+        final Program badWhile = Parser.parse("{ while (1) { } }");
+        assertTrue(treeResult(badWhile).startsWith("guard on while is not a boolean: "));
+        assertEquals(treeResult(badWhile), arenaResult(badWhile));
+    }
+}
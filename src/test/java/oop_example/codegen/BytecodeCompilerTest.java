@@ -0,0 +1,129 @@
+package oop_example.codegen;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.interpreter.EvaluationException;
+import oop_example.interpreter.Interpreter;
+import oop_example.parser.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+public class BytecodeCompilerTest {
+    public static String compileAndRun(final Program program) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BytecodeCompiler.compile(program).run(new PrintStream(bytes, true));
+        return bytes.toString();
+    }
+
+    public static String interpret(final Program program) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Interpreter.run(program, new PrintStream(bytes, true));
+        return bytes.toString();
+    }
+
+    public static void assertOutput(final String source, final String... expected) throws Exception {
+        final String printed = compileAndRun(Parser.parse(source));
+        assertEquals(String.join(",", expected),
+                     String.join(",", printed.isEmpty() ? new String[0] : printed.split(System.lineSeparator())));
+    }
+
+    @Test
+    public void testArithmeticScopesAndBranches() throws Exception {
+        assertOutput("{ int x = 1 + 2;" +
+                     "  println(x);" +
+                     "  println(x < 3);" +
+                     "  println(x == 3);" +
+                     "  bool b = x < 4; println(b);" +
+                     "  { int x = 100000; println(x); }" +
+                     "  if (x < 5) { int x = 20; println(x); } else println(0);" +
+                     "  println(x);" +
+                     "  while (x < 3) println(0);" +
+                     "  while (false) println(0);" +
+                     "}",
+                     "3", "false", "true", "true", "100000", "20", "3");
+    }
+
+    @Test
+    public void testRecursionAndVirtualCalls() throws Exception {
+        assertOutput("class Math extends Object {" +
+                     "  constructor() { super(); }" +
+                     "  int sum(int n) { if (n < 1) { return 0; } else { return n + this.sum(n + -1); } }" +
+                     "  bool isEven(int n) { if (n == 0) { return true; } else { return this.isOdd(n + -1); } }" +
+                     "  bool isOdd(int n) { if (n == 0) { return false; } else { return this.isEven(n + -1); } }" +
+                     "}" +
+                     "class Shape extends Object { constructor() { super(); } int id() { return 0; } " +
+                     "  int twice() { return this.id() + this.id(); } }" +
+                     "class Square extends Shape { constructor() { super(); } int id() { return 4; } }" +
+                     "{ Math m = new Math(); println(m.sum(10000)); println(m.isEven(7));" +
+                     "  Shape s = new Square(); println(s.twice()); println(new Shape().twice()); }",
+                     "50005000", "false", "8", "0");
+    }
+
+    @Test
+    public void testConstructorsAndFields() throws Exception {
+        assertOutput("class A extends Object { int x, bool b; constructor(int x) { super(); println(x); } " +
+                     "  int getX() { return x; } bool getB() { return b; } }" +
+                     "class B extends A { A x, int z; constructor(int y) { super(y + z); println(y); } A mine() { return x; } }" +
+                     "{ B b = new B(10); println(b.getX()); println(b.getB()); println(b.mine()); }",
+                     "10", "10", "0", "false", "null");
+    }
+
+    // methods named like java.lang.Object's mustn't override or clash with them
+    @Test
+    public void testObjectMethodNames() throws Exception {
+        assertOutput("class A extends Object { constructor() { super(); } " +
+                     "  int hashCode() { return 7; } void notify() { println(1); } bool equals(A other) { return true; } }" +
+                     "{ A a = new A(); println(a.hashCode()); a.notify(); println(a.equals(a)); }",
+                     "7", "1", "true");
+    }
+
+    @Test
+    public void testRuntimeErrors() throws Exception {
+        try {
+            compileAndRun(Parser.parse("class A extends Object { A other; constructor() { super(); } " +
+                                       "  int m() { return other.m(); } }" +
+                                       "{ println(new A().m()); }"));
+            fail("calling a method on null should fail");
+        } catch (final EvaluationException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Null pointer"));
+        }
+        try {
+            compileAndRun(Parser.parse("class A extends Object { constructor() { super(); } " +
+                                       "  int m() { if (false) { return 1; } else { } } }" +
+                                       "{ println(new A().m()); }"));
+            fail("falling off the end of an int method should fail");
+        } catch (final EvaluationException e) {
+            assertEquals("A.m ended without returning a value", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testThisInSuperArgumentsIsRejected() throws Exception {
+        try {
+            BytecodeCompiler.compile(Parser.parse("class A extends Object { constructor(A a) { super(); } }" +
+                                                  "class B extends A { constructor() { super(this); } }" +
+                                                  "{ }"));
+            fail("this in super(...) arguments can't be compiled");
+        } catch (final CodegenException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("B's constructor"));
+        }
+    }
+
+    @Test
+    public void testGeneratedProgramsMatchInterpreter() throws Exception {
+        for (long seed = 0; seed < 10; seed++) {
+            final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+            settings.classCount = 6;
+            settings.methodsPerClass = 3;
+            settings.blockLength = 6;
+            settings.seed = seed;
+            final Program program = ProgramGenerator.generate(settings);
+            assertEquals("seed " + seed, interpret(program), compileAndRun(program));
+        }
+    }
+}
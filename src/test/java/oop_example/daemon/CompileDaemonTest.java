@@ -0,0 +1,173 @@
+package oop_example.daemon;
+
+import oop_example.parser.ClassName;
+import oop_example.parser.MethodName;
+import oop_example.typechecker.TypeError;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class CompileDaemonTest {
+    private static final String CLASS_A =
+        "class A extends Object { int f; constructor(int x) { super(); } " +
+        "  int get(int y) { return y + f; } }";
+
+    private CompileDaemon daemon;
+
+    private DaemonClient start(final int workerThreads, final int queueCapacity) throws IOException {
+        return start(workerThreads, queueCapacity, false);
+    }
+
+    private DaemonClient start(final int workerThreads,
+                               final int queueCapacity,
+                               final boolean allowShutdown) throws IOException {
+        final CompileDaemon.Settings settings = new CompileDaemon.Settings();
+        settings.workerThreads = workerThreads;
+        settings.queueCapacity = queueCapacity;
+        settings.allowShutdown = allowShutdown;
+        daemon = CompileDaemon.start(settings);
+        return new DaemonClient(daemon.port(), 10000);
+    }
+
+    @After
+    public void stop() throws InterruptedException {
+        daemon.shutdown();
+        assertTrue(daemon.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    // connected, but holding a worker until it sends its request
+    private Socket stall() throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), daemon.port());
+    }
+
+    private static DaemonClient.Response ping(final Socket stalled) throws IOException {
+        final OutputStream output = stalled.getOutputStream();
+        output.write(DaemonProtocol.PING);
+        output.flush();
+        return DaemonProtocol.readResponse(new DataInputStream(stalled.getInputStream()));
+    }
+
+    @Test
+    public void testChecksPrograms() throws Exception {
+        final DaemonClient client = start(2, 4);
+        assertTrue(client.ping().isWellTyped());
+        assertTrue(client.check(CLASS_A + "{ println(new A(1).get(2)); }").isWellTyped());
+
+        final DaemonClient.Response bad =
+            client.check(CLASS_A.replace("y + f", "y < f") + "{ println(new A(true)); }");
+        assertEquals(DaemonClient.Status.OK, bad.status);
+        assertNull(bad.message);
+        assertEquals(2, bad.errors.size());
+        assertEquals(new TypeError("types incompatible: BoolType, IntType", new ClassName("A"), new MethodName("get")),
+                     bad.errors.get(0));
+        assertNull(bad.errors.get(1).className);
+
+        final DaemonClient.Response unparsed = client.check("{ println(1 }");
+        assertEquals(DaemonClient.Status.PARSE_ERROR, unparsed.status);
+        assertTrue(unparsed.message.length() > 0);
+        // counted once the connection is done with
+        daemon.shutdown();
+        assertTrue(daemon.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(4L, daemon.requestsHandled());
+    }
+
+    @Test
+    public void testSendsClassHierarchyErrors() throws Exception {
+        final DaemonClient client = start(1, 4);
+        final DaemonClient.Response response =
+            client.check("class A extends B { constructor() { super(); } } { }");
+        assertEquals(1, response.errors.size());
+        assertTrue(response.errors.get(0).inClassHierarchy);
+        assertEquals(TypeError.inClassHierarchy("Class ClassName(A) extends nonexistent class: ClassName(B)"),
+                     response.errors.get(0));
+    }
+
+    @Test
+    public void testReusesClassesAcrossRequests() throws Exception {
+        final DaemonClient client = start(1, 4);
+        client.check(CLASS_A + "{ }");
+        assertEquals(0L, daemon.cache().hits());
+        assertTrue(client.check(CLASS_A.replace("y + f", "f + y") + "{ println(new A(1).get(2)); }")
+                   .isWellTyped());
+        assertEquals(1L, daemon.cache().hits());
+        assertEquals(1L, daemon.cache().misses());
+    }
+
+    @Test
+    public void testTurnsAwayRequestsWhenTheQueueIsFull() throws Exception {
+        final DaemonClient client = start(1, 1);
+        try (final Socket running = stall(); final Socket queued = stall()) {
+            Thread.sleep(200); // for the acceptor to hand both off
+            final DaemonClient.Response busy = client.check("{ }");
+            assertEquals(DaemonClient.Status.BUSY, busy.status);
+            assertEquals(1L, daemon.requestsRejected());
+            assertTrue(ping(running).isWellTyped());
+            assertTrue(ping(queued).isWellTyped());
+        }
+        assertTrue(client.check("{ }").isWellTyped());
+    }
+
+    @Test
+    public void testShutdownAnswersRequestsAlreadyTaken() throws Exception {
+        final DaemonClient client = start(1, 4);
+        final ExecutorService background = Executors.newSingleThreadExecutor();
+        try (final Socket running = stall()) {
+            Thread.sleep(200);
+            final Future<DaemonClient.Response> queued = background.submit(new Callable<DaemonClient.Response>() {
+                    public DaemonClient.Response call() throws IOException {
+                        return client.check(CLASS_A + "{ println(new A(1).get(2)); }");
+                    }
+                });
+            Thread.sleep(200);
+            daemon.shutdown();
+            assertTrue(daemon.isShutdown());
+            try {
+                // the socket may finish closing only once accept() returns
+                assertEquals(DaemonClient.Status.BUSY, client.ping().status);
+            } catch (final ConnectException e) {
+                // or it's already closed
+            }
+            assertFalse(daemon.awaitTermination(100, TimeUnit.MILLISECONDS));
+
+            assertTrue(ping(running).isWellTyped());
+            assertTrue(queued.get(10, TimeUnit.SECONDS).isWellTyped());
+            assertTrue(daemon.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            background.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutsDownWhenAskedIfAllowed() throws Exception {
+        final DaemonClient client = start(1, 4, true);
+        assertEquals(DaemonClient.Status.OK, client.shutdown().status);
+        assertTrue(daemon.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(daemon.isShutdown());
+    }
+
+    @Test
+    public void testRefusesToShutDownByDefault() throws Exception {
+        final DaemonClient client = start(1, 4);
+        final DaemonClient.Response refused = client.shutdown();
+        assertEquals(DaemonClient.Status.FAILED, refused.status);
+        assertTrue(refused.message, refused.message.contains("isn't allowed"));
+        assertFalse(daemon.isShutdown());
+        assertTrue(client.ping().isWellTyped());
+    }
+}
@@ -0,0 +1,46 @@
+package oop_example.generator;
+
+import oop_example.parser.*;
+import oop_example.typechecker.*;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class ProgramGeneratorTest {
+    public static ProgramGenerator.Settings settings(final int classCount,
+                                                     final int inheritanceDepth,
+                                                     final double callDensity,
+                                                     final long seed) {
+        final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+        settings.classCount = classCount;
+        settings.inheritanceDepth = inheritanceDepth;
+        settings.callDensity = callDensity;
+        settings.seed = seed;
+        return settings;
+    }
+
+    @Test
+    public void testGeneratedProgramsAreWellTyped() throws TypeErrorException {
+        for (long seed = 0; seed < 20; seed++) {
+            final Program program = ProgramGenerator.generate(settings(12, (int)(seed % 5), 0.5, seed));
+            assertEquals(12, program.classes.size());
+            new Typechecker(program).isWellTypedProgram();
+        }
+    }
+
+    @Test
+    public void testSameSeedSameProgram() {
+        assertEquals(ProgramGenerator.generate(settings(5, 2, 0.3, 42)),
+                     ProgramGenerator.generate(settings(5, 2, 0.3, 42)));
+    }
+
+    @Test
+    public void testInheritanceDepth() throws TypeErrorException {
+        final Program program = ProgramGenerator.generate(settings(6, 2, 0.2, 1));
+        // C0 <- C1 <- C2, C3 <- C4 <- C5
+        assertEquals(new ClassName("Object"), program.classes.get(0).extendsClassName);
+        assertEquals(new ClassName("C1"), program.classes.get(2).extendsClassName);
+        assertEquals(new ClassName("Object"), program.classes.get(3).extendsClassName);
+        new Typechecker(program).isWellTypedProgram();
+    }
+}
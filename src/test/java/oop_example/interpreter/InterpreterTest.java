@@ -0,0 +1,132 @@
+package oop_example.interpreter;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.parser.*;
+import oop_example.typechecker.TypeErrorException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+public class InterpreterTest {
+    // source's output, one println per element
+    public static String[] run(final String source)
+        throws ParseException, TypeErrorException, EvaluationException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final PrintStream out = new PrintStream(bytes, true);
+        Interpreter.run(Parser.parse(source), out);
+        final String printed = bytes.toString();
+        return printed.isEmpty() ? new String[0] : printed.split(System.lineSeparator());
+    }
+
+    public static void assertOutput(final String source, final String... expected)
+        throws ParseException, TypeErrorException, EvaluationException {
+        assertEquals(String.join(",", expected), String.join(",", run(source)));
+    }
+
+    @Test
+    public void testArithmeticAndScopes() throws Exception {
+        assertOutput("{ int x = 1 + 2;" +
+                     "  println(x);" +
+                     "  println(x < 3);" +
+                     "  println(x == 3);" +
+                     "  { int x = 10; println(x); }" +
+                     "  if (x < 5) { int x = 20; println(x); } else println(0);" +
+                     "  println(x);" +
+                     "  while (x < 3) println(0);" +
+                     "}",
+                     "3", "false", "true", "10", "20", "3");
+    }
+
+    @Test
+    public void testRecursion() throws Exception {
+        assertOutput("class Math extends Object {" +
+                     "  constructor() { super(); }" +
+                     "  int sum(int n) { if (n < 1) { return 0; } else { return n + this.sum(n + -1); } }" +
+                     "  int fib(int n) { if (n < 2) { return n; } else { return this.fib(n + -1) + this.fib(n + -2); } }" +
+                     "  bool isEven(int n) { if (n == 0) { return true; } else { return this.isOdd(n + -1); } }" +
+                     "  bool isOdd(int n) { if (n == 0) { return false; } else { return this.isEven(n + -1); } }" +
+                     "}" +
+                     "{ Math m = new Math(); println(m.sum(1000)); println(m.fib(15)); println(m.isEven(7)); }",
+                     "500500", "610", "false");
+    }
+
+    @Test
+    public void testConstructorChaining() throws Exception {
+        assertOutput("class A extends Object { constructor(int x) { super(); println(x); } }" +
+                     "class B extends A { constructor(int y) { super(y + 1); println(y); } }" +
+                     "class C extends B { constructor() { super(10); println(0); } }" +
+                     "{ C c = new C(); }",
+                     "11", "10", "0");
+    }
+
+    // one call site sees more receiver classes than it caches
+    @Test
+    public void testPolymorphicAndMegamorphicCalls() throws Exception {
+        final StringBuilder source = new StringBuilder();
+        source.append("class Shape extends Object { constructor() { super(); } int id() { return 0; } " +
+                      "int twice() { return this.id() + this.id(); } }");
+        for (int index = 1; index <= CallNode.MAX_CACHED + 2; index++) {
+            source.append("class S" + index + " extends Shape { constructor() { super(); } " +
+                          "int id() { return " + index + "; } }");
+        }
+        source.append("class Printer extends Object { constructor() { super(); } " +
+                      "void show(Shape s) { println(s.twice()); } }");
+        source.append("{ Printer p = new Printer(); p.show(new Shape());");
+        for (int index = 1; index <= CallNode.MAX_CACHED + 2; index++) {
+            source.append(" p.show(new S" + index + "());");
+        }
+        source.append(" p.show(new S1()); }");
+        assertOutput(source.toString(), "0", "2", "4", "6", "8", "10", "12", "2");
+    }
+
+    @Test
+    public void testInheritedMethodSeesParentFields() throws Exception {
+        assertOutput("class A extends Object { int x, bool b; constructor() { super(); } " +
+                     "  int getX() { return x; } bool getB() { return b; } }" +
+                     "class B extends A { A x; constructor() { super(); } A mine() { return x; } }" +
+                     "{ B b = new B(); println(b.getX()); println(b.getB()); println(b.mine()); }",
+                     "0", "false", "null");
+    }
+
+    @Test
+    public void testCallOnNull() throws Exception {
+        try {
+            run("class A extends Object { A other; constructor() { super(); } " +
+                "  int m() { return other.m(); } }" +
+                "{ println(new A().m()); }");
+            fail("calling a method on null should fail");
+        } catch (final EvaluationException e) {
+            assertEquals("Called m on null", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRunningAgainUsesSpecializedTree() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final Interpreter interpreter =
+            new Interpreter(Parser.parse("{ int x = 2; println(x + x); println(x < x); }"), new PrintStream(bytes, true));
+        interpreter.run();
+        interpreter.run();
+        assertEquals(String.join(System.lineSeparator(), "4", "false", "4", "false", ""), bytes.toString());
+    }
+
+    @Test
+    public void testGeneratedProgramsTerminate() throws Exception {
+        final PrintStream nowhere = new PrintStream(new OutputStream() {
+                public void write(final int b) {}
+            });
+        for (long seed = 0; seed < 10; seed++) {
+            final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+            settings.classCount = 4;
+            settings.methodsPerClass = 3;
+            settings.blockLength = 5;
+            settings.seed = seed;
+            Interpreter.run(ProgramGenerator.generate(settings), nowhere);
+        }
+    }
+}
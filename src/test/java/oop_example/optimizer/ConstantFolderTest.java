@@ -0,0 +1,85 @@
+package oop_example.optimizer;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.interpreter.Interpreter;
+import oop_example.parser.*;
+import oop_example.typechecker.Typechecker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+public class ConstantFolderTest {
+    public static void assertFolds(final String source, final String expected) throws Exception {
+        final Program folded = ConstantFolder.fold(Parser.parse(source)).program;
+        assertEquals(SourcePrinter.print(Parser.parse(expected)), SourcePrinter.print(folded));
+        assertEquals(Parser.parse(expected), folded);
+    }
+
+    @Test
+    public void testFoldsOperators() throws Exception {
+        assertFolds("{ int x = 1 + 2 + 3; println(x + (4 + 5)); println(1 < 2); println(3 == 1 + 1); }",
+                    "{ int x = 6; println(x + 9); println(true); println(false); }");
+    }
+
+    @Test
+    public void testRemovesDeadBranchesAndFlattens() throws Exception {
+        assertFolds("{ if (1 < 2) { println(1); { println(2); } } else println(3);" +
+                    "  while (2 < 1) println(4);" +
+                    "  if (false) println(5); else { }" +
+                    "  while (true) println(6); }",
+                    "{ println(1); println(2); while (true) println(6); }");
+    }
+
+    // merging a block mustn't let its declarations shadow what comes after
+    @Test
+    public void testKeepsScopes() throws Exception {
+        assertFolds("{ int x = 1; if (true) int x = 2; else println(0); { int y = 3; } println(x); { int x = 4; println(x); } }",
+                    "{ int x = 1; { int x = 2; } { int y = 3; } println(x); int x = 4; println(x); }");
+    }
+
+    @Test
+    public void testReportsRemovedNodes() throws Exception {
+        final ConstantFolder.Result result = ConstantFolder.fold(Parser.parse("{ println(1 + 2); if (true) println(3); else println(4); }"));
+        // block, println(+(1, 2)), if(true, println(3), println(4))
+        assertEquals(11, result.nodesBefore);
+        // block, println(3), println(3)
+        assertEquals(5, result.nodesAfter);
+        assertEquals(6, result.nodesRemoved());
+    }
+
+    @Test
+    public void testSharesUnchangedSubtrees() throws Exception {
+        final Program program = Parser.parse("class A extends Object { constructor() { super(); } int m(int x) { return x + 1; } }" +
+                                             "{ println(new A().m(2)); }");
+        final Program folded = ConstantFolder.fold(program).program;
+        assertSame(program.classes.get(0), folded.classes.get(0));
+        assertSame(program.entryPoint, folded.entryPoint);
+    }
+
+    private static String run(final Program program) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Interpreter.run(program, new PrintStream(bytes, true));
+        return bytes.toString();
+    }
+
+    @Test
+    public void testGeneratedProgramsBehaveTheSame() throws Exception {
+        for (long seed = 0; seed < 10; seed++) {
+            final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+            settings.classCount = 6;
+            settings.methodsPerClass = 3;
+            settings.blockLength = 6;
+            settings.seed = seed;
+            final Program program = ProgramGenerator.generate(settings);
+            final ConstantFolder.Result result = ConstantFolder.fold(program);
+            assertTrue(result.toString(), result.nodesRemoved() > 0);
+            new Typechecker(result.program).isWellTypedProgram();
+            assertEquals("seed " + seed, run(program), run(result.program));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package oop_example.optimizer;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.interpreter.Interpreter;
+import oop_example.parser.*;
+import oop_example.typechecker.Typechecker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+public class InlinerTest {
+    private static final String POINT =
+        "class Point extends Object {" +
+        "  int x;" +
+        "  constructor() { super(); }" +
+        "  int getX() { return x; }" +
+        "  int plus(int a, int b) { return a + b; }" +
+        "  int twice(int a) { int doubled = a + a; return doubled; }" +
+        "  void show(int a) { println(a); return; }" +
+        "}";
+
+    private static Inliner.Result inline(final String source, final Inliner.Settings settings) throws Exception {
+        final Inliner.Result result = Inliner.inline(Parser.parse(source), settings);
+        new Typechecker(result.program).isWellTypedProgram();
+        return result;
+    }
+
+    private static Inliner.Result inline(final String source) throws Exception {
+        return inline(source, new Inliner.Settings());
+    }
+
+    private static String entryPoint(final Inliner.Result result) {
+        return SourcePrinter.print(result.program.entryPoint);
+    }
+
+    private static String run(final Program program) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Interpreter.run(program, new PrintStream(bytes, true));
+        return bytes.toString();
+    }
+
+    private static void assertSameOutput(final String source, final Inliner.Result result) throws Exception {
+        assertEquals(run(Parser.parse(source)), run(result.program));
+    }
+
+    @Test
+    public void testInlinesSmallMethods() throws Exception {
+        final String source = POINT +
+            "{ Point p = new Point(); int y = 3;" +
+            "  println(p.getX() + p.plus(y, 4));" +
+            "  int z = p.twice(y + 1);" +
+            "  p.show(z); }";
+        final Inliner.Result result = inline(source);
+        assertEquals(4, result.sitesInlined);
+        assertFalse(entryPoint(result), entryPoint(result).contains("."));
+        assertSameOutput(source, result);
+    }
+
+    @Test
+    public void testLeavesRecursiveMethods() throws Exception {
+        final String source =
+            "class A extends Object {" +
+            "  constructor() { super(); }" +
+            "  int down(int n) { if (n < 1) { return 0; } else { return this.down(n + -1); } }" +
+            "  int ping(int n) { return this.pong(n); }" +
+            "  int pong(int n) { return this.ping(n); }" +
+            "}" +
+            "{ A a = new A(); println(a.down(3)); if (false) println(a.ping(1)); else { } }";
+        final Inliner.Result result = inline(source);
+        assertEquals(0, result.sitesInlined);
+    }
+
+    // there's no way to write null, so these stay calls
+    @Test
+    public void testLeavesReadsOfObjectFields() throws Exception {
+        final String source =
+            "class A extends Object {" +
+            "  A other;" +
+            "  constructor() { super(); }" +
+            "  A getOther() { return other; }" +
+            "}" +
+            "{ A a = new A(); A b = a.getOther(); }";
+        assertEquals(0, inline(source).sitesInlined);
+    }
+
+    // only calls on receivers that can't be null are inlined
+    @Test
+    public void testLeavesPossiblyNullReceivers() throws Exception {
+        final String source = POINT +
+            "class Holder extends Object {" +
+            "  Point p;" +
+            "  constructor() { super(); }" +
+            "  int get() { Point q = p; return q.getX(); }" +
+            "}" +
+            "{ println(0); }";
+        assertEquals(0, inline(source).sitesInlined);
+    }
+
+    @Test
+    public void testAvoidsCapture() throws Exception {
+        final String source = POINT +
+            "{ Point p = new Point(); int a = 1; int doubled = 10; int b = 2;" +
+            "  int c = p.twice(doubled + a);" +
+            "  println(p.plus(b, a));" +
+            "  println(c + doubled); }";
+        final Inliner.Result result = inline(source);
+        assertEquals(2, result.sitesInlined);
+        assertSameOutput(source, result);
+    }
+
+    @Test
+    public void testLeavesOverriddenMethods() throws Exception {
+        final String source =
+            "class A extends Object { constructor() { super(); } int m() { return 1; } }" +
+            "class B extends A { constructor() { super(); } int m() { return 2; } }" +
+            "{ A a = new B(); println(a.m()); B b = new B(); println(b.m()); }";
+        final Inliner.Result result = inline(source);
+        assertEquals(1, result.sitesInlined);
+        assertSameOutput(source, result);
+    }
+
+    @Test
+    public void testRespectsBudgetAndDepth() throws Exception {
+        final String source =
+            "class A extends Object {" +
+            "  constructor() { super(); }" +
+            "  int one() { return 1; }" +
+            "  int two() { return this.one() + this.one(); }" +
+            "  int four() { return this.two() + this.two(); }" +
+            "}" +
+            "{ A a = new A(); println(a.four()); }";
+        final Inliner.Settings settings = new Inliner.Settings();
+        settings.depthLimit = 1;
+        // four() here, and one level into the bodies of four() and two()
+        Inliner.Result result = inline(source, settings);
+        assertEquals(1 + 2 + 2, result.sitesInlined);
+        assertEquals("{ A a = new A(); println(a.two() + a.two()); }", entryPoint(result).replaceAll("\\s+", " ").trim());
+
+        settings.depthLimit = 3;
+        result = inline(source, settings);
+        assertEquals(7 + 6 + 2, result.sitesInlined);
+        assertEquals("{ A a = new A(); println((1 + 1) + (1 + 1)); }", entryPoint(result).replaceAll("\\s+", " ").trim());
+
+        settings.sizeBudget = 1;
+        assertEquals(0, inline(source, settings).sitesInlined);
+    }
+
+    @Test
+    public void testGeneratedProgramsBehaveTheSame() throws Exception {
+        for (long seed = 0; seed < 10; seed++) {
+            final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+            settings.classCount = 6;
+            settings.methodsPerClass = 3;
+            settings.blockLength = 6;
+            settings.seed = seed;
+            final Program program = ProgramGenerator.generate(settings);
+            final Inliner.Result result = Inliner.inline(program, new Inliner.Settings());
+            new Typechecker(result.program).isWellTypedProgram();
+            assertEquals("seed " + seed, run(program), run(result.program));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package oop_example.optimizer;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.interpreter.Interpreter;
+import oop_example.parser.*;
+import oop_example.typechecker.Typechecker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+public class LoopInvariantCodeMotionTest {
+    // hoists from the body of m in class A
+    public static void assertHoists(final String body, final String expected) throws Exception {
+        final String program = "class A extends Object { int f; constructor() { super(); } " +
+            "int m(int x, int n) { %s } int g(int x) { return x; } } { println(new A().m(1, 2)); }";
+        final LoopInvariantCodeMotion.Result result =
+            LoopInvariantCodeMotion.hoist(Parser.parse(String.format(program, body)));
+        new Typechecker(result.program).isWellTypedProgram();
+        final Program expectedProgram = Parser.parse(String.format(program, expected));
+        assertEquals(SourcePrinter.print(expectedProgram), SourcePrinter.print(result.program));
+    }
+
+    @Test
+    public void testHoistsInvariantExpressions() throws Exception {
+        assertHoists("while (x < n) { int y = x + 1; println(y + (x + 1)); println(f + 2); return y; } return 0;",
+                     "bool _loop0 = x < n; int _loop1 = x + 1; int _loop2 = f + 2;" +
+                     "while (_loop0) { int y = _loop1; println(y + _loop1); println(_loop2); return y; } return 0;");
+    }
+
+    @Test
+    public void testLeavesCallsAndLiterals() throws Exception {
+        assertHoists("while (true) { println(this.g(x) + 1); println(1 + 2); return this.g(x + n); }",
+                     "int _loop0 = x + n;" +
+                     "while (true) { println(this.g(x) + 1); println(1 + 2); return this.g(_loop0); }");
+    }
+
+    // the inner y is a different variable on each iteration of the outer loop
+    @Test
+    public void testRespectsLoopLocalsAndNesting() throws Exception {
+        assertHoists("while (true) { int y = this.g(x); while (true) { println(y + x); println(x + n); return y; } }",
+                     "int _loop0 = x + n;" +
+                     "while (true) { int y = this.g(x); int _loop1 = y + x; " +
+                     "while (true) { println(_loop1); println(_loop0); return y; } }");
+        assertHoists("int y = 1; while (true) { println(y + 1); int y = 2; println(y + 1); return y; }",
+                     "int y = 1; int _loop0 = y + 1;" +
+                     "while (true) { println(_loop0); int y = 2; println(y + 1); return y; }");
+    }
+
+    @Test
+    public void testSharesLoopFreePrograms() throws Exception {
+        final Program program = Parser.parse("{ int x = 1; println(x + 1); }");
+        final LoopInvariantCodeMotion.Result result = LoopInvariantCodeMotion.hoist(program);
+        assertSame(program.entryPoint, result.program.entryPoint);
+        assertEquals(0, result.expressionsHoisted);
+    }
+
+    private static String run(final Program program) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Interpreter.run(program, new PrintStream(bytes, true));
+        return bytes.toString();
+    }
+
+    @Test
+    public void testGeneratedProgramsBehaveTheSame() throws Exception {
+        for (long seed = 0; seed < 10; seed++) {
+            final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+            settings.classCount = 6;
+            settings.methodsPerClass = 3;
+            settings.blockLength = 6;
+            settings.seed = seed;
+            final Program program = ProgramGenerator.generate(settings);
+            final LoopInvariantCodeMotion.Result result = LoopInvariantCodeMotion.hoist(program);
+            new Typechecker(result.program).isWellTypedProgram();
+            assertEquals("seed " + seed, run(program), run(result.program));
+        }
+    }
+}
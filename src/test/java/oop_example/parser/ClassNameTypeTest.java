@@ -0,0 +1,30 @@
+package oop_example.parser;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ClassNameTypeTest {
+    @Test
+    public void testInternsWhileInUse() {
+        final ClassNameType type = ClassNameType.instance(new ClassName("InUse"));
+        System.gc();
+        assertSame(type, ClassNameType.instance(new ClassName("InUse")));
+    }
+
+    @Test
+    public void testForgetsTypesNoLongerUsed() throws Exception {
+        final int before = ClassNameType.internedCount();
+        for (int index = 0; index < 100000; index++) {
+            ClassNameType.instance(new ClassName("Unused" + index));
+        }
+        // only removed on the next miss after they're collected
+        for (int attempt = 0; attempt < 50 && ClassNameType.internedCount() > before + 50000; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+            ClassNameType.instance(new ClassName("Unused"));
+        }
+        assertTrue("still interned: " + ClassNameType.internedCount(),
+                   ClassNameType.internedCount() <= before + 50000);
+    }
+}
@@ -0,0 +1,94 @@
+package oop_example.parser;
+
+import oop_example.generator.ProgramGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class NodeHashTest {
+    private static Exp exp(final String source) throws ParseException {
+        final Program program = Parser.parse("{ println(" + source + "); }");
+        return ((PrintlnStmt)((BlockStmt)program.entryPoint).body.get(0)).exp;
+    }
+
+    @Test
+    public void testEqualNodesHashEqually() throws Exception {
+        final String source = SourcePrinter.print(ProgramGenerator.generate(new ProgramGenerator.Settings()));
+        final Program first = Parser.parse(source);
+        final Program second = Parser.parse(source);
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    public void testOrderAndKindMatter() throws Exception {
+        assertNotEquals(exp("a + b").hashCode(), exp("b + a").hashCode());
+        assertNotEquals(exp("a < b").hashCode(), exp("a == b").hashCode());
+        assertNotEquals(exp("x").hashCode(), new Variable("x").hashCode());
+        final List<Object> distinct = Arrays.<Object>asList(IntType.instance(), BoolType.instance(), VoidType.instance(),
+                                                            PlusOp.instance(), LessThanOp.instance(), EqualsOp.instance(),
+                                                            new ThisExp(), new ReturnVoidStmt(),
+                                                            new IntLiteralExp(0), new BoolLiteralExp(false));
+        final Set<Integer> hashes = new HashSet<Integer>();
+        for (final Object node : distinct) {
+            hashes.add(node.hashCode());
+        }
+        assertEquals(distinct.size(), hashes.size());
+    }
+
+    // Every distinct expression and statement in a generated program, which
+    // are mostly small variations on each other.
+    private static void collect(final Stmt stmt, final Set<Object> nodes) {
+        nodes.add(stmt);
+        if (stmt instanceof BlockStmt) {
+            for (final Stmt inner : ((BlockStmt)stmt).body) {
+                collect(inner, nodes);
+            }
+        } else if (stmt instanceof VariableInitializationStmt) {
+            collect(((VariableInitializationStmt)stmt).exp, nodes);
+        } else if (stmt instanceof PrintlnStmt) {
+            collect(((PrintlnStmt)stmt).exp, nodes);
+        } else if (stmt instanceof ReturnNonVoidStmt) {
+            collect(((ReturnNonVoidStmt)stmt).exp, nodes);
+        }
+    }
+
+    private static void collect(final Exp exp, final Set<Object> nodes) {
+        nodes.add(exp);
+        if (exp instanceof OpExp) {
+            collect(((OpExp)exp).left, nodes);
+            collect(((OpExp)exp).right, nodes);
+        } else if (exp instanceof MethodCallExp) {
+            collect(((MethodCallExp)exp).target, nodes);
+            for (final Exp param : ((MethodCallExp)exp).params) {
+                collect(param, nodes);
+            }
+        }
+    }
+
+    @Test
+    public void testFewCollisions() throws Exception {
+        final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+        settings.classCount = 200;
+        final Program program = ProgramGenerator.generate(settings);
+        final Set<Object> nodes = new HashSet<Object>();
+        for (final ClassDef classDef : program.classes) {
+            for (final MethodDef method : classDef.methods) {
+                collect(method.body, nodes);
+            }
+        }
+        final Set<Integer> hashes = new HashSet<Integer>();
+        for (final Object node : nodes) {
+            hashes.add(node.hashCode());
+        }
+        // a good 32-bit hash expects about n^2 / 2^33 collisions: none here
+        assertTrue(nodes.size() + " nodes, " + hashes.size() + " hashes", nodes.size() - hashes.size() <= 2);
+    }
+}
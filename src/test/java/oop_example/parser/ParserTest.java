@@ -0,0 +1,124 @@
+package oop_example.parser;
+
+import oop_example.generator.ProgramGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class ParserTest {
+    public static Exp var(final String name) {
+        return new VariableExp(new Variable(name));
+    }
+
+    @Test
+    public void testClassAndEntryPoint() throws ParseException {
+        final String source =
+            "class Base extends Object {\n" +
+            "  int x, bool y;\n" +
+            "  constructor(int x) { super(); println(x); }\n" +
+            "  int get(int a, Base other) { return a + x; }\n" +
+            "}\n" +
+            "{ Base b = new Base(1); b.get(2, b); return; }";
+        final ClassDef expectedClass =
+            new ClassDef(new ClassName("Base"),
+                         new ClassName("Object"),
+                         Arrays.asList(new Vardec(IntType.instance(), new Variable("x")),
+                                       new Vardec(BoolType.instance(), new Variable("y"))),
+                         Arrays.asList(new Vardec(IntType.instance(), new Variable("x"))),
+                         new ArrayList<Exp>(),
+                         Arrays.asList((Stmt)new PrintlnStmt(var("x"))),
+                         Arrays.asList(new MethodDef(IntType.instance(),
+                                                     new MethodName("get"),
+                                                     Arrays.asList(new Vardec(IntType.instance(), new Variable("a")),
+                                                                   new Vardec(ClassNameType.instance(new ClassName("Base")),
+                                                                              new Variable("other"))),
+                                                     new BlockStmt(Arrays.asList((Stmt)new ReturnNonVoidStmt(new OpExp(var("a"),
+                                                                                                                       PlusOp.instance(),
+                                                                                                                       var("x"))))))));
+        final Stmt expectedEntry =
+            new BlockStmt(Arrays.asList(new VariableInitializationStmt(new Vardec(ClassNameType.instance(new ClassName("Base")),
+                                                                                  new Variable("b")),
+                                                                       new NewExp(new ClassName("Base"),
+                                                                                  Arrays.asList((Exp)new IntLiteralExp(1)))),
+                                        new ExpStmt(new MethodCallExp(var("b"),
+                                                                      new MethodName("get"),
+                                                                      Arrays.asList(new IntLiteralExp(2), var("b")))),
+                                        new ReturnVoidStmt()));
+        assertEquals(new Program(Arrays.asList(expectedClass), expectedEntry),
+                     Parser.parse(source));
+    }
+
+    @Test
+    public void testPrecedence() throws ParseException {
+        // ((1 + (a.m())) < 3) == true
+        assertEquals(new OpExp(new OpExp(new OpExp(new IntLiteralExp(1),
+                                                   PlusOp.instance(),
+                                                   new MethodCallExp(var("a"),
+                                                                     new MethodName("m"),
+                                                                     new ArrayList<Exp>())),
+                                         LessThanOp.instance(),
+                                         new IntLiteralExp(3)),
+                               EqualsOp.instance(),
+                               new BoolLiteralExp(true)),
+                     new Parser("1 + a.m() < 3 == true").parseExp());
+        assertEquals(new OpExp(new IntLiteralExp(1),
+                               PlusOp.instance(),
+                               new OpExp(new IntLiteralExp(2), PlusOp.instance(), new IntLiteralExp(-3))),
+                     new Parser("1 + (2 + -3)").parseExp());
+    }
+
+    @Test
+    public void testIdentifiersAreShared() throws ParseException {
+        final Program program = Parser.parse("{ int x = 1; println(x); }");
+        final BlockStmt block = (BlockStmt)program.entryPoint;
+        assertSame(((VariableInitializationStmt)block.body.get(0)).vardec.variable,
+                   ((VariableExp)((PrintlnStmt)block.body.get(1)).exp).variable);
+    }
+
+    @Test
+    public void testGeneratedProgramsRoundTrip() throws ParseException {
+        for (long seed = 0; seed < 10; seed++) {
+            final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+            settings.callDensity = 0.5;
+            settings.seed = seed;
+            final Program program = ProgramGenerator.generate(settings);
+            assertEquals(program, Parser.parse(SourcePrinter.print(program)));
+        }
+    }
+
+    @Test
+    public void testParseMappedFile() throws IOException, ParseException {
+        final File file = File.createTempFile("program", ".oop");
+        try {
+            Files.write(file.toPath(),
+                        "// just a comment\n{ /* and another */ println(1 < 2); }".getBytes(StandardCharsets.US_ASCII));
+            assertEquals(new Program(new ArrayList<ClassDef>(),
+                                     new BlockStmt(Arrays.asList((Stmt)new PrintlnStmt(new OpExp(new IntLiteralExp(1),
+                                                                                                 LessThanOp.instance(),
+                                                                                                 new IntLiteralExp(2)))))),
+                         Parser.parseFile(file.toPath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testErrorLocation() {
+        try {
+            Parser.parse("{\n  int x = 1;\n  if (x) println(x);\n}");
+            fail("missing else should not parse");
+        } catch (final ParseException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("'else'") && e.getMessage().endsWith("at 4:1"));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package oop_example.serialization;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.parser.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+public class AstSerializationTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Program roundTrip(final Program program) throws Exception {
+        return AstLoader.decode(ByteBuffer.wrap(AstWriter.encode(program)));
+    }
+
+    @Test
+    public void testRoundTripsEveryKindOfNode() throws Exception {
+        final Program program = Parser.parse(
+            "class A extends Object { int x; bool b; A a;" +
+            "  constructor(int x) { super(); println(x); }" +
+            "  void m(int y, A other) { while (y < x) { return; } if (b == true) println(this); else { } }" +
+            "  int n() { return new A(-2147483648).n() + 2147483647 + -1 + 300; } }" +
+            "class B extends A { constructor() { super(7); } }" +
+            "{ A a = new B(); a.m(1, a); bool f = false; println(f); }");
+        assertEquals(program, roundTrip(program));
+    }
+
+    @Test
+    public void testRoundTripsGeneratedProgramsThroughFiles() throws Exception {
+        for (long seed = 0; seed < 5; seed++) {
+            final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+            settings.seed = seed;
+            final Program program = ProgramGenerator.generate(settings);
+            final Path path = folder.newFile().toPath();
+            AstWriter.write(program, path);
+            final Program loaded = AstLoader.load(path);
+            assertEquals(SourcePrinter.print(program), SourcePrinter.print(loaded));
+            assertEquals(program, loaded);
+        }
+    }
+
+    // each identifier is stored once, however often it's used
+    @Test
+    public void testStoresIdentifiersOnce() throws Exception {
+        final String name = "aVeryLongVariableNameThatWouldDominateTheEncoding";
+        final StringBuilder uses = new StringBuilder();
+        for (int count = 0; count < 100; count++) {
+            uses.append("println(").append(name).append(");");
+        }
+        final byte[] once = AstWriter.encode(Parser.parse("{ int " + name + " = 1; }"));
+        final byte[] many = AstWriter.encode(Parser.parse("{ int " + name + " = 1; " + uses + " }"));
+        // a tag, a variable tag and a one-byte string index per println
+        assertEquals(once.length + 100 * 3, many.length);
+    }
+
+    @Test
+    public void testDecodesClassesOnceOnDemand() throws Exception {
+        final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+        final Program loaded = roundTrip(ProgramGenerator.generate(settings));
+        final ClassDef last = loaded.classes.get(loaded.classes.size() - 1);
+        assertSame(last, loaded.classes.get(loaded.classes.size() - 1));
+        assertSame(last.methods.get(0), last.methods.get(0));
+    }
+
+    // whether it's found by loading or by decoding a class or method
+    private static void assertRejected(final byte[] bytes, final String message) {
+        try {
+            for (final ClassDef classDef : AstLoader.decode(ByteBuffer.wrap(bytes)).classes) {
+                classDef.methods.size();
+                for (final MethodDef method : classDef.methods) {
+                    method.body.hashCode();
+                }
+            }
+            fail("Expected AstFormatException");
+        } catch (final AstFormatException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    @Test
+    public void testRejectsDamagedFiles() throws Exception {
+        final byte[] bytes = AstWriter.encode(Parser.parse("{ println(1); }"));
+        final byte[] corrupted = bytes.clone();
+        corrupted[corrupted.length - 1] ^= 1;
+        assertRejected(corrupted, "checksum");
+        assertRejected(Arrays.copyOf(bytes, bytes.length - 1), "should be");
+        assertRejected("{ println(1); }".getBytes("US-ASCII"), "Not a binary AST");
+    }
+
+    // a damaged file whose header still checks out
+    private static byte[] resealed(final byte[] bytes) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.putInt(AstFormat.LENGTH_OFFSET, bytes.length);
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, AstFormat.HEADER_SIZE, bytes.length - AstFormat.HEADER_SIZE);
+        buffer.putInt(AstFormat.CHECKSUM_OFFSET, (int)crc.getValue());
+        return bytes;
+    }
+
+    @Test
+    public void testRejectsTruncatedFilesWithValidChecksums() throws Exception {
+        final byte[] bytes = AstWriter.encode(Parser.parse(
+            "class A extends Object { int x; constructor(int x) { super(); } int get() { return x; } }" +
+            "{ println(new A(1).get()); }"));
+        assertRejected(resealed(Arrays.copyOf(bytes, AstFormat.HEADER_SIZE)), "no string table");
+        for (int length = AstFormat.HEADER_SIZE; length < bytes.length; length++) {
+            assertRejected(resealed(Arrays.copyOf(bytes, length)), "");
+        }
+    }
+
+    @Test
+    public void testRejectsForgedCountsWithValidChecksums() throws Exception {
+        final byte[] bytes = AstWriter.encode(Parser.parse("{ println(1); }"));
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        final byte[] strings = bytes.clone();
+        ByteBuffer.wrap(strings).putInt(AstFormat.HEADER_SIZE, 0x7fffffff);
+        assertRejected(resealed(strings), "string count");
+
+        final int stringCount = buffer.getInt(AstFormat.HEADER_SIZE);
+        final int classTable = buffer.getInt(AstFormat.HEADER_SIZE + 4 + 4 * stringCount);
+        final byte[] classes = bytes.clone();
+        ByteBuffer.wrap(classes).putInt(classTable, 0x7fffffff);
+        assertRejected(resealed(classes), "class count");
+        ByteBuffer.wrap(classes).putInt(classTable, -1);
+        assertRejected(resealed(classes), "class count");
+
+        final byte[] entryPoint = bytes.clone();
+        ByteBuffer.wrap(entryPoint).putInt(classTable + 4, bytes.length);
+        assertRejected(resealed(entryPoint), "node offset");
+    }
+
+    @Test
+    public void testRejectsUnknownTagsAndIdsWithValidChecksums() throws Exception {
+        // the entry point is last: block, count, println, then the expression
+        final byte[] tag = AstWriter.encode(Parser.parse("{ println(1); }"));
+        tag[tag.length - 2] = 99;
+        assertRejected(resealed(tag), "Unknown expression tag");
+
+        final byte[] id = AstWriter.encode(Parser.parse("{ println(x); }"));
+        id[id.length - 1] = 99;
+        assertRejected(resealed(id), "string id");
+    }
+
+    @Test
+    public void testFindsMalformedClassesWhenFirstAskedFor() throws Exception {
+        final byte[] bytes = AstWriter.encode(Parser.parse(
+            "class A extends Object { constructor() { super(); } } { println(1); }"));
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final int stringCount = buffer.getInt(AstFormat.HEADER_SIZE);
+        final int classTable = buffer.getInt(AstFormat.HEADER_SIZE + 4 + 4 * stringCount);
+        // the class's name
+        bytes[buffer.getInt(classTable + 4)] = 99;
+
+        final Program loaded = AstLoader.decode(ByteBuffer.wrap(resealed(bytes)));
+        assertEquals(1, loaded.classes.size());
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                loaded.classes.get(0);
+                fail("Expected AstFormatException");
+            } catch (final AstFormatException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("string id"));
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package oop_example.typechecker;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.parser.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BatchTypecheckerTest {
+    private static List<Program> programs() throws Exception {
+        final List<Program> programs = new ArrayList<Program>();
+        for (long seed = 0; seed < 40; seed++) {
+            final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+            settings.seed = seed;
+            programs.add(ProgramGenerator.generate(settings));
+            programs.add(Parser.parse("{ int x = " + seed + "; println(x < true); }"));
+        }
+        programs.add(Parser.parse("class A extends B { constructor() { super(); } } { }"));
+        return programs;
+    }
+
+    private static Map<Long, BatchTypechecker.Result> checkAll(final BatchTypechecker.Settings settings,
+                                                               final List<Program> programs,
+                                                               final BatchTypechecker.Summary[] summary)
+        throws InterruptedException {
+        final Map<Long, BatchTypechecker.Result> results = new HashMap<Long, BatchTypechecker.Result>();
+        summary[0] = new BatchTypechecker(settings).check(programs.stream(), new BatchTypechecker.Listener() {
+                public void finished(final BatchTypechecker.Result result) {
+                    results.put(result.index, result);
+                }
+            });
+        return results;
+    }
+
+    @Test
+    public void testGivesEachProgramsErrors() throws Exception {
+        final List<Program> programs = programs();
+        for (final boolean virtualThreads : new boolean[] { true, false }) {
+            final BatchTypechecker.Settings settings = new BatchTypechecker.Settings();
+            settings.virtualThreads = virtualThreads;
+            settings.maxConcurrency = 8;
+            final BatchTypechecker.Summary[] summary = new BatchTypechecker.Summary[1];
+            final Map<Long, BatchTypechecker.Result> results = checkAll(settings, programs, summary);
+
+            assertEquals(programs.size(), results.size());
+            for (int index = 0; index < programs.size(); index++) {
+                final BatchTypechecker.Result result = results.get((long)index);
+                assertEquals(BatchTypechecker.Status.CHECKED, result.status);
+                assertEquals(Typechecker.collectErrors(programs.get(index)), result.errors);
+            }
+            assertEquals(40L, summary[0].wellTyped);
+            assertEquals(41L, summary[0].illTyped);
+            assertTrue(summary[0].maxInFlight <= 8);
+            assertEquals(virtualThreads && BatchTypechecker.virtualThreadsAvailable(),
+                         summary[0].usedVirtualThreads);
+        }
+    }
+
+    @Test
+    public void testTimesOutLongChecks() throws Exception {
+        final ProgramGenerator.Settings big = new ProgramGenerator.Settings();
+        big.classCount = 1000;
+        final BatchTypechecker.Settings settings = new BatchTypechecker.Settings();
+        settings.timeoutMillis = 1;
+        final BatchTypechecker.Summary[] summary = new BatchTypechecker.Summary[1];
+        final Map<Long, BatchTypechecker.Result> results =
+            checkAll(settings, Arrays.asList(ProgramGenerator.generate(big)), summary);
+        assertEquals(BatchTypechecker.Status.TIMED_OUT, results.get(0L).status);
+        assertEquals(1L, summary[0].timedOut);
+    }
+
+    @Test
+    public void testReportsFailuresWithoutStopping() throws Exception {
+        final BatchTypechecker.Summary[] summary = new BatchTypechecker.Summary[1];
+        final Map<Long, BatchTypechecker.Result> results =
+            checkAll(new BatchTypechecker.Settings(),
+                     Arrays.asList(null, Parser.parse("{ println(1); }")),
+                     summary);
+        assertEquals(BatchTypechecker.Status.FAILED, results.get(0L).status);
+        assertTrue(results.get(1L).isWellTyped());
+        assertEquals(1L, summary[0].failed);
+        assertEquals(2L, summary[0].total());
+    }
+
+    // classes that throw when the typechecker looks at them
+    private static Program throwing(final Error error) {
+        return new Program(new AbstractList<ClassDef>() {
+                public ClassDef get(final int index) {
+                    throw error;
+                }
+
+                public int size() {
+                    return 1;
+                }
+            }, new BlockStmt(new ArrayList<Stmt>()));
+    }
+
+    @Test(timeout = 10000)
+    public void testReportsErrorsThatArentExceptions() throws Exception {
+        for (final boolean virtualThreads : new boolean[] { true, false }) {
+            final BatchTypechecker.Settings settings = new BatchTypechecker.Settings();
+            settings.virtualThreads = virtualThreads;
+            final BatchTypechecker.Summary[] summary = new BatchTypechecker.Summary[1];
+            final Map<Long, BatchTypechecker.Result> results =
+                checkAll(settings,
+                         Arrays.asList(throwing(new AssertionError("not an exception")),
+                                       Parser.parse("{ println(1); }")),
+                         summary);
+            assertEquals(BatchTypechecker.Status.FAILED, results.get(0L).status);
+            assertTrue(results.get(0L).failure, results.get(0L).failure.contains("not an exception"));
+            assertTrue(results.get(1L).isWellTyped());
+            assertEquals(1L, summary[0].failed);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testThrowsWhenAProgramRunsOutOfMemory() throws Exception {
+        try {
+            checkAll(new BatchTypechecker.Settings(),
+                     Arrays.asList(Parser.parse("{ println(1); }"),
+                                   throwing(new OutOfMemoryError("pretend"))),
+                     new BatchTypechecker.Summary[1]);
+            fail("Expected OutOfMemoryError");
+        } catch (final OutOfMemoryError e) {
+            assertEquals("pretend", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package oop_example.typechecker;
+
+import oop_example.parser.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+public class ClassInfoCacheTest {
+    private static final String BASE =
+        "class Base extends Object { int x; constructor(int x) { super(); } " +
+        "  int get(int y) { return y; } }";
+    private static final String SUB =
+        "class Sub extends Base { constructor() { super(1); } bool flag() { return true; } }";
+
+    private static ClassTable table(final String source, final ClassInfoCache cache) throws Exception {
+        return new ClassTable(Parser.parse(source).classes, cache);
+    }
+
+    @Test
+    public void testReusesClassesWhoseDeclarationsDidNotChange() throws Exception {
+        final ClassInfoCache cache = new ClassInfoCache(100);
+        final ClassTable first = table(BASE + SUB + "{ }", cache);
+        assertEquals(2L, cache.misses());
+        // different bodies and entry point, same declarations
+        final ClassTable second = table(BASE.replace("return y;", "return y + x;") + SUB +
+                                        "{ println(1); }", cache);
+        assertEquals(2L, cache.hits());
+        assertSame(first.lookupClass(new ClassName("Sub")), second.lookupClass(new ClassName("Sub")));
+        assertSame(first.lookupClass(ClassTable.OBJECT_NAME), second.lookupClass(ClassTable.OBJECT_NAME));
+    }
+
+    @Test
+    public void testRebuildsChangedClassesAndTheirSubclasses() throws Exception {
+        final ClassInfoCache cache = new ClassInfoCache(100);
+        final ClassTable first = table(BASE + SUB + "{ }", cache);
+        final ClassTable second = table(BASE.replace("int x;", "int x; bool z;") + SUB + "{ }", cache);
+        assertEquals(0L, cache.hits());
+        final ClassInfo sub = second.lookupClass(new ClassName("Sub"));
+        assertNotSame(first.lookupClass(new ClassName("Sub")), sub);
+        assertEquals(2, sub.fields.size());
+
+        // and the same errors as without a cache
+        final String bad = BASE + SUB + "{ println(new Sub().flag() + 1); }";
+        assertEquals(Typechecker.collectErrors(Parser.parse(bad)),
+                     Typechecker.collectErrors(Parser.parse(bad), cache));
+    }
+
+    @Test
+    public void testKeepsOnlyDeclarations() throws Exception {
+        final ClassInfoCache cache = new ClassInfoCache(100);
+        final ClassInfo sub = table(BASE + SUB + "{ }", cache).lookupClass(new ClassName("Sub"));
+        assertEquals(new ClassName("Sub"), sub.classDef.className);
+        assertTrue(sub.classDef.superParams.isEmpty());
+        assertTrue(sub.classDef.constructorBody.isEmpty());
+        assertEquals(new BlockStmt(new ArrayList<Stmt>()), sub.methods.get(new MethodName("flag")).methodDef.body);
+        // inherited methods too
+        assertEquals(new BlockStmt(new ArrayList<Stmt>()), sub.methods.get(new MethodName("get")).methodDef.body);
+    }
+
+    private static String unrelated(final String name) {
+        return "class " + name + " extends Object { constructor() { super(); } }";
+    }
+
+    @Test
+    public void testEvictsTheLeastRecentlyUsed() throws Exception {
+        final ClassInfoCache cache = new ClassInfoCache(2);
+        table(unrelated("A") + unrelated("B") + "{ }", cache);
+        table(unrelated("A") + "{ }", cache);
+        assertEquals(1L, cache.hits());
+        // B is the least recently used
+        table(unrelated("C") + "{ }", cache);
+        assertEquals(2, cache.size());
+        table(unrelated("A") + "{ }", cache);
+        assertEquals(2L, cache.hits());
+        table(unrelated("B") + "{ }", cache);
+        assertEquals(2L, cache.hits());
+        assertEquals(4L, cache.misses());
+    }
+}
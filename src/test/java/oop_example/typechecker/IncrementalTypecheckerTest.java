@@ -0,0 +1,122 @@
+package oop_example.typechecker;
+
+import oop_example.parser.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class IncrementalTypecheckerTest {
+    // class Callee extends Object {
+    //   constructor() { super(); }
+    //   returnType get() { return returned; }
+    // }
+    // class Caller extends Object {
+    //   constructor() { super(); }
+    //   int call() { return new Callee().get(); }
+    //   int other() { return 7; }
+    // }
+    // new Caller().other();
+    public static Program program(final Type returnType, final Exp returned) {
+        final ClassDef callee =
+            new ClassDef(new ClassName("Callee"),
+                         new ClassName("Object"),
+                         new ArrayList<Vardec>(),
+                         new ArrayList<Vardec>(),
+                         new ArrayList<Exp>(),
+                         new ArrayList<Stmt>(),
+                         Arrays.asList(new MethodDef(returnType,
+                                                     new MethodName("get"),
+                                                     new ArrayList<Vardec>(),
+                                                     new ReturnNonVoidStmt(returned))));
+        final ClassDef caller =
+            new ClassDef(new ClassName("Caller"),
+                         new ClassName("Object"),
+                         new ArrayList<Vardec>(),
+                         new ArrayList<Vardec>(),
+                         new ArrayList<Exp>(),
+                         new ArrayList<Stmt>(),
+                         Arrays.asList(new MethodDef(IntType.instance(),
+                                                     new MethodName("call"),
+                                                     new ArrayList<Vardec>(),
+                                                     new ReturnNonVoidStmt(new MethodCallExp(new NewExp(new ClassName("Callee"),
+                                                                                                        new ArrayList<Exp>()),
+                                                                                             new MethodName("get"),
+                                                                                             new ArrayList<Exp>()))),
+                                       new MethodDef(IntType.instance(),
+                                                     new MethodName("other"),
+                                                     new ArrayList<Vardec>(),
+                                                     new ReturnNonVoidStmt(new IntLiteralExp(7)))));
+        return new Program(Arrays.asList(callee, caller),
+                           new ExpStmt(new MethodCallExp(new NewExp(new ClassName("Caller"),
+                                                                    new ArrayList<Exp>()),
+                                                         new MethodName("other"),
+                                                         new ArrayList<Exp>())));
+    }
+
+    public static IncrementalTypechecker.Declaration decl(final String className, final String methodName) {
+        return new IncrementalTypechecker.Declaration((className == null) ? null : new ClassName(className),
+                                                      (methodName == null) ? null : new MethodName(methodName));
+    }
+
+    @Test
+    public void testFirstRunChecksEverything() throws TypeErrorException {
+        final IncrementalTypechecker.Result result =
+            IncrementalTypechecker.check(program(IntType.instance(), new IntLiteralExp(1)), null);
+        assertTrue(result.isWellTyped());
+        assertEquals(6, result.rechecked.size());
+        assertEquals(0, result.reused);
+    }
+
+    @Test
+    public void testUnchangedProgramIsReused() throws TypeErrorException {
+        final IncrementalTypechecker.Result first =
+            IncrementalTypechecker.check(program(IntType.instance(), new IntLiteralExp(1)), null);
+        final IncrementalTypechecker.Result second =
+            IncrementalTypechecker.check(program(IntType.instance(), new IntLiteralExp(1)), first.session);
+        assertEquals(new ArrayList<IncrementalTypechecker.Declaration>(), second.rechecked);
+        assertEquals(6, second.reused);
+    }
+
+    @Test
+    public void testBodyEditRechecksOnlyThatMethod() throws TypeErrorException {
+        final IncrementalTypechecker.Result first =
+            IncrementalTypechecker.check(program(IntType.instance(), new IntLiteralExp(1)), null);
+        final IncrementalTypechecker.Result second =
+            IncrementalTypechecker.check(program(IntType.instance(), new IntLiteralExp(2)), first.session);
+        assertEquals(Arrays.asList(decl("Callee", "get")), second.rechecked);
+        assertTrue(second.isWellTyped());
+    }
+
+    @Test
+    public void testSignatureEditRechecksCallers() throws TypeErrorException {
+        final IncrementalTypechecker.Result first =
+            IncrementalTypechecker.check(program(IntType.instance(), new IntLiteralExp(1)), null);
+        final IncrementalTypechecker.Result second =
+            IncrementalTypechecker.check(program(BoolType.instance(), new BoolLiteralExp(true)), first.session);
+        final List<IncrementalTypechecker.Declaration> rechecked = second.rechecked;
+        assertTrue(rechecked.contains(decl("Callee", "get")));
+        assertTrue(rechecked.contains(decl("Caller", "call")));
+        assertFalse(rechecked.contains(decl("Caller", "other")));
+        assertEquals(Arrays.asList(new TypeError("types incompatible: BoolType, IntType",
+                                                 new ClassName("Caller"),
+                                                 new MethodName("call"))),
+                     second.errors);
+    }
+
+    @Test
+    public void testErrorsAreRememberedWhenReused() throws TypeErrorException {
+        final IncrementalTypechecker.Result first =
+            IncrementalTypechecker.check(program(IntType.instance(), new BoolLiteralExp(false)), null);
+        final IncrementalTypechecker.Result second =
+            IncrementalTypechecker.check(program(IntType.instance(), new BoolLiteralExp(false)), first.session);
+        assertEquals(0, second.rechecked.size());
+        assertEquals(first.errors, second.errors);
+        assertEquals(1, second.errors.size());
+    }
+}
@@ -0,0 +1,74 @@
+package oop_example.typechecker;
+
+import oop_example.parser.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ParallelTypecheckerTest {
+    // class name extends Object {
+    //   constructor() { super(); }
+    //   int get() { return returned; }
+    // }
+    public static ClassDef classReturning(final String name, final String returned) {
+        return new ClassDef(new ClassName(name),
+                            new ClassName("Object"),
+                            new ArrayList<Vardec>(),
+                            new ArrayList<Vardec>(),
+                            new ArrayList<Exp>(),
+                            new ArrayList<Stmt>(),
+                            Arrays.asList(new MethodDef(IntType.instance(),
+                                                        new MethodName("get"),
+                                                        Arrays.asList(new Vardec(IntType.instance(),
+                                                                                 new Variable("ok"))),
+                                                        new ReturnNonVoidStmt(new VariableExp(new Variable(returned))))));
+    }
+
+    public static Program manyClasses(final int numClasses, final int... badClasses) {
+        final List<ClassDef> classes = new ArrayList<ClassDef>();
+        for (int index = 0; index < numClasses; index++) {
+            String returned = "ok";
+            for (final int bad : badClasses) {
+                if (bad == index) {
+                    returned = "bad" + index;
+                }
+            }
+            classes.add(classReturning("C" + index, returned));
+        }
+        return new Program(classes,
+                           new ExpStmt(new MethodCallExp(new NewExp(new ClassName("C0"),
+                                                                    new ArrayList<Exp>()),
+                                                         new MethodName("get"),
+                                                         Arrays.asList((Exp)new IntLiteralExp(1)))));
+    }
+
+    @Test
+    public void testWellTypedInParallel() throws TypeErrorException {
+        new Typechecker(manyClasses(1000)).isWellTypedProgramParallel(4);
+    }
+
+    @Test
+    public void testReportsFirstErrorInProgramOrder() throws TypeErrorException {
+        final Typechecker typechecker = new Typechecker(manyClasses(1000, 700, 12, 998));
+        for (int attempt = 0; attempt < 10; attempt++) {
+            try {
+                typechecker.isWellTypedProgramParallel(8);
+                fail("expected a type error");
+            } catch (final TypeErrorException e) {
+                assertEquals("Used variable not in scope: bad12", e.getMessage());
+            }
+        }
+    }
+
+    @Test(expected = TypeErrorException.class)
+    public void testChecksEntryPoint() throws TypeErrorException {
+        new Typechecker(new Program(new ArrayList<ClassDef>(),
+                                    new ExpStmt(new VariableExp(new Variable("x")))))
+            .isWellTypedProgramParallel(2);
+    }
+}
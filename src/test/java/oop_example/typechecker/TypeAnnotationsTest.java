@@ -0,0 +1,136 @@
+package oop_example.typechecker;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.parser.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TypeAnnotationsTest {
+    private static final String PROGRAM =
+        "class Base extends Object { int x; " +
+        "  constructor(int x) { super(); println(x); } " +
+        "  int get(int y) { return y + 1; } " +
+        "  int field() { return x; } }" +
+        "class Sub extends Base { constructor() { super(3); } }" +
+        "{ Sub s = new Sub(); int x = 2; println(s.get(x)); " +
+        "  if (true) { bool x = false; println(x); } else { println(x); } }";
+
+    private static List<Stmt> entry(final Program program) {
+        return ((BlockStmt)program.entryPoint).body;
+    }
+
+    private static Exp printed(final Stmt stmt) {
+        return ((PrintlnStmt)stmt).exp;
+    }
+
+    private static Exp returned(final MethodDef method) {
+        return ((ReturnNonVoidStmt)((BlockStmt)method.body).body.get(0)).exp;
+    }
+
+    @Test
+    public void testRecordsEveryExpression() throws Exception {
+        final Program program = Parser.parse(PROGRAM);
+        final TypeAnnotations annotations = Typechecker.annotate(program);
+        assertEquals(15, annotations.size());
+        assertEquals(1, annotations.calls().size());
+
+        final OpExp plus = (OpExp)returned(program.classes.get(0).methods.get(0));
+        assertSame(IntType.instance(), annotations.typeOf(plus));
+        assertSame(IntType.instance(), annotations.typeOf(plus.left));
+        final IfStmt ifStmt = (IfStmt)entry(program).get(3);
+        assertSame(BoolType.instance(), annotations.typeOf(ifStmt.guard));
+        // structurally equal, but not the same node
+        assertNull(annotations.typeOf(new IntLiteralExp(1)));
+    }
+
+    @Test
+    public void testResolvesCallsAndNews() throws Exception {
+        final Program program = Parser.parse(PROGRAM);
+        final TypeAnnotations annotations = Typechecker.annotate(program);
+        final ClassDef base = program.classes.get(0);
+        final ClassDef sub = program.classes.get(1);
+
+        // Sub inherits get from Base
+        final MethodCallExp call = (MethodCallExp)printed(entry(program).get(2));
+        final MethodInfo method = annotations.methodOf(call);
+        assertEquals(base.className, method.declaringClass);
+        assertSame(base.methods.get(0), method.methodDef);
+        assertSame(IntType.instance(), annotations.typeOf(call));
+        assertEquals(ClassNameType.instance(sub.className), annotations.typeOf(call.target));
+
+        final NewExp newSub = (NewExp)((VariableInitializationStmt)entry(program).get(0)).exp;
+        assertSame(sub, annotations.classOf(newSub).classDef);
+        assertEquals(ClassNameType.instance(sub.className), annotations.typeOf(newSub));
+    }
+
+    @Test
+    public void testBindsVariablesToTheirDeclarations() throws Exception {
+        final Program program = Parser.parse(PROGRAM);
+        final TypeAnnotations annotations = Typechecker.annotate(program);
+        final ClassDef base = program.classes.get(0);
+
+        // constructor parameter shadows the field
+        assertSame(base.constructorArguments.get(0),
+                   annotations.bindingOf((VariableExp)printed(base.constructorBody.get(0))));
+        // method parameter
+        final OpExp plus = (OpExp)returned(base.methods.get(0));
+        assertSame(base.methods.get(0).arguments.get(0), annotations.bindingOf((VariableExp)plus.left));
+        // field
+        assertSame(base.instanceVariables.get(0),
+                   annotations.bindingOf((VariableExp)returned(base.methods.get(1))));
+
+        // local, then shadowed only inside the if's true branch
+        final Vardec outer = ((VariableInitializationStmt)entry(program).get(1)).vardec;
+        final MethodCallExp call = (MethodCallExp)printed(entry(program).get(2));
+        assertSame(outer, annotations.bindingOf((VariableExp)call.params.get(0)));
+        final IfStmt ifStmt = (IfStmt)entry(program).get(3);
+        final List<Stmt> ifTrue = ((BlockStmt)ifStmt.ifTrue).body;
+        assertSame(((VariableInitializationStmt)ifTrue.get(0)).vardec,
+                   annotations.bindingOf((VariableExp)printed(ifTrue.get(1))));
+        assertSame(outer,
+                   annotations.bindingOf((VariableExp)printed(((BlockStmt)ifStmt.ifFalse).body.get(0))));
+    }
+
+    @Test
+    public void testOnlyRecordsWhenAsked() throws Exception {
+        assertNull(new Typechecker(Parser.parse(PROGRAM)).isWellTypedProgram());
+    }
+
+    @Test
+    public void testKeepsGoingWithDiagnostics() throws Exception {
+        final Program program = Parser.parse("{ int x = true; println(x + y); }");
+        final Diagnostics diagnostics = new Diagnostics();
+        final TypeAnnotations annotations =
+            new Typechecker(program, diagnostics, new TypeAnnotations()).isWellTypedProgram();
+        assertEquals(2, diagnostics.errors().size());
+        final OpExp plus = (OpExp)printed(entry(program).get(1));
+        // the failed declaration still binds x
+        assertSame(((VariableInitializationStmt)entry(program).get(0)).vardec,
+                   annotations.bindingOf((VariableExp)plus.left));
+        assertSame(ErrorType.instance(), annotations.typeOf(plus.right));
+        assertNull(annotations.bindingOf((VariableExp)plus.right));
+    }
+
+    @Test
+    public void testGrowsForLargePrograms() throws Exception {
+        final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+        final Program program = ProgramGenerator.generate(settings);
+        final TypeAnnotations annotations = Typechecker.annotate(program);
+        for (final MethodCallExp call : annotations.calls()) {
+            assertNotNull(annotations.typeOf(call.target));
+            assertNotNull(annotations.typeOf(call));
+        }
+        assertEquals(annotations.size(), Typechecker.annotate(program).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParallelCheckingRejectsAnnotations() throws Exception {
+        new Typechecker(Parser.parse(PROGRAM), null, new TypeAnnotations()).isWellTypedProgramParallel(2);
+    }
+}
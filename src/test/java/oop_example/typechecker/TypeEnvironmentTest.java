@@ -0,0 +1,68 @@
+package oop_example.typechecker;
+
+import oop_example.parser.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class TypeEnvironmentTest {
+    // always hashes to the same bucket, to exercise collision handling
+    public static class CollidingVariable extends Variable {
+        public CollidingVariable(final String name) {
+            super(name);
+        }
+        public int hashCode() { return 42; }
+    }
+
+    @Test
+    public void testExtendLeavesOriginalAlone() {
+        final TypeEnvironment outer =
+            TypeEnvironment.empty().extend(new Variable("x"), IntType.instance());
+        final TypeEnvironment inner = outer.extend(new Variable("y"), BoolType.instance());
+        assertEquals(BoolType.instance(), inner.get(new Variable("y")));
+        assertNull(outer.get(new Variable("y")));
+        assertEquals(1, outer.size());
+        assertEquals(2, inner.size());
+    }
+
+    @Test
+    public void testShadowing() {
+        final TypeEnvironment typeEnvironment =
+            TypeEnvironment.empty()
+            .extend(new Variable("x"), IntType.instance())
+            .extend(new Variable("x"), BoolType.instance());
+        assertEquals(BoolType.instance(), typeEnvironment.get(new Variable("x")));
+        assertEquals(1, typeEnvironment.size());
+    }
+
+    @Test
+    public void testManyBindings() {
+        TypeEnvironment typeEnvironment = TypeEnvironment.empty();
+        for (int index = 0; index < 10000; index++) {
+            typeEnvironment = typeEnvironment.extend(new Variable("x" + index),
+                                                     (index % 2 == 0) ? IntType.instance() : BoolType.instance());
+        }
+        assertEquals(10000, typeEnvironment.size());
+        for (int index = 0; index < 10000; index++) {
+            assertEquals((index % 2 == 0) ? IntType.instance() : BoolType.instance(),
+                         typeEnvironment.get(new Variable("x" + index)));
+        }
+        assertNull(typeEnvironment.get(new Variable("y")));
+    }
+
+    @Test
+    public void testCollisions() {
+        final TypeEnvironment typeEnvironment =
+            TypeEnvironment.empty()
+            .extend(new CollidingVariable("a"), IntType.instance())
+            .extend(new CollidingVariable("b"), BoolType.instance())
+            .extend(new Variable("c"), VoidType.instance())
+            .extend(new CollidingVariable("a"), VoidType.instance());
+        assertEquals(3, typeEnvironment.size());
+        assertEquals(VoidType.instance(), typeEnvironment.get(new CollidingVariable("a")));
+        assertEquals(BoolType.instance(), typeEnvironment.get(new CollidingVariable("b")));
+        assertEquals(VoidType.instance(), typeEnvironment.get(new Variable("c")));
+        assertNull(typeEnvironment.get(new CollidingVariable("d")));
+    }
+}
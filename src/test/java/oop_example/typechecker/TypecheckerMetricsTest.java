@@ -0,0 +1,143 @@
+package oop_example.typechecker;
+
+import oop_example.parser.*;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TypecheckerMetricsTest {
+    private static final String CLASS_A =
+        "class A extends Object { int f; constructor(int x) { super(); } " +
+        "  int get(int y) { return y + f; } }";
+
+    private static TypecheckerMetrics.Snapshot measure(final String source) throws Exception {
+        final TypecheckerMetrics metrics = new TypecheckerMetrics(false);
+        new Typechecker(Parser.parse(source), null, null, metrics).isWellTypedProgram();
+        return metrics.snapshot();
+    }
+
+    @Test
+    public void testCountsVisitsLookupsAndBindings() throws Exception {
+        final TypecheckerMetrics.Snapshot snapshot =
+            measure(CLASS_A + "{ A a = new A(1); println(a.get(2)); if (true) { println(1); } else { } }");
+        final Map<String, Long> visits = snapshot.nodeVisits;
+        assertEquals(3L, (long)visits.get("IntLiteralExp"));
+        assertEquals(3L, (long)visits.get("VariableExp"));
+        assertEquals(1L, (long)visits.get("OpExp"));
+        assertEquals(1L, (long)visits.get("MethodCallExp"));
+        assertEquals(1L, (long)visits.get("NewExp"));
+        assertEquals(0L, (long)visits.get("ThisExp"));
+        // method body, constructor body, entry point and both branches
+        assertEquals(5L, (long)visits.get("BlockStmt"));
+        assertEquals(2L, (long)visits.get("PrintlnStmt"));
+        assertEquals(20L, snapshot.nodesVisited());
+
+        // A for its fields twice, Object's constructor, new A
+        assertEquals(4L, snapshot.classLookups);
+        // a.get, once for its parameter and return types
+        assertEquals(1L, snapshot.methodLookups);
+        assertEquals(0L, snapshot.classLookupMisses + snapshot.methodLookupMisses);
+
+        // x and y next to the field f, then a on its own
+        assertEquals(3L, snapshot.bindings);
+        assertEquals(2, snapshot.maxEnvironmentSize);
+        assertEquals(5.0 / 3.0, snapshot.meanEnvironmentSize(), 1e-9);
+        assertEquals(0L, snapshot.errors);
+    }
+
+    @Test
+    public void testLooksUpEachCallOnceWhenAnnotating() throws Exception {
+        final TypecheckerMetrics metrics = new TypecheckerMetrics(false);
+        final TypeAnnotations annotations =
+            new Typechecker(Parser.parse(CLASS_A + "{ println(new A(1).get(2)); }"),
+                            null, new TypeAnnotations(), metrics).isWellTypedProgram();
+        assertEquals(1L, metrics.snapshot().methodLookups);
+        assertEquals(new MethodName("get"), annotations.methodOf(annotations.calls().get(0)).methodDef.methodName);
+    }
+
+    @Test
+    public void testTimesEachConstructorMethodAndClass() throws Exception {
+        final TypecheckerMetrics.Snapshot snapshot = measure(CLASS_A + "{ }");
+        final List<TypecheckerMetrics.Timing> timings = snapshot.timings;
+        assertEquals(2, timings.size());
+        assertEquals(new ClassName("A"), timings.get(0).className);
+        assertNull(timings.get(0).methodName);
+        assertEquals(new MethodName("get"), timings.get(1).methodName);
+        final long classNanos = snapshot.classNanos.get(new ClassName("A"));
+        assertTrue(classNanos >= timings.get(0).nanos + timings.get(1).nanos);
+        assertTrue(snapshot.programNanos >= classNanos);
+    }
+
+    @Test
+    public void testCountsErrorsAndMisses() throws Exception {
+        final String source = CLASS_A + "{ println(new A(1).nope()); println(true + 1); println(new B()); }";
+        final TypecheckerMetrics collecting = new TypecheckerMetrics(false);
+        new Typechecker(Parser.parse(source), new Diagnostics(), null, collecting).isWellTypedProgram();
+        assertEquals(3L, collecting.snapshot().errors);
+        assertEquals(1L, collecting.snapshot().methodLookupMisses);
+        assertEquals(1L, collecting.snapshot().classLookupMisses);
+
+        final TypecheckerMetrics throwing = new TypecheckerMetrics(false);
+        try {
+            new Typechecker(Parser.parse(source), null, null, throwing).isWellTypedProgram();
+            fail("should have thrown");
+        } catch (final TypeErrorException e) {
+            assertEquals(1L, throwing.snapshot().errors);
+        }
+    }
+
+    @Test
+    public void testEmitsFlightRecorderEvents() throws Exception {
+        final Path file = Files.createTempFile("typechecker", ".jfr");
+        try {
+            final Recording recording = new Recording();
+            recording.enable("oop_example.TypecheckClass");
+            recording.enable("oop_example.TypecheckMethod");
+            recording.enable("oop_example.TypecheckProgram");
+            recording.start();
+            new Typechecker(Parser.parse(CLASS_A + "{ println(new A(1).get(2)); }"),
+                            null, null, new TypecheckerMetrics()).isWellTypedProgram();
+            recording.stop();
+            recording.dump(file);
+            recording.close();
+
+            final Map<String, Integer> counts = new HashMap<String, Integer>();
+            long nodesVisited = -1;
+            for (final RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                final String name = event.getEventType().getName();
+                final Integer count = counts.get(name);
+                counts.put(name, (count == null) ? 1 : count + 1);
+                if (name.equals("oop_example.TypecheckProgram")) {
+                    nodesVisited = event.getLong("nodesVisited");
+                } else if (name.equals("oop_example.TypecheckMethod")) {
+                    assertEquals("A", event.getString("className"));
+                }
+            }
+            assertEquals(Integer.valueOf(1), counts.get("oop_example.TypecheckClass"));
+            assertEquals(Integer.valueOf(2), counts.get("oop_example.TypecheckMethod"));
+            assertEquals(Integer.valueOf(1), counts.get("oop_example.TypecheckProgram"));
+            assertEquals(12L, nodesVisited);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParallelCheckingRejectsMetrics() throws Exception {
+        new Typechecker(Parser.parse(CLASS_A + "{ }"), null, null, new TypecheckerMetrics(false))
+            .isWellTypedProgramParallel(2);
+    }
+}
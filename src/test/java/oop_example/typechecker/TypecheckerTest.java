@@ -3,21 +3,34 @@ package oop_example.typechecker;
 import oop_example.parser.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 import org.junit.Test;
 
-import java.util.Map;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class TypecheckerTest {
     public static final Typechecker emptyTypechecker =
-        new Typechecker(new Program(new ArrayList<ClassDef>(),
+        makeTypechecker(new Program(new ArrayList<ClassDef>(),
                                     new ExpStmt(new IntLiteralExp(0))));
 
+    public static Typechecker makeTypechecker(final Program program) {
+        try {
+            return new Typechecker(program);
+        } catch (final TypeErrorException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Test
     public void testVariableInScope() throws TypeErrorException {
-        final Type expectedType = new IntType();
-        final Map<Variable, Type> typeEnvironment = new HashMap<Variable, Type>();
-        typeEnvironment.put(new Variable("x"), new IntType());
+        final Type expectedType = IntType.instance();
+        final TypeEnvironment typeEnvironment =
+            TypeEnvironment.empty().extend(new Variable("x"), IntType.instance());
         
         final Type receivedType =
             emptyTypechecker.typeofVariable(new VariableExp(new Variable("x")),
@@ -27,14 +40,14 @@ public class TypecheckerTest {
     
     @Test(expected = TypeErrorException.class)
     public void testVariableOutOfScope() throws TypeErrorException {
-        final Map<Variable, Type> typeEnvironment = new HashMap<Variable, Type>();
+        final TypeEnvironment typeEnvironment = TypeEnvironment.empty();
         emptyTypechecker.typeofVariable(new VariableExp(new Variable("x")),
                                         typeEnvironment);
     }
 
     @Test
     public void testThisInClass() throws TypeErrorException {
-        assertEquals(new ClassNameType(new ClassName("foo")),
+        assertEquals(ClassNameType.instance(new ClassName("foo")),
                      emptyTypechecker.typeofThis(new ClassName("foo")));
     }
 
@@ -42,4 +55,295 @@ public class TypecheckerTest {
     public void testThisNotInClass() throws TypeErrorException {
         emptyTypechecker.typeofThis(null);
     }
+
+    // class Base extends Object {
+    //   int x;
+    //   constructor(int x) { super(); }
+    //   int getX(bool b) { return x; }
+    //   void doNothing() { return; }
+    // }
+    // class Sub extends Base {
+    //   constructor() { super(1); }
+    //   void doNothing() { return; }
+    // }
+    public static final ClassDef baseClass =
+        new ClassDef(new ClassName("Base"),
+                     new ClassName("Object"),
+                     Arrays.asList(new Vardec(IntType.instance(), new Variable("x"))),
+                     Arrays.asList(new Vardec(IntType.instance(), new Variable("x"))),
+                     new ArrayList<Exp>(),
+                     new ArrayList<Stmt>(),
+                     Arrays.asList(new MethodDef(IntType.instance(),
+                                                 new MethodName("getX"),
+                                                 Arrays.asList(new Vardec(BoolType.instance(), new Variable("b"))),
+                                                 new ReturnNonVoidStmt(new VariableExp(new Variable("x")))),
+                                   new MethodDef(VoidType.instance(),
+                                                 new MethodName("doNothing"),
+                                                 new ArrayList<Vardec>(),
+                                                 new ReturnVoidStmt())));
+    public static final ClassDef subClass =
+        new ClassDef(new ClassName("Sub"),
+                     new ClassName("Base"),
+                     new ArrayList<Vardec>(),
+                     new ArrayList<Vardec>(),
+                     Arrays.asList((Exp)new IntLiteralExp(1)),
+                     new ArrayList<Stmt>(),
+                     Arrays.asList(new MethodDef(VoidType.instance(),
+                                                 new MethodName("doNothing"),
+                                                 new ArrayList<Vardec>(),
+                                                 new ReturnVoidStmt())));
+
+    public static Typechecker baseSubTypechecker() throws TypeErrorException {
+        return new Typechecker(new Program(Arrays.asList(subClass, baseClass),
+                                           new ExpStmt(new IntLiteralExp(0))));
+    }
+
+    @Test
+    public void testInheritedMethodParameterTypes() throws TypeErrorException {
+        final Typechecker typechecker = baseSubTypechecker();
+        final List<Type> fromSub =
+            typechecker.expectedParameterTypesForClassAndMethod(new ClassName("Sub"),
+                                                                new MethodName("getX"));
+        assertEquals(Arrays.asList(BoolType.instance()), fromSub);
+        assertSame(fromSub,
+                   typechecker.expectedParameterTypesForClassAndMethod(new ClassName("Base"),
+                                                                       new MethodName("getX")));
+        assertEquals(IntType.instance(),
+                     typechecker.expectedReturnTypeForClassAndMethod(new ClassName("Sub"),
+                                                                     new MethodName("getX")));
+    }
+
+    @Test
+    public void testOverrideReusesSlot() throws TypeErrorException {
+        final ClassTable classTable = baseSubTypechecker().classTable;
+        final MethodInfo inBase = classTable.lookupMethod(new ClassName("Base"),
+                                                          new MethodName("doNothing"));
+        final MethodInfo inSub = classTable.lookupMethod(new ClassName("Sub"),
+                                                         new MethodName("doNothing"));
+        assertEquals(inBase.slot, inSub.slot);
+        assertEquals(new ClassName("Sub"), inSub.declaringClass);
+        assertEquals(2, classTable.lookupClass(new ClassName("Sub")).methodTable.size());
+    }
+
+    @Test
+    public void testConstructorTypes() throws TypeErrorException {
+        final Typechecker typechecker = baseSubTypechecker();
+        assertEquals(Arrays.asList(IntType.instance()),
+                     typechecker.expectedConstructorTypesForClass(new ClassName("Base")));
+        assertEquals(new ArrayList<Type>(),
+                     typechecker.expectedConstructorTypesForClass(new ClassName("Object")));
+    }
+
+    @Test(expected = TypeErrorException.class)
+    public void testConstructorTypesNoSuchClass() throws TypeErrorException {
+        emptyTypechecker.expectedConstructorTypesForClass(new ClassName("Base"));
+    }
+
+    @Test(expected = TypeErrorException.class)
+    public void testNoSuchMethod() throws TypeErrorException {
+        baseSubTypechecker().expectedParameterTypesForClassAndMethod(new ClassName("Base"),
+                                                                     new MethodName("foo"));
+    }
+
+    @Test(expected = TypeErrorException.class)
+    public void testDuplicateMethod() throws TypeErrorException {
+        final MethodDef method = baseClass.methods.get(1);
+        new Typechecker(new Program(Arrays.asList(new ClassDef(new ClassName("Dup"),
+                                                               new ClassName("Object"),
+                                                               new ArrayList<Vardec>(),
+                                                               new ArrayList<Vardec>(),
+                                                               new ArrayList<Exp>(),
+                                                               new ArrayList<Stmt>(),
+                                                               Arrays.asList(method, method))),
+                                    new ExpStmt(new IntLiteralExp(0))));
+    }
+
+    @Test
+    public void testWellTypedBaseSub() throws TypeErrorException {
+        baseSubTypechecker().isWellTypedProgram();
+    }
+
+    public static ClassDef emptyClass(final String name, final String extendsName) {
+        return new ClassDef(new ClassName(name),
+                            new ClassName(extendsName),
+                            new ArrayList<Vardec>(),
+                            new ArrayList<Vardec>(),
+                            new ArrayList<Exp>(),
+                            new ArrayList<Stmt>(),
+                            new ArrayList<MethodDef>());
+    }
+
+    @Test
+    public void testSubtypes() throws TypeErrorException {
+        final Typechecker typechecker = baseSubTypechecker();
+        final Type object = ClassNameType.instance(new ClassName("Object"));
+        final Type base = ClassNameType.instance(new ClassName("Base"));
+        final Type sub = ClassNameType.instance(new ClassName("Sub"));
+        assertTrue(typechecker.isSubtypeOf(sub, base));
+        assertTrue(typechecker.isSubtypeOf(sub, object));
+        assertTrue(typechecker.isSubtypeOf(base, object));
+        assertFalse(typechecker.isSubtypeOf(base, sub));
+        assertFalse(typechecker.isSubtypeOf(object, base));
+        assertFalse(typechecker.isSubtypeOf(IntType.instance(), BoolType.instance()));
+        assertFalse(typechecker.isSubtypeOf(IntType.instance(), object));
+    }
+
+    @Test
+    public void testSiblingsAreNotSubtypes() throws TypeErrorException {
+        final Typechecker typechecker =
+            new Typechecker(new Program(Arrays.asList(emptyClass("A", "Object"),
+                                                      emptyClass("B", "A"),
+                                                      emptyClass("C", "Object")),
+                                        new ExpStmt(new IntLiteralExp(0))));
+        assertFalse(typechecker.isSubtypeOf(ClassNameType.instance(new ClassName("C")),
+                                            ClassNameType.instance(new ClassName("A"))));
+        assertFalse(typechecker.isSubtypeOf(ClassNameType.instance(new ClassName("B")),
+                                            ClassNameType.instance(new ClassName("C"))));
+    }
+
+    @Test(expected = TypeErrorException.class)
+    public void testIncompatibleTypes() throws TypeErrorException {
+        baseSubTypechecker().isEqualOrSubtypeOf(ClassNameType.instance(new ClassName("Base")),
+                                                ClassNameType.instance(new ClassName("Sub")));
+    }
+
+    @Test(expected = TypeErrorException.class)
+    public void testCyclicHierarchy() throws TypeErrorException {
+        new Typechecker(new Program(Arrays.asList(emptyClass("Foo", "Bar"),
+                                                  emptyClass("Bar", "Foo")),
+                                    new ExpStmt(new IntLiteralExp(0))));
+    }
+
+    @Test(expected = TypeErrorException.class)
+    public void testMissingParent() throws TypeErrorException {
+        new Typechecker(new Program(Arrays.asList(emptyClass("Foo", "Bar")),
+                                    new ExpStmt(new IntLiteralExp(0))));
+    }
+
+    @Test
+    public void testDeepHierarchy() throws TypeErrorException {
+        final List<ClassDef> classes = new ArrayList<ClassDef>();
+        for (int index = 50000; index > 0; index--) {
+            classes.add(emptyClass("C" + index, (index == 1) ? "Object" : "C" + (index - 1)));
+        }
+        final Typechecker typechecker =
+            new Typechecker(new Program(classes, new ExpStmt(new IntLiteralExp(0))));
+        assertTrue(typechecker.isSubtypeOf(ClassNameType.instance(new ClassName("C50000")),
+                                           ClassNameType.instance(new ClassName("C1"))));
+        assertFalse(typechecker.isSubtypeOf(ClassNameType.instance(new ClassName("C1")),
+                                            ClassNameType.instance(new ClassName("C50000"))));
+    }
+
+    @Test
+    public void testTypesAreInterned() throws TypeErrorException {
+        assertSame(ClassNameType.instance(new ClassName("Base")),
+                   ClassNameType.instance(new ClassName("Base")));
+        assertSame(IntType.instance(),
+                   emptyTypechecker.typeof(new IntLiteralExp(1), TypeEnvironment.empty(), null));
+        assertSame(BoolType.instance(),
+                   emptyTypechecker.typeof(new OpExp(new IntLiteralExp(1),
+                                                     LessThanOp.instance(),
+                                                     new IntLiteralExp(2)),
+                                           TypeEnvironment.empty(),
+                                           null));
+    }
+
+    @Test
+    public void testCollectsAllErrorsWithoutCascading() {
+        // class Bad extends Object {
+        //   constructor() { super(); }
+        //   int first() { return undefined + 1; }
+        //   bool second() { return 1; }
+        // }
+        // int y = missing;
+        // println(y + true);
+        final ClassDef bad =
+            new ClassDef(new ClassName("Bad"),
+                         new ClassName("Object"),
+                         new ArrayList<Vardec>(),
+                         new ArrayList<Vardec>(),
+                         new ArrayList<Exp>(),
+                         new ArrayList<Stmt>(),
+                         Arrays.asList(new MethodDef(IntType.instance(),
+                                                     new MethodName("first"),
+                                                     new ArrayList<Vardec>(),
+                                                     new ReturnNonVoidStmt(new OpExp(new VariableExp(new Variable("undefined")),
+                                                                                     PlusOp.instance(),
+                                                                                     new IntLiteralExp(1)))),
+                                       new MethodDef(BoolType.instance(),
+                                                     new MethodName("second"),
+                                                     new ArrayList<Vardec>(),
+                                                     new ReturnNonVoidStmt(new IntLiteralExp(1)))));
+        final Stmt entryPoint =
+            new BlockStmt(Arrays.asList(new VariableInitializationStmt(new Vardec(IntType.instance(), new Variable("y")),
+                                                                       new VariableExp(new Variable("missing"))),
+                                        new PrintlnStmt(new OpExp(new VariableExp(new Variable("y")),
+                                                                  PlusOp.instance(),
+                                                                  new BoolLiteralExp(true)))));
+        final List<TypeError> errors =
+            Typechecker.collectErrors(new Program(Arrays.asList(bad), entryPoint));
+        assertEquals(Arrays.asList(new TypeError("Used variable not in scope: undefined",
+                                                 new ClassName("Bad"),
+                                                 new MethodName("first")),
+                                   new TypeError("types incompatible: IntType, BoolType",
+                                                 new ClassName("Bad"),
+                                                 new MethodName("second")),
+                                   new TypeError("Used variable not in scope: missing", null, null),
+                                   new TypeError("Operand type mismatch for +", null, null)),
+                     errors);
+    }
+
+    @Test
+    public void testCollectsErrorsFromMissingMethods() {
+        // new Object().foo();
+        // println(1 < true);
+        final Stmt entryPoint =
+            new BlockStmt(Arrays.asList(new ExpStmt(new MethodCallExp(new NewExp(new ClassName("Object"),
+                                                                                  new ArrayList<Exp>()),
+                                                                       new MethodName("foo"),
+                                                                       new ArrayList<Exp>())),
+                                        new PrintlnStmt(new OpExp(new IntLiteralExp(1),
+                                                                  LessThanOp.instance(),
+                                                                  new BoolLiteralExp(true)))));
+        assertEquals(2, Typechecker.collectErrors(new Program(new ArrayList<ClassDef>(),
+                                                              entryPoint)).size());
+    }
+
+    @Test
+    public void testReturnInEntryPointReportedBeforeItsExpression() {
+        // { return this; }
+        final Stmt entryPoint = new BlockStmt(Arrays.<Stmt>asList(new ReturnNonVoidStmt(new ThisExp())));
+        try {
+            emptyTypechecker.isWellTypedStmt(entryPoint, TypeEnvironment.empty(), null, null);
+            fail("expected a type error");
+        } catch (final TypeErrorException e) {
+            assertEquals("return in program entry point", e.getMessage());
+        }
+        assertEquals(Arrays.asList(new TypeError("return in program entry point", null, null),
+                                   new TypeError("this used in the entry point", null, null)),
+                     Typechecker.collectErrors(new Program(new ArrayList<ClassDef>(), entryPoint)));
+    }
+
+    @Test
+    public void testCollectsErrorsInsideMissingMethodsAndClasses() throws Exception {
+        final List<TypeError> errors = Typechecker.collectErrors(Parser.parse(
+            "{ Object a = new Object(); a.nothing(1 + false); println(new Missing(2 < true)); }"));
+        assertEquals(Arrays.asList(new TypeError("No method named MethodName(nothing) on class ClassName(Object)",
+                                                 null, null),
+                                   new TypeError("Operand type mismatch for +", null, null),
+                                   new TypeError("No such class: ClassName(Missing)", null, null),
+                                   new TypeError("Operand type mismatch for <", null, null)),
+                     errors);
+    }
+
+    @Test
+    public void testCollectsClassHierarchyErrorsOutsideAnyBody() throws Exception {
+        final List<TypeError> errors = Typechecker.collectErrors(Parser.parse(
+            "class A extends B { constructor() { super(); } } { }"));
+        assertEquals(Arrays.asList(TypeError.inClassHierarchy("Class ClassName(A) extends nonexistent class: ClassName(B)")),
+                     errors);
+        assertFalse(errors.get(0).equals(new TypeError(errors.get(0).message, null, null)));
+        assertEquals("class hierarchy: Class ClassName(A) extends nonexistent class: ClassName(B)",
+                     errors.get(0).toString());
+    }
 }
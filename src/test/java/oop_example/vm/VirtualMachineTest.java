@@ -0,0 +1,117 @@
+package oop_example.vm;
+
+import oop_example.generator.ProgramGenerator;
+import oop_example.interpreter.EvaluationException;
+import oop_example.interpreter.Interpreter;
+import oop_example.parser.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+public class VirtualMachineTest {
+    public static String runVm(final Program program) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        VirtualMachine.run(program, new PrintStream(bytes, true));
+        return bytes.toString();
+    }
+
+    public static void assertOutput(final String source, final String... expected) throws Exception {
+        final String printed = runVm(Parser.parse(source));
+        assertEquals(String.join(",", expected),
+                     String.join(",", printed.isEmpty() ? new String[0] : printed.split(System.lineSeparator())));
+    }
+
+    @Test
+    public void testArithmeticScopesAndBranches() throws Exception {
+        assertOutput("{ int x = 1 + 2;" +
+                     "  println(x);" +
+                     "  println(x < 3);" +
+                     "  println(3 == x);" +
+                     "  println(x + x + 4);" +
+                     "  { int x = 10; println(x); }" +
+                     "  if (x < 5) { int x = 20; println(x); } else println(0);" +
+                     "  if (4 < x) println(1); else println(x);" +
+                     "  println(x);" +
+                     "  while (x < 3) println(0);" +
+                     "}",
+                     "3", "false", "true", "10", "10", "20", "3", "3");
+    }
+
+    // the frame stack is the VM's own, so recursion doesn't use Java stack
+    @Test
+    public void testDeepRecursion() throws Exception {
+        assertOutput("class Math extends Object {" +
+                     "  constructor() { super(); }" +
+                     "  int sum(int n) { if (n < 1) { return 0; } else { return n + this.sum(n + -1); } }" +
+                     "  bool isEven(int n) { if (n == 0) { return true; } else { return this.isOdd(n + -1); } }" +
+                     "  bool isOdd(int n) { if (n == 0) { return false; } else { return this.isEven(n + -1); } }" +
+                     "}" +
+                     "{ Math m = new Math(); println(m.sum(100000)); println(m.isEven(7)); }",
+                     "705082704", "false");
+    }
+
+    @Test
+    public void testConstructorsFieldsAndDispatch() throws Exception {
+        assertOutput("class A extends Object { int x, bool b; constructor(int x) { super(); println(x); } " +
+                     "  int getX() { return x; } bool getB() { return b; } int id() { return 1; } }" +
+                     "class B extends A { A x, int z; constructor(int y, A a) { super(y + z); println(y); } " +
+                     "  A mine() { return x; } int id() { return 2; } }" +
+                     "{ B b = new B(10, new A(3)); println(b.getX()); println(b.getB()); println(b.mine());" +
+                     "  A a = b; println(a.id()); println(new A(4).id()); Object o = new Object(); }",
+                     "3", "10", "10", "0", "false", "null", "2", "4", "1");
+    }
+
+    @Test
+    public void testSuperinstructions() throws Exception {
+        final VirtualMachine vm = new VirtualMachine(Parser.parse(
+            "class Loop extends Object { constructor() { super(); } " +
+            "  int run(int i, int n) { while (i < n) { return this.run(i + 1, n); } return i; } }" +
+            "{ println(new Loop().run(0, 10)); }"), new PrintStream(new ByteArrayOutputStream()));
+        final String code = vm.disassemble();
+        assertTrue(code, code.contains("JGE 0, 1, "));
+        assertTrue(code, code.contains("IADDI 3, 0, 1"));
+        // the loop condition branches directly, without making a bool
+        assertFalse(code, code.contains("ILT"));
+    }
+
+    @Test
+    public void testRuntimeErrors() throws Exception {
+        try {
+            runVm(Parser.parse("class A extends Object { A other; constructor() { super(); } " +
+                               "  int m() { return other.m(); } }" +
+                               "{ println(new A().m()); }"));
+            fail("calling a method on null should fail");
+        } catch (final EvaluationException e) {
+            assertEquals("Called m on null", e.getMessage());
+        }
+        try {
+            runVm(Parser.parse("class A extends Object { constructor() { super(); } " +
+                               "  int m() { return this.m(); } }" +
+                               "{ println(new A().m()); }"));
+            fail("unbounded recursion should fail");
+        } catch (final EvaluationException e) {
+            assertEquals("Stack overflow", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGeneratedProgramsMatchInterpreter() throws Exception {
+        for (long seed = 0; seed < 10; seed++) {
+            final ProgramGenerator.Settings settings = new ProgramGenerator.Settings();
+            settings.classCount = 6;
+            settings.methodsPerClass = 3;
+            settings.blockLength = 6;
+            settings.seed = seed;
+            final Program program = ProgramGenerator.generate(settings);
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Interpreter.run(program, new PrintStream(bytes, true));
+            assertEquals("seed " + seed, bytes.toString(), runVm(program));
+        }
+    }
+}